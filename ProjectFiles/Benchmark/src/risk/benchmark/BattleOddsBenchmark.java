@@ -0,0 +1,64 @@
+package risk.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import risk.server.domain.BattleResolver;
+import risk.server.domain.BattleSimulator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to compute the odds of a battle, estimated by the {@link BattleSimulator} and exactly by
+ * {@link BattleResolver#distribution}, which the server uses to answer {@code battleOdds}.
+ * <p>
+ * The attacker keeps one unit; the simulator fights {@value #BATTLES} battles on the common fork-join pool, so its
+ * time depends on the number of cores, while the exact odds take time bounded by the product of the units on both
+ * countries.
+ * <p>
+ * Run with {@code java -cp <classpath> risk.benchmark.BattleOddsBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BattleOddsBenchmark {
+    private static final long BATTLES = 1_000_000;
+
+    @Param({"3:2", "10:10", "30:30", "100:100"})
+    public String armies;
+
+    private int attackerUnits;
+    private int defenderUnits;
+    private BattleSimulator simulator;
+    private long seed = 0;
+
+    @Setup
+    public void parseArmies(){
+        String[] units = armies.split(":");
+        attackerUnits = Integer.parseInt(units[0]);
+        defenderUnits = Integer.parseInt(units[1]);
+        simulator = new BattleSimulator();
+    }
+
+    @Benchmark
+    public double simulated(){
+        return simulator.simulate(attackerUnits, defenderUnits, 1, BATTLES, seed++).getWinProbability();
+    }
+
+    @Benchmark
+    public double exact(){
+        return BattleResolver.distribution(attackerUnits, defenderUnits, 1).getConquestProbability();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BattleOddsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,139 @@
+package risk.benchmark;
+
+import risk.common.FileUtils;
+import risk.server.domain.RiskAdministration;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Provides the maps the domain benchmarks run on: the classic map with 42 countries and generated maps of any size.
+ * <p>
+ * A generated map of {@code n} countries lays the countries out on a square grid, each country bordering the countries
+ * above, below, left and right of it, and groups them into continents of 42 countries with 3 bonus units each. The
+ * first six continents carry the names of the classic continents, so the mission cards of a game find their targets on
+ * every map. The files of a generated map are written once per JVM into a temporary directory, which is made known to
+ * {@link FileUtils} through {@link FileUtils#RESOURCE_DIRECTORY_PROPERTY}; the game then loads them like the classic map.
+ * <p>
+ * Benchmarks take the map as a {@code @Param}, either {@value #CLASSIC} or the number of countries.
+ */
+public final class BenchmarkMaps {
+    /** The name of the classic map, as used in the {@code @Param} of the benchmarks. */
+    public static final String CLASSIC = "classic";
+    /** The colors of the players, in the order they join. */
+    public static final String[] COLORS = {"Red", "Blue", "Green", "Yellow", "Black", "Pink"};
+
+    private static final int COUNTRIES_PER_CONTINENT = 42;
+    private static final int BONUS_UNITS = 3;
+    private static final String[] CONTINENT_NAMES = {"North America", "South America", "Europe", "Africa", "Asia", "Australia"};
+
+    private static File directory;
+
+    private BenchmarkMaps(){
+    }
+
+    /**
+     * Retrieves the name of the file holding the countries of a map, writing the files of a generated map if necessary.
+     *
+     * @param map {@value #CLASSIC} or the number of countries of a generated map.
+     * @return The name of the file, relative to the assets.
+     * @throws IOException If the files of a generated map cannot be written.
+     */
+    public static String countriesFile(String map) throws IOException {
+        if (CLASSIC.equals(map)){
+            return "Risk_Cou.txt";
+        }
+        generate(Integer.parseInt(map));
+        return "Generated" + map + "_Cou.txt";
+    }
+
+    /**
+     * Retrieves the name of the file holding the continents of a map, writing the files of a generated map if necessary.
+     *
+     * @param map {@value #CLASSIC} or the number of countries of a generated map.
+     * @return The name of the file, relative to the assets.
+     * @throws IOException If the files of a generated map cannot be written.
+     */
+    public static String continentsFile(String map) throws IOException {
+        if (CLASSIC.equals(map)){
+            return "Risk_Con.txt";
+        }
+        generate(Integer.parseInt(map));
+        return "Generated" + map + "_Con.txt";
+    }
+
+    /**
+     * Creates a game on a map and starts it, so every country is owned by one of the players.
+     *
+     * @param map {@value #CLASSIC} or the number of countries of a generated map.
+     * @param players The number of players, 2 to 6.
+     * @param seed The seed of the dice.
+     * @return The started game.
+     * @throws IOException If the files of a generated map cannot be written.
+     */
+    public static RiskAdministration newGame(String map, int players, long seed) throws IOException {
+        RiskAdministration game = new RiskAdministration(countriesFile(map), continentsFile(map), seed);
+        for (int i = 0; i < players; i++){
+            game.addPlayer("Player " + i, i, COLORS[i]);
+        }
+        game.startGame();
+        return game;
+    }
+
+    /**
+     * Writes the files of a generated map, unless they have been written before.
+     *
+     * @param countryCount The number of countries.
+     * @throws IOException If the files cannot be written.
+     */
+    private static synchronized void generate(int countryCount) throws IOException {
+        if (directory == null){
+            directory = Files.createTempDirectory("risk-benchmark").toFile();
+            directory.deleteOnExit();
+            System.setProperty(FileUtils.RESOURCE_DIRECTORY_PROPERTY, directory.getPath());
+        }
+        File assets = new File(directory, "assets");
+        File countriesFile = new File(assets, "Generated" + countryCount + "_Cou.txt");
+        File continentsFile = new File(assets, "Generated" + countryCount + "_Con.txt");
+        if (countriesFile.isFile()){
+            return;
+        }
+        assets.mkdirs();
+        assets.deleteOnExit();                                          //Deleted after the files registered later
+        int width = (int) Math.ceil(Math.sqrt(countryCount));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(countriesFile))) {
+            for (int i = 0; i < countryCount; i++){
+                writer.write("Country " + i + ", C" + i);
+                if (i >= width){                                        //Above
+                    writer.write(", Country " + (i - width));
+                }
+                if (i + width < countryCount){                          //Below
+                    writer.write(", Country " + (i + width));
+                }
+                if (i % width > 0){                                     //Left
+                    writer.write(", Country " + (i - 1));
+                }
+                if (i % width < width - 1 && i + 1 < countryCount){     //Right
+                    writer.write(", Country " + (i + 1));
+                }
+                writer.write("\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(continentsFile))) {
+            for (int first = 0; first < countryCount; first += COUNTRIES_PER_CONTINENT){
+                int continent = first / COUNTRIES_PER_CONTINENT;
+                writer.write(continent < CONTINENT_NAMES.length ? CONTINENT_NAMES[continent] : "Continent " + continent);
+                writer.write(", " + BONUS_UNITS);
+                for (int i = first; i < Math.min(first + COUNTRIES_PER_CONTINENT, countryCount); i++){
+                    writer.write(", Country " + i);
+                }
+                writer.write("\n");
+            }
+        }
+        countriesFile.deleteOnExit();
+        continentsFile.deleteOnExit();
+    }
+}
@@ -0,0 +1,196 @@
+package risk.benchmark;
+
+import risk.server.network.GameServer;
+import risk.server.network.TransportMode;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simple load test comparing the transports of the {@link GameServer} under many simultaneous connections.
+ * <p>
+ * For every transport and connection count a fresh server is started in its own JVM, so that the client side does
+ * not compete with the server for threads and file descriptors. The simulated clients run on virtual threads. Each
+ * of them connects, waits for the welcome message and keeps its connection open until all clients are connected.
+ * Then every client sends {@code listRooms} once and waits for the reply. The test reports how long connecting all
+ * clients took, the round trip times of the requests and the number of clients that failed.
+ * <p>
+ * Usage: {@code java risk.benchmark.ConnectionLoadTest [transports] [connection counts]}, e.g.
+ * {@code ConnectionLoadTest thread,virtual 1000,5000,10000}, which are also the defaults. The file descriptor limit
+ * ({@code ulimit -n}) must be larger than the highest connection count. The test lives in the benchmark module, so
+ * it is not part of the server itself; the server module and its assets must be on the class path.
+ */
+public class ConnectionLoadTest {
+    private static final int BASE_PORT = 12400;
+    private static final long TIMEOUT_SECONDS = 120;
+
+    /**
+     * Runs the load test for all combinations of the given transports and connection counts.
+     *
+     * @param args Command-line arguments: optionally a comma separated list of transports and one of connection counts.
+     * @throws Exception If a server cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        String[] transports = (args.length > 0 ? args[0] : "thread,virtual").split(",");
+        int[] connectionCounts = Arrays.stream((args.length > 1 ? args[1] : "1000,5000,10000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-8s %8s %10s %10s %10s %10s %8s%n",
+                "mode", "clients", "connect ms", "p50 ms", "p99 ms", "max ms", "failed");
+        int port = BASE_PORT;
+        for (int connections : connectionCounts){
+            for (String transport : transports){
+                Process server = startServer(TransportMode.fromName(transport), port);
+                try {
+                    Result result = run(port, connections);
+                    System.out.printf("%-8s %8d %10d %10.1f %10.1f %10.1f %8d%n",
+                            transport, connections, result.connectMillis,
+                            result.percentile(50), result.percentile(99), result.percentile(100), result.failed);
+                } finally {
+                    server.destroy();
+                    server.waitFor(10, TimeUnit.SECONDS);
+                }
+                port++;
+            }
+        }
+    }
+
+    /**
+     * Starts a GameServer with the given transport in a new JVM using the current class path.
+     *
+     * @param transportMode The transport the server uses.
+     * @param port The port the server listens on.
+     * @return The server process.
+     * @throws IOException If the process cannot be started.
+     * @throws InterruptedException If the thread is interrupted while waiting for the server.
+     */
+    private static Process startServer(TransportMode transportMode, int port) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                GameServer.class.getName(), transportMode.name(), String.valueOf(port))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroy));  //Do not leave the server running when aborted
+        while (true){                                //Wait until the server accepts connections
+            try (Socket probe = new Socket("localhost", port)){
+                return process;
+            } catch (ConnectException e) {
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * Connects the given number of clients to the server and measures the round trip of one request per client.
+     *
+     * @param port The port the server listens on.
+     * @param connections The number of simultaneous clients.
+     * @return The measurements of this run.
+     * @throws InterruptedException If the thread is interrupted while waiting for the clients.
+     */
+    private static Result run(int port, int connections) throws InterruptedException {
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(connections);
+        AtomicInteger failed = new AtomicInteger();
+        long[] roundTrips = new long[connections];
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()){
+            for (int i = 0; i < connections; i++){
+                int client = i;
+                clients.execute(() -> {
+                    boolean counted = false;
+                    try (Socket socket = new Socket("localhost", port)){
+                        socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                        in.readLine();                              //Welcome message
+                        connected.countDown();
+                        counted = true;
+                        go.await();
+
+                        long requestStart = System.nanoTime();
+                        out.println("listRooms");
+                        String line;
+                        while ((line = in.readLine()) != null && !line.startsWith("ROOM_LIST:")){
+                            //Skip broadcasts that arrive before the reply
+                        }
+                        roundTrips[client] = System.nanoTime() - requestStart;
+                        out.println("disconnect");
+                    } catch (IOException | InterruptedException e) {
+                        failed.incrementAndGet();
+                        roundTrips[client] = -1;
+                    } finally {
+                        if (!counted){
+                            connected.countDown();
+                        }
+                        done.countDown();
+                    }
+                });
+            }
+            connected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            go.countDown();
+            if (!done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)){
+                System.out.println("Timed out waiting for " + done.getCount() + " clients");
+            }
+            return new Result(connectMillis, roundTrips, failed.get());
+        }
+    }
+
+    /**
+     * The measurements of a single run.
+     */
+    private static class Result {
+        private final long connectMillis;
+        private final List<Long> roundTrips = new ArrayList<>();
+        private final int failed;
+
+        /**
+         * Constructs a Result from the raw measurements.
+         *
+         * @param connectMillis The time until all clients were connected.
+         * @param roundTrips The round trip times in nanoseconds, negative for failed clients.
+         * @param failed The number of failed clients.
+         */
+        private Result(long connectMillis, long[] roundTrips, int failed){
+            this.connectMillis = connectMillis;
+            this.failed = failed;
+            for (long roundTrip : roundTrips){
+                if (roundTrip > 0){
+                    this.roundTrips.add(roundTrip);
+                }
+            }
+            this.roundTrips.sort(null);
+        }
+
+        /**
+         * Retrieves a percentile of the round trip times.
+         *
+         * @param percentile The percentile between 0 and 100.
+         * @return The round trip time in milliseconds, or 0 if no client succeeded.
+         */
+        private double percentile(int percentile){
+            if (roundTrips.isEmpty()){
+                return 0;
+            }
+            int index = Math.min(roundTrips.size() - 1, (int) Math.ceil(percentile / 100.0 * roundTrips.size()) - 1);
+            return roundTrips.get(Math.max(0, index)) / 1_000_000.0;
+        }
+    }
+}
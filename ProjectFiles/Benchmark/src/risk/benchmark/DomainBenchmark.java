@@ -0,0 +1,128 @@
+package risk.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.exceptions.CountryNotFoundException;
+import risk.common.exceptions.NotANeighbourCountry;
+import risk.server.domain.RiskAdministration;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the methods of {@link RiskAdministration} that run on every command of a turn: looking up a country,
+ * validating and making an attack, and calculating the units and continent bonuses of a player.
+ * <p>
+ * Each benchmark runs on a started game with four players, on the classic map and on a generated map of 10,000
+ * countries, see {@link BenchmarkMaps}. The attacks go from a country of the first player to a neighboring country of
+ * another player; both countries get so many units before each iteration that no attack of the iteration conquers
+ * the country, so every call does the same work.
+ * <p>
+ * Run with {@code java -cp <classpath> risk.benchmark.DomainBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainBenchmark {
+    private static final int PLAYERS = 4;
+    private static final int LOOKUPS = 1024;                //Power of two, see next()
+    private static final int BATTLE_UNITS = 1 << 29;
+
+    @Param({BenchmarkMaps.CLASSIC, "10000"})
+    public String map;
+
+    private RiskAdministration game;
+    private Player attacker;
+    private Country from;
+    private Country to;
+    private String[] countryNames;
+    private int index;
+
+    @Setup
+    public void startGame() throws IOException {
+        game = BenchmarkMaps.newGame(map, PLAYERS, 42);
+        attacker = game.getPlayers().get(0);
+        for (Country country : attacker.getCountries()){
+            for (Country neighbor : country.getNeighbors()){
+                if (neighbor.getPlayer() != attacker){
+                    from = country;
+                    to = neighbor;
+                    break;
+                }
+            }
+            if (from != null){
+                break;
+            }
+        }
+        if (from == null){
+            throw new IllegalStateException("Player " + attacker.getName() + " has no country to attack from.");
+        }
+
+        Random random = new Random(42);
+        List<Country> countries = game.getCountries();
+        countryNames = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++){
+            countryNames[i] = countries.get(random.nextInt(countries.size())).getName();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fillCountries(){
+        from.setUnits(BATTLE_UNITS);
+        to.setUnits(BATTLE_UNITS);
+    }
+
+    /**
+     * Advances to the next name to look up.
+     *
+     * @return The index of the name in the lookup array.
+     */
+    private int next(){
+        index = (index + 1) & (LOOKUPS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Country getCountryByName() throws CountryNotFoundException {
+        return game.getCountryByName(countryNames[next()]);
+    }
+
+    @Benchmark
+    public void validateAttackConditions() throws NotANeighbourCountry {
+        game.validateAttackConditions(from, to, attacker, 3, 2);
+    }
+
+    @Benchmark
+    public int makeAttack() throws CountryNotFoundException, NotANeighbourCountry {
+        game.makeAttack(from, to, attacker, 3, 2);
+        return to.getUnits();
+    }
+
+    @Benchmark
+    public String continentPlayerCheck(){
+        return game.continentPlayerCheck(attacker);
+    }
+
+    @Benchmark
+    public String addPlayerUnitsPerRound(){
+        attacker.setNumberOfUnits(0);
+        return game.addPlayerUnitsPerRound(attacker);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DomainBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,71 @@
+package risk.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.persistence.CountryInitiator;
+import risk.common.persistence.FilePersistenceManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to set up the countries of a map and to load the players of a saved game.
+ * <p>
+ * {@code initializeCountries} creates the countries of a map with their neighbors and adjacency graph from the file
+ * the {@link CountryInitiator} has already read, as every new game does. {@code loadPlayers} reads the players of a
+ * started game with four players back from a file written by {@link FilePersistenceManager#speicherPlayer}. Both run
+ * on the classic map and on a generated map of 10,000 countries.
+ * <p>
+ * Run with {@code java -cp <classpath> risk.benchmark.LoadingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadingBenchmark {
+    private static final int PLAYERS = 4;
+
+    @Param({BenchmarkMaps.CLASSIC, "10000"})
+    public String map;
+
+    private CountryInitiator countryInitiator;
+    private FilePersistenceManager persistenceManager;
+    private File playersFile;
+
+    @Setup
+    public void writeFiles() throws IOException {
+        countryInitiator = new CountryInitiator(BenchmarkMaps.countriesFile(map));
+        persistenceManager = new FilePersistenceManager();
+        playersFile = File.createTempFile("risk-players", ".txt");
+        playersFile.deleteOnExit();
+        if (!persistenceManager.speicherPlayer(BenchmarkMaps.newGame(map, PLAYERS, 42).getPlayers(), playersFile.getPath())){
+            throw new IOException("The players could not be saved to " + playersFile);
+        }
+    }
+
+    @Benchmark
+    public List<Country> initializeCountries(){
+        return countryInitiator.initializeCountries();
+    }
+
+    @Benchmark
+    public List<Player> loadPlayers() throws IOException {
+        return persistenceManager.loadPlayers(playersFile.getPath());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LoadingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,96 @@
+package risk.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.missions.*;
+import risk.server.domain.DomainEventListener;
+import risk.server.domain.MissionEngine;
+import risk.server.domain.RiskAdministration;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to check whether a mission is done, for every kind of mission card.
+ * <p>
+ * {@code isDone} checks the mission against the board, {@code isDoneWithProgress} against the counters of a
+ * {@link MissionEngine}, which the server keeps up to date as the game goes on. The mission belongs to the first
+ * player of a started game with four players, on the classic map and on a generated map of 10,000 countries. The
+ * target color of {@link eliminatePlayerColorMission} is not played by anybody, so the check against the board has to
+ * look at every country, as it does in a game until the target player is eliminated.
+ * <p>
+ * Run with {@code java -cp <classpath> risk.benchmark.MissionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MissionBenchmark {
+    private static final int PLAYERS = 4;
+
+    @Param({BenchmarkMaps.CLASSIC, "10000"})
+    public String map;
+
+    @Param({"ConquerContinentMission", "ConquerContinentPlusOne", "ConquerCountriesMission",
+            "ConquerCountriesMissionPlusUnits", "eliminatePlayerColorMission"})
+    public String mission;
+
+    private MissionCard missionCard;
+    private MissionEngine progress;
+
+    @Setup
+    public void startGame() throws IOException {
+        RiskAdministration game = BenchmarkMaps.newGame(map, PLAYERS, 42);
+        Player player = game.getPlayers().get(0);
+        switch (mission) {
+            case "ConquerContinentMission":
+                missionCard = new ConquerContinentMission("Conquer Africa and Asia", game.getContinentByName("Africa"), game.getContinentByName("Asia"));
+                break;
+            case "ConquerContinentPlusOne":
+                missionCard = new ConquerContinentPlusOne("Conquer Europe and Australia and another continent of choice", game.getContinentByName("Europe"), game.getContinentByName("Australia"));
+                break;
+            case "ConquerCountriesMission":
+                missionCard = new ConquerCountriesMission("Conquer 24 countries");
+                break;
+            case "ConquerCountriesMissionPlusUnits":
+                missionCard = new ConquerCountriesMissionPlusUnits("Conquer 18 countries with at least 2 units in each");
+                break;
+            case "eliminatePlayerColorMission":
+                missionCard = new eliminatePlayerColorMission(game.getCountries(), "Conquer all countries of Pink, if it is your color, Conquer 24 Countries", "pink");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mission: " + mission);
+        }
+        missionCard.setPlayer(player);
+
+        //Replays the start of the game into counters of its own, as the engine of the game is not reachable from outside
+        progress = new MissionEngine(new DomainEventListener() {});
+        for (Country country : game.getCountries()){
+            progress.countryCaptured(country, null, country.getPlayer());
+        }
+    }
+
+    @Benchmark
+    public boolean isDone(){
+        return missionCard.isDone();
+    }
+
+    @Benchmark
+    public boolean isDoneWithProgress(){
+        return missionCard.isDone(progress);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MissionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
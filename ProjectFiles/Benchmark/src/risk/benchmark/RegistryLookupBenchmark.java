@@ -0,0 +1,162 @@
+package risk.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import risk.common.entities.Continent;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.server.domain.EntityRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of looking up countries, continents and players by name on maps of different sizes.
+ * <p>
+ * The {@code linear*} benchmarks repeat the list scans {@code RiskAdministration} used before the
+ * {@link EntityRegistry} was introduced, the {@code indexed*} benchmarks use the registry. The map is generated with
+ * the given number of countries, grouped into continents of 42 countries each, and the names looked up are picked at
+ * random with mixed case, as clients do not always send the exact spelling.
+ * <p>
+ * Run with {@code java -cp <classpath> risk.benchmark.RegistryLookupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryLookupBenchmark {
+    private static final int COUNTRIES_PER_CONTINENT = 42;
+    private static final String[] COLORS = {"Red", "Blue", "Green", "Yellow", "Black", "Pink"};
+    private static final int LOOKUPS = 1024;                //Power of two, see next()
+
+    @Param({"42", "1000", "10000"})
+    public int countryCount;
+
+    private List<Country> countries;
+    private List<Continent> continents;
+    private List<Player> players;
+    private EntityRegistry registry;
+    private String[] countryNames;
+    private String[] continentNames;
+    private String[] playerNames;
+    private int index;
+
+    @Setup
+    public void generateMap(){
+        Random random = new Random(42);
+        countries = new ArrayList<>();
+        continents = new ArrayList<>();
+        for (int i = 0; i < countryCount; i++){
+            if (i % COUNTRIES_PER_CONTINENT == 0){
+                Continent continent = new Continent("Continent " + continents.size(), 3);
+                continent.setId(continents.size());
+                continents.add(continent);
+            }
+            Country country = new Country("Country " + i, "C" + i);
+            country.setId(i);
+            countries.add(country);
+            continents.get(continents.size() - 1).addCountry(country);
+        }
+        players = new ArrayList<>();
+        for (int i = 0; i < COLORS.length; i++){
+            players.add(new Player("Player " + i, i + 1, COLORS[i]));
+        }
+        registry = new EntityRegistry();
+        registry.indexCountries(countries);
+        registry.indexContinents(continents);
+        registry.indexPlayers(players);
+
+        countryNames = new String[LOOKUPS];
+        continentNames = new String[LOOKUPS];
+        playerNames = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++){
+            countryNames[i] = mixCase(countries.get(random.nextInt(countries.size())).getName(), random);
+            continentNames[i] = mixCase(continents.get(random.nextInt(continents.size())).getName(), random);
+            playerNames[i] = players.get(random.nextInt(players.size())).getName();
+        }
+    }
+
+    /**
+     * Changes the case of the letters of a name at random.
+     *
+     * @param name The name.
+     * @param random The source of randomness.
+     * @return The name with mixed case.
+     */
+    private static String mixCase(String name, Random random){
+        return random.nextBoolean() ? name.toUpperCase(Locale.ROOT) : name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Advances to the next name to look up.
+     *
+     * @return The index of the name in the lookup arrays.
+     */
+    private int next(){
+        index = (index + 1) & (LOOKUPS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Country linearCountryLookup(){
+        String countryName = countryNames[next()];
+        for (Country country : countries){
+            if (country.getName().equalsIgnoreCase(countryName)){
+                return country;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Country indexedCountryLookup(){
+        return registry.getCountry(countryNames[next()]);
+    }
+
+    @Benchmark
+    public Continent linearContinentLookup(){
+        String continentName = continentNames[next()];
+        for (Continent continent : continents){
+            if (continent.getName().equalsIgnoreCase(continentName)){
+                return continent;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Continent indexedContinentLookup(){
+        return registry.getContinent(continentNames[next()]);
+    }
+
+    @Benchmark
+    public Player linearPlayerLookup(){
+        String playerName = playerNames[next()];
+        for (Player player : players){
+            if (player.getName().equals(playerName)){
+                return player;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Player indexedPlayerLookup(){
+        return registry.getPlayerByName(playerNames[next()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RegistryLookupBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -6,15 +6,28 @@ import risk.common.exceptions.CountryNotFoundException;
 import risk.common.exceptions.InvalidUnitException;
 import risk.common.interfaces.GameEventListener;
 import risk.common.interfaces.RiskInterface;
+import risk.common.protocol.BinaryFrameReader;
+import risk.common.protocol.BinaryFrameWriter;
+import risk.common.protocol.FrameCodec;
+import risk.common.protocol.Opcode;
+import risk.common.protocol.Varint;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -39,6 +52,9 @@ import javax.swing.SwingUtilities;
  * <p>
  * This class is integral to the client-side game logic and ensures real-time
  * synchronization with the server, facilitating a seamless multiplayer experience.
+ * <p>
+ * The client can use the binary protocol of {@link FrameCodec} instead of the text protocol, e.g. by starting it
+ * with {@code -Drisk.protocol=binary}. If the server does not support it, the client falls back to text.
  *
  * @see risk.common.interfaces.RiskInterface
  * @see risk.common.entities.Player
@@ -49,29 +65,56 @@ public class ClientMain implements RiskInterface {
     private Socket socket;
     private BufferedReader sin;
     private PrintWriter sout;
+    private BinaryFrameWriter frameWriter;
     private Thread listenThread;
     private BlockingQueue<String> serverResponses = new LinkedBlockingQueue<>();
     private List<GameEventListener> gameEventListeners = new ArrayList<>();
     int playerOnTurn = 0;
+    long boardVersion = 0;
 
     Player player;
     List<CountryData> countryData;
+    Map<String, CountryData> countryDataByName = new HashMap<>();
+    Map<String, Integer> countryIdByName = new HashMap<>();
+    Map<Integer, String> playerNames = new HashMap<>();
+    WorldGraph worldGraph = new WorldGraph(new int[0][]);
     List<Country> countries = new ArrayList<>();
 
     /**
      * Constructs a new ClientMain2 object and connects to the specified server.
+     * Uses the binary protocol if the system property {@code risk.protocol} is set to {@code binary}.
      *
      * @param host the server host
      * @param port the server port
      */
     public ClientMain(String host, int port) {
+        this(host, port, "binary".equals(System.getProperty("risk.protocol")));
+    }
+
+    /**
+     * Constructs a new ClientMain object and connects to the specified server.
+     *
+     * @param host the server host
+     * @param port the server port
+     * @param binary true to ask the server for the binary protocol, false to use the text protocol
+     */
+    public ClientMain(String host, int port, boolean binary) {
         this.countryData = new ArrayList<>();
         try{
             socket = new Socket(host, port);
-            sin = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            sout = new PrintWriter(socket.getOutputStream(), true);
+            InputStream input = socket.getInputStream();
+            OutputStream output = socket.getOutputStream();
             System.err.println("Verbunden: " + socket.getInetAddress() + ":" + socket.getPort());
-            System.out.println(sin.readLine()); //Willkommens nachricht
+            System.out.println(readLine(input)); //Willkommens nachricht
+            if (binary && negotiateBinaryProtocol(input, output)) {
+                sin = new BufferedReader(new BinaryFrameReader(input, this::handleServerFrame));
+                frameWriter = new BinaryFrameWriter(output);
+                sout = new PrintWriter(frameWriter, true);
+                System.out.println("Using binary protocol");
+            } else {
+                sin = new BufferedReader(new InputStreamReader(input));
+                sout = new PrintWriter(output, true);
+            }
             listenForServerMessages();
         }catch (IOException e) {
             e.printStackTrace();
@@ -80,6 +123,67 @@ public class ClientMain implements RiskInterface {
 
     }
 
+    /**
+     * Asks the server to switch the connection to the binary protocol and waits for its answer.
+     * The handshake is read byte by byte, so that no binary data following the answer is consumed.
+     *
+     * @param input the stream from the server
+     * @param output the stream to the server
+     * @return true if the server switched to the binary protocol, false if the connection stays on text
+     * @throws IOException if the connection fails
+     */
+    private boolean negotiateBinaryProtocol(InputStream input, OutputStream output) throws IOException {
+        output.write((FrameCodec.HANDSHAKE + "\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        String reply;
+        while ((reply = readLine(input)) != null) {
+            if (reply.startsWith("HELLO:") || reply.equals("command not found")) {      //Older servers do not know the handshake
+                return reply.equals(FrameCodec.HANDSHAKE_ACCEPTED);
+            }
+            System.out.println("Message from Server: " + reply);
+        }
+        return false;
+    }
+
+    /**
+     * Reads a single line from the stream without buffering anything beyond it.
+     *
+     * @param input the stream to read from
+     * @return the line without its terminator, or null if the stream has ended
+     * @throws IOException if reading fails
+     */
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != '\n') {
+            if (b < 0) {
+                return line.size() > 0 ? line.toString(StandardCharsets.UTF_8) : null;
+            }
+            line.write(b);
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * Handles a binary frame received from the server that does not carry text.
+     * Called by the reader of the connection while the listening thread reads.
+     *
+     * @param opcode the opcode of the frame
+     * @param payload the payload of the frame
+     */
+    private void handleServerFrame(byte opcode, ByteBuffer payload) {
+        try {
+            if (opcode == Opcode.COUNTRY_DELTA) {
+                receiveCountryDelta(payload);
+            } else {
+                System.out.println("Unknown frame " + opcode + " from server");
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            System.err.println("Malformed frame " + opcode + " from server");
+        }
+    }
+
     /**
      * Starts a new thread to listen for server messages.
      */
@@ -122,7 +226,15 @@ public class ClientMain implements RiskInterface {
 
             case "COUNTRY_DATA:":
                 System.out.println("I get called! CountryData");
-                receiveCountryData();
+                receiveCountryData(parts.length > 1 ? Long.parseLong(parts[1]) : 0);
+                break;
+
+            case "COUNTRY_GRAPH:":
+                receiveCountryGraph();
+                break;
+
+            case "COUNTRY_DELTA:":
+                receiveCountryDelta(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
                 break;
 
             case "PLAYER_ON_TURN:":
@@ -185,6 +297,22 @@ public class ClientMain implements RiskInterface {
                 }
                 break;
 
+            case "BLITZ:":
+                if (parts.length > 7) {
+                    System.out.println("Battle " + parts[1] + " -> " + parts[2] + ": attacker lost " + parts[3] + ", defender lost " + parts[4] + ", moved " + parts[5]);
+                } else {
+                    System.out.println("Battle failed");
+                }
+                break;
+
+            case "BATTLE_ODDS:":
+                if (parts.length > 5) {
+                    System.out.println("Odds " + parts[1] + " -> " + parts[2] + ": conquest " + parts[3] + ", attacker keeps " + parts[4] + ", defender keeps " + parts[5]);
+                } else {
+                    System.out.println("Battle odds not available");
+                }
+                break;
+
             case "GETTING_ATTACKED" :
                 int defender = Integer.parseInt(parts[6]);
                 System.out.println("parts[6]: " + parts[6]);
@@ -439,15 +567,26 @@ public class ClientMain implements RiskInterface {
         System.out.println("sendCountryData");
     }
 
+    /**
+     * Retrieves the state version of the board currently held by this client.
+     *
+     * @return The version of the last board received from the server.
+     */
+    public long getBoardVersion() {
+        return boardVersion;
+    }
+
     /**
      * Receives country data from the input stream and populates the countryData list.
      * Clears the existing countryData list before populating with new data.
+     * A board older than the one already received is read completely but discarded.
      *
+     * @param version The state version of the board, as sent in the header of the message.
      * @throws IOException If there is an error reading from the input stream.
      */
 
-    private void receiveCountryData(){
-        countryData.clear();
+    private void receiveCountryData(long version){
+        List<CountryData> countryData = new ArrayList<>();
         try {
             int countryCount = Integer.parseInt(sin.readLine());
             for (int i = 0; i < countryCount; i++) {
@@ -467,8 +606,197 @@ public class ClientMain implements RiskInterface {
         } catch (IOException e) {
             System.err.println(e.getMessage() + "Error in recieveCountryData");
         }
+        if (version < boardVersion) {
+            System.out.println("Ignoring outdated board " + version + ", current board is " + boardVersion);
+            return;
+        }
+        boardVersion = version;
+        this.countryData.clear();
+        this.countryData.addAll(countryData);
+        countryDataByName.clear();
+        countryIdByName.clear();
+        for (int i = 0; i < countryData.size(); i++) {
+            countryDataByName.put(countryData.get(i).getName(), countryData.get(i));
+            countryIdByName.put(countryData.get(i).getName(), i);
+        }
+        int[][] neighborIds = new int[countryData.size()][];
+        for (int i = 0; i < countryData.size(); i++) {      //Neighbors are sent by name, the list index serves as ID
+            String[] neighbors = countryData.get(i).getNeighbors();
+            neighborIds[i] = new int[neighbors.length];
+            for (int j = 0; j < neighbors.length; j++) {
+                neighborIds[i][j] = countryIdByName.getOrDefault(neighbors[j], -1);
+            }
+        }
+        worldGraph = new WorldGraph(neighborIds);
+        recieveCountryObjects(player.getName());
+
+    }
+
+    /**
+     * Receives the static part of the board, sent when the game starts and in front of every complete board sent to
+     * this client alone: the continents, then the name, continent and neighbors of every country and finally the ID and
+     * name of every player. Continents and countries are listed in the order of their IDs, and the continent and
+     * neighbors of a country are sent as IDs. Owners and unit counts are filled in by the following board or deltas,
+     * which refer to countries and owners by their IDs as well.
+     */
+    private void receiveCountryGraph() {
+        countryData.clear();
+        countryDataByName.clear();
+        countryIdByName.clear();
+        playerNames.clear();
+        try {
+            int continentCount = Integer.parseInt(sin.readLine());
+            String[] continentNames = new String[continentCount];
+            for (int i = 0; i < continentCount; i++) {
+                continentNames[i] = sin.readLine();
+            }
+            int countryCount = Integer.parseInt(sin.readLine());
+            String[] countryNames = new String[countryCount];
+            int[][] neighborIds = new int[countryCount][];
+            int[] continentIds = new int[countryCount];
+            for (int i = 0; i < countryCount; i++) {
+                countryNames[i] = sin.readLine();
+                continentIds[i] = Integer.parseInt(sin.readLine());
+                neighborIds[i] = new int[Integer.parseInt(sin.readLine())];
+                for (int j = 0; j < neighborIds[i].length; j++) {
+                    neighborIds[i][j] = Integer.parseInt(sin.readLine());
+                }
+            }
+            for (int i = 0; i < countryCount; i++) {      //Neighbors are resolved once all names are known
+                String[] neighbors = new String[neighborIds[i].length];
+                for (int j = 0; j < neighbors.length; j++) {
+                    neighbors[j] = countryNames[neighborIds[i][j]];
+                }
+                CountryData data = new CountryData(countryNames[i], null, 0, continentNames[continentIds[i]], neighbors);
+                countryData.add(data);
+                countryDataByName.put(countryNames[i], data);
+                countryIdByName.put(countryNames[i], i);
+            }
+            worldGraph = new WorldGraph(neighborIds);
+            int playerCount = Integer.parseInt(sin.readLine());
+            for (int i = 0; i < playerCount; i++) {
+                String[] parts = sin.readLine().split(" ", 2);
+                playerNames.put(Integer.parseInt(parts[0]), parts[1]);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage() + "Error in receiveCountryGraph");
+        }
+        boardVersion = 0;
+    }
+
+    /**
+     * Receives the countries whose owner or unit count changed and applies them to the local board.
+     * Each change consists of the country ID, the owner's player ID and the unit count.
+     *
+     * @param version The state version of the board after the delta.
+     * @param baseVersion The state version the delta is based on.
+     */
+    private void receiveCountryDelta(long version, long baseVersion) {
+        int changeCount;
+        int[] countryIds;
+        int[] ownerIds;
+        int[] units;
+        try {
+            changeCount = Integer.parseInt(sin.readLine());
+            countryIds = new int[changeCount];
+            ownerIds = new int[changeCount];
+            units = new int[changeCount];
+            for (int i = 0; i < changeCount; i++) {
+                countryIds[i] = Integer.parseInt(sin.readLine());
+                ownerIds[i] = Integer.parseInt(sin.readLine());
+                units[i] = Integer.parseInt(sin.readLine());
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage() + "Error in receiveCountryDelta");
+            return;
+        }
+        applyCountryDelta(version, baseVersion, changeCount, countryIds, ownerIds, units);
+    }
+
+    /**
+     * Receives a delta sent as a binary frame and applies it to the local board, like
+     * {@link #receiveCountryDelta(long, long)}.
+     *
+     * @param payload the payload of the COUNTRY_DELTA frame
+     */
+    private void receiveCountryDelta(ByteBuffer payload) {
+        long version = Varint.getVarlong(payload);
+        long baseVersion = Varint.getVarlong(payload);
+        int changeCount = Varint.getVarint(payload);
+        int[] countryIds = new int[changeCount];
+        int[] ownerIds = new int[changeCount];
+        int[] units = new int[changeCount];
+        for (int i = 0; i < changeCount; i++) {
+            countryIds[i] = Varint.getVarint(payload);
+            ownerIds[i] = Varint.getVarint(payload);
+            units[i] = Varint.getVarint(payload);
+        }
+        applyCountryDelta(version, baseVersion, changeCount, countryIds, ownerIds, units);
+    }
+
+    /**
+     * Applies the changed countries of a delta to the local board, indexing it with the country IDs.
+     * The delta is only applied if it is based on the board this client holds. Outdated deltas are ignored;
+     * if a delta is missing in between or refers to an unknown country or player, the complete board is requested
+     * from the server instead.
+     *
+     * @param version The state version of the board after the delta.
+     * @param baseVersion The state version the delta is based on.
+     * @param changeCount The number of changed countries.
+     * @param countryIds The IDs of the changed countries.
+     * @param ownerIds The player IDs of their owners.
+     * @param units Their unit counts.
+     */
+    private void applyCountryDelta(long version, long baseVersion, int changeCount, int[] countryIds, int[] ownerIds, int[] units) {
+        if (!isDeltaApplicable(version, baseVersion)) {
+            return;
+        }
+        for (int i = 0; i < changeCount; i++) {
+            String owner = playerNames.get(ownerIds[i]);
+            if (countryIds[i] < 0 || countryIds[i] >= countryData.size() || owner == null) {
+                System.out.println("Unknown country " + countryIds[i] + " or owner in delta, requesting full board");
+                getCountryData();
+                return;
+            }
+            countryData.get(countryIds[i]).setPlayerName(owner);
+            countryData.get(countryIds[i]).setUnits(units[i]);
+        }
+        boardVersion = version;
         recieveCountryObjects(player.getName());
+    }
+
+    /**
+     * Checks if a delta can be applied to the board this client holds. Outdated deltas are ignored; if a delta is
+     * missing in between, the complete board is requested from the server.
+     *
+     * @param version The state version of the board after the delta.
+     * @param baseVersion The state version the delta is based on.
+     * @return true if the delta follows directly on the current board, false otherwise.
+     */
+    private boolean isDeltaApplicable(long version, long baseVersion) {
+        if (version <= boardVersion) {
+            System.out.println("Ignoring outdated delta " + version + ", current board is " + boardVersion);
+            return false;
+        }
+        if (baseVersion != boardVersion) {
+            System.out.println("Missed board changes between " + boardVersion + " and " + baseVersion + ", requesting full board");
+            getCountryData();
+            return false;
+        }
+        return true;
+    }
 
+    /**
+     * Sends a binary frame to the server.
+     *
+     * @param frame the encoded frame
+     */
+    private void sendFrame(ByteBuffer frame) {
+        try {
+            frameWriter.writeFrame(frame);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -586,10 +914,69 @@ public class ClientMain implements RiskInterface {
      */
 
     public String moveUnits(String player, String fromCountry, String toCountry, int units) {
+        Integer fromId = countryIdByName.get(fromCountry);
+        Integer toId = countryIdByName.get(toCountry);
+        if (fromId != null && toId != null && this.player != null && this.player.getName().equals(player)) {
+            return moveUnits(this.player.getId(), fromId, toId, units);
+        }
         sout.println("moveUnits" + " " + player + " " + fromCountry + " " + toCountry + " " + units);
         return "";
     }
 
+    /**
+     * Requests to move units of this client's player between two countries identified by their IDs.
+     * The server moves the units of the player of this connection, so the player ID is not sent.
+     *
+     * @param playerId The ID of the player moving the units.
+     * @param fromCountryId The ID of the country from which units are being moved.
+     * @param toCountryId The ID of the country to which units are being moved.
+     * @param units The number of units to move.
+     * @return An empty string (placeholder for future implementation).
+     */
+    @Override
+    public String moveUnits(int playerId, int fromCountryId, int toCountryId, int units) {
+        if (frameWriter != null) {
+            sendFrame(FrameCodec.encodeMoveUnits(fromCountryId, toCountryId, units));
+        } else {
+            sout.println("moveUnitsById" + " " + fromCountryId + " " + toCountryId + " " + units);
+        }
+        return "";
+    }
+
+    /**
+     * Requests a whole battle of this client's player between two countries identified by their IDs.
+     * The server fights the battle in one go and answers with a single BLITZ reply followed by the changed board,
+     * so the result is not known when this method returns.
+     *
+     * @param playerId The ID of the attacking player.
+     * @param fromCountryId The ID of the attacking country.
+     * @param toCountryId The ID of the attacked country.
+     * @param keepUnits The units to keep on the attacking country.
+     * @param sampled true to let the server draw the result from its distribution, false to roll the dice.
+     * @return null, the outcome arrives with the BLITZ reply.
+     */
+    @Override
+    public BattleOutcome blitz(int playerId, int fromCountryId, int toCountryId, int keepUnits, boolean sampled) {
+        if (frameWriter != null) {
+            sendFrame(FrameCodec.encodeBlitz(fromCountryId, toCountryId, keepUnits, sampled));
+        } else {
+            sout.println("blitz" + " " + fromCountryId + " " + toCountryId + " " + keepUnits + " " + (sampled ? "sampled" : "rolled"));
+        }
+        return null;
+    }
+
+    /**
+     * Asks the server for the odds of a battle between two countries identified by their IDs, as computed exactly by
+     * the server. The answer arrives later as a BATTLE_ODDS message.
+     *
+     * @param fromCountryId The ID of the attacking country.
+     * @param toCountryId The ID of the attacked country.
+     * @param keepUnits The units to keep on the attacking country.
+     */
+    public void requestBattleOdds(int fromCountryId, int toCountryId, int keepUnits) {
+        sendMessage("battleOdds" + " " + fromCountryId + " " + toCountryId + " " + keepUnits);
+    }
+
     public String getAvailableColors() {
         return "";
     }
@@ -663,12 +1050,8 @@ public class ClientMain implements RiskInterface {
      */
 
     public boolean validateOwnership(String country, String player) {
-        for(CountryData data : countryData){
-            if(data.getName().equals(country)){
-                return data.getPlayerName().equals(player);
-            }
-        }
-        return false;
+        CountryData data = countryDataByName.get(country);
+        return data != null && player.equals(data.getPlayerName());
     }
 
     /**
@@ -691,12 +1074,8 @@ public class ClientMain implements RiskInterface {
      */
 
     public String getCountryPlayer(String name) {
-        for (CountryData country : countryData) {
-            if (country.getName().equals(name)) {
-                return country.getPlayerName();
-            }
-        }
-        return null;
+        CountryData country = countryDataByName.get(name);
+        return country != null ? country.getPlayerName() : null;
     }
 
     /**
@@ -722,11 +1101,34 @@ public class ClientMain implements RiskInterface {
      */
 
     public String addPlayerUnitsToCountry(String player, String country, int units) throws InvalidUnitException {
+        Integer countryId = countryIdByName.get(country);
+        if (countryId != null && this.player != null && this.player.getName().equals(player)) {
+            return addPlayerUnitsToCountry(this.player.getId(), countryId, units);
+        }
         sout.println("addPlayerUnitsToCountry" + " " + player + " " + country + " " + units);
 
         return "";
     }
 
+    /**
+     * Requests to add units of this client's player to a country identified by its ID.
+     * The server places the units of the player of this connection, so the player ID is not sent.
+     *
+     * @param playerId The ID of the player adding units to the country.
+     * @param countryId The ID of the country to which units are being added.
+     * @param units The number of units to add to the country.
+     * @return An empty string (placeholder for future implementation).
+     */
+    @Override
+    public String addPlayerUnitsToCountry(int playerId, int countryId, int units) {
+        if (frameWriter != null) {
+            sendFrame(FrameCodec.encodePlaceUnits(countryId, units));
+        } else {
+            sout.println("addUnitsById" + " " + countryId + " " + units);
+        }
+        return "";
+    }
+
     /**
      * Retrieves information about a country for display in a graphical user interface (GUI).
      *
@@ -802,12 +1204,8 @@ public class ClientMain implements RiskInterface {
      */
     @Override
     public int getUnitsByCountry(String country) {
-        for (CountryData data : countryData) {
-            if (data.getName().equals(country)) {
-                return data.getUnits();
-            }
-        }
-        return 1;
+        CountryData data = countryDataByName.get(country);
+        return data != null ? data.getUnits() : 1;
     }
 
     @Override
@@ -817,6 +1215,7 @@ public class ClientMain implements RiskInterface {
 
     /**
      * Checks if two countries are neighbors.
+     * The names are resolved to country IDs and the check is answered by the {@link WorldGraph} built from the board.
      *
      * @param country1 The name of the first country.
      * @param country2 The name of the second country.
@@ -824,16 +1223,93 @@ public class ClientMain implements RiskInterface {
      */
     @Override
     public boolean checkCountryNeighbor(String country1, String country2) {
-        for (CountryData data : countryData) {
-            if (data.getName().equals(country1)) {
-                for (String neighbor : data.getNeighbors()) {
-                    if (neighbor.equals(country2)) {
-                        return true;
-                    }
-                }
-            }
+        Integer countryId1 = countryIdByName.get(country1);
+        Integer countryId2 = countryIdByName.get(country2);
+        return countryId1 != null && countryId2 != null && worldGraph.isAdjacent(countryId1, countryId2);
+    }
+
+
+    /**
+     * Retrieves a Country object by its ID.
+     * Currently returns null like {@link #getCountryByName(String)}; the client keeps the board as {@link CountryData}.
+     *
+     * @param countryId The ID of the country to retrieve.
+     * @return null (placeholder for future implementation).
+     */
+    @Override
+    public Country getCountryById(int countryId) {
+        return null;
+    }
+
+    /**
+     * Retrieves a Continent object by its ID.
+     * Currently returns null; the client keeps only the continent names of the countries.
+     *
+     * @param continentId The ID of the continent to retrieve.
+     * @return null (placeholder for future implementation).
+     */
+    @Override
+    public Continent getContinentById(int continentId) {
+        return null;
+    }
+
+    /**
+     * Retrieves a player by their ID. Only the player of this client is known as a Player object.
+     *
+     * @param playerId The ID of the player to retrieve.
+     * @return The player of this client if it has the given ID, null otherwise.
+     */
+    @Override
+    public Player getPlayerById(int playerId) {
+        return player != null && player.getId() == playerId ? player : null;
+    }
+
+    /**
+     * Validates whether a player owns a specific country, both identified by their IDs.
+     *
+     * @param countryId The ID of the country to check ownership.
+     * @param playerId The ID of the player to validate ownership.
+     * @return true if the player owns the specified country, false otherwise.
+     */
+    @Override
+    public boolean validateOwnership(int countryId, int playerId) {
+        if (countryId < 0 || countryId >= countryData.size()) {
+            return false;
         }
-        return false;
+        String owner = countryData.get(countryId).getPlayerName();
+        return owner != null && owner.equals(playerNames.get(playerId));
+    }
+
+    /**
+     * Retrieves the number of units in the country with the given ID.
+     *
+     * @param countryId The ID of the country to retrieve units for.
+     * @return The number of units in the specified country, or 1 if the country is not found.
+     */
+    @Override
+    public int getUnitsByCountry(int countryId) {
+        return countryId >= 0 && countryId < countryData.size() ? countryData.get(countryId).getUnits() : 1;
     }
 
+    /**
+     * Checks if the countries with the given IDs are neighbors.
+     *
+     * @param countryId1 The ID of the first country.
+     * @param countryId2 The ID of the second country.
+     * @return true if the countries are neighbors, false otherwise.
+     */
+    @Override
+    public boolean checkCountryNeighbor(int countryId1, int countryId2) {
+        return worldGraph.isAdjacent(countryId1, countryId2);
+    }
+
+    /**
+     * Retrieves the adjacency graph of the board, built from the neighbors received with the board.
+     *
+     * @return The {@link WorldGraph} of the board, empty until the board has been received.
+     */
+    @Override
+    public WorldGraph getWorldGraph() {
+        return worldGraph;
+    }
 }
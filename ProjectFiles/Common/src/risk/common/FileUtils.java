@@ -1,9 +1,37 @@
 package risk.common;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.InputStream;
 
 public class FileUtils {
+    /**
+     * The system property naming a directory that is searched for resources before the classpath, e.g. for maps
+     * generated by the benchmarks. The directory is laid out like the classpath, so a map is found under
+     * {@code <directory>/assets/<file>}.
+     */
+    public static final String RESOURCE_DIRECTORY_PROPERTY = "risk.resources";
+
+    /**
+     * Opens a resource, looking in the directory named by {@link #RESOURCE_DIRECTORY_PROPERTY} first, if set, and on
+     * the classpath otherwise.
+     *
+     * @param path The path of the resource, starting with a slash.
+     * @return The stream of the resource, or {@code null} if it does not exist.
+     */
     public static InputStream getResource(String path) {
+        String directory = System.getProperty(RESOURCE_DIRECTORY_PROPERTY);
+        if (directory != null) {
+            File file = new File(directory, path);
+            if (file.isFile()) {
+                try {
+                    return new FileInputStream(file);
+                } catch (FileNotFoundException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
         return FileUtils.class.getResourceAsStream(path);
     }
 }
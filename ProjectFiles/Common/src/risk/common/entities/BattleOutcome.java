@@ -0,0 +1,80 @@
+package risk.common.entities;
+
+/**
+ * Represents the result of a battle fought in one go, e.g. by the {@code blitz} command.
+ * <p>
+ * A battle consists of as many rolls of the dice as are needed until either the defending country has no units left
+ * or the attacking country is down to the units the attacker wanted to keep. The outcome only holds the totals, which
+ * is all that is needed to update the board and to tell the players what happened.
+ */
+public final class BattleOutcome {
+    private final int attackerLosses;
+    private final int defenderLosses;
+    private final int unitsMoved;
+    private final int rolls;
+
+    /**
+     * Constructs a BattleOutcome.
+     *
+     * @param attackerLosses The number of units the attacker lost.
+     * @param defenderLosses The number of units the defender lost.
+     * @param unitsMoved The number of units moved into the conquered country, 0 if the country was not conquered.
+     * @param rolls The number of rolls of the dice, 0 if the outcome was drawn from the distribution of all outcomes.
+     */
+    public BattleOutcome(int attackerLosses, int defenderLosses, int unitsMoved, int rolls){
+        this.attackerLosses = attackerLosses;
+        this.defenderLosses = defenderLosses;
+        this.unitsMoved = unitsMoved;
+        this.rolls = rolls;
+    }
+
+    /**
+     * Retrieves the number of units the attacker lost.
+     *
+     * @return The losses of the attacker.
+     */
+    public int getAttackerLosses(){
+        return attackerLosses;
+    }
+
+    /**
+     * Retrieves the number of units the defender lost.
+     *
+     * @return The losses of the defender.
+     */
+    public int getDefenderLosses(){
+        return defenderLosses;
+    }
+
+    /**
+     * Retrieves the number of units moved into the conquered country, i.e. the attacking units that survived the last roll.
+     *
+     * @return The units moved, 0 if the country was not conquered.
+     */
+    public int getUnitsMoved(){
+        return unitsMoved;
+    }
+
+    /**
+     * Retrieves the number of rolls of the dice the battle took.
+     *
+     * @return The number of rolls, 0 if the outcome was sampled.
+     */
+    public int getRolls(){
+        return rolls;
+    }
+
+    /**
+     * Checks whether the defending country was conquered.
+     *
+     * @return true if the defender lost all units of the country, false otherwise.
+     */
+    public boolean isConquered(){
+        return unitsMoved > 0;
+    }
+
+    @Override
+    public String toString(){
+        return attackerLosses + " " + defenderLosses + " " + unitsMoved + " " + rolls;
+    }
+}
@@ -11,6 +11,7 @@ import java.util.List;
  * Control of a continent is a strategic aspect of the game, as it provides additional units to the controlling player, potentially affecting the game's outcome.
  */
 public class Continent {
+    int id = -1;
     String name;
     Player player;
     int bonusUnits;
@@ -31,6 +32,28 @@ public class Continent {
         this.player = null;
     }
 
+    /**
+     * Retrieves the ID of the continent.
+     * <p>
+     * Continents are numbered densely from 0 in the order they are loaded, so the ID is also the position of the continent in the list of all continents. It identifies the continent in messages between client and server and allows looking it up by indexing.
+     *
+     * @return The ID of the continent, or -1 if none has been assigned.
+     */
+    public int getId(){
+        return id;
+    }
+
+    /**
+     * Sets the ID of the continent.
+     * <p>
+     * This method is called once when the map is loaded, see {@link risk.common.persistence.CountryInitiator}.
+     *
+     * @param id The ID of the continent.
+     */
+    public void setId(int id){
+        this.id = id;
+    }
+
     /**
      * Retrieves the name of the continent.
      * <p>
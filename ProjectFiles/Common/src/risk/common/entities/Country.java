@@ -9,12 +9,14 @@ import java.io.Serializable;
  * This class encapsulates all the properties and behaviors of a country within the game. It includes attributes such as the country's name, the number of units present, the player who controls it, and its neighboring countries. Methods are provided to manipulate these properties, including adding or removing units, setting the controlling player, and managing neighboring countries.
  */
 public class Country {
+    int id = -1;
     String name;
     int units;
     Player player;
     boolean hasPlayer;
     String shortName;
     List<Country> neighbors;
+    WorldGraph worldGraph;
 
     /**
      * Default constructor for creating a new Country instance.
@@ -49,6 +51,28 @@ public class Country {
         this.hasPlayer = hasPlayer;
     }
 
+    /**
+     * Returns the ID of the country.
+     * <p>
+     * Countries are numbered densely from 0 in the order they are loaded, so the ID is also the position of the country in the list of all countries. It identifies the country in messages between client and server and allows looking it up by indexing instead of comparing names. Countries that were not loaded from the map have the ID -1.
+     *
+     * @return The ID of the country, or -1 if none has been assigned.
+     */
+    public int getId(){
+        return id;
+    }
+
+    /**
+     * Sets the ID of the country.
+     * <p>
+     * This method is called once when the map is loaded, see {@link risk.common.persistence.CountryInitiator}.
+     *
+     * @param id The ID of the country.
+     */
+    public void setId(int id){
+        this.id = id;
+    }
+
     /**
      * Returns the name of the country.
      * <p>
@@ -218,11 +242,15 @@ public class Country {
      * Determines if the specified country is a neighbor.
      * <p>
      * This method checks if the given {@code country} is in the list of neighboring countries. It first ensures that the {@code country} and its list of neighbors are not null. If the conditions are met, it returns {@code true} if the current country is found in the given country's list of neighbors, indicating a mutual neighbor relationship. Otherwise, it returns {@code false}.
+     * If both countries were loaded from the same map, the check is answered by the {@link WorldGraph} of the map in constant time instead of searching the list.
      *
      * @param country The {@link Country} to check for a neighboring relationship with this country.
      * @return {@code true} if the specified country is a neighbor, {@code false} otherwise.
      */
     public boolean isNeighbor(Country country) {
+        if (country != null && worldGraph != null && country.worldGraph == worldGraph) {
+            return worldGraph.isAdjacent(country.getId(), id);
+        }
         if (country != null && country.getNeighbors() != null) {
             return country.getNeighbors().contains(this);
         }
@@ -240,6 +268,26 @@ public class Country {
         this.neighbors = neighbors;
     }
 
+    /**
+     * Retrieves the adjacency graph of the map this country belongs to.
+     *
+     * @return The {@link WorldGraph} of the map, or {@code null} if the country was not loaded from a map.
+     */
+    public WorldGraph getWorldGraph(){
+        return worldGraph;
+    }
+
+    /**
+     * Sets the adjacency graph of the map this country belongs to.
+     * <p>
+     * This method is called once when the map is loaded, see {@link risk.common.persistence.CountryInitiator}. The graph has to match the ID and the list of neighbors of the country.
+     *
+     * @param worldGraph The {@link WorldGraph} of the map.
+     */
+    public void setWorldGraph(WorldGraph worldGraph){
+        this.worldGraph = worldGraph;
+    }
+
     /**
      * Checks if the country is currently controlled by a player.
      * <p>
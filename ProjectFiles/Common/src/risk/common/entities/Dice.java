@@ -16,13 +16,22 @@ public class Dice{
     private Scanner scanner;
 
     /**
-     * Constructs a Dice instance with a new Random object for generating random numbers and a new Scanner object for reading user input from the console.
+     * Constructs a Dice instance with a new Random object for generating random numbers.
      * <p>
-     * This constructor initializes the {@code random} field with a new instance of {@link Random}, which is used to generate random dice rolls. Additionally, the {@code scanner} field is initialized with a new instance of {@link Scanner}, specifically for reading dice roll inputs from the user through the standard input stream (console).
+     * The {@link Scanner} for reading dice rolls from the console is only created when {@link #promptDiceRolls(String, int)}
+     * is called for the first time, so a server creating dice for its games does not take hold of the standard input.
      */
     public Dice() {
         this.random = new Random();
-        this.scanner = new Scanner(System.in);
+    }
+
+    /**
+     * Constructs a Dice instance rolling from the given seed, so the same seed always rolls the same numbers.
+     *
+     * @param seed The seed of the {@link Random} object.
+     */
+    public Dice(long seed) {
+        this.random = new Random(seed);
     }
 
     /**
@@ -35,7 +44,6 @@ public class Dice{
      */
     public Integer[] rollDice(int numDice) {
         Integer[] results = new Integer[numDice];
-        Random random = new Random();
 
         for (int i = 0; i < numDice; i++) {
             results[i] = random.nextInt(6) + 1;
@@ -59,6 +67,9 @@ public class Dice{
     public int[] promptDiceRolls(String message,int numberOfRolls) {
         int[] rolls = new int[numberOfRolls];
         System.out.println(message);
+        if (scanner == null) {
+            scanner = new Scanner(System.in);
+        }
         String input = scanner.nextLine();
         String [] inputArray = input.split(" ");
         for (int i = 0; i < numberOfRolls; i++) {
@@ -76,12 +87,11 @@ public class Dice{
     /**
      * Generates a random number between 1 and 6, inclusive.
      * <p>
-     * This method creates a new instance of {@link Random} and uses it to generate a random integer between 1 and 6. This simulates the roll of a single dice, which is a common requirement in dice-based games. The method ensures that the result is always within the specified range, making it suitable for use wherever a dice roll is needed.
+     * This method uses the {@link Random} of this instance to generate a random integer between 1 and 6. This simulates the roll of a single dice, which is a common requirement in dice-based games. The method ensures that the result is always within the specified range, making it suitable for use wherever a dice roll is needed.
      *
      * @return A random integer between 1 and 6, inclusive, simulating a dice roll.
      */
     private int randomNumber() {
-        Random random = new Random();
         return random.nextInt(6) + 1;
     }
 }
\ No newline at end of file
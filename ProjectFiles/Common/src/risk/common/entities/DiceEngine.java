@@ -0,0 +1,229 @@
+package risk.common.entities;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Rolls the dice of a game without allocating any objects.
+ * <p>
+ * Unlike {@link Dice}, the engine writes the results into an {@code int[]} supplied by the caller, so an attack does
+ * not create arrays or boxed integers. At most three dice are rolled at once in Risk, so the results are sorted in
+ * descending order by a sorting network of at most three compare-and-swap steps instead of a general sort.
+ * <p>
+ * The random numbers come from a {@link RandomGenerator} chosen when the engine is created, e.g.
+ * {@link SplittableRandom} or one of the {@code Xoshiro} generators. Created from a seed, the engine produces the
+ * same rolls in the same order every time, so a game can be replayed from its seed and its commands. Besides the dice,
+ * the game draws its cards and the countries handed out at the start from the engine.
+ * <p>
+ * The engine counts the numbers it has drawn from its generator. A saved game keeps this count next to the seed, and
+ * {@link #skip(long)} brings a new engine created from the seed to the same position, so a loaded game goes on with the
+ * rolls that follow instead of rolling the ones of its start again.
+ * <p>
+ * An engine belongs to exactly one game and is only used by the thread running that game; it is not thread-safe.
+ * Games running in parallel each have an engine of their own, so they never share or contend for a generator.
+ */
+public final class DiceEngine {
+    /** The generator used when no algorithm is named. */
+    public static final String DEFAULT_ALGORITHM = "SplittableRandom";
+    /** The largest number of dice rolled at once. */
+    public static final int MAX_DICE = 3;
+
+    private final CountingGenerator random;
+    private final String algorithm;
+    private final long seed;
+
+    /**
+     * Constructs a DiceEngine drawing from the default generator, seeded with the given seed.
+     *
+     * @param seed The seed of the game.
+     */
+    public DiceEngine(long seed){
+        this(DEFAULT_ALGORITHM, seed);
+    }
+
+    /**
+     * Constructs a DiceEngine drawing from a generator of the named algorithm, seeded with the given seed.
+     *
+     * @param algorithm The name of the algorithm as known to {@link RandomGeneratorFactory}, e.g. "SplittableRandom"
+     *                  or "Xoshiro256PlusPlus".
+     * @param seed The seed of the game.
+     * @throws IllegalArgumentException If no generator of that name is available.
+     */
+    public DiceEngine(String algorithm, long seed){
+        this.random = new CountingGenerator(RandomGeneratorFactory.of(algorithm).create(seed));
+        this.algorithm = algorithm;
+        this.seed = seed;
+    }
+
+    /**
+     * Constructs a DiceEngine drawing from the given generator, e.g. one split off another generator for a task of its
+     * own. The engine does not know the seed of the generator, so {@link #getSeed()} returns 0.
+     *
+     * @param random The generator to draw from; only this engine may use it afterwards.
+     */
+    public DiceEngine(RandomGenerator random){
+        this.random = new CountingGenerator(random);
+        this.algorithm = random.getClass().getSimpleName();
+        this.seed = 0;
+    }
+
+    /**
+     * Creates a seed for a new game. The seeds of games created one after another are independent of each other.
+     *
+     * @return A new seed.
+     */
+    public static long newSeed(){
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Rolls a single die.
+     *
+     * @return A number between 1 and 6, inclusive.
+     */
+    public int roll(){
+        return random.nextInt(6) + 1;
+    }
+
+    /**
+     * Draws an index uniformly distributed between 0 (inclusive) and a bound (exclusive) from the generator of the game,
+     * e.g. to pick a card from a deck. Drawing from the engine instead of {@link Math#random()} keeps the whole game
+     * reproducible from its seed.
+     *
+     * @param bound The number of possible results, at least 1.
+     * @return The index drawn.
+     */
+    public int nextInt(int bound){
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Draws a number uniformly distributed between 0 (inclusive) and 1 (exclusive) from the generator of the game.
+     * Used for outcomes drawn from a precomputed distribution instead of being rolled die by die.
+     *
+     * @return The number drawn.
+     */
+    public double nextDouble(){
+        return random.nextDouble();
+    }
+
+    /**
+     * Rolls a number of dice and writes the results into the given buffer, highest first.
+     *
+     * @param results The buffer the results are written to, starting at index 0. Must hold at least {@code numDice} values.
+     * @param numDice The number of dice to roll, between 1 and {@link #MAX_DICE}.
+     * @return The number of dice rolled, i.e. the number of valid entries in {@code results}.
+     * @throws IllegalArgumentException If the number of dice is not between 1 and {@link #MAX_DICE}.
+     */
+    public int roll(int[] results, int numDice){
+        if (numDice < 1 || numDice > MAX_DICE){
+            throw new IllegalArgumentException("Invalid number of dice: " + numDice + ". Must be between 1 and " + MAX_DICE + ".");
+        }
+        for (int i = 0; i < numDice; i++){
+            results[i] = roll();
+        }
+        sortDescending(results, numDice);
+        return numDice;
+    }
+
+    /**
+     * Sorts up to three values in descending order with a sorting network.
+     *
+     * @param values The values, starting at index 0.
+     * @param count The number of values to sort, between 1 and 3.
+     */
+    static void sortDescending(int[] values, int count){
+        if (count == 2){
+            swapIfLess(values, 0, 1);
+        } else if (count == 3){
+            swapIfLess(values, 0, 1);
+            swapIfLess(values, 1, 2);
+            swapIfLess(values, 0, 1);
+        }
+    }
+
+    /**
+     * Swaps two values if the first one is smaller, so the larger value ends up first.
+     *
+     * @param values The values.
+     * @param i The index of the first value.
+     * @param j The index of the second value.
+     */
+    private static void swapIfLess(int[] values, int i, int j){
+        int a = values[i];
+        int b = values[j];
+        values[i] = Math.max(a, b);
+        values[j] = Math.min(a, b);
+    }
+
+    /**
+     * Retrieves the name of the algorithm of the generator.
+     *
+     * @return The name of the algorithm.
+     */
+    public String getAlgorithm(){
+        return algorithm;
+    }
+
+    /**
+     * Retrieves the seed the engine was created with.
+     *
+     * @return The seed.
+     */
+    public long getSeed(){
+        return seed;
+    }
+
+    /**
+     * Retrieves the position of the engine, the number of values drawn from its generator since it was created. A
+     * roll or a card may take more than one value, so this is not the number of rolls.
+     *
+     * @return The number of values drawn.
+     */
+    public long getDraws(){
+        return random.draws;
+    }
+
+    /**
+     * Moves the engine forward to a position, as if the values up to it had been drawn, e.g. to continue a saved game.
+     * Takes time linear in the number of values skipped.
+     *
+     * @param draws The position to move to, as returned by {@link #getDraws()}.
+     * @throws IllegalArgumentException If the engine is already past that position.
+     */
+    public void skip(long draws){
+        if (draws < random.draws){
+            throw new IllegalArgumentException("The dice are at draw " + random.draws + ", past draw " + draws + ".");
+        }
+        while (random.draws < draws){
+            random.nextLong();
+        }
+    }
+
+    /**
+     * Counts the values drawn from a generator. Every bounded or floating-point value is built from {@code nextInt()}
+     * or {@code nextLong()}, and each of them takes one step of the generators of the JDK, so repeating
+     * {@code nextLong()} as often as values were drawn reaches the same state of the generator.
+     */
+    private static final class CountingGenerator implements RandomGenerator {
+        private final RandomGenerator source;
+        private long draws;
+
+        CountingGenerator(RandomGenerator source){
+            this.source = source;
+        }
+
+        @Override
+        public int nextInt(){
+            draws++;
+            return source.nextInt();
+        }
+
+        @Override
+        public long nextLong(){
+            draws++;
+            return source.nextLong();
+        }
+    }
+}
@@ -228,6 +228,17 @@ public class Player {
         continents.add(continent);
     }
 
+    /**
+     * Removes a continent from the list of continents controlled by the player.
+     * <p>
+     * This method is called when the player loses one of the countries of a continent they controlled, so that the list only contains continents the player still controls completely.
+     *
+     * @param continent The {@link Continent} object the player no longer controls.
+     */
+    public void removeContinent(Continent continent) {
+        continents.remove(continent);
+    }
+
     /**
      * Adds a country to the list of countries controlled by the player.
      * <p>
@@ -428,6 +439,26 @@ public class Player {
         return false;
     }
 
+    /**
+     * Checks if the player owns the country with the specified ID.
+     * <p>
+     * This method works like {@link #ownsCountry(String)}, but compares the IDs of the countries instead of their names.
+     *
+     * @param countryId The ID of the country to check for ownership.
+     * @return {@code true} if the player owns the specified country; {@code false} otherwise.
+     */
+    public boolean ownsCountry(int countryId) {
+        if (countries == null){
+            return false;
+        }
+        for (Country c : countries) {
+            if (c.getId() == countryId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Determines whether the specified object is equal to the current player.
      * <p>
@@ -0,0 +1,127 @@
+package risk.common.entities;
+
+import java.util.Arrays;
+
+/**
+ * Represents the adjacency of the countries of a map, with countries identified by their IDs.
+ * <p>
+ * The graph is built once when the map is loaded and never changes afterwards. It stores the adjacency twice:
+ * <ul>
+ *     <li>as one bitset of {@code long} words per country, so {@link #isAdjacent(int, int)} is a single array access
+ *     and bit test instead of a search through a list of neighbors, and</li>
+ *     <li>in compressed sparse row form, i.e. the neighbor IDs of all countries in one {@code int} array with the
+ *     start of every country's neighbors in a second array, so iterating over the neighbors of a country reads
+ *     consecutive ints without touching any {@link Country} objects.</li>
+ * </ul>
+ * The bitsets take {@code countryCount * countryCount / 8} bytes, about 12 MB for a map of 10000 countries.
+ * <p>
+ * Adjacency is directed, like the neighbor lists of the map file: country {@code b} is adjacent to {@code a} if the
+ * line of {@code a} lists {@code b}. In the maps shipped with the game every neighborhood is listed on both lines.
+ */
+public final class WorldGraph {
+    private final int countryCount;
+    private final int wordsPerCountry;
+    private final long[] adjacency;
+    private final int[] neighborStart;
+    private final int[] neighborIds;
+
+    /**
+     * Constructs a WorldGraph from the neighbor IDs of every country.
+     * Neighbor IDs outside the range of country IDs are ignored, duplicates are only stored once.
+     *
+     * @param neighbors The IDs of the neighbors of every country, indexed by country ID. The arrays are not kept.
+     */
+    public WorldGraph(int[][] neighbors){
+        this.countryCount = neighbors.length;
+        this.wordsPerCountry = (countryCount + 63) >>> 6;
+        this.adjacency = new long[countryCount * wordsPerCountry];
+        this.neighborStart = new int[countryCount + 1];
+        int[] ids = new int[16];
+        int size = 0;
+        for (int country = 0; country < countryCount; country++){
+            neighborStart[country] = size;
+            for (int neighbor : neighbors[country]){
+                if (neighbor < 0 || neighbor >= countryCount || isAdjacent(country, neighbor)){
+                    continue;
+                }
+                adjacency[country * wordsPerCountry + (neighbor >>> 6)] |= 1L << neighbor;
+                if (size == ids.length){
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = neighbor;
+            }
+        }
+        neighborStart[countryCount] = size;
+        this.neighborIds = Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Retrieves the number of countries of the graph.
+     *
+     * @return The number of countries; valid country IDs range from 0 to this number minus one.
+     */
+    public int getCountryCount(){
+        return countryCount;
+    }
+
+    /**
+     * Checks whether a country ID belongs to this graph.
+     *
+     * @param countryId The ID to check.
+     * @return true if the ID is a valid country ID, false otherwise.
+     */
+    public boolean contains(int countryId){
+        return countryId >= 0 && countryId < countryCount;
+    }
+
+    /**
+     * Checks whether a country is listed as a neighbor of another country.
+     *
+     * @param fromId The ID of the country the action starts from.
+     * @param toId The ID of the country the action targets.
+     * @return true if {@code toId} is a neighbor of {@code fromId}, false otherwise or if an ID is unknown.
+     */
+    public boolean isAdjacent(int fromId, int toId){
+        if (!contains(fromId) || !contains(toId)){
+            return false;
+        }
+        return (adjacency[fromId * wordsPerCountry + (toId >>> 6)] & (1L << toId)) != 0;
+    }
+
+    /**
+     * Retrieves the number of neighbors of a country.
+     *
+     * @param countryId The ID of the country.
+     * @return The number of neighbors.
+     */
+    public int getNeighborCount(int countryId){
+        return neighborStart[countryId + 1] - neighborStart[countryId];
+    }
+
+    /**
+     * Retrieves a neighbor of a country. Together with {@link #getNeighborCount(int)} this iterates over the neighbors
+     * without allocating anything:
+     * <pre>
+     *     for (int i = 0; i &lt; graph.getNeighborCount(country); i++) {
+     *         int neighbor = graph.getNeighbor(country, i);
+     *     }
+     * </pre>
+     *
+     * @param countryId The ID of the country.
+     * @param index The index of the neighbor, from 0 to the number of neighbors minus one.
+     * @return The ID of the neighbor, in the order of the map file.
+     */
+    public int getNeighbor(int countryId, int index){
+        return neighborIds[neighborStart[countryId] + index];
+    }
+
+    /**
+     * Retrieves the IDs of all neighbors of a country.
+     *
+     * @param countryId The ID of the country.
+     * @return A new array with the IDs of the neighbors, in the order of the map file.
+     */
+    public int[] getNeighbors(int countryId){
+        return Arrays.copyOfRange(neighborIds, neighborStart[countryId], neighborStart[countryId + 1]);
+    }
+}
@@ -30,15 +30,24 @@ public class ConquerContinentMission extends MissionCard {
      * Checks if the mission objectives have been met by the player.
      * <p>
      * This method overrides the {@code isDone} method from the {@code MissionCard} class. It determines whether the player has successfully conquered the two target continents specified in this mission. The mission is considered completed if the player controls both target continents.
+     * <p>
+     * The owner of a continent is kept up to date on the server whenever a country changes hands, so the check only compares the owners of the two continents.
      *
      * @return {@code true} if the player controls both target continents; {@code false} otherwise.
      */
     @Override
     public boolean isDone(){
-        if (player.getContinents().contains(targetContinent1) && player.getContinents().contains(targetContinent2)){
-            return true;
-        }
-        return false;
+        return ownsContinent(targetContinent1) && ownsContinent(targetContinent2);
+    }
+
+    /**
+     * Checks if the player of this mission controls a continent.
+     *
+     * @param continent The continent to check, may be {@code null} if the map does not contain it.
+     * @return {@code true} if the player controls the continent; {@code false} otherwise.
+     */
+    private boolean ownsContinent(Continent continent){
+        return continent != null && continent.getPlayer() == player;
     }
 
 }
\ No newline at end of file
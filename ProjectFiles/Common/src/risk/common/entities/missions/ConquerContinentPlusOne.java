@@ -34,18 +34,27 @@ public class ConquerContinentPlusOne extends MissionCard {
      * Determines if the mission objectives have been met by the player.
      * <p>
      * This method checks if the player controls at least three continents, including the two specific target continents required for this mission. It overrides the {@code isDone} method from the {@code MissionCard} class to accommodate the additional requirement of controlling at least one continent beyond the two target continents. This ensures the mission's completion criteria are more challenging, reflecting a significant achievement in territorial expansion within the game.
+     * <p>
+     * The owner of a continent and the list of continents of a player are kept up to date on the server whenever a country changes hands, so the check does not look at any country.
      *
      * @return {@code true} if the player controls both target continents and at least one additional continent; {@code false} otherwise.
      */
     @Override
     public boolean isDone(){
         if (player.getContinents().size() >= 3) {
-            if (player.getContinents().contains(targetContinent1) && player.getContinents().contains(targetContinent2)){
-                return true;
-            }
-            return false;
+            return ownsContinent(targetContinent1) && ownsContinent(targetContinent2);
         }
         return false;
     }
 
+    /**
+     * Checks if the player of this mission controls a continent.
+     *
+     * @param continent The continent to check, may be {@code null} if the map does not contain it.
+     * @return {@code true} if the player controls the continent; {@code false} otherwise.
+     */
+    private boolean ownsContinent(Continent continent){
+        return continent != null && continent.getPlayer() == player;
+    }
+
 }
\ No newline at end of file
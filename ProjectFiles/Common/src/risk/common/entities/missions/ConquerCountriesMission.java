@@ -8,6 +8,7 @@ package risk.common.entities.missions;
  * The mission is considered completed if the player controls at least the required number of countries, reflecting a significant achievement in territorial expansion within the game.
  */
 public class ConquerCountriesMission extends MissionCard {
+    static final int TARGET_COUNTRIES = 24;
 
     /**
      * Constructs a new {@code ConquerCountriesMission} with the specified mission description.
@@ -29,9 +30,20 @@ public class ConquerCountriesMission extends MissionCard {
      */
     @Override
     public boolean isDone(){
-        if (player.getCountries().size() >= 24){
+        if (player.getCountries().size() >= TARGET_COUNTRIES){
             return true;
         }
         return false;
     }
+
+    /**
+     * Checks if the player has conquered the required number of countries, using the counters of the current game.
+     *
+     * @param progress The counters of the current game.
+     * @return {@code true} if the player controls at least the required number of countries; {@code false} otherwise.
+     */
+    @Override
+    public boolean isDone(MissionProgress progress){
+        return progress.getOwnedCountries(player) >= TARGET_COUNTRIES;
+    }
 }
\ No newline at end of file
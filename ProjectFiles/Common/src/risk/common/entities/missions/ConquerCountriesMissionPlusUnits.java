@@ -10,6 +10,7 @@ import risk.common.entities.Country;
  * The mission is considered completed if the player controls at least the required number of countries and each country has at least the specified minimum number of units, reflecting a significant achievement in both territorial expansion and military distribution within the game.
  */
 public class ConquerCountriesMissionPlusUnits extends MissionCard {
+    static final int TARGET_COUNTRIES = 18;
 
     /**
      * Constructs a new {@code ConquerCountriesMissionPlusUnits} mission with the specified description.
@@ -33,9 +34,9 @@ public class ConquerCountriesMissionPlusUnits extends MissionCard {
      */
     @Override
     public boolean isDone(){
-        if (player.getCountries().size() >= 18) {
+        if (player.getCountries().size() >= TARGET_COUNTRIES) {
             for (Country country : player.getCountries()){
-                if (country.getUnits() < 2){
+                if (country.getUnits() < MissionProgress.MIN_UNITS_PER_COUNTRY){
                     return false;
                 }
             }
@@ -43,4 +44,16 @@ public class ConquerCountriesMissionPlusUnits extends MissionCard {
         }
         return false;
     }
+
+    /**
+     * Checks the mission objectives using the counters of the current game.
+     * Instead of checking the units of every controlled country, it reads how many of them have fewer than the minimum number of units.
+     *
+     * @param progress The counters of the current game.
+     * @return {@code true} if the player controls the required number of countries with the minimum number of units in each; {@code false} otherwise.
+     */
+    @Override
+    public boolean isDone(MissionProgress progress){
+        return progress.getOwnedCountries(player) >= TARGET_COUNTRIES && progress.getWeakCountries(player) == 0;
+    }
 }
\ No newline at end of file
@@ -37,6 +37,19 @@ public class MissionCard {
      */
     public boolean isDone(){return false;}
 
+    /**
+     * Determines if the mission's objectives have been met, using counters that are kept up to date during the game.
+     * <p>
+     * In contrast to {@link #isDone()}, which looks at the board itself, this method only reads the counters provided by the {@link MissionProgress}, so it can be checked after every battle regardless of the size of the map.
+     * Subclasses whose objectives depend on more than the owner of continents should override it; the default implementation falls back to {@link #isDone()}.
+     *
+     * @param progress The counters of the current game.
+     * @return {@code true} if the mission objectives are met; {@code false} otherwise.
+     */
+    public boolean isDone(MissionProgress progress){
+        return isDone();
+    }
+
     /**
      * Retrieves the mission's description.
      * <p>
@@ -59,6 +72,15 @@ public class MissionCard {
         this.player = player;
     }
 
+    /**
+     * Retrieves the player this mission card is assigned to.
+     *
+     * @return The player of this mission, or {@code null} if the mission has not been assigned yet.
+     */
+    public Player getPlayer(){
+        return player;
+    }
+
     /**
      * Returns a string representation of the mission card.
      * <p>
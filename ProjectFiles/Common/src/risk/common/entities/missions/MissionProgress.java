@@ -0,0 +1,38 @@
+package risk.common.entities.missions;
+
+import risk.common.entities.Player;
+
+/**
+ * Provides the counters a mission needs to decide whether it is done, without walking over the board.
+ * <p>
+ * The server keeps these counters up to date whenever a country changes its owner or its number of units, see
+ * {@link MissionCard#isDone(MissionProgress)}. Every method answers in constant time.
+ */
+public interface MissionProgress {
+    /** Number of units each country needs for {@link ConquerCountriesMissionPlusUnits}. */
+    int MIN_UNITS_PER_COUNTRY = 2;
+
+    /**
+     * Retrieves the number of countries a player controls.
+     *
+     * @param player The player.
+     * @return The number of countries owned by the player.
+     */
+    int getOwnedCountries(Player player);
+
+    /**
+     * Retrieves the number of countries of a player with fewer than {@link #MIN_UNITS_PER_COUNTRY} units.
+     *
+     * @param player The player.
+     * @return The number of weakly defended countries owned by the player.
+     */
+    int getWeakCountries(Player player);
+
+    /**
+     * Retrieves the number of countries controlled by players of a color.
+     *
+     * @param color The color, compared ignoring case.
+     * @return The number of countries owned by a player of this color.
+     */
+    int getCountriesOfColor(String color);
+}
@@ -36,7 +36,7 @@ public class eliminatePlayerColorMission extends MissionCard {
     /**
      * Determines if the mission to eliminate all countries controlled by a player of a specific color has been completed.
      * <p>
-     * This method overrides the {@code isDone} method from the {@code MissionCard} class. It first checks if the target player color matches the player's color and if the player controls at least 24 countries, indicating a self-elimination scenario. If not, it iterates through all countries on the game board to check if any country is still controlled by the target player color. The mission is considered completed if no country is controlled by the target player color.
+     * This method overrides the {@code isDone} method from the {@code MissionCard} class. Colors are compared ignoring case, as the mission cards name them in lower case. It first checks if the target player color matches the player's color and if the player controls at least 24 countries, indicating a self-elimination scenario. If not, it iterates through all countries on the game board to check if any country is still controlled by the target player color. The mission is considered completed if no country is controlled by the target player color.
      * <p>
      * The method returns {@code true} if the mission is completed, either by self-elimination in the case of matching colors or if no country is controlled by the target player color. Otherwise, it returns {@code false}.
      *
@@ -44,14 +44,38 @@ public class eliminatePlayerColorMission extends MissionCard {
      */
     @Override
     public boolean isDone(){
-        if (targetPlayerColor.equals(player.getColor())){
-            return player.getCountries().size() >= 24;
+        if (targetPlayerColor.equalsIgnoreCase(player.getColor())){
+            return player.getCountries().size() >= ConquerCountriesMission.TARGET_COUNTRIES;
         }
         for (Country country : countries){
-            if (country.getPlayer().getColor().equals(targetPlayerColor)){
+            if (country.getPlayer() != null && country.getPlayer().getColor().equalsIgnoreCase(targetPlayerColor)){
                 return false;
             }
         }
         return true;
     }
+
+    /**
+     * Determines if the mission has been completed, using the counters of the current game.
+     * Instead of checking the owner of every country, it reads how many countries are still controlled by the target color.
+     *
+     * @param progress The counters of the current game.
+     * @return {@code true} if the mission objectives are met; {@code false} otherwise.
+     */
+    @Override
+    public boolean isDone(MissionProgress progress){
+        if (targetPlayerColor.equalsIgnoreCase(player.getColor())){
+            return progress.getOwnedCountries(player) >= ConquerCountriesMission.TARGET_COUNTRIES;
+        }
+        return progress.getCountriesOfColor(targetPlayerColor) == 0;
+    }
+
+    /**
+     * Retrieves the color of the player to be eliminated.
+     *
+     * @return The target color, as written on the mission card.
+     */
+    public String getTargetPlayerColor(){
+        return targetPlayerColor;
+    }
 }
\ No newline at end of file
@@ -2,11 +2,14 @@ package risk.common.interfaces;
 
 import java.util.*;
 
+import risk.common.entities.BattleOutcome;
 import risk.common.entities.Continent;
 import risk.common.entities.Country;
 import risk.common.entities.Player;
+import risk.common.entities.WorldGraph;
 import risk.common.exceptions.CountryNotFoundException;
 import risk.common.exceptions.InvalidUnitException;
+import risk.common.exceptions.NotANeighbourCountry;
 
 /**
  * Defines the core interface for the Risk game, encapsulating all essential game functionalities.
@@ -15,6 +18,8 @@ import risk.common.exceptions.InvalidUnitException;
  * Implementations of this interface are responsible for managing the game logic, including the initialization of game components, handling player actions, and enforcing game rules.
  * <p>
  * Key functionalities include starting the game, managing players and their units, processing attacks between countries, and handling turn-based mechanics.
+ * <p>
+ * Countries, continents and players can be addressed by name or by their integer ID. The ID based methods look them up by indexing and are used where the IDs are already known, e.g. for requests received over the network.
  */
 public interface RiskInterface {
 
@@ -80,5 +85,26 @@ public interface RiskInterface {
      public abstract String addPlayerUnitsPerRound(Player player);
      public boolean checkCountryNeighbor(String country1, String country2);
 
+    //Die gleichen Abfragen über die IDs, die beim Laden der Karte vergeben werden
+     public abstract Country getCountryById(int countryId) throws CountryNotFoundException;
+
+     public abstract Continent getContinentById(int continentId);
+
+     public abstract Player getPlayerById(int playerId);
+
+     public abstract String moveUnits(int playerId, int fromCountryId, int toCountryId, int units);
+
+     public abstract String addPlayerUnitsToCountry(int playerId, int countryId, int units) throws InvalidUnitException;
+
+     public abstract BattleOutcome blitz(int playerId, int fromCountryId, int toCountryId, int keepUnits, boolean sampled) throws CountryNotFoundException, NotANeighbourCountry;
+
+     public abstract boolean validateOwnership(int countryId, int playerId);
+
+     public int getUnitsByCountry(int countryId);
+
+     public boolean checkCountryNeighbor(int countryId1, int countryId2);
+
+     public WorldGraph getWorldGraph();
+
 }
 
@@ -3,23 +3,30 @@ package risk.common.persistence;
 import risk.common.FileUtils;
 import risk.common.entities.Continent;
 import risk.common.entities.Country;
+import risk.common.entities.WorldGraph;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Initializes and manages the loading and organization of countries and their neighboring relationships from a data file.
  * <p>
  * This class is responsible for reading country and neighbor data from a specified file, parsing the information, and organizing it into a usable structure for the game. It provides methods to initialize countries with their neighbors and continents with countries, ensuring that the game's geographical data is accurately represented and accessible.
+ * <p>
+ * Countries and continents receive dense IDs starting at 0, in the order of their lines in the data files. The lists returned are in the same order, so the ID of a country or continent is its index in the list.
  */
 public class CountryInitiator {
+    private static final Map<String, List<String>> MAP_FILES = new ConcurrentHashMap<>();
+
     final Map<String, List<String>> countriesAndNeighbors;
+    private WorldGraph worldGraph;
 
     /**
      * Constructs a new {@code CountryInitiator} instance for initializing and managing countries and their neighbors.
@@ -29,7 +36,7 @@ public class CountryInitiator {
      * @param filePath The path to the file containing the countries and their neighbors. This file is expected to follow a specific format where each line represents a country followed by its neighbors, separated by commas.
      */
     public CountryInitiator(String filePath) {
-        countriesAndNeighbors = new HashMap<>();
+        countriesAndNeighbors = new LinkedHashMap<>();         //Keeps the order of the file, which defines the IDs
         loadCountriesAndNeighbors (filePath);
     }
 
@@ -42,58 +49,104 @@ public class CountryInitiator {
      * @throws IOException If an I/O error occurs reading from the file.
      */
     private void loadCountriesAndNeighbors (String filePath) {
+        for (String line : readLines(filePath)) {
+            String[] parts = line.split(", ");
+            String country = parts[0];
+            List <String> neighbors = new ArrayList<>();
+            for (int i=1; i<parts.length; i++) {
+                neighbors.add(parts[i]);
+            }
+            countriesAndNeighbors.put(country, neighbors);
+        }
+    }
+
+    /**
+     * Reads the lines of a map file from the assets.
+     * <p>
+     * Map files do not change while the server is running, so every file is read only once and its lines are kept for the next game
+     * on the same map, e.g. a game loaded from a save game. If the file cannot be read, the error is printed and no lines are returned.
+     *
+     * @param filePath The name of the file, relative to the assets.
+     * @return The lines of the file, which must not be changed.
+     */
+    private static List<String> readLines(String filePath) {
+        List<String> lines = MAP_FILES.get(filePath);
+        if (lines != null) {
+            return lines;
+        }
+        lines = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new InputStreamReader(FileUtils.getResource("/assets/" + filePath)))) {
             String line;
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(", ");
-                String country = parts[0];
-                List <String> neighbors = new ArrayList<>();
-                for (int i=1; i<parts.length; i++) {
-                    neighbors.add(parts[i]);
-                }
-                countriesAndNeighbors.put(country, neighbors);
+                lines.add(line);
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return lines;
         }
+        MAP_FILES.putIfAbsent(filePath, lines);
+        return lines;
     }
 
     /**
      * Initializes all countries with their abbreviations and neighbors, and returns a list of all initialized countries.
      * <p>
-     * This method first creates all country objects from the {@code countriesAndNeighbors} map, where each country is initialized with its name and abbreviation. The abbreviation is assumed to be the first element in the list of neighbors. After all countries are created, the method iterates again over the {@code countriesAndNeighbors} map to set the neighbors for each country. Neighbors are added based on the remaining elements in the list for each country entry in the map.
+     * This method first creates all country objects from the {@code countriesAndNeighbors} map, where each country is initialized with its name and abbreviation. The abbreviation is assumed to be the first element in the list of neighbors. After all countries are created, the method iterates again over the {@code countriesAndNeighbors} map to set the neighbors for each country. Neighbors are added based on the remaining elements in the list for each country entry in the map. The map itself is left unchanged, so the countries can be initialized again, e.g. for a new game on the same map.
+     * <p>
+     * The method returns a list of all the country objects it has initialized, with each country having its neighbors properly set. This list can be used for further processing or initialization in the game. Each country is given its index in the list as ID.
      * <p>
-     * The method returns a list of all the country objects it has initialized, with each country having its neighbors properly set. This list can be used for further processing or initialization in the game.
+     * Finally the neighbors are stored as IDs in an immutable {@link WorldGraph}, which is handed to every country and can be retrieved with {@link #getWorldGraph()}.
      *
      * @return A list of {@code Country} objects, each initialized with a name, abbreviation, and a list of neighbors.
      */
     public List<Country> initializeCountries() {
-        Map<String, Country> countryMap = new HashMap<>();
+        Map<String, Country> countryMap = new LinkedHashMap<>();
 
         // Creates all Countries out of countriesAndNeighbors
         for (Map.Entry<String, List<String>> entry : countriesAndNeighbors.entrySet()) {
             String countryName = entry.getKey();
-            String abbreviation = entry.getValue().remove(0); // Assuming abbreviation is the first element in the list
+            String abbreviation = entry.getValue().get(0); // Assuming abbreviation is the first element in the list
             Country country = new Country(countryName, abbreviation);
+            country.setId(countryMap.size());
             countryMap.put(countryName, country);
         }
 
         // Adds Neighbors to all created Countries
+        int[][] neighborIds = new int[countryMap.size()][];
         for (Map.Entry<String, List<String>> entry : countriesAndNeighbors.entrySet()) {
             String countryName = entry.getKey();
             Country country = countryMap.get(countryName);
             List<Country> neighbors = new ArrayList<>();
-            for (String neighborName : entry.getValue()) {
+            for (String neighborName : entry.getValue().subList(1, entry.getValue().size())) {
                 Country neighbor = countryMap.get(neighborName);
                 if (neighbor != null) {
                     neighbors.add(neighbor);
                 }
             }
             country.setNeighbors(neighbors);
+            neighborIds[country.getId()] = new int[neighbors.size()];
+            for (int i = 0; i < neighbors.size(); i++) {
+                neighborIds[country.getId()][i] = neighbors.get(i).getId();
+            }
+        }
+
+        // Builds the adjacency graph out of the neighbor IDs
+        worldGraph = new WorldGraph(neighborIds);
+        for (Country country : countryMap.values()) {
+            country.setWorldGraph(worldGraph);
         }
         return new ArrayList<>(countryMap.values());
     }
 
+    /**
+     * Retrieves the adjacency graph of the countries, built by {@link #initializeCountries()}.
+     *
+     * @return The {@link WorldGraph} of the map, or {@code null} if the countries have not been initialized yet.
+     */
+    public WorldGraph getWorldGraph() {
+        return worldGraph;
+    }
+
     /**
      * Initializes continents with their respective bonus units and assigns countries to them based on a data file.
      * <p>
@@ -101,29 +154,24 @@ public class CountryInitiator {
      *
      * @param filePath The path to the file containing the continents, their bonus units, and the countries they contain. Each line in the file should start with the continent name, followed by the bonus units, and then the list of countries, all separated by commas.
      * @param countries A list of all {@code Country} objects previously initialized, which will be used to assign countries to their respective continents.
-     * @return A list of {@code Continent} objects, each initialized with a name, bonus units, and a list of countries belonging to it.
+     * @return A list of {@code Continent} objects, each initialized with a name, bonus units, and a list of countries belonging to it. Each continent is given its index in the list as ID.
      */
     public List<Continent> initializeContinents(String filePath, List<Country> countries) {
         List<Continent> continents = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(FileUtils.getResource("/assets/" + filePath)))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(", ");
-                String continentName = parts[0];
-                int bonusUnits = Integer.parseInt(parts[1]);
-                Continent continent = new Continent(continentName, bonusUnits);
-                for (int i = 2; i < parts.length; i++) {
-                    String countryName = parts[i];
-                    Country country = getCountryByName(countryName, countries);
-                    if (country != null) {
-                        continent.addCountry(country);
-                    }
+        for (String line : readLines(filePath)) {
+            String[] parts = line.split(", ");
+            String continentName = parts[0];
+            int bonusUnits = Integer.parseInt(parts[1]);
+            Continent continent = new Continent(continentName, bonusUnits);
+            continent.setId(continents.size());
+            for (int i = 2; i < parts.length; i++) {
+                String countryName = parts[i];
+                Country country = getCountryByName(countryName, countries);
+                if (country != null) {
+                    continent.addCountry(country);
                 }
-                continents.add(continent);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-
+            continents.add(continent);
         }
         return continents;
     }
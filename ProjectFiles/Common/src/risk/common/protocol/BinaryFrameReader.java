@@ -0,0 +1,117 @@
+package risk.common.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads binary frames from a stream and provides the text they carry as characters.
+ * <p>
+ * The content of {@link Opcode#TEXT} frames is returned by the read methods, so code written for the text protocol
+ * keeps reading its lines through a {@code BufferedReader} wrapped around this reader. All other frames are handed to
+ * a {@link FrameListener} as soon as they arrive, on the thread that reads.
+ * <p>
+ * The receive buffer, the decoder and the character buffer are reused for every frame. The reader is meant to be
+ * used by a single thread and does not synchronize, so a virtual thread blocked in {@link #read(char[], int, int)}
+ * does not pin its carrier.
+ */
+public class BinaryFrameReader extends Reader {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+    private final FrameListener listener;
+    private final FrameListener dispatcher = this::dispatch;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer received = ByteBuffer.allocate(BUFFER_SIZE);
+    private CharBuffer text = CharBuffer.allocate(BUFFER_SIZE).flip();
+
+    /**
+     * Constructs a BinaryFrameReader reading from the given stream.
+     *
+     * @param in The stream the frames are received on.
+     * @param listener The listener for all frames other than {@link Opcode#TEXT}.
+     */
+    public BinaryFrameReader(InputStream in, FrameListener listener){
+        this.in = in;
+        this.listener = listener;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0){
+            return 0;
+        }
+        while (!text.hasRemaining()){
+            if (!receive()){
+                return -1;
+            }
+        }
+        int count = Math.min(len, text.remaining());
+        text.get(cbuf, off, count);
+        return count;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return text.hasRemaining();
+    }
+
+    /**
+     * Decodes the frames already received and reads more bytes from the stream if they yielded no text.
+     *
+     * @return false once the stream has ended, true otherwise.
+     * @throws IOException If reading fails or a frame is malformed.
+     */
+    private boolean receive() throws IOException {
+        received.flip();
+        FrameCodec.decode(received, dispatcher);
+        received.compact();
+        if (text.hasRemaining()){
+            return true;
+        }
+        if (!received.hasRemaining()){                  //A single frame is larger than the buffer
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(received.capacity() * 2, FrameCodec.MAX_FRAME_LENGTH + Varint.MAX_INT_BYTES));
+            received = larger.put(received.flip());
+        }
+        int read = in.read(received.array(), received.arrayOffset() + received.position(), received.remaining());
+        if (read < 0){
+            return false;
+        }
+        received.position(received.position() + read);
+        return true;
+    }
+
+    /**
+     * Appends the content of a text frame to the characters to be read and hands any other frame to the listener.
+     *
+     * @param opcode The opcode of the frame.
+     * @param payload The payload of the frame.
+     */
+    private void dispatch(byte opcode, ByteBuffer payload){
+        if (opcode != Opcode.TEXT){
+            listener.onFrame(opcode, payload);
+            return;
+        }
+        text.compact();
+        if (text.remaining() < payload.remaining()){     //UTF-8 never yields more characters than bytes
+            CharBuffer larger = CharBuffer.allocate(text.position() + payload.remaining());
+            text = larger.put(text.flip());
+        }
+        decoder.reset();
+        decoder.decode(payload, text, true);
+        decoder.flush(text);
+        text.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
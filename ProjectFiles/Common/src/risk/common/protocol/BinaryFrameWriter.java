@@ -0,0 +1,92 @@
+package risk.common.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes text as binary frames to a stream.
+ * <p>
+ * The characters written are collected and sent as one {@link Opcode#TEXT} frame on every flush, so code written for
+ * the text protocol keeps printing its lines through a {@code PrintWriter} wrapped around this writer. Other frames
+ * are sent with {@link #writeFrame(ByteBuffer)}, after any text written before them.
+ */
+public class BinaryFrameWriter extends Writer {
+    private final OutputStream out;
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * Constructs a BinaryFrameWriter writing to the given stream.
+     *
+     * @param out The stream the frames are sent on.
+     */
+    public BinaryFrameWriter(OutputStream out){
+        this.out = out;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len){
+        synchronized (lock) {
+            pending.append(cbuf, off, len);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len){
+        synchronized (lock) {
+            pending.append(str, off, off + len);
+        }
+    }
+
+    /**
+     * Sends a frame, e.g. one created by {@link FrameCodec}, after the text written so far.
+     *
+     * @param frame The encoded frame.
+     * @throws IOException If writing to the stream fails.
+     */
+    public void writeFrame(ByteBuffer frame) throws IOException {
+        synchronized (lock) {
+            writePending();
+            writeBytes(frame);
+            out.flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            writePending();
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends the text collected so far as a text frame. Must be called while holding the lock.
+     *
+     * @throws IOException If writing to the stream fails.
+     */
+    private void writePending() throws IOException {
+        if (pending.length() == 0){
+            return;
+        }
+        writeBytes(FrameCodec.encodeText(pending.toString()));
+        pending.setLength(0);
+    }
+
+    /**
+     * Writes the remaining bytes of a heap buffer to the stream.
+     *
+     * @param buffer The bytes to write.
+     * @throws IOException If writing to the stream fails.
+     */
+    private void writeBytes(ByteBuffer buffer) throws IOException {
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,188 @@
+package risk.common.protocol;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes the frames of the binary protocol.
+ * <p>
+ * The text protocol sends one value per line and leaves it to the receiver to know how many lines belong to a
+ * message, and a name containing a space breaks its parsing. A binary frame states its own length instead:
+ * <pre>
+ *     varint length | opcode byte | payload (length - 1 bytes)
+ * </pre>
+ * The payload of a {@link Opcode#TEXT} frame is a message of the text protocol; the other opcodes carry varint
+ * encoded IDs and numbers, see {@link Opcode}. A connection starts with the text protocol. The client may send
+ * {@link #HANDSHAKE}; a server supporting the binary protocol answers {@link #HANDSHAKE_ACCEPTED} and from then on
+ * both sides only send frames. Any other answer means the connection stays on the text protocol. The client must not
+ * send anything else until it received the answer.
+ * <p>
+ * Decoding works directly on the receive buffer and does not copy the payload, see {@link #decode(ByteBuffer,
+ * FrameListener)}. Encoding allocates a single buffer of the exact size of the frame.
+ */
+public final class FrameCodec {
+    /** Largest accepted value of the length prefix, i.e. opcode and payload. */
+    public static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    /** Line sent by a client to switch its connection to binary frames. */
+    public static final String HANDSHAKE = "HELLO binary";
+    /** Answer of the server if the connection switches to binary frames after this line. */
+    public static final String HANDSHAKE_ACCEPTED = "HELLO: binary";
+    /** Answer of the server if the connection stays on the text protocol. */
+    public static final String HANDSHAKE_REJECTED = "HELLO: text";
+
+    private FrameCodec(){
+    }
+
+    /**
+     * Allocates a buffer for a frame and writes its length prefix and opcode.
+     *
+     * @param opcode The opcode of the frame.
+     * @param payloadLength The number of bytes of the payload.
+     * @return The buffer, positioned at the start of the payload.
+     */
+    private static ByteBuffer startFrame(byte opcode, int payloadLength){
+        int length = payloadLength + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(Varint.sizeOf(length) + length);
+        Varint.putVarint(buffer, length);
+        buffer.put(opcode);
+        return buffer;
+    }
+
+    /**
+     * Encodes a message of the text protocol as a {@link Opcode#TEXT} frame.
+     *
+     * @param text One or more complete lines, each followed by a line terminator.
+     * @return The frame, ready to be written.
+     */
+    public static ByteBuffer encodeText(String text){
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return startFrame(Opcode.TEXT, bytes.length).put(bytes).flip();
+    }
+
+    /**
+     * Encodes the countries changed since the last update as a {@link Opcode#COUNTRY_DELTA} frame.
+     *
+     * @param version The state version of the board after the change.
+     * @param baseVersion The state version the delta is based on.
+     * @param count The number of changed countries.
+     * @param countryIds The IDs of the changed countries.
+     * @param ownerIds The player IDs of their owners.
+     * @param units Their unit counts.
+     * @return The frame, ready to be written.
+     */
+    public static ByteBuffer encodeCountryDelta(long version, long baseVersion, int count, int[] countryIds, int[] ownerIds, int[] units){
+        int payloadLength = Varint.sizeOf(version) + Varint.sizeOf(baseVersion) + Varint.sizeOf(count);
+        for (int i = 0; i < count; i++){
+            payloadLength += Varint.sizeOf(countryIds[i]) + Varint.sizeOf(ownerIds[i]) + Varint.sizeOf(units[i]);
+        }
+        ByteBuffer buffer = startFrame(Opcode.COUNTRY_DELTA, payloadLength);
+        Varint.putVarlong(buffer, version);
+        Varint.putVarlong(buffer, baseVersion);
+        Varint.putVarint(buffer, count);
+        for (int i = 0; i < count; i++){
+            Varint.putVarint(buffer, countryIds[i]);
+            Varint.putVarint(buffer, ownerIds[i]);
+            Varint.putVarint(buffer, units[i]);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the placement of units on a country as a {@link Opcode#PLACE_UNITS} frame.
+     *
+     * @param countryId The ID of the country.
+     * @param units The number of units to place.
+     * @return The frame, ready to be written.
+     */
+    public static ByteBuffer encodePlaceUnits(int countryId, int units){
+        ByteBuffer buffer = startFrame(Opcode.PLACE_UNITS, Varint.sizeOf(countryId) + Varint.sizeOf(units));
+        Varint.putVarint(buffer, countryId);
+        Varint.putVarint(buffer, units);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes a movement of units between two countries as a {@link Opcode#MOVE_UNITS} frame.
+     *
+     * @param fromCountryId The ID of the country the units leave.
+     * @param toCountryId The ID of the country the units move to.
+     * @param units The number of units to move.
+     * @return The frame, ready to be written.
+     */
+    public static ByteBuffer encodeMoveUnits(int fromCountryId, int toCountryId, int units){
+        ByteBuffer buffer = startFrame(Opcode.MOVE_UNITS, Varint.sizeOf(fromCountryId) + Varint.sizeOf(toCountryId) + Varint.sizeOf(units));
+        Varint.putVarint(buffer, fromCountryId);
+        Varint.putVarint(buffer, toCountryId);
+        Varint.putVarint(buffer, units);
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes a whole battle as a {@link Opcode#BLITZ} frame.
+     *
+     * @param fromCountryId The ID of the attacking country.
+     * @param toCountryId The ID of the attacked country.
+     * @param keepUnits The units to keep on the attacking country.
+     * @param sampled true to draw the result from its distribution, false to roll the dice.
+     * @return The frame, ready to be written.
+     */
+    public static ByteBuffer encodeBlitz(int fromCountryId, int toCountryId, int keepUnits, boolean sampled){
+        ByteBuffer buffer = startFrame(Opcode.BLITZ, Varint.sizeOf(fromCountryId) + Varint.sizeOf(toCountryId) + Varint.sizeOf(keepUnits) + 1);
+        Varint.putVarint(buffer, fromCountryId);
+        Varint.putVarint(buffer, toCountryId);
+        Varint.putVarint(buffer, keepUnits);
+        buffer.put((byte) (sampled ? 1 : 0));
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes every complete frame between the position and the limit of the buffer and hands it to the listener.
+     * The payload is passed as the buffer itself, with position and limit set to the frame, so nothing is copied;
+     * afterwards the limit is restored. The buffer is left positioned at the first frame that is not complete yet,
+     * so the caller can compact it and append the next bytes received.
+     *
+     * @param buffer The received bytes, ready to be read.
+     * @param listener The listener receiving the frames.
+     * @return The number of frames decoded.
+     * @throws ProtocolException If a length prefix is malformed or exceeds {@link #MAX_FRAME_LENGTH}.
+     */
+    public static int decode(ByteBuffer buffer, FrameListener listener) throws ProtocolException {
+        int frames = 0;
+        int limit = buffer.limit();
+        while (true){
+            int index = buffer.position();
+            int length = 0;
+            int shift = 0;
+            while (true){                               //Peek at the length prefix without consuming it
+                if (index >= limit){
+                    return frames;
+                }
+                byte b = buffer.get(index++);
+                length |= (b & 0x7F) << shift;
+                if (b >= 0){
+                    break;
+                }
+                shift += 7;
+                if (shift >= 7 * Varint.MAX_INT_BYTES){
+                    throw new ProtocolException("Malformed frame length");
+                }
+            }
+            if (length < 1 || length > MAX_FRAME_LENGTH){
+                throw new ProtocolException("Invalid frame length " + length);
+            }
+            if (limit - index < length){
+                return frames;                          //Frame not complete yet
+            }
+            int end = index + length;
+            byte opcode = buffer.get(index);
+            buffer.limit(end).position(index + 1);
+            try {
+                listener.onFrame(opcode, buffer);
+            } finally {
+                buffer.limit(limit).position(end);
+            }
+            frames++;
+        }
+    }
+}
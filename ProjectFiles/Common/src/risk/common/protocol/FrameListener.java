@@ -0,0 +1,19 @@
+package risk.common.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the frames decoded by {@link FrameCodec#decode(ByteBuffer, FrameListener)}.
+ */
+public interface FrameListener {
+
+    /**
+     * Called for every complete frame.
+     * The payload is a view of the receive buffer, positioned at the first byte after the opcode and limited to the
+     * end of the frame. It is only valid during the call and must not be kept.
+     *
+     * @param opcode The opcode of the frame, see {@link Opcode}.
+     * @param payload The payload of the frame.
+     */
+    void onFrame(byte opcode, ByteBuffer payload);
+}
@@ -0,0 +1,30 @@
+package risk.common.protocol;
+
+/**
+ * Lists the opcodes of the binary protocol, i.e. the first byte after the length prefix of every frame.
+ * <p>
+ * {@link #TEXT} carries any message of the text protocol unchanged, so every command and reply keeps working once a
+ * connection switched to binary frames. The other opcodes are compact encodings of the messages sent most often
+ * during a game; they refer to countries and players by their IDs instead of their names.
+ */
+public final class Opcode {
+    /** One or more complete lines of the text protocol, UTF-8 encoded. */
+    public static final byte TEXT = 1;
+    /**
+     * Changed countries, sent by the server: the state version and base version as varlongs, the number of changes,
+     * then for each change the country ID, the owner's player ID and the unit count as varints.
+     */
+    public static final byte COUNTRY_DELTA = 2;
+    /** Units placed on a country by the player of the connection, sent by the client: country ID and units. */
+    public static final byte PLACE_UNITS = 3;
+    /** Units moved by the player of the connection, sent by the client: source and target country ID and units. */
+    public static final byte MOVE_UNITS = 4;
+    /**
+     * A whole battle fought by the player of the connection, sent by the client: source and target country ID, the
+     * units to keep on the source country and 1 to draw the result from its distribution or 0 to roll the dice.
+     */
+    public static final byte BLITZ = 5;
+
+    private Opcode(){
+    }
+}
@@ -0,0 +1,121 @@
+package risk.common.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes variable-length integers as used by the binary protocol.
+ * <p>
+ * A varint stores seven bits per byte, least significant group first; the highest bit of a byte is set if another
+ * byte follows. Small numbers such as country IDs, player IDs and unit counts therefore take a single byte on the
+ * wire. Negative numbers are stored as their unsigned value and always take the maximum number of bytes, so the
+ * protocol only uses varints for values that cannot be negative.
+ */
+public final class Varint {
+    /** Maximum number of bytes of an encoded int. */
+    public static final int MAX_INT_BYTES = 5;
+    /** Maximum number of bytes of an encoded long. */
+    public static final int MAX_LONG_BYTES = 10;
+
+    private Varint(){
+    }
+
+    /**
+     * Calculates how many bytes the given int takes as a varint.
+     *
+     * @param value The value to encode.
+     * @return The number of bytes between 1 and {@link #MAX_INT_BYTES}.
+     */
+    public static int sizeOf(int value){
+        int size = 1;
+        while ((value & ~0x7F) != 0){
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Calculates how many bytes the given long takes as a varint.
+     *
+     * @param value The value to encode.
+     * @return The number of bytes between 1 and {@link #MAX_LONG_BYTES}.
+     */
+    public static int sizeOf(long value){
+        int size = 1;
+        while ((value & ~0x7FL) != 0){
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes an int as a varint at the current position of the buffer.
+     *
+     * @param buffer The buffer to write to.
+     * @param value The value to write.
+     * @throws java.nio.BufferOverflowException If the buffer has not enough space left.
+     */
+    public static void putVarint(ByteBuffer buffer, int value){
+        while ((value & ~0x7F) != 0){
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a long as a varint at the current position of the buffer.
+     *
+     * @param buffer The buffer to write to.
+     * @param value The value to write.
+     * @throws java.nio.BufferOverflowException If the buffer has not enough space left.
+     */
+    public static void putVarlong(ByteBuffer buffer, long value){
+        while ((value & ~0x7FL) != 0){
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a varint from the current position of the buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @return The decoded value.
+     * @throws java.nio.BufferUnderflowException If the buffer ends in the middle of the varint.
+     * @throws IllegalArgumentException If the varint is longer than {@link #MAX_INT_BYTES}.
+     */
+    public static int getVarint(ByteBuffer buffer){
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_INT_BYTES; shift += 7){
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0){
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Reads a varint encoded long from the current position of the buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @return The decoded value.
+     * @throws java.nio.BufferUnderflowException If the buffer ends in the middle of the varint.
+     * @throws IllegalArgumentException If the varint is longer than {@link #MAX_LONG_BYTES}.
+     */
+    public static long getVarlong(ByteBuffer buffer){
+        long value = 0;
+        for (int shift = 0; shift < 7 * MAX_LONG_BYTES; shift += 7){
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0){
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,256 @@
+package risk.server.domain;
+
+import risk.common.entities.BattleOutcome;
+import risk.common.entities.DiceEngine;
+
+/**
+ * Resolves a whole battle between two countries in one go, either by rolling the dice until the battle is over or by
+ * drawing the result directly from the distribution of all possible results.
+ * <p>
+ * A battle is a sequence of rolls. Before each roll the attacker has {@code a} units on the attacking country and the
+ * defender {@code d} units on the defending country; the attacker rolls {@code min(3, a - 1)} dice, as one unit has
+ * to stay behind, and the defender {@code min(2, d)}. The battle ends when the defender has no units left, which
+ * conquers the country, or when the attacker is down to the number of units they want to keep. The units of the last
+ * roll that survived move into the conquered country, as they would after a single attack.
+ * <p>
+ * Since every roll only depends on {@code (a, d)}, a battle is a Markov chain on these states, with the
+ * {@link BattleTable} as its transition probabilities. Every roll lowers {@code a + d}, so the probability of reaching
+ * each state, and with it of each final result, is computed in one pass over all {@code a * d} states.
+ */
+public final class BattleResolver {
+
+    private BattleResolver(){
+    }
+
+    /**
+     * Fights a battle by rolling the dice until it is over.
+     *
+     * @param dice The dice of the game.
+     * @param attackerUnits The units on the attacking country.
+     * @param defenderUnits The units on the defending country.
+     * @param keepUnits The units the attacker wants to keep on the attacking country; at least 1.
+     * @param attackerRolls A buffer for the rolls of the attacker, at least 3 long.
+     * @param defenderRolls A buffer for the rolls of the defender, at least 2 long.
+     * @return The result of the battle, with the number of rolls it took.
+     */
+    public static BattleOutcome roll(DiceEngine dice, int attackerUnits, int defenderUnits, int keepUnits, int[] attackerRolls, int[] defenderRolls){
+        int keep = Math.max(keepUnits, 1);
+        int attackers = attackerUnits;
+        int defenders = defenderUnits;
+        int rolls = 0;
+        int moved = 0;
+        while (attackers > keep && defenders > 0){
+            int attackerDice = dice.roll(attackerRolls, Math.min(BattleTable.MAX_ATTACKER_DICE, attackers - 1));
+            int defenderDice = dice.roll(defenderRolls, Math.min(BattleTable.MAX_DEFENDER_DICE, defenders));
+            int losses = 0;
+            for (int i = 0; i < BattleTable.comparedDice(attackerDice, defenderDice); i++){
+                if (attackerRolls[i] > defenderRolls[i]){
+                    defenders--;
+                } else {
+                    attackers--;
+                    losses++;
+                }
+            }
+            rolls++;
+            if (defenders == 0){
+                moved = attackerDice - losses;
+            }
+        }
+        return new BattleOutcome(attackerUnits - attackers, defenderUnits - defenders, moved, rolls);
+    }
+
+    /**
+     * Fights a battle by drawing its result from the distribution of all results, using a single random number.
+     * Takes time in proportion to {@code attackerUnits * defenderUnits}, independent of the luck of the dice.
+     *
+     * @param dice The dice of the game.
+     * @param attackerUnits The units on the attacking country.
+     * @param defenderUnits The units on the defending country.
+     * @param keepUnits The units the attacker wants to keep on the attacking country; at least 1.
+     * @return The result of the battle, with 0 rolls.
+     */
+    public static BattleOutcome sample(DiceEngine dice, int attackerUnits, int defenderUnits, int keepUnits){
+        return distribution(attackerUnits, defenderUnits, keepUnits).sample(dice.nextDouble());
+    }
+
+    /**
+     * Computes the probabilities of all results of a battle.
+     *
+     * @param attackerUnits The units on the attacking country.
+     * @param defenderUnits The units on the defending country.
+     * @param keepUnits The units the attacker wants to keep on the attacking country; at least 1.
+     * @return The distribution of the results.
+     * @throws IllegalArgumentException If the defending country has no units.
+     */
+    public static Distribution distribution(int attackerUnits, int defenderUnits, int keepUnits){
+        if (defenderUnits < 1){
+            throw new IllegalArgumentException("The defending country has no units.");
+        }
+        int keep = Math.max(keepUnits, 1);
+        Distribution result = new Distribution(attackerUnits, defenderUnits, keep);
+        if (attackerUnits <= keep){
+            result.add(attackerUnits, defenderUnits, 0, 1.0);
+            return result;
+        }
+        //Probability of reaching each state (attackers, defenders) while the battle is still going on
+        double[][] reach = new double[attackerUnits + 1][defenderUnits + 1];
+        reach[attackerUnits][defenderUnits] = 1.0;
+        for (int attackers = attackerUnits; attackers > keep; attackers--){
+            for (int defenders = defenderUnits; defenders > 0; defenders--){
+                double probability = reach[attackers][defenders];
+                if (probability == 0){
+                    continue;
+                }
+                int attackerDice = Math.min(BattleTable.MAX_ATTACKER_DICE, attackers - 1);
+                int defenderDice = Math.min(BattleTable.MAX_DEFENDER_DICE, defenders);
+                int compared = BattleTable.comparedDice(attackerDice, defenderDice);
+                for (int losses = 0; losses <= compared; losses++){
+                    double next = probability * BattleTable.lossProbability(attackerDice, defenderDice, losses);
+                    int nextAttackers = attackers - losses;
+                    int nextDefenders = defenders - (compared - losses);
+                    if (nextDefenders == 0){
+                        result.add(nextAttackers, 0, attackerDice - losses, next);
+                    } else if (nextAttackers <= keep){
+                        result.add(nextAttackers, nextDefenders, 0, next);
+                    } else {
+                        reach[nextAttackers][nextDefenders] += next;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The probabilities of all results of a battle, i.e. of every combination of units left on both countries and
+     * units moved into the conquered country.
+     */
+    public static final class Distribution {
+        private final int attackerUnits;
+        private final int defenderUnits;
+        private final int keepUnits;
+        //Indexed by attackers left and units moved, the defender has no units left
+        private final double[][] conquered;
+        //Indexed by attackers left and defenders left, the attacker is down to the units to keep or fewer
+        private final double[][] repelled;
+
+        private Distribution(int attackerUnits, int defenderUnits, int keepUnits){
+            this.attackerUnits = attackerUnits;
+            this.defenderUnits = defenderUnits;
+            this.keepUnits = keepUnits;
+            this.conquered = new double[Math.max(attackerUnits, 0) + 1][BattleTable.MAX_ATTACKER_DICE + 1];
+            this.repelled = new double[Math.max(Math.min(attackerUnits, keepUnits), 0) + 1][defenderUnits + 1];
+        }
+
+        /**
+         * Adds the probability of a result.
+         *
+         * @param attackers The units left on the attacking country.
+         * @param defenders The units left on the defending country.
+         * @param moved The units moved into the conquered country.
+         * @param probability The probability of the result.
+         */
+        private void add(int attackers, int defenders, int moved, double probability){
+            if (defenders == 0 && moved > 0){
+                conquered[attackers][moved] += probability;
+            } else {
+                repelled[attackers][defenders] += probability;
+            }
+        }
+
+        /**
+         * Retrieves the probability that the defending country is conquered.
+         *
+         * @return The probability of a conquest.
+         */
+        public double getConquestProbability(){
+            double sum = 0;
+            for (double[] byMoved : conquered){
+                for (double probability : byMoved){
+                    sum += probability;
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Retrieves the expected number of units the attacker loses.
+         *
+         * @return The expected losses of the attacker.
+         */
+        public double getExpectedAttackerLosses(){
+            double sum = 0;
+            for (int attackers = 0; attackers < conquered.length; attackers++){
+                for (double probability : conquered[attackers]){
+                    sum += probability * (attackerUnits - attackers);
+                }
+            }
+            for (int attackers = 0; attackers < repelled.length; attackers++){
+                for (double probability : repelled[attackers]){
+                    sum += probability * (attackerUnits - attackers);
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Retrieves the expected number of units the defender loses.
+         *
+         * @return The expected losses of the defender.
+         */
+        public double getExpectedDefenderLosses(){
+            double sum = getConquestProbability() * defenderUnits;
+            for (double[] byDefenders : repelled){
+                for (int defenders = 0; defenders < byDefenders.length; defenders++){
+                    sum += byDefenders[defenders] * (defenderUnits - defenders);
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Picks the result a uniformly distributed number falls on when the results are laid out one after the other,
+         * each taking up as much of the interval from 0 to 1 as its probability.
+         *
+         * @param uniform A number between 0 (inclusive) and 1 (exclusive).
+         * @return The result picked, with 0 rolls.
+         */
+        public BattleOutcome sample(double uniform){
+            double rest = uniform;
+            int attackersLeft = attackerUnits;
+            int defendersLeft = defenderUnits;
+            int unitsMoved = 0;
+            for (int attackers = 0; attackers < conquered.length && rest >= 0; attackers++){
+                for (int moved = 1; moved < conquered[attackers].length && rest >= 0; moved++){
+                    if (conquered[attackers][moved] > 0){
+                        attackersLeft = attackers;
+                        defendersLeft = 0;
+                        unitsMoved = moved;
+                        rest -= conquered[attackers][moved];
+                    }
+                }
+            }
+            for (int attackers = 0; attackers < repelled.length && rest >= 0; attackers++){
+                for (int defenders = 0; defenders < repelled[attackers].length && rest >= 0; defenders++){
+                    if (repelled[attackers][defenders] > 0){
+                        attackersLeft = attackers;
+                        defendersLeft = defenders;
+                        unitsMoved = 0;
+                        rest -= repelled[attackers][defenders];
+                    }
+                }
+            }
+            //If rounding left a tiny rest, the last result is taken
+            return new BattleOutcome(attackerUnits - attackersLeft, defenderUnits - defendersLeft, unitsMoved, 0);
+        }
+
+        /**
+         * Retrieves the units the attacker keeps on the attacking country.
+         *
+         * @return The units to keep.
+         */
+        public int getKeepUnits(){
+            return keepUnits;
+        }
+    }
+}
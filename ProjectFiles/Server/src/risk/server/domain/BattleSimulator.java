@@ -0,0 +1,217 @@
+package risk.server.domain;
+
+import risk.common.entities.BattleOutcome;
+import risk.common.entities.DiceEngine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Estimates the odds of a battle by fighting it many times with simulated dice.
+ * <p>
+ * Every simulated battle follows the rules of {@link RiskAdministration#blitz}: the attacker rolls up to
+ * {@link BattleTable#MAX_ATTACKER_DICE} dice, the defender up to {@link BattleTable#MAX_DEFENDER_DICE}, and the
+ * battle is rolled by {@link BattleResolver#roll} until the defender has no units left or the attacker is down to the
+ * units to keep. Nothing of a game is touched, so the simulator can be used by clients to show the odds before an
+ * attack and by bots to plan their moves.
+ * <p>
+ * The battles are split into tasks of {@value #BATTLES_PER_TASK} battles that run on a {@link ForkJoinPool}, so a
+ * simulation of millions of battles uses every core. Each task rolls with a {@link SplittableRandom} of its own,
+ * split off the generator of the task that created it; no generator is shared between threads, and since the tasks
+ * are split the same way every time, a simulation started with the same seed always gives the same result.
+ * <p>
+ * For the standard rules {@link BattleResolver#distribution} computes the exact odds, which is faster for a single
+ * battle and answers the {@code battleOdds} requests of clients; the simulator also reports how far its estimate may be
+ * off, see {@link Result#getStandardError()}. {@code risk.benchmark.BattleOddsBenchmark} compares the two.
+ */
+public class BattleSimulator {
+    private static final int BATTLES_PER_TASK = 1 << 14;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a BattleSimulator that runs its tasks on the common {@link ForkJoinPool}.
+     */
+    public BattleSimulator(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a BattleSimulator that runs its tasks on the given pool.
+     *
+     * @param pool The pool the simulations run on.
+     */
+    public BattleSimulator(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Simulates a battle many times and collects the results. Blocks until all battles have been fought.
+     *
+     * @param attackerUnits The units on the attacking country.
+     * @param defenderUnits The units on the defending country, at least 1.
+     * @param keepUnits The units the attacker wants to keep on the attacking country; at least 1.
+     * @param battles The number of battles to simulate, at least 1.
+     * @param seed The seed of the simulation.
+     * @return The collected results.
+     * @throws IllegalArgumentException If the defender has no units or no battle is to be simulated.
+     */
+    public Result simulate(int attackerUnits, int defenderUnits, int keepUnits, long battles, long seed){
+        if (defenderUnits < 1 || battles < 1){
+            throw new IllegalArgumentException("A simulation needs at least one defending unit and one battle.");
+        }
+        return pool.invoke(new SimulationTask(attackerUnits, defenderUnits, keepUnits, battles, new SplittableRandom(seed)));
+    }
+
+    /**
+     * Simulates a number of battles, either directly or by splitting them between two tasks.
+     */
+    private static class SimulationTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final int attackerUnits;
+        private final int defenderUnits;
+        private final int keepUnits;
+        private final long battles;
+        private final transient SplittableRandom random;      //Tasks are never serialized
+
+        SimulationTask(int attackerUnits, int defenderUnits, int keepUnits, long battles, SplittableRandom random){
+            this.attackerUnits = attackerUnits;
+            this.defenderUnits = defenderUnits;
+            this.keepUnits = keepUnits;
+            this.battles = battles;
+            this.random = random;
+        }
+
+        @Override
+        protected Result compute(){
+            if (battles <= BATTLES_PER_TASK){
+                return fight();
+            }
+            long half = battles / 2;
+            SimulationTask second = new SimulationTask(attackerUnits, defenderUnits, keepUnits, battles - half, random.split());
+            second.fork();
+            Result first = new SimulationTask(attackerUnits, defenderUnits, keepUnits, half, random).compute();
+            return first.merge(second.join());
+        }
+
+        /**
+         * Fights the battles of this task one after another.
+         *
+         * @return The results of the battles.
+         */
+        private Result fight(){
+            DiceEngine dice = new DiceEngine(random);
+            int[] attackerRolls = new int[BattleTable.MAX_ATTACKER_DICE];
+            int[] defenderRolls = new int[BattleTable.MAX_DEFENDER_DICE];
+            long wins = 0;
+            long attackersLeft = 0;
+            long attackersLeftSquared = 0;
+            long defendersLeft = 0;
+            for (long i = 0; i < battles; i++){
+                BattleOutcome outcome = BattleResolver.roll(dice, attackerUnits, defenderUnits, keepUnits, attackerRolls, defenderRolls);
+                int attackers = attackerUnits - outcome.getAttackerLosses();
+                if (outcome.isConquered()){
+                    wins++;
+                }
+                attackersLeft += attackers;
+                attackersLeftSquared += (long) attackers * attackers;
+                defendersLeft += defenderUnits - outcome.getDefenderLosses();
+            }
+            return new Result(battles, wins, attackersLeft, attackersLeftSquared, defendersLeft);
+        }
+    }
+
+    /**
+     * The results of a simulation, summed up over all battles.
+     */
+    public static final class Result {
+        private final long battles;
+        private final long wins;
+        private final long attackersLeft;
+        private final long attackersLeftSquared;
+        private final long defendersLeft;
+
+        Result(long battles, long wins, long attackersLeft, long attackersLeftSquared, long defendersLeft){
+            this.battles = battles;
+            this.wins = wins;
+            this.attackersLeft = attackersLeft;
+            this.attackersLeftSquared = attackersLeftSquared;
+            this.defendersLeft = defendersLeft;
+        }
+
+        /**
+         * Combines the results of two parts of a simulation.
+         *
+         * @param other The results of the other part.
+         * @return The results of both parts.
+         */
+        Result merge(Result other){
+            return new Result(battles + other.battles, wins + other.wins, attackersLeft + other.attackersLeft,
+                    attackersLeftSquared + other.attackersLeftSquared, defendersLeft + other.defendersLeft);
+        }
+
+        /**
+         * Retrieves the number of battles simulated.
+         *
+         * @return The number of battles.
+         */
+        public long getBattles(){
+            return battles;
+        }
+
+        /**
+         * Retrieves the share of battles in which the attacker conquered the country.
+         *
+         * @return The estimated probability of a conquest.
+         */
+        public double getWinProbability(){
+            return (double) wins / battles;
+        }
+
+        /**
+         * Retrieves how far the estimated probability of a conquest may be off, i.e. its standard error.
+         *
+         * @return The standard error of {@link #getWinProbability()}.
+         */
+        public double getStandardError(){
+            double p = getWinProbability();
+            return Math.sqrt(p * (1 - p) / battles);
+        }
+
+        /**
+         * Retrieves the average number of units left on the attacking country after the battle, including the units
+         * kept there and, after a conquest, before any units move into the conquered country.
+         *
+         * @return The expected units of the attacker.
+         */
+        public double getExpectedAttackerUnits(){
+            return (double) attackersLeft / battles;
+        }
+
+        /**
+         * Retrieves the standard deviation of the units left on the attacking country after the battle.
+         *
+         * @return The standard deviation of the units of the attacker.
+         */
+        public double getAttackerUnitsDeviation(){
+            double mean = getExpectedAttackerUnits();
+            return Math.sqrt(Math.max((double) attackersLeftSquared / battles - mean * mean, 0));
+        }
+
+        /**
+         * Retrieves the average number of units left on the defending country after the battle.
+         *
+         * @return The expected units of the defender.
+         */
+        public double getExpectedDefenderUnits(){
+            return (double) defendersLeft / battles;
+        }
+
+        @Override
+        public String toString(){
+            return battles + " " + getWinProbability() + " " + getExpectedAttackerUnits() + " " + getExpectedDefenderUnits();
+        }
+    }
+}
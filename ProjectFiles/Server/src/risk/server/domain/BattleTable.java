@@ -0,0 +1,91 @@
+package risk.server.domain;
+
+import java.util.Arrays;
+
+/**
+ * Holds the exact probabilities of the outcomes of a single roll of the dice in an attack.
+ * <p>
+ * The attacker rolls one to three dice and the defender one or two. The highest dice of both sides are compared in
+ * pairs, the defender winning ties, so a roll compares {@code min(attackerDice, defenderDice)} pairs and the attacker
+ * loses between none and all of them; the defender loses the rest. For each of the six combinations of dice the
+ * probability of every number of attacker losses is computed once, when the class is loaded, by going through all
+ * {@code 6^(attackerDice + defenderDice)} possible rolls, at most 7776.
+ * <p>
+ * The table is the transition matrix of the Markov chain {@link BattleResolver} uses to resolve whole battles.
+ */
+public final class BattleTable {
+    public static final int MAX_ATTACKER_DICE = 3;
+    public static final int MAX_DEFENDER_DICE = 2;
+
+    //Indexed by attacker dice, defender dice and attacker losses
+    private static final double[][][] LOSS_PROBABILITIES = computeLossProbabilities();
+
+    private BattleTable(){
+    }
+
+    /**
+     * Computes the probabilities of all losses for all combinations of dice by enumerating every possible roll.
+     *
+     * @return The probabilities, indexed by attacker dice, defender dice and attacker losses.
+     */
+    private static double[][][] computeLossProbabilities(){
+        double[][][] probabilities = new double[MAX_ATTACKER_DICE + 1][MAX_DEFENDER_DICE + 1][];
+        for (int attackerDice = 1; attackerDice <= MAX_ATTACKER_DICE; attackerDice++){
+            for (int defenderDice = 1; defenderDice <= MAX_DEFENDER_DICE; defenderDice++){
+                int compared = Math.min(attackerDice, defenderDice);
+                long[] counts = new long[compared + 1];
+                int dice = attackerDice + defenderDice;
+                int rolls = (int) Math.pow(6, dice);
+                int[] attacker = new int[attackerDice];
+                int[] defender = new int[defenderDice];
+                for (int roll = 0; roll < rolls; roll++){
+                    int rest = roll;
+                    for (int i = 0; i < attackerDice; i++, rest /= 6){
+                        attacker[i] = rest % 6;
+                    }
+                    for (int i = 0; i < defenderDice; i++, rest /= 6){
+                        defender[i] = rest % 6;
+                    }
+                    Arrays.sort(attacker);
+                    Arrays.sort(defender);
+                    int attackerLosses = 0;
+                    for (int i = 1; i <= compared; i++){            //Highest dice are at the end after sorting
+                        if (attacker[attackerDice - i] <= defender[defenderDice - i]){
+                            attackerLosses++;
+                        }
+                    }
+                    counts[attackerLosses]++;
+                }
+                probabilities[attackerDice][defenderDice] = new double[compared + 1];
+                for (int losses = 0; losses <= compared; losses++){
+                    probabilities[attackerDice][defenderDice][losses] = (double) counts[losses] / rolls;
+                }
+            }
+        }
+        return probabilities;
+    }
+
+    /**
+     * Determines how many pairs of dice are compared in a roll.
+     *
+     * @param attackerDice The number of dice the attacker rolls, 1 to 3.
+     * @param defenderDice The number of dice the defender rolls, 1 or 2.
+     * @return The number of units lost in total by both sides in the roll.
+     */
+    public static int comparedDice(int attackerDice, int defenderDice){
+        return Math.min(attackerDice, defenderDice);
+    }
+
+    /**
+     * Retrieves the probability that the attacker loses a given number of units in a single roll; the defender loses
+     * the other compared dice.
+     *
+     * @param attackerDice The number of dice the attacker rolls, 1 to 3.
+     * @param defenderDice The number of dice the defender rolls, 1 or 2.
+     * @param attackerLosses The number of units the attacker loses, 0 to {@link #comparedDice(int, int)}.
+     * @return The probability of the losses.
+     */
+    public static double lossProbability(int attackerDice, int defenderDice, int attackerLosses){
+        return LOSS_PROBABILITIES[attackerDice][defenderDice][attackerLosses];
+    }
+}
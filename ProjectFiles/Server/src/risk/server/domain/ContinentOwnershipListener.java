@@ -0,0 +1,28 @@
+package risk.server.domain;
+
+import risk.common.entities.Continent;
+import risk.common.entities.Player;
+
+/**
+ * Receives the changes of continent ownership detected by the {@link ContinentOwnershipTracker}.
+ * The methods are called on the thread that changed the owner of a country, after the continent and the player have
+ * been updated.
+ */
+public interface ContinentOwnershipListener {
+
+    /**
+     * Called when a player has come to own every country of a continent.
+     *
+     * @param player The player now owning the continent.
+     * @param continent The continent.
+     */
+    void continentGained(Player player, Continent continent);
+
+    /**
+     * Called when a player owning a continent has lost one of its countries.
+     *
+     * @param player The player that owned the continent.
+     * @param continent The continent.
+     */
+    void continentLost(Player player, Continent continent);
+}
@@ -0,0 +1,156 @@
+package risk.server.domain;
+
+import risk.common.entities.Continent;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ContinentOwnershipTracker} class keeps track of which player owns which continent while countries change
+ * their owner.
+ * <p>
+ * For every player it counts the countries held in each continent. A change of owner only touches the counters of the
+ * continent of that one country, so finding out whether a player gained or lost a continent takes constant time
+ * instead of checking every country of every continent. When a counter reaches the size of its continent, or drops
+ * below it, the tracker updates {@link Continent#getPlayer()} and {@link Player#getContinents()} and informs its
+ * {@link ContinentOwnershipListener}s. It also keeps the sum of the bonus units of the continents each player owns,
+ * which is all the reinforcement calculation needs.
+ * <p>
+ * The tracker listens to the {@link DomainEventBus} of the game for every change of owner, see
+ * {@link #countryCaptured(Country, Player, Player)}, and publishes the continents gained and lost back on the bus.
+ */
+public class ContinentOwnershipTracker implements DomainEventListener {
+    private final List<Continent> continents;
+    private final int[] continentOfCountry;
+    private final Map<Player, int[]> heldCountries = new HashMap<>();
+    private final Map<Player, Integer> bonusUnits = new HashMap<>();
+    private final List<ContinentOwnershipListener> listeners = new ArrayList<>();
+
+    /**
+     * Constructs a ContinentOwnershipTracker for a map. No country is owned by anybody at the start.
+     *
+     * @param countries All countries of the map, with their IDs assigned.
+     * @param continents All continents of the map, with their IDs assigned.
+     */
+    public ContinentOwnershipTracker(List<Country> countries, List<Continent> continents){
+        this.continents = continents;
+        this.continentOfCountry = new int[countries.size()];
+        Arrays.fill(continentOfCountry, -1);
+        for (Continent continent : continents){
+            for (Country country : continent.getCountries()){
+                continentOfCountry[country.getId()] = continent.getId();
+            }
+        }
+    }
+
+    /**
+     * Registers a listener that is informed whenever a player gains or loses a continent.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(ContinentOwnershipListener listener){
+        listeners.add(listener);
+    }
+
+    /**
+     * Updates the counters after a country changed its owner and fires the resulting continent changes.
+     * Must be called for every change of owner, including the first assignment at the start of the game.
+     *
+     * @param country The country whose owner changed.
+     * @param oldOwner The previous owner, or {@code null} if the country had none.
+     * @param newOwner The new owner, or {@code null} if the country has none now.
+     */
+    @Override
+    public void countryCaptured(Country country, Player oldOwner, Player newOwner){
+        if (oldOwner == newOwner || country.getId() < 0 || country.getId() >= continentOfCountry.length){
+            return;
+        }
+        int continentId = continentOfCountry[country.getId()];
+        if (continentId < 0){
+            return;                                         //Country without a continent
+        }
+        Continent continent = continents.get(continentId);
+        int size = continent.getCountries().size();
+        if (oldOwner != null){
+            int[] held = heldCountries.computeIfAbsent(oldOwner, player -> new int[continents.size()]);
+            if (held[continentId]-- == size){
+                lose(oldOwner, continent);
+            }
+        }
+        if (newOwner != null){
+            int[] held = heldCountries.computeIfAbsent(newOwner, player -> new int[continents.size()]);
+            if (++held[continentId] == size){
+                gain(newOwner, continent);
+            }
+        }
+    }
+
+    /**
+     * Records that a player now owns a continent and informs the listeners.
+     *
+     * @param player The new owner of the continent.
+     * @param continent The continent.
+     */
+    private void gain(Player player, Continent continent){
+        continent.setPlayer(player);
+        player.addContinent(continent);
+        bonusUnits.merge(player, continent.getBonusUnits(), Integer::sum);
+        for (ContinentOwnershipListener listener : listeners){
+            listener.continentGained(player, continent);
+        }
+    }
+
+    /**
+     * Records that a player no longer owns a continent and informs the listeners.
+     *
+     * @param player The previous owner of the continent.
+     * @param continent The continent.
+     */
+    private void lose(Player player, Continent continent){
+        continent.removePlayer();
+        player.removeContinent(continent);
+        bonusUnits.merge(player, -continent.getBonusUnits(), Integer::sum);
+        for (ContinentOwnershipListener listener : listeners){
+            listener.continentLost(player, continent);
+        }
+    }
+
+    /**
+     * Checks whether a player owns every country of a continent.
+     *
+     * @param player The player.
+     * @param continent The continent.
+     * @return true if the player owns the continent, false otherwise.
+     */
+    public boolean ownsContinent(Player player, Continent continent){
+        int[] held = heldCountries.get(player);
+        return held != null && held[continent.getId()] == continent.getCountries().size();
+    }
+
+    /**
+     * Retrieves the number of countries of a continent a player holds.
+     *
+     * @param player The player.
+     * @param continent The continent.
+     * @return The number of countries of the continent owned by the player.
+     */
+    public int getHeldCountries(Player player, Continent continent){
+        int[] held = heldCountries.get(player);
+        return held != null ? held[continent.getId()] : 0;
+    }
+
+    /**
+     * Retrieves the sum of the bonus units of all continents a player owns.
+     *
+     * @param player The player.
+     * @return The continent bonus of the player for the next reinforcement.
+     */
+    public int getBonusUnits(Player player){
+        return bonusUnits.getOrDefault(player, 0);
+    }
+}
@@ -0,0 +1,89 @@
+package risk.server.domain;
+
+/**
+ * An immutable copy of a state change, handed to the asynchronous subscribers of the {@link DomainEventBus}.
+ * <p>
+ * Asynchronous subscribers see an event after the game may already have moved on, so the event only carries IDs and
+ * numbers taken at the time of the change, never the live entities. The meaning of the fields depends on the type:
+ * <table>
+ *     <tr><th>Type</th><th>subjectId</th><th>playerId</th><th>otherPlayerId</th><th>value</th><th>detail</th></tr>
+ *     <tr><td>COUNTRY_CAPTURED</td><td>country</td><td>new owner</td><td>old owner or -1</td><td>units</td><td></td></tr>
+ *     <tr><td>UNITS_CHANGED</td><td>country</td><td>owner or -1</td><td></td><td>new units</td><td></td></tr>
+ *     <tr><td>TURN_CHANGED</td><td></td><td>next player</td><td>previous player</td><td></td><td></td></tr>
+ *     <tr><td>UNIT_CARD_DRAWN</td><td></td><td>player</td><td></td><td></td><td>card type</td></tr>
+ *     <tr><td>PLAYER_ELIMINATED</td><td></td><td>player</td><td></td><td></td><td></td></tr>
+ *     <tr><td>CONTINENT_GAINED / LOST</td><td>continent</td><td>player</td><td></td><td></td><td></td></tr>
+ * </table>
+ * Fields without a meaning are -1 or {@code null}.
+ */
+public final class DomainEvent {
+
+    /**
+     * The kinds of state changes published by the {@link DomainEventBus}.
+     */
+    public enum Type {
+        COUNTRY_CAPTURED, UNITS_CHANGED, TURN_CHANGED, UNIT_CARD_DRAWN, PLAYER_ELIMINATED, CONTINENT_GAINED, CONTINENT_LOST
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final int subjectId;
+    private final int playerId;
+    private final int otherPlayerId;
+    private final int value;
+    private final String detail;
+
+    /**
+     * Constructs a DomainEvent.
+     *
+     * @param sequence The number of the event; events of a game are numbered consecutively in the order they happened.
+     * @param type The kind of state change.
+     * @param subjectId The ID of the country or continent concerned.
+     * @param playerId The ID of the player concerned.
+     * @param otherPlayerId The ID of the second player concerned.
+     * @param value A number describing the change.
+     * @param detail A text describing the change.
+     */
+    public DomainEvent(long sequence, Type type, int subjectId, int playerId, int otherPlayerId, int value, String detail){
+        this.sequence = sequence;
+        this.type = type;
+        this.subjectId = subjectId;
+        this.playerId = playerId;
+        this.otherPlayerId = otherPlayerId;
+        this.value = value;
+        this.detail = detail;
+    }
+
+    public long getSequence(){
+        return sequence;
+    }
+
+    public Type getType(){
+        return type;
+    }
+
+    public int getSubjectId(){
+        return subjectId;
+    }
+
+    public int getPlayerId(){
+        return playerId;
+    }
+
+    public int getOtherPlayerId(){
+        return otherPlayerId;
+    }
+
+    public int getValue(){
+        return value;
+    }
+
+    public String getDetail(){
+        return detail;
+    }
+
+    @Override
+    public String toString(){
+        return sequence + " " + type + " " + subjectId + " " + playerId + " " + otherPlayerId + " " + value + (detail != null ? " " + detail : "");
+    }
+}
@@ -0,0 +1,217 @@
+package risk.server.domain;
+
+import risk.common.entities.Continent;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.UnitCard;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * The {@code DomainEventBus} class distributes the state changes of a game to everyone interested in them.
+ * <p>
+ * {@link RiskAdministration} publishes every change of owner, change of units, change of turn, unit card drawn,
+ * elimination and change of continent ownership by calling the matching {@link DomainEventListener} method on the bus.
+ * The bus hands the event on in two ways:
+ * <ul>
+ *     <li>Synchronous listeners, registered with {@link #addListener(DomainEventListener)}, are called directly on the
+ *     thread that changed the state, in the order they were registered. They see the live entities and no object is
+ *     allocated for them. This is meant for listeners that keep the game itself consistent, like the
+ *     {@link ContinentOwnershipTracker} and the {@link MissionEngine}, or that must be in step with the board, like
+ *     the delta tracking of the network layer.</li>
+ *     <li>Asynchronous subscribers, registered with {@link #subscribeAsync(String, Consumer)}, receive an immutable
+ *     {@link DomainEvent} on a virtual thread of their own, so slow work like writing a journal or collecting metrics
+ *     does not hold up the game. A {@link DomainEvent} is only created if there is at least one subscriber.</li>
+ * </ul>
+ * Events are numbered consecutively. An event published by a listener while it handles another event, e.g. a
+ * continent lost because a country was captured, gets the next number and reaches the asynchronous subscribers after
+ * the event that caused it.
+ * <p>
+ * Events are published by the single thread running the game, see {@code GameRoom}; listeners may be added from any
+ * thread.
+ */
+public class DomainEventBus implements DomainEventListener {
+    private volatile DomainEventListener[] listeners = new DomainEventListener[0];
+    private volatile AsyncSubscriber[] subscribers = new AsyncSubscriber[0];
+    private long sequence = 0;
+
+    /**
+     * Registers a listener that is called synchronously for every event.
+     *
+     * @param listener The listener to add.
+     */
+    public synchronized void addListener(DomainEventListener listener){
+        DomainEventListener[] extended = Arrays.copyOf(listeners, listeners.length + 1);
+        extended[listeners.length] = listener;
+        listeners = extended;
+    }
+
+    /**
+     * Registers a subscriber that receives a copy of every event on a virtual thread of its own.
+     * The subscriber receives the events in the order they were published.
+     *
+     * @param name The name of the subscriber, used for its thread.
+     * @param subscriber The subscriber.
+     */
+    public synchronized void subscribeAsync(String name, Consumer<DomainEvent> subscriber){
+        AsyncSubscriber[] extended = Arrays.copyOf(subscribers, subscribers.length + 1);
+        extended[subscribers.length] = new AsyncSubscriber(name, subscriber);
+        subscribers = extended;
+    }
+
+    /**
+     * Stops the threads of all asynchronous subscribers once they have handled the events published so far.
+     */
+    public synchronized void close(){
+        for (AsyncSubscriber subscriber : subscribers){
+            subscriber.close();
+        }
+        subscribers = new AsyncSubscriber[0];
+    }
+
+    /**
+     * Retrieves the number of the last event published.
+     *
+     * @return The sequence number of the last event, 0 if no event has been published yet.
+     */
+    public long getSequence(){
+        return sequence;
+    }
+
+    /**
+     * Numbers an event and hands a copy of it to the asynchronous subscribers, if there are any.
+     * Called before the synchronous listeners, so events they publish in turn are delivered after this one.
+     *
+     * @param type The kind of state change.
+     * @param subjectId The ID of the country or continent concerned.
+     * @param playerId The ID of the player concerned.
+     * @param otherPlayerId The ID of the second player concerned.
+     * @param value A number describing the change.
+     * @param detail A text describing the change.
+     */
+    private void publish(DomainEvent.Type type, int subjectId, int playerId, int otherPlayerId, int value, String detail){
+        sequence++;
+        AsyncSubscriber[] current = subscribers;
+        if (current.length == 0){
+            return;
+        }
+        DomainEvent event = new DomainEvent(sequence, type, subjectId, playerId, otherPlayerId, value, detail);
+        for (AsyncSubscriber subscriber : current){
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * Retrieves the ID of a player, or -1 for no player.
+     *
+     * @param player The player, may be {@code null}.
+     * @return The ID of the player.
+     */
+    private static int idOf(Player player){
+        return player != null ? player.getId() : -1;
+    }
+
+    @Override
+    public void countryCaptured(Country country, Player oldOwner, Player newOwner){
+        publish(DomainEvent.Type.COUNTRY_CAPTURED, country.getId(), idOf(newOwner), idOf(oldOwner), country.getUnits(), null);
+        for (DomainEventListener listener : listeners){
+            listener.countryCaptured(country, oldOwner, newOwner);
+        }
+    }
+
+    @Override
+    public void unitsChanged(Country country, int oldUnits){
+        publish(DomainEvent.Type.UNITS_CHANGED, country.getId(), idOf(country.getPlayer()), -1, country.getUnits(), null);
+        for (DomainEventListener listener : listeners){
+            listener.unitsChanged(country, oldUnits);
+        }
+    }
+
+    @Override
+    public void turnChanged(Player previousPlayer, Player nextPlayer){
+        publish(DomainEvent.Type.TURN_CHANGED, -1, idOf(nextPlayer), idOf(previousPlayer), -1, null);
+        for (DomainEventListener listener : listeners){
+            listener.turnChanged(previousPlayer, nextPlayer);
+        }
+    }
+
+    @Override
+    public void unitCardDrawn(Player player, UnitCard card){
+        publish(DomainEvent.Type.UNIT_CARD_DRAWN, -1, idOf(player), -1, -1, card.getType());
+        for (DomainEventListener listener : listeners){
+            listener.unitCardDrawn(player, card);
+        }
+    }
+
+    @Override
+    public void playerEliminated(Player player){
+        publish(DomainEvent.Type.PLAYER_ELIMINATED, -1, idOf(player), -1, -1, null);
+        for (DomainEventListener listener : listeners){
+            listener.playerEliminated(player);
+        }
+    }
+
+    @Override
+    public void continentGained(Player player, Continent continent){
+        publish(DomainEvent.Type.CONTINENT_GAINED, continent.getId(), idOf(player), -1, -1, null);
+        for (DomainEventListener listener : listeners){
+            listener.continentGained(player, continent);
+        }
+    }
+
+    @Override
+    public void continentLost(Player player, Continent continent){
+        publish(DomainEvent.Type.CONTINENT_LOST, continent.getId(), idOf(player), -1, -1, null);
+        for (DomainEventListener listener : listeners){
+            listener.continentLost(player, continent);
+        }
+    }
+
+    /**
+     * An asynchronous subscriber together with the queue of events it has not handled yet and the virtual thread
+     * handling them.
+     */
+    private static class AsyncSubscriber {
+        private static final DomainEvent CLOSE = new DomainEvent(-1, null, -1, -1, -1, -1, null);
+
+        private final BlockingQueue<DomainEvent> queue = new LinkedBlockingQueue<>();
+        private final Consumer<DomainEvent> subscriber;
+
+        AsyncSubscriber(String name, Consumer<DomainEvent> subscriber){
+            this.subscriber = subscriber;
+            Thread.ofVirtual().name("events-" + name).start(this::run);
+        }
+
+        void offer(DomainEvent event){
+            queue.add(event);
+        }
+
+        void close(){
+            queue.add(CLOSE);
+        }
+
+        /**
+         * Hands the queued events to the subscriber until the subscriber is closed.
+         */
+        private void run(){
+            try {
+                while (true){
+                    DomainEvent event = queue.take();
+                    if (event == CLOSE){
+                        return;
+                    }
+                    try {
+                        subscriber.accept(event);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();        //A failing subscriber must not stop the others or lose later events
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
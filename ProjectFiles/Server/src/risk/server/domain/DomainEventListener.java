@@ -0,0 +1,71 @@
+package risk.server.domain;
+
+import risk.common.entities.Continent;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.UnitCard;
+
+/**
+ * Receives the state changes of a game synchronously, on the thread that changed the state, see {@link DomainEventBus}.
+ * <p>
+ * The events are passed as method calls with the affected entities, so publishing them does not allocate anything.
+ * The entities are live: a listener sees the state right after the change and must not keep them to read later.
+ * Every method has an empty default implementation, so a listener only implements the events it is interested in.
+ * Listeners must not throw and should return quickly, as they run inside the game logic.
+ */
+public interface DomainEventListener extends ContinentOwnershipListener {
+
+    /**
+     * Called after a country got a new owner, either when the countries are distributed at the start of the game or
+     * when it has been conquered. Called before the units of the new owner are moved onto the country.
+     *
+     * @param country The country, with its units at the time of the capture.
+     * @param oldOwner The previous owner, or {@code null} if the country had none.
+     * @param newOwner The new owner.
+     */
+    default void countryCaptured(Country country, Player oldOwner, Player newOwner){
+    }
+
+    /**
+     * Called after the units on a country changed, e.g. by placing, moving or losing units in a battle.
+     *
+     * @param country The country, with its new number of units.
+     * @param oldUnits The number of units on the country before the change.
+     */
+    default void unitsChanged(Country country, int oldUnits){
+    }
+
+    /**
+     * Called after the turn passed on to the next player.
+     *
+     * @param previousPlayer The player whose turn ended.
+     * @param nextPlayer The player whose turn begins.
+     */
+    default void turnChanged(Player previousPlayer, Player nextPlayer){
+    }
+
+    /**
+     * Called after a player drew a unit card.
+     *
+     * @param player The player.
+     * @param card The card drawn.
+     */
+    default void unitCardDrawn(Player player, UnitCard card){
+    }
+
+    /**
+     * Called after a player lost their last country.
+     *
+     * @param player The eliminated player.
+     */
+    default void playerEliminated(Player player){
+    }
+
+    @Override
+    default void continentGained(Player player, Continent continent){
+    }
+
+    @Override
+    default void continentLost(Player player, Continent continent){
+    }
+}
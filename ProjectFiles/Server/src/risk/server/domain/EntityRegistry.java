@@ -0,0 +1,175 @@
+package risk.server.domain;
+
+import risk.common.entities.Continent;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code EntityRegistry} class keeps hash indexes of the countries, continents and players of a game, so that they
+ * can be looked up by name, color or ID without scanning a list.
+ * <p>
+ * Country and continent names are looked up case-insensitively. Instead of comparing every entry with
+ * {@code equalsIgnoreCase}, the names are normalised to lower case once when the map is loaded, and only the name
+ * being looked up has to be normalised on every call. Player names and colors are compared exactly, as before.
+ * <p>
+ * If several entries share a key, the first one indexed wins, which matches the result of the linear scans this class
+ * replaces. The map never changes during a game, so the country and continent indexes are built once; the player
+ * indexes have to be kept up to date with {@link #addPlayer(Player)} and {@link #removePlayer(Player, List)} whenever
+ * the list of players changes.
+ */
+public class EntityRegistry {
+    private final Map<String, Country> countriesByName = new HashMap<>();
+    private final Map<String, Continent> continentsByName = new HashMap<>();
+    private final Map<String, Player> playersByName = new HashMap<>();
+    private final Map<String, Player> playersByColor = new HashMap<>();
+    private final Map<Integer, Player> playersById = new HashMap<>();
+
+    /**
+     * Normalises a country or continent name for the case-insensitive indexes.
+     *
+     * @param name The name as written in the map files or sent by a client.
+     * @return The key of the name in the indexes.
+     */
+    static String normalize(String name){
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexes the countries of the map by their name.
+     * A country without a name is indexed as "Test", like the lookup this replaces did.
+     *
+     * @param countries All countries of the map.
+     */
+    public void indexCountries(List<Country> countries){
+        countriesByName.clear();
+        for (Country country : countries){
+            String name = country.getName() != null ? country.getName() : "Test";
+            countriesByName.putIfAbsent(normalize(name), country);
+        }
+    }
+
+    /**
+     * Indexes the continents of the map by their name.
+     *
+     * @param continents All continents of the map.
+     */
+    public void indexContinents(List<Continent> continents){
+        continentsByName.clear();
+        for (Continent continent : continents){
+            continentsByName.putIfAbsent(normalize(continent.getName()), continent);
+        }
+    }
+
+    /**
+     * Rebuilds the player indexes from scratch, e.g. after the players of a saved game have been loaded.
+     *
+     * @param players All players of the game, in turn order.
+     */
+    public void indexPlayers(List<Player> players){
+        playersByName.clear();
+        playersByColor.clear();
+        playersById.clear();
+        for (Player player : players){
+            addPlayer(player);
+        }
+    }
+
+    /**
+     * Adds a player that has just joined the game to the player indexes.
+     *
+     * @param player The new player.
+     */
+    public void addPlayer(Player player){
+        if (player.getName() != null){
+            playersByName.putIfAbsent(player.getName(), player);
+        }
+        if (player.getColor() != null){
+            playersByColor.putIfAbsent(player.getColor(), player);
+        }
+        playersById.putIfAbsent(player.getId(), player);
+    }
+
+    /**
+     * Removes a player that has left the game from the player indexes.
+     * If the player shared its name, color or ID with a remaining player, the indexes are rebuilt so the remaining
+     * player can still be found.
+     *
+     * @param player The player that left.
+     * @param remainingPlayers The players still in the game, without the removed one.
+     */
+    public void removePlayer(Player player, List<Player> remainingPlayers){
+        boolean removed = playersByName.remove(player.getName(), player);
+        removed &= playersByColor.remove(player.getColor(), player);
+        removed &= playersById.remove(player.getId(), player);
+        if (!removed || playersById.size() != remainingPlayers.size()){
+            indexPlayers(remainingPlayers);                 //Duplicate keys, fall back to a full rebuild
+        }
+    }
+
+    /**
+     * Looks up a country by its name, ignoring case differences.
+     *
+     * @param countryName The name of the country.
+     * @return The country, or {@code null} if no country has this name.
+     */
+    public Country getCountry(String countryName){
+        if (countryName == null){
+            return null;
+        }
+        return countriesByName.get(normalize(countryName));
+    }
+
+    /**
+     * Looks up a continent by its name, ignoring case differences.
+     *
+     * @param continentName The name of the continent.
+     * @return The continent, or {@code null} if no continent has this name.
+     */
+    public Continent getContinent(String continentName){
+        if (continentName == null){
+            return null;
+        }
+        return continentsByName.get(normalize(continentName));
+    }
+
+    /**
+     * Looks up a player by their exact name.
+     *
+     * @param playerName The name of the player.
+     * @return The player, or {@code null} if no player has this name.
+     */
+    public Player getPlayerByName(String playerName){
+        if (playerName == null){
+            return null;
+        }
+        return playersByName.get(playerName);
+    }
+
+    /**
+     * Looks up a player by their exact color.
+     *
+     * @param color The color of the player.
+     * @return The player, or {@code null} if no player has this color.
+     */
+    public Player getPlayerByColor(String color){
+        if (color == null){
+            return null;
+        }
+        return playersByColor.get(color);
+    }
+
+    /**
+     * Looks up a player by their ID.
+     *
+     * @param id The ID of the player.
+     * @return The player, or {@code null} if no player has this ID.
+     */
+    public Player getPlayerById(int id){
+        return playersById.get(id);
+    }
+}
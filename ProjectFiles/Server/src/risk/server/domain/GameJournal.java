@@ -0,0 +1,613 @@
+package risk.server.domain;
+
+import risk.common.entities.BattleOutcome;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.UnitCard;
+import risk.common.exceptions.InvalidUnitException;
+import risk.common.exceptions.PlayerNotFoundException;
+import risk.common.protocol.Varint;
+import risk.server.persistence.JournalStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes every accepted command of a game to an append-only journal, so a game survives a crash of the server.
+ * <p>
+ * The journal of a game is its latest snapshot in the {@link SaveGameFormat} and the records of the commands applied
+ * after it, kept in a {@link JournalStore} under the key of the game. A command is only journaled once it has been
+ * applied, together with the results of chance, like the dice of an attack or the unit card drawn, so replaying it
+ * needs no dice:
+ * <pre>
+ *     record: varint length | type byte | varint encoded arguments (length - 1 bytes) | CRC32C of type and arguments (4 bytes)
+ * </pre>
+ * The records of commands that drew from the dice of the game, attacks, battles and unit cards drawn, end with the
+ * position of the dice after the command, see {@link risk.common.entities.DiceEngine#getDraws()}. Replaying such a
+ * record moves the dice of the rebuilt game to that position, so a recovered game goes on with the rolls that follow
+ * instead of the ones after its checkpoint.
+ * <p>
+ * Commands that change the game as a whole, like adding a player or starting the game, are not journaled; the game
+ * takes a {@link #checkpoint(RiskAdministration)} instead, which replaces the journal with a new snapshot.
+ * <p>
+ * The thread running the game only encodes a record and hands it to the store, which writes it to the disk in the
+ * background; {@link #sync()} waits until it is there. How many records a crash may lose depends on the store.
+ * <p>
+ * {@link #recover(JournalStore, String)} rebuilds a game from its snapshot and its records. A record that is
+ * incomplete or fails its checksum, as the last one may after a crash, ends the replay.
+ * <p>
+ * Besides the journal, which only serves to recover the game, the store keeps the replay log of the game under the key
+ * {@code <game>-replay}: the snapshot taken by {@link #begin(RiskAdministration)} at the start of the game and every
+ * record journaled after it, including the players removed later. Checkpoints do not touch the replay log, so it can
+ * still be turned into a {@link GameReplay} by {@link #toReplay()} after players have left or the game was recovered.
+ */
+public class GameJournal implements Closeable {
+    static final byte PLACE_UNITS = 1;
+    static final byte REINFORCE = 2;
+    static final byte ATTACK = 3;
+    static final byte BLITZ = 4;
+    static final byte MOVE_UNITS = 5;
+    static final byte TRADE_UNIT_CARDS = 6;
+    static final byte DRAW_UNIT_CARD = 7;
+    static final byte NEXT_TURN = 8;
+    static final byte DISTRIBUTE_STARTING_UNITS = 9;
+    static final byte REMOVE_PLAYER = 10;
+
+    private static final int MAX_RECORD_LENGTH = 1024;
+    private static final int CHECKSUM_LENGTH = 4;
+
+    private final JournalStore store;
+    private final String game;
+    private final String replayLog;
+    //Used by the thread running the game only
+    private boolean recording = false;
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_LENGTH);
+    private final CRC32C checksum = new CRC32C();
+
+    /**
+     * Constructs a GameJournal writing to the journal of a game in a store. Nothing is journaled before the first
+     * {@link #checkpoint(RiskAdministration)}, which {@link RiskAdministration#setJournal(GameJournal)} takes.
+     *
+     * @param store The store the journal is kept in.
+     * @param game The key of the game in the store.
+     */
+    public GameJournal(JournalStore store, String game){
+        this.store = store;
+        this.game = game;
+        this.replayLog = game + "-replay";
+    }
+
+    /**
+     * Replaces the journal with a snapshot of the game, so the records journaled so far are no longer needed.
+     * Blocks until the snapshot is on the disk.
+     *
+     * @param game The game, in the state all following records are based on.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void checkpoint(RiskAdministration game) throws IOException {
+        store.checkpoint(this.game, SaveGameFormat.encode(game));
+    }
+
+    /**
+     * Takes a checkpoint at the start of a game and begins its replay log with the same snapshot, replacing the replay
+     * log of an earlier game under the same key.
+     *
+     * @param game The game, right after it has been started.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void begin(RiskAdministration game) throws IOException {
+        ByteBuffer snapshot = SaveGameFormat.encode(game);
+        store.checkpoint(this.game, snapshot.duplicate());
+        recording = false;
+        store.checkpoint(replayLog, snapshot);
+        recording = true;
+    }
+
+    /**
+     * Goes on with the replay log of a game recovered from this journal, if the complete records of the replay log play
+     * the game to the position it was recovered in. The replay log is written anew from those records, which drops an
+     * incomplete last record and lets stores that were reopened after a crash append to it again. A replay log that
+     * does not match, e.g. because it lost records in a crash or belongs to an earlier game, is removed, as it could no
+     * longer be replayed.
+     *
+     * @param game The game, in the position the following records are based on.
+     * @throws IOException If the replay log cannot be read, written or removed.
+     */
+    public void resume(RiskAdministration game) throws IOException {
+        recording = false;
+        ByteBuffer snapshot = store.readSnapshot(replayLog);
+        if (snapshot == null){
+            return;
+        }
+        ByteBuffer records = store.readRecords(replayLog);
+        int start = records.position();
+        count(records);
+        ByteBuffer complete = records.slice(start, records.position() - start);
+        boolean matches = false;
+        try {
+            matches = SaveGameFormat.encode(GameReplay.record(store, replayLog).replay()).equals(SaveGameFormat.encode(game));
+        } catch (IOException e) {
+            System.out.println("Replay log of game " + this.game + " cannot be replayed: " + e.getMessage());
+        }
+        if (!matches){
+            System.out.println("Replay log of game " + this.game + " does not match the game, removed");
+            store.finish(replayLog);
+            return;
+        }
+        store.checkpoint(replayLog, snapshot);
+        store.append(replayLog, complete);
+        recording = true;
+    }
+
+    /**
+     * Journals units placed on a country, see {@link RiskAdministration#addPlayerUnitsToCountry(Player, Country, int)}.
+     *
+     * @param playerId The ID of the player.
+     * @param countryId The ID of the country.
+     * @param units The number of units placed.
+     */
+    public void placeUnits(int playerId, int countryId, int units){
+        start(PLACE_UNITS);
+        Varint.putVarint(record, playerId);
+        Varint.putVarint(record, countryId);
+        Varint.putVarint(record, units);
+        append();
+    }
+
+    /**
+     * Journals the units a player received for a new round, see {@link RiskAdministration#addPlayerUnitsPerRound(Player)}.
+     *
+     * @param playerId The ID of the player.
+     */
+    public void reinforce(int playerId){
+        start(REINFORCE);
+        Varint.putVarint(record, playerId);
+        append();
+    }
+
+    /**
+     * Journals an attack with the dice rolled, see {@link RiskAdministration#makeAttack(Country, Country, Player, int, int)}.
+     *
+     * @param playerId The ID of the attacking player.
+     * @param fromCountryId The ID of the attacking country.
+     * @param toCountryId The ID of the attacked country.
+     * @param numberOfUnits The number of attacking units.
+     * @param attackerRolls The dice of the attacker, highest first.
+     * @param attackerDice The number of dice of the attacker.
+     * @param defenderRolls The dice of the defender, highest first.
+     * @param defenderDice The number of dice of the defender.
+     * @param diceDraws The position of the dice of the game after the attack.
+     */
+    public void attack(int playerId, int fromCountryId, int toCountryId, int numberOfUnits, int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice, long diceDraws){
+        start(ATTACK);
+        Varint.putVarint(record, playerId);
+        Varint.putVarint(record, fromCountryId);
+        Varint.putVarint(record, toCountryId);
+        Varint.putVarint(record, numberOfUnits);
+        record.put((byte) attackerDice);
+        for (int i = 0; i < attackerDice; i++){
+            record.put((byte) attackerRolls[i]);
+        }
+        record.put((byte) defenderDice);
+        for (int i = 0; i < defenderDice; i++){
+            record.put((byte) defenderRolls[i]);
+        }
+        Varint.putVarlong(record, diceDraws);
+        append();
+    }
+
+    /**
+     * Journals a whole battle with its outcome, see {@link RiskAdministration#blitz(Player, Country, Country, int, boolean)}.
+     *
+     * @param playerId The ID of the attacking player.
+     * @param fromCountryId The ID of the attacking country.
+     * @param toCountryId The ID of the attacked country.
+     * @param outcome The outcome of the battle.
+     * @param diceDraws The position of the dice of the game after the battle.
+     */
+    public void blitz(int playerId, int fromCountryId, int toCountryId, BattleOutcome outcome, long diceDraws){
+        start(BLITZ);
+        Varint.putVarint(record, playerId);
+        Varint.putVarint(record, fromCountryId);
+        Varint.putVarint(record, toCountryId);
+        Varint.putVarint(record, outcome.getAttackerLosses());
+        Varint.putVarint(record, outcome.getDefenderLosses());
+        Varint.putVarint(record, outcome.getUnitsMoved());
+        Varint.putVarint(record, outcome.getRolls());
+        Varint.putVarlong(record, diceDraws);
+        append();
+    }
+
+    /**
+     * Journals units moved between two countries of a player, see {@link RiskAdministration#moveUnits(Player, Country, Country, int)}.
+     *
+     * @param playerId The ID of the player.
+     * @param fromCountryId The ID of the country the units leave.
+     * @param toCountryId The ID of the country the units move to.
+     * @param units The number of units moved.
+     */
+    public void moveUnits(int playerId, int fromCountryId, int toCountryId, int units){
+        start(MOVE_UNITS);
+        Varint.putVarint(record, playerId);
+        Varint.putVarint(record, fromCountryId);
+        Varint.putVarint(record, toCountryId);
+        Varint.putVarint(record, units);
+        append();
+    }
+
+    /**
+     * Journals three unit cards turned in for units, see {@link RiskAdministration#validateUnitCards(Player, UnitCard, UnitCard, UnitCard)}.
+     *
+     * @param playerId The ID of the player.
+     * @param card1 The first card.
+     * @param card2 The second card.
+     * @param card3 The third card.
+     */
+    public void tradeUnitCards(int playerId, UnitCard card1, UnitCard card2, UnitCard card3){
+        start(TRADE_UNIT_CARDS);
+        Varint.putVarint(record, playerId);
+        putString(card1.getType());
+        putString(card2.getType());
+        putString(card3.getType());
+        append();
+    }
+
+    /**
+     * Journals a unit card drawn by a player, see {@link RiskAdministration#drawUnitCard(Player)}.
+     *
+     * @param playerId The ID of the player.
+     * @param cardIndex The index of the card in the deck it was drawn from.
+     * @param diceDraws The position of the dice of the game after the card was drawn.
+     */
+    public void drawUnitCard(int playerId, int cardIndex, long diceDraws){
+        start(DRAW_UNIT_CARD);
+        Varint.putVarint(record, playerId);
+        Varint.putVarint(record, cardIndex);
+        Varint.putVarlong(record, diceDraws);
+        append();
+    }
+
+    /**
+     * Journals a player leaving the game, see {@link RiskAdministration#removePlayer(String)}. The game takes a checkpoint
+     * right after, so the record is only needed by the replay log.
+     *
+     * @param playerId The ID of the player.
+     */
+    public void removePlayer(int playerId){
+        start(REMOVE_PLAYER);
+        Varint.putVarint(record, playerId);
+        append();
+    }
+
+    /**
+     * Journals the end of a turn, see {@link RiskAdministration#nextTurn()}.
+     */
+    public void nextTurn(){
+        start(NEXT_TURN);
+        append();
+    }
+
+    /**
+     * Journals the starting units being recorded, see {@link RiskAdministration#distributeStartingUnits()}.
+     */
+    public void distributeStartingUnits(){
+        start(DISTRIBUTE_STARTING_UNITS);
+        append();
+    }
+
+    /**
+     * Starts a record in the record buffer, leaving room for its length.
+     *
+     * @param type The type of the record.
+     */
+    private void start(byte type){
+        record.clear();
+        record.position(Varint.MAX_INT_BYTES);
+        record.put(type);
+    }
+
+    /**
+     * Writes a string with its length in front into the record buffer.
+     *
+     * @param value The string.
+     */
+    private void putString(String value){
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Varint.putVarint(record, bytes.length);
+        record.put(bytes);
+    }
+
+    /**
+     * Completes the record in the record buffer with its length and checksum and hands it to the store, for the journal
+     * and, once the game has begun, for the replay log.
+     */
+    private void append(){
+        int length = record.position() - Varint.MAX_INT_BYTES;
+        checksum.reset();
+        checksum.update(record.array(), Varint.MAX_INT_BYTES, length);
+        record.putInt((int) checksum.getValue());
+        int start = Varint.MAX_INT_BYTES - Varint.sizeOf(length);
+        record.flip().position(start);
+        Varint.putVarint(record, length);
+        record.position(start);
+        store.append(game, record.duplicate());
+        if (recording){
+            store.append(replayLog, record);
+        }
+    }
+
+    /**
+     * Waits until all records journaled so far are on the disk.
+     *
+     * @throws IOException If the journal could not be written.
+     */
+    public void sync() throws IOException {
+        store.sync(game);
+        store.sync(replayLog);
+    }
+
+    /**
+     * Removes the journal and the replay log of a game that is over; the game can no longer be recovered or replayed.
+     *
+     * @throws IOException If the journal cannot be removed.
+     */
+    public void finish() throws IOException {
+        store.finish(game);
+        store.finish(replayLog);
+    }
+
+    /**
+     * Writes the outstanding records and stops journaling. The journal is kept in the store.
+     *
+     * @throws IOException If the outstanding records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        store.release(game);
+        store.release(replayLog);
+    }
+
+    /**
+     * Creates the replay of the game from its replay log, see {@link GameReplay#record(JournalStore, String)}.
+     *
+     * @return The replay.
+     * @throws IOException If the game has no replay log, e.g. because it has not started, or it cannot be read.
+     */
+    public GameReplay toReplay() throws IOException {
+        if (!recording){
+            throw new IOException("Game " + game + " has no replay log.");
+        }
+        sync();
+        return GameReplay.record(store, replayLog);
+    }
+
+    /**
+     * Rebuilds a game from the snapshot in its journal and the commands journaled after it.
+     *
+     * @param store The store the journal is kept in.
+     * @param game The key of the game in the store.
+     * @return The recovered game, or {@code null} if the store holds no journal of the game.
+     * @throws IOException If the snapshot cannot be read or a journaled command cannot be replayed.
+     */
+    public static RiskAdministration recover(JournalStore store, String game) throws IOException {
+        ByteBuffer snapshot = store.readSnapshot(game);
+        if (snapshot == null){
+            return null;
+        }
+        RiskAdministration recovered = SaveGameFormat.decode(snapshot);
+        int replayed = replay(recovered, store.readRecords(game), Integer.MAX_VALUE, "Journal of game " + game);
+        System.out.println("Recovered game " + game + " with " + replayed + " commands");
+        return recovered;
+    }
+
+    /**
+     * Applies journaled commands to a game, in the order they were journaled, with the results of chance taken from the
+     * records. A record that is incomplete or fails its checksum ends the replay.
+     *
+     * @param game The game, in the state the first command was applied to.
+     * @param records The records, from their position to their limit; the position is moved past the records replayed.
+     * @param limit The largest number of commands to apply.
+     * @param name The name of the records in messages, e.g. "Journal of game room-1".
+     * @return The number of commands applied.
+     * @throws IOException If a journaled command cannot be applied.
+     */
+    static int replay(RiskAdministration game, ByteBuffer records, int limit, String name) throws IOException {
+        CRC32C crc = new CRC32C();
+        int replayed = 0;
+        game.setReplaying(true);
+        try {
+            ByteBuffer entry;
+            while (replayed < limit && (entry = nextRecord(records, crc, name)) != null){
+                replay(game, entry);
+                replayed++;
+            }
+        } finally {
+            game.setReplaying(false);
+        }
+        return replayed;
+    }
+
+    /**
+     * Counts the complete records, up to the first one that is incomplete or fails its checksum.
+     *
+     * @param records The records, from their position to their limit; the position is moved past the complete records.
+     * @return The number of records.
+     */
+    static int count(ByteBuffer records){
+        CRC32C crc = new CRC32C();
+        int count = 0;
+        while (nextRecord(records, crc, null) != null){
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads the next record and checks its length and checksum.
+     *
+     * @param journal The records, positioned at the next record; the position is moved past it if it is complete.
+     * @param crc The checksum to use.
+     * @param name The name of the records in messages, or {@code null} for no messages.
+     * @return The type and arguments of the record, or {@code null} if there is no complete record left.
+     */
+    private static ByteBuffer nextRecord(ByteBuffer journal, CRC32C crc, String name){
+        if (!journal.hasRemaining()){
+            return null;
+        }
+        int start = journal.position();
+        int length;
+        try {
+            length = Varint.getVarint(journal);
+        } catch (RuntimeException e) {
+            journal.position(start);
+            return null;
+        }
+        if (length < 1 || length > MAX_RECORD_LENGTH || journal.remaining() < length + CHECKSUM_LENGTH){
+            if (name != null){
+                System.out.println(name + " ends with an incomplete record at byte " + start);
+            }
+            journal.position(start);
+            return null;
+        }
+        crc.reset();
+        crc.update(journal.array(), journal.arrayOffset() + journal.position(), length);
+        if ((int) crc.getValue() != journal.getInt(journal.position() + length)){
+            if (name != null){
+                System.out.println(name + " has a damaged record at byte " + start);
+            }
+            journal.position(start);
+            return null;
+        }
+        ByteBuffer entry = journal.slice(journal.position(), length);
+        journal.position(journal.position() + length + CHECKSUM_LENGTH);
+        return entry;
+    }
+
+    /**
+     * Applies a journaled command to a game.
+     *
+     * @param game The game, in the state the command was applied to.
+     * @param entry The type and arguments of the record.
+     * @throws IOException If the command cannot be applied.
+     */
+    private static void replay(RiskAdministration game, ByteBuffer entry) throws IOException {
+        byte type = entry.get();
+        try {
+            switch (type) {
+                case PLACE_UNITS:
+                    game.addPlayerUnitsToCountry(player(game, entry), country(game, entry), Varint.getVarint(entry));
+                    break;
+                case REINFORCE:
+                    game.addPlayerUnitsPerRound(player(game, entry));
+                    break;
+                case ATTACK: {
+                    player(game, entry);
+                    Country from = country(game, entry);
+                    Country to = country(game, entry);
+                    int numberOfUnits = Varint.getVarint(entry);
+                    int[] attackerRolls = new int[entry.get()];
+                    for (int i = 0; i < attackerRolls.length; i++){
+                        attackerRolls[i] = entry.get();
+                    }
+                    int[] defenderRolls = new int[entry.get()];
+                    for (int i = 0; i < defenderRolls.length; i++){
+                        defenderRolls[i] = entry.get();
+                    }
+                    game.replayAttack(from, to, numberOfUnits, attackerRolls, defenderRolls);
+                    restoreDiceDraws(game, entry);
+                    break;
+                }
+                case BLITZ: {
+                    player(game, entry);
+                    Country from = country(game, entry);
+                    Country to = country(game, entry);
+                    game.replayBattle(from, to, new BattleOutcome(Varint.getVarint(entry), Varint.getVarint(entry), Varint.getVarint(entry), Varint.getVarint(entry)));
+                    restoreDiceDraws(game, entry);
+                    break;
+                }
+                case MOVE_UNITS:
+                    game.moveUnits(player(game, entry), country(game, entry), country(game, entry), Varint.getVarint(entry));
+                    break;
+                case TRADE_UNIT_CARDS: {
+                    Player player = player(game, entry);
+                    List<UnitCard> hand = new ArrayList<>(player.getUnitCards());
+                    UnitCard[] cards = new UnitCard[3];
+                    for (int i = 0; i < cards.length; i++){
+                        byte[] bytes = new byte[Varint.getVarint(entry)];
+                        entry.get(bytes);
+                        String cardType = new String(bytes, StandardCharsets.UTF_8);
+                        for (UnitCard card : hand){
+                            if (card.getType().equals(cardType)){
+                                cards[i] = card;
+                                hand.remove(card);
+                                break;
+                            }
+                        }
+                    }
+                    game.validateUnitCards(player, cards[0], cards[1], cards[2]);
+                    break;
+                }
+                case DRAW_UNIT_CARD:
+                    game.drawUnitCard(player(game, entry), Varint.getVarint(entry));
+                    restoreDiceDraws(game, entry);
+                    break;
+                case NEXT_TURN:
+                    game.nextTurn();
+                    break;
+                case DISTRIBUTE_STARTING_UNITS:
+                    game.distributeStartingUnits();
+                    break;
+                case REMOVE_PLAYER:
+                    game.removePlayer(player(game, entry).getName());
+                    break;
+                default:
+                    throw new IOException("Unknown journal record type " + type);
+            }
+        } catch (InvalidUnitException | PlayerNotFoundException | RuntimeException e) {
+            throw new IOException("Journaled command of type " + type + " could not be replayed: " + e, e);
+        }
+    }
+
+    /**
+     * Moves the dice of a game to the position at the end of a record.
+     *
+     * @param game The game.
+     * @param entry The record, positioned after its other arguments.
+     */
+    private static void restoreDiceDraws(RiskAdministration game, ByteBuffer entry){
+        game.restoreDiceDraws(Varint.getVarlong(entry));
+    }
+
+    /**
+     * Reads the ID of a player from a record and looks the player up.
+     *
+     * @param game The game.
+     * @param entry The record.
+     * @return The player.
+     * @throws IOException If the game has no player with that ID.
+     */
+    private static Player player(RiskAdministration game, ByteBuffer entry) throws IOException {
+        int playerId = Varint.getVarint(entry);
+        Player player = game.getPlayerById(playerId);
+        if (player == null){
+            throw new IOException("Journal refers to unknown player " + playerId);
+        }
+        return player;
+    }
+
+    /**
+     * Reads the ID of a country from a record and looks the country up.
+     *
+     * @param game The game.
+     * @param entry The record.
+     * @return The country.
+     */
+    private static Country country(RiskAdministration game, ByteBuffer entry){
+        return game.getCountries().get(Varint.getVarint(entry));
+    }
+}
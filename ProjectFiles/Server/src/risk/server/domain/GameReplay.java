@@ -0,0 +1,310 @@
+package risk.server.domain;
+
+import risk.common.entities.Player;
+import risk.common.protocol.Varint;
+import risk.server.persistence.JournalStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * A complete game reduced to its seed and the commands played, from which any position of the game can be rebuilt
+ * without a server or clients.
+ * <p>
+ * All chance of a game is drawn from its seeded {@link risk.common.entities.DiceEngine}, so the start of a game, the
+ * countries handed out and the mission cards drawn, follows from the seed and the players alone. The commands after the
+ * start are the records of the game's {@link GameJournal}, which carry the dice rolled and the cards drawn, so replaying
+ * them rolls no dice and does not depend on how the dice were rolled:
+ * <pre>
+ *     header:  magic "RSKR" | version | payload length | CRC32C of the payload     (4 bytes each)
+ *     payload: map files | seed | players (name, ID, color) in the order they joined | number of commands
+ *              | journal records of the commands
+ * </pre>
+ * Numbers are varint encoded, strings are UTF-8 with their length in front, see {@link SaveGameFormat}. The start of a
+ * game takes less than a hundred bytes this way, where a save game of it takes more than a kilobyte.
+ * <p>
+ * {@link #record(JournalStore, String)} turns the replay log of a game, kept by its {@link GameJournal} next to the
+ * journal, into a replay. The replay log begins at the start of the game and is not replaced by the checkpoints the
+ * journal takes when a player leaves or the game is recovered; players leaving are records of their own. The replay
+ * is checked against the snapshot the log begins with, so a log that cannot be replayed from the seed is rejected
+ * instead of producing a different game.
+ * <p>
+ * {@link ReplayRunner} replays many replays in parallel, e.g. to check that a change of the domain layer still plays
+ * recorded games to the same positions.
+ */
+public final class GameReplay {
+    /** The first four bytes of every replay, "RSKR". */
+    public static final int MAGIC = 0x52534B52;
+    /** The version of the format written by this class. */
+    public static final int VERSION = 1;
+    /** The number of bytes of the header in front of the payload. */
+    public static final int HEADER_LENGTH = 16;
+    /** The largest payload accepted when reading. */
+    public static final int MAX_PAYLOAD_LENGTH = 64 * 1024 * 1024;
+    /** The file name extension of replays. */
+    public static final String SUFFIX = ".replay";
+
+    private final String countriesFile;
+    private final String continentsFile;
+    private final long seed;
+    private final String[] names;
+    private final int[] ids;
+    private final String[] colors;
+    private final ByteBuffer records;
+    private final int commandCount;
+
+    private GameReplay(String countriesFile, String continentsFile, long seed, String[] names, int[] ids, String[] colors, ByteBuffer records, int commandCount){
+        this.countriesFile = countriesFile;
+        this.continentsFile = continentsFile;
+        this.seed = seed;
+        this.names = names;
+        this.ids = ids;
+        this.colors = colors;
+        this.records = records;
+        this.commandCount = commandCount;
+    }
+
+    /**
+     * Creates the replay of a game from its replay log, see {@link GameJournal#toReplay()}.
+     *
+     * @param store The store the replay log of the game is kept in.
+     * @param game The key of the replay log in the store.
+     * @return The replay, with all complete records of the log.
+     * @throws IOException If the log cannot be read, holds no game or does not begin at the start of the game.
+     */
+    public static GameReplay record(JournalStore store, String game) throws IOException {
+        ByteBuffer snapshot = store.readSnapshot(game);
+        if (snapshot == null){
+            throw new IOException("There is no replay log " + game + ".");
+        }
+        RiskAdministration checkpoint = SaveGameFormat.decode(snapshot.duplicate());
+        List<Player> players = checkpoint.getPlayers();
+        String[] names = new String[players.size()];
+        int[] ids = new int[players.size()];
+        String[] colors = new String[players.size()];
+        for (int i = 0; i < names.length; i++){
+            names[i] = players.get(i).getName();
+            ids[i] = players.get(i).getId();
+            colors[i] = players.get(i).getColor();
+        }
+        ByteBuffer journal = store.readRecords(game);
+        int start = journal.position();
+        int commandCount = GameJournal.count(journal);
+        ByteBuffer records = journal.slice(start, journal.position() - start);
+
+        GameReplay replay = new GameReplay(checkpoint.getCountriesFile(), checkpoint.getContinentsFile(), checkpoint.getDiceSeed(),
+                names, ids, colors, records, commandCount);
+        if (!SaveGameFormat.encode(replay.start()).equals(snapshot)){
+            throw new IOException("The replay log " + game + " does not begin at the start of the game, it cannot be replayed from its seed.");
+        }
+        return replay;
+    }
+
+    /**
+     * Creates the game at its start: the players joined in their order and the countries, starting units and mission
+     * cards handed out from the seed.
+     *
+     * @return The game before its first command.
+     */
+    public RiskAdministration start(){
+        RiskAdministration game = new RiskAdministration(countriesFile, continentsFile, seed);
+        for (int i = 0; i < names.length; i++){
+            game.addPlayer(names[i], ids[i], colors[i]);
+        }
+        game.startGame();
+        return game;
+    }
+
+    /**
+     * Rebuilds the game after all of its commands.
+     *
+     * @return The game in its last position.
+     * @throws IOException If a command cannot be applied.
+     */
+    public RiskAdministration replay() throws IOException {
+        return replay(commandCount);
+    }
+
+    /**
+     * Rebuilds the game after a number of its commands.
+     *
+     * @param commands The number of commands to apply, between 0 and {@link #getCommandCount()}.
+     * @return The game in the position after these commands.
+     * @throws IOException If a command cannot be applied.
+     */
+    public RiskAdministration replay(int commands) throws IOException {
+        if (commands < 0 || commands > commandCount){
+            throw new IllegalArgumentException("The replay has " + commandCount + " commands, " + commands + " requested.");
+        }
+        RiskAdministration game = start();
+        GameJournal.replay(game, records.duplicate(), commands, "Replay");
+        return game;
+    }
+
+    /**
+     * Retrieves the seed all chance of the game was drawn from.
+     *
+     * @return The seed.
+     */
+    public long getSeed(){
+        return seed;
+    }
+
+    /**
+     * Retrieves the number of players of the game.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount(){
+        return names.length;
+    }
+
+    /**
+     * Retrieves the number of commands played after the start of the game.
+     *
+     * @return The number of commands.
+     */
+    public int getCommandCount(){
+        return commandCount;
+    }
+
+    /**
+     * Encodes the replay, header included.
+     *
+     * @return The replay, positioned at its start.
+     */
+    public ByteBuffer encode(){
+        byte[][] strings = new byte[2 + names.length * 2][];
+        strings[0] = countriesFile.getBytes(StandardCharsets.UTF_8);
+        strings[1] = continentsFile.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < names.length; i++){
+            strings[2 + i * 2] = names[i].getBytes(StandardCharsets.UTF_8);
+            strings[3 + i * 2] = colors[i].getBytes(StandardCharsets.UTF_8);
+        }
+        int capacity = HEADER_LENGTH + Varint.MAX_LONG_BYTES + (names.length + 2) * Varint.MAX_INT_BYTES + records.remaining();
+        for (byte[] string : strings){
+            capacity += Varint.MAX_INT_BYTES + string.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(capacity);
+        out.position(HEADER_LENGTH);
+        putBytes(out, strings[0]);
+        putBytes(out, strings[1]);
+        Varint.putVarlong(out, seed);
+        Varint.putVarint(out, names.length);
+        for (int i = 0; i < names.length; i++){
+            putBytes(out, strings[2 + i * 2]);
+            Varint.putVarint(out, ids[i]);
+            putBytes(out, strings[3 + i * 2]);
+        }
+        Varint.putVarint(out, commandCount);
+        out.put(records.duplicate());
+        out.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(out.slice(HEADER_LENGTH, out.limit() - HEADER_LENGTH));
+        out.putInt(0, MAGIC);
+        out.putInt(4, VERSION);
+        out.putInt(8, out.limit() - HEADER_LENGTH);
+        out.putInt(12, (int) crc.getValue());
+        return out;
+    }
+
+    /**
+     * Decodes a replay held in memory.
+     *
+     * @param image The replay, header included, from its position to its limit.
+     * @return The replay.
+     * @throws IOException If the data is not a valid replay.
+     */
+    public static GameReplay decode(ByteBuffer image) throws IOException {
+        if (image.remaining() < HEADER_LENGTH || image.getInt() != MAGIC){
+            throw new IOException("Not a replay.");
+        }
+        int version = image.getInt();
+        if (version != VERSION){
+            throw new IOException("Unsupported replay version " + version + ", expected " + VERSION + ".");
+        }
+        int length = image.getInt();
+        int checksum = image.getInt();
+        if (length < 0 || length != image.remaining()){
+            throw new IOException("Replay is truncated: " + image.remaining() + " of " + length + " bytes.");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(image.duplicate());
+        if ((int) crc.getValue() != checksum){
+            throw new IOException("Replay is damaged, wrong checksum.");
+        }
+        try {
+            String countriesFile = getString(image);
+            String continentsFile = getString(image);
+            long seed = Varint.getVarlong(image);
+            int playerCount = Varint.getVarint(image);
+            String[] names = new String[playerCount];
+            int[] ids = new int[playerCount];
+            String[] colors = new String[playerCount];
+            for (int i = 0; i < playerCount; i++){
+                names[i] = getString(image);
+                ids[i] = Varint.getVarint(image);
+                colors[i] = getString(image);
+            }
+            int commandCount = Varint.getVarint(image);
+            ByteBuffer records = image.slice();
+            if (GameJournal.count(records.duplicate()) != commandCount){
+                throw new IOException("Replay holds fewer than its " + commandCount + " commands.");
+            }
+            return new GameReplay(countriesFile, continentsFile, seed, names, ids, colors, records, commandCount);
+        } catch (RuntimeException e) {          //Buffer underflows of a file with a valid checksum
+            throw new IOException("Replay could not be decoded: " + e, e);
+        }
+    }
+
+    /**
+     * Writes the replay to a file, replacing the file if it exists.
+     *
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer image = encode();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (image.hasRemaining()){
+                channel.write(image);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a replay from a file.
+     *
+     * @param path The file to read.
+     * @return The replay.
+     * @throws IOException If the file cannot be read or is not a valid replay.
+     */
+    public static GameReplay read(Path path) throws IOException {
+        long size = Files.size(path);
+        if (size < HEADER_LENGTH || size > HEADER_LENGTH + (long) MAX_PAYLOAD_LENGTH){
+            throw new IOException("Not a replay, wrong size: " + size + " bytes.");
+        }
+        return decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    private static void putBytes(ByteBuffer out, byte[] bytes){
+        Varint.putVarint(out, bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in){
+        byte[] bytes = new byte[Varint.getVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,367 @@
+package risk.server.domain;
+
+import risk.common.entities.BattleOutcome;
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.UnitCard;
+import risk.common.entities.WorldGraph;
+import risk.common.exceptions.InvalidUnitException;
+import risk.common.exceptions.NotANeighbourCountry;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays complete games of Risk without any client, socket or window, to measure the throughput of the domain layer.
+ * <p>
+ * Every game creates a {@link RiskAdministration} directly, adds scripted players and plays turns until a player
+ * completes their mission, a single player is left or the turn limit is reached. A scripted player
+ * <ol>
+ *     <li>receives the units of the round, turns in a matching set of unit cards whenever it holds one, and places all
+ *     its units on its strongest country bordering an enemy,</li>
+ *     <li>attacks with {@link RiskAdministration#blitz} as long as one of its countries has at least two units more
+ *     than a neighboring enemy country, choosing the largest advantage first, and</li>
+ *     <li>moves units from its strongest country without enemy neighbors towards the border.</li>
+ * </ol>
+ * The games run in parallel on a fixed pool of platform threads. After a warm-up round the harness reports games
+ * and turns per second, the battles fought and the bytes allocated per game and per second, as counted by the JVM for
+ * the threads playing the games. The numbers are the baseline for every change to the domain layer.
+ * <p>
+ * Usage: {@code java risk.server.domain.GameSimulationHarness [games] [players] [threads] [max turns] [seed]}, with
+ * the defaults 2000, 4, the number of processors, 1000 and 42. The map files are loaded from the class path, so the
+ * assets of the server must be on it.
+ */
+public class GameSimulationHarness {
+    private static final String[] COLORS = {"Red", "Blue", "Green", "Yellow", "Black", "Pink"};
+    private static final int[] STARTING_UNITS = {0, 0, 40, 35, 30, 25, 20};     //Indexed by number of players
+    private static final int MAX_ATTACKS_PER_TURN = 30;
+
+    private final int players;
+    private final int maxTurns;
+
+    /**
+     * Constructs a GameSimulationHarness.
+     *
+     * @param players The number of scripted players per game, 2 to 6.
+     * @param maxTurns The number of turns after which a game is stopped without a winner.
+     */
+    public GameSimulationHarness(int players, int maxTurns){
+        if (players < 2 || players > COLORS.length){
+            throw new IllegalArgumentException("A game needs 2 to " + COLORS.length + " players.");
+        }
+        this.players = players;
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Runs a warm-up round and then the measured round of games and prints the results.
+     *
+     * @param args Command-line arguments: optionally games, players, threads, max turns and seed.
+     * @throws Exception If a game fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int maxTurns = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        GameSimulationHarness harness = new GameSimulationHarness(players, maxTurns);
+        System.out.println("Warming up with " + Math.max(games / 5, 1) + " games");
+        harness.run(Math.max(games / 5, 1), threads, seed ^ 0x5DEECE66DL);
+        Summary summary = harness.run(games, threads, seed);
+
+        System.out.printf("%-8s %8s %8s %10s %10s %10s %12s %10s %12s%n",
+                "players", "threads", "games", "games/s", "turns/s", "battles/s", "turns/game", "won", "MB/s alloc");
+        System.out.printf("%-8d %8d %8d %10.1f %10.0f %10.0f %12.1f %10d %12s%n",
+                players, threads, summary.games, summary.perSecond(summary.games), summary.perSecond(summary.turns),
+                summary.perSecond(summary.battles), (double) summary.turns / summary.games, summary.won,
+                summary.allocatedBytes < 0 ? "n/a" : String.format("%.1f", summary.perSecond(summary.allocatedBytes) / (1024 * 1024)));
+        if (summary.allocatedBytes >= 0){
+            System.out.printf("%.1f KB allocated per game, %.0f bytes per turn%n",
+                    summary.allocatedBytes / 1024.0 / summary.games, (double) summary.allocatedBytes / summary.turns);
+        }
+    }
+
+    /**
+     * Plays the given number of games on a pool of threads and sums up the results.
+     *
+     * @param games The number of games to play.
+     * @param threads The number of threads playing games in parallel.
+     * @param seed The seed the seeds of the games are derived from.
+     * @return The summed up results.
+     * @throws Exception If a game fails.
+     */
+    public Summary run(int games, int threads, long seed) throws Exception {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<GameResult>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < games; i++){
+                long gameSeed = seeds.nextLong();
+                results.add(pool.submit(() -> playMeasured(gameSeed)));
+            }
+            Summary summary = new Summary();
+            for (Future<GameResult> result : results){
+                summary.add(result.get());
+            }
+            summary.nanos = System.nanoTime() - start;
+            return summary;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a game and counts the bytes the current thread allocated for it.
+     *
+     * @param seed The seed of the game.
+     * @return The result of the game.
+     */
+    private GameResult playMeasured(long seed){
+        long allocatedBefore = allocatedBytes();
+        GameResult result = play(seed);
+        long allocatedAfter = allocatedBytes();
+        result.allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        return result;
+    }
+
+    /**
+     * Retrieves the bytes allocated by the current thread so far, if the JVM counts them.
+     *
+     * @return The allocated bytes, or -1 if they are not counted.
+     */
+    private static long allocatedBytes(){
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()){
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Plays a complete game with scripted players.
+     *
+     * @param seed The seed of the game, used for the dice and the decisions of the players.
+     * @return The result of the game.
+     */
+    public GameResult play(long seed){
+        SplittableRandom random = new SplittableRandom(seed);
+        RiskAdministration game = new RiskAdministration("Risk_Cou.txt", "Risk_Con.txt", random.nextLong());
+        for (int i = 0; i < players; i++){
+            game.addPlayer("Bot" + i, i, COLORS[i]);
+        }
+        game.startGame();
+        placeStartingUnits(game, random);
+
+        GameResult result = new GameResult();
+        while (result.turns < maxTurns && !result.finished){
+            Player player = game.getPlayerOnTurn();
+            if (player.isAlive()){
+                playTurn(game, player, result);
+                result.turns++;
+            }
+            game.nextTurn();
+        }
+        return result;
+    }
+
+    /**
+     * Distributes the starting units of every player at random over their countries.
+     *
+     * @param game The game.
+     * @param random The source of randomness of the game.
+     */
+    private void placeStartingUnits(RiskAdministration game, SplittableRandom random){
+        for (Player player : game.getPlayers()){
+            List<Country> countries = player.getCountries();
+            int units = Math.max(STARTING_UNITS[players] - countries.size(), 0);
+            player.addUnits(units);
+            for (int i = 0; i < units; i++){
+                place(game, player, countries.get(random.nextInt(countries.size())), 1);
+            }
+        }
+    }
+
+    /**
+     * Plays one turn of a scripted player: reinforce, attack and fortify.
+     *
+     * @param game The game.
+     * @param player The player on turn.
+     * @param result The result of the game, updated with the battles fought and the end of the game.
+     */
+    private void playTurn(RiskAdministration game, Player player, GameResult result){
+        WorldGraph graph = game.getWorldGraph();
+        List<Country> countries = game.getCountries();
+
+        //Reinforce
+        game.addPlayerUnitsPerRound(player);
+        turnInUnitCards(game, player);
+        Country strongestBorder = null;
+        for (Country country : player.getCountries()){
+            if (hasEnemyNeighbor(graph, countries, country) && (strongestBorder == null || country.getUnits() > strongestBorder.getUnits())){
+                strongestBorder = country;
+            }
+        }
+        if (strongestBorder != null){
+            place(game, player, strongestBorder, player.getNumberOfUnits());
+        }
+
+        //Attack
+        for (int attack = 0; attack < MAX_ATTACKS_PER_TURN; attack++){
+            Country from = null;
+            Country to = null;
+            for (Country country : player.getCountries()){
+                for (int i = 0; i < graph.getNeighborCount(country.getId()); i++){
+                    Country neighbor = countries.get(graph.getNeighbor(country.getId(), i));
+                    if (neighbor.getPlayer() != player && country.getUnits() >= neighbor.getUnits() + 2
+                            && (from == null || country.getUnits() - neighbor.getUnits() > from.getUnits() - to.getUnits())){
+                        from = country;
+                        to = neighbor;
+                    }
+                }
+            }
+            if (from == null){
+                break;
+            }
+            try {
+                BattleOutcome outcome = game.blitz(player, from, to, 1, false);
+                result.battles++;
+                result.rolls += outcome.getRolls();
+            } catch (NotANeighbourCountry | IllegalStateException e) {
+                break;
+            }
+            if (!game.checkWinningCondition(player).isEmpty()){
+                result.finished = true;
+                result.won = true;
+                return;
+            }
+            if (player.getCountries().size() == countries.size()){
+                result.finished = true;
+                return;
+            }
+        }
+
+        //Fortify
+        Country strongestInterior = null;
+        for (Country country : player.getCountries()){
+            if (country.getUnits() > 1 && !hasEnemyNeighbor(graph, countries, country)
+                    && (strongestInterior == null || country.getUnits() > strongestInterior.getUnits())){
+                strongestInterior = country;
+            }
+        }
+        if (strongestInterior != null){
+            Country target = countries.get(graph.getNeighbor(strongestInterior.getId(), 0));
+            game.moveUnits(player, strongestInterior, target, strongestInterior.getUnits() - 1);
+        }
+    }
+
+    /**
+     * Turns in the first matching set of three unit cards of a player, if there is one.
+     *
+     * @param game The game.
+     * @param player The player.
+     */
+    private static void turnInUnitCards(RiskAdministration game, Player player){
+        List<UnitCard> cards = player.getUnitCards();
+        for (int i = 0; i < cards.size(); i++){
+            for (int j = i + 1; j < cards.size(); j++){
+                for (int k = j + 1; k < cards.size(); k++){
+                    if (!game.validateUnitCards(player, cards.get(i), cards.get(j), cards.get(k)).equals("The unit cards do not match")){
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Places units of a player on one of their countries.
+     *
+     * @param game The game.
+     * @param player The player.
+     * @param country The country.
+     * @param units The number of units to place.
+     */
+    private static void place(RiskAdministration game, Player player, Country country, int units){
+        try {
+            game.addPlayerUnitsToCountry(player, country, units);
+        } catch (InvalidUnitException e) {
+            throw new IllegalStateException(e);             //The harness only places units the player has
+        }
+    }
+
+    /**
+     * Checks whether a country borders a country of another player.
+     *
+     * @param graph The adjacency of the map.
+     * @param countries All countries, indexed by ID.
+     * @param country The country.
+     * @return true if a neighbor belongs to another player, false otherwise.
+     */
+    private static boolean hasEnemyNeighbor(WorldGraph graph, List<Country> countries, Country country){
+        for (int i = 0; i < graph.getNeighborCount(country.getId()); i++){
+            if (countries.get(graph.getNeighbor(country.getId(), i)).getPlayer() != country.getPlayer()){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The result of a single game.
+     */
+    public static class GameResult {
+        int turns;
+        long battles;
+        long rolls;
+        boolean finished;
+        boolean won;
+        long allocatedBytes;
+    }
+
+    /**
+     * The results of a round of games, summed up.
+     */
+    public static class Summary {
+        int games;
+        long turns;
+        long battles;
+        long rolls;
+        int won;
+        long allocatedBytes;
+        long nanos;
+
+        /**
+         * Adds the result of a game.
+         *
+         * @param result The result of the game.
+         */
+        void add(GameResult result){
+            games++;
+            turns += result.turns;
+            battles += result.battles;
+            rolls += result.rolls;
+            if (result.won){
+                won++;
+            }
+            allocatedBytes = allocatedBytes < 0 || result.allocatedBytes < 0 ? -1 : allocatedBytes + result.allocatedBytes;
+        }
+
+        /**
+         * Converts a count into a rate over the duration of the round.
+         *
+         * @param count The count.
+         * @return The count per second.
+         */
+        double perSecond(long count){
+            return count * 1e9 / nanos;
+        }
+    }
+}
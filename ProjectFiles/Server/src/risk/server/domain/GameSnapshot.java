@@ -0,0 +1,145 @@
+package risk.server.domain;
+
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.UnitCard;
+import risk.common.entities.missions.MissionCard;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of the state of a {@link RiskAdministration} at one moment, holding exactly what a save game holds.
+ * <p>
+ * A snapshot is captured with {@link #capture(RiskAdministration)} on the thread that owns the game, which only copies
+ * numbers, strings and arrays in O(countries + players + cards), and can then be encoded and written by
+ * {@link SaveGameFormat} on any other thread while the game goes on. Countries, cards and colors
+ * are kept as IDs and strings, so a snapshot shares no mutable object with the game.
+ */
+public final class GameSnapshot {
+    final String countriesFile;
+    final String continentsFile;
+    final int continentCount;
+    final long diceSeed;
+    final long diceDraws;
+    final int playerTurnIndex;
+    final int turnedInUnitCards;
+    final PlayerState[] players;
+    final int[] units;                  //Units of every country, by ID
+    final String[] missionCards;        //Descriptions of the mission deck
+    final String[] unitCards;           //Types of the unit card deck
+    final int[] availableCountries;
+    final String[] availableColors;
+    final int[] startingUnits;          //Starting units of every country, by ID, -1 if it has none
+    final int startingUnitsCount;
+
+    private GameSnapshot(RiskAdministration game){
+        this.countriesFile = game.getCountriesFile();
+        this.continentsFile = game.getContinentsFile();
+        this.continentCount = game.getContinents().size();
+        this.diceSeed = game.getDiceSeed();
+        this.diceDraws = game.getDiceDraws();
+        this.playerTurnIndex = game.getPlayerTurnIndex();
+        this.turnedInUnitCards = game.getTurnedInUnitCards();
+
+        List<Player> playerList = game.getPlayers();
+        this.players = new PlayerState[playerList.size()];
+        for (int i = 0; i < players.length; i++){
+            players[i] = new PlayerState(playerList.get(i));
+        }
+        List<Country> countries = game.getCountries();
+        Map<String, Integer> startingUnitsByName = game.getStartingUnits();
+        this.units = new int[countries.size()];
+        this.startingUnits = new int[countries.size()];
+        for (int i = 0; i < units.length; i++){
+            Country country = countries.get(i);
+            units[i] = country.getUnits();
+            Integer starting = startingUnitsByName.get(country.getName());
+            startingUnits[i] = starting == null ? -1 : starting;
+        }
+        this.startingUnitsCount = startingUnitsByName.size();
+
+        this.missionCards = new String[game.missionCards.size()];
+        for (int i = 0; i < missionCards.length; i++){
+            missionCards[i] = game.missionCards.get(i).getDescription();
+        }
+        this.unitCards = types(game.unitCards);
+        this.availableCountries = ids(game.getAvailableCountries());
+        this.availableColors = game.getAvailableColorList().toArray(new String[0]);
+    }
+
+    /**
+     * Captures the current state of a game. Must be called on the thread that changes the game, e.g. the command loop of
+     * its room, the snapshot itself may then be used on any thread.
+     *
+     * @param game The game.
+     * @return The snapshot.
+     */
+    public static GameSnapshot capture(RiskAdministration game){
+        return new GameSnapshot(game);
+    }
+
+    /**
+     * Retrieves the number of countries of the map the snapshot was captured on.
+     *
+     * @return The number of countries.
+     */
+    public int getCountryCount(){
+        return units.length;
+    }
+
+    /**
+     * Retrieves the number of players of the game when the snapshot was captured.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount(){
+        return players.length;
+    }
+
+    private static String[] types(List<UnitCard> cards){
+        String[] types = new String[cards.size()];
+        for (int i = 0; i < types.length; i++){
+            types[i] = cards.get(i).getType();
+        }
+        return types;
+    }
+
+    private static int[] ids(List<Country> countries){
+        int[] ids = new int[countries.size()];
+        for (int i = 0; i < ids.length; i++){
+            ids[i] = countries.get(i).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * The state of one player, with its countries as IDs in the order the player gained them.
+     */
+    static final class PlayerState {
+        final String name;
+        final int id;
+        final String color;
+        final int units;
+        final int numberOfCountries;
+        final boolean alive;
+        final boolean hasConquered;
+        final String mission;           //Description of the mission card, empty if the player has none
+        final String[] unitCards;
+        final int[] countries;
+
+        PlayerState(Player player){
+            this.name = player.getName();
+            this.id = player.getId();
+            this.color = player.getColor();
+            this.units = player.getNumberOfUnits();
+            this.numberOfCountries = player.getNumberOfCountries();
+            this.alive = player.isAlive();
+            this.hasConquered = player.getHasConquered();
+            MissionCard missionCard = player.getMissionCard();
+            this.mission = missionCard == null ? "" : missionCard.getDescription();
+            this.unitCards = types(player.getUnitCards());
+            this.countries = ids(player.getCountries());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package risk.server.domain;
+
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.missions.MissionCard;
+import risk.common.entities.missions.MissionProgress;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code MissionEngine} class keeps the counters the missions are evaluated with, so checking whether a player has
+ * won does not have to look at the board.
+ * <p>
+ * The engine listens to the {@link DomainEventBus} of the game for the events that can affect a mission: a country
+ * captured by another player and a change of the units on a country. The engine updates, in constant time,
+ * <ul>
+ *     <li>the number of countries of every player,</li>
+ *     <li>the number of countries of every player with fewer than {@link MissionProgress#MIN_UNITS_PER_COUNTRY} units, and</li>
+ *     <li>the number of countries held by every color.</li>
+ * </ul>
+ * When the last country of a player is captured, the player is marked as eliminated and the elimination is published
+ * on the bus. Missions about continents read the continent owners kept by the {@link ContinentOwnershipTracker}.
+ * With these counters {@link MissionCard#isDone(MissionProgress)} answers in constant time for every mission, even on
+ * large maps.
+ */
+public class MissionEngine implements MissionProgress, DomainEventListener {
+    private static final int OWNED = 0;
+    private static final int WEAK = 1;
+
+    private final Map<Player, int[]> counters = new HashMap<>();
+    private final Map<String, Integer> countriesByColor = new HashMap<>();
+    private final DomainEventListener events;
+
+    /**
+     * Constructs a MissionEngine. No country is owned by anybody at the start.
+     *
+     * @param events The listener the elimination of players is published to, usually the {@link DomainEventBus}.
+     */
+    public MissionEngine(DomainEventListener events){
+        this.events = events;
+    }
+
+    /**
+     * Updates the counters after a country has been captured or assigned at the start of the game.
+     * Must be called after the owner of the country has been changed and before its units are changed.
+     *
+     * @param country The country whose owner changed, with its units at the time of the capture.
+     * @param oldOwner The previous owner, or {@code null} if the country had none.
+     * @param newOwner The new owner, or {@code null} if the country has none now.
+     */
+    @Override
+    public void countryCaptured(Country country, Player oldOwner, Player newOwner){
+        if (oldOwner == newOwner){
+            return;
+        }
+        boolean weak = country.getUnits() < MIN_UNITS_PER_COUNTRY;
+        if (oldOwner != null){
+            int[] counter = countersOf(oldOwner);
+            counter[OWNED]--;
+            if (weak){
+                counter[WEAK]--;
+            }
+            countriesByColor.merge(colorKey(oldOwner.getColor()), -1, Integer::sum);
+            if (counter[OWNED] == 0){
+                eliminate(oldOwner);
+            }
+        }
+        if (newOwner != null){
+            int[] counter = countersOf(newOwner);
+            counter[OWNED]++;
+            if (weak){
+                counter[WEAK]++;
+            }
+            countriesByColor.merge(colorKey(newOwner.getColor()), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Updates the counters after the units on a country changed.
+     * Must be called after the units have been changed.
+     *
+     * @param country The country, with its new number of units.
+     * @param oldUnits The number of units on the country before the change.
+     */
+    @Override
+    public void unitsChanged(Country country, int oldUnits){
+        if (country.getPlayer() == null){
+            return;
+        }
+        boolean wasWeak = oldUnits < MIN_UNITS_PER_COUNTRY;
+        boolean isWeak = country.getUnits() < MIN_UNITS_PER_COUNTRY;
+        if (wasWeak != isWeak){
+            countersOf(country.getPlayer())[WEAK] += isWeak ? 1 : -1;
+        }
+    }
+
+    /**
+     * Marks a player that lost their last country as eliminated and publishes the elimination.
+     *
+     * @param player The eliminated player.
+     */
+    private void eliminate(Player player){
+        player.setAlive(false);
+        System.out.println("Player " + player.getName() + " has been eliminated");
+        events.playerEliminated(player);
+    }
+
+    /**
+     * Checks whether the mission of a player is done, reading only the counters.
+     *
+     * @param player The player.
+     * @return true if the player has a mission and completed it, false otherwise.
+     */
+    public boolean isMissionDone(Player player){
+        MissionCard mission = player.getMissionCard();
+        return mission != null && mission.isDone(this);
+    }
+
+    /**
+     * Retrieves the counters of a player, creating them on the first event of the player.
+     *
+     * @param player The player.
+     * @return The counters, indexed by {@link #OWNED} and {@link #WEAK}.
+     */
+    private int[] countersOf(Player player){
+        return counters.computeIfAbsent(player, key -> new int[2]);
+    }
+
+    /**
+     * Normalises a color for the color counters; the mission cards name colors in lower case, the players capitalised.
+     *
+     * @param color The color.
+     * @return The key of the color in the counters.
+     */
+    private static String colorKey(String color){
+        return color == null ? "" : color.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public int getOwnedCountries(Player player){
+        int[] counter = counters.get(player);
+        return counter != null ? counter[OWNED] : 0;
+    }
+
+    @Override
+    public int getWeakCountries(Player player){
+        int[] counter = counters.get(player);
+        return counter != null ? counter[WEAK] : 0;
+    }
+
+    @Override
+    public int getCountriesOfColor(String color){
+        return countriesByColor.getOrDefault(colorKey(color), 0);
+    }
+}
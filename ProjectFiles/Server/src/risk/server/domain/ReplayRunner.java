@@ -0,0 +1,119 @@
+package risk.server.domain;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays recorded games without any client, socket or window, to analyze them or to check a change of the domain layer
+ * against them.
+ * <p>
+ * The runner reads every {@link GameReplay} in a directory and rebuilds the last position of each game on a fixed pool
+ * of platform threads, every game on a thread of its own. The replays are read before the clock starts, and a warm-up
+ * round is played first, so the numbers show the speed of the domain layer only.
+ * <p>
+ * For each replay the runner prints its file name, its number of commands and the fingerprint of its last position,
+ * the checksum of the position encoded as a save game. Two builds that print the same fingerprints play the recorded
+ * games to the same positions, so a diff of the output of two builds shows every game a change has broken.
+ * <p>
+ * Usage: {@code java risk.server.domain.ReplayRunner <directory> [threads]}, with the number of processors as the
+ * default number of threads. The map files are loaded from the class path, so the assets of the server must be on it.
+ */
+public class ReplayRunner {
+    private final List<Path> files;
+    private final List<GameReplay> replays;
+
+    /**
+     * Constructs a ReplayRunner for the replays in a directory.
+     *
+     * @param directory The directory holding the replays, files with the extension {@value GameReplay#SUFFIX}.
+     * @throws IOException If the directory or a replay cannot be read.
+     */
+    public ReplayRunner(Path directory) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + GameReplay.SUFFIX)) {
+            for (Path file : stream){
+                found.add(file);
+            }
+        }
+        Collections.sort(found);
+        this.files = found;
+        this.replays = new ArrayList<>(found.size());
+        for (Path file : found){
+            replays.add(GameReplay.read(file));
+        }
+    }
+
+    /**
+     * Replays all games of a directory after a warm-up round and prints the fingerprints and the throughput.
+     *
+     * @param args Command-line arguments: the directory and optionally the number of threads.
+     * @throws Exception If a replay cannot be read or replayed.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1){
+            System.out.println("Usage: java risk.server.domain.ReplayRunner <directory> [threads]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        ReplayRunner runner = new ReplayRunner(Path.of(args[0]));
+        if (runner.replays.isEmpty()){
+            System.out.println("No replays found in " + args[0]);
+            return;
+        }
+        runner.run(threads);
+        long start = System.nanoTime();
+        int[] fingerprints = runner.run(threads);
+        long nanos = System.nanoTime() - start;
+
+        long commands = 0;
+        for (int i = 0; i < fingerprints.length; i++){
+            GameReplay replay = runner.replays.get(i);
+            commands += replay.getCommandCount();
+            System.out.printf("%s %d %08x%n", runner.files.get(i).getFileName(), replay.getCommandCount(), fingerprints[i]);
+        }
+        System.out.printf("%d replays with %d commands on %d threads: %.0f replays/min, %.0f commands/s%n",
+                fingerprints.length, commands, threads, fingerprints.length * 60e9 / nanos, commands * 1e9 / nanos);
+    }
+
+    /**
+     * Replays all games on a pool of threads.
+     *
+     * @param threads The number of threads replaying games in parallel.
+     * @return The fingerprints of the last positions, in the order of the replays.
+     * @throws Exception If a game cannot be replayed.
+     */
+    public int[] run(int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>(replays.size());
+            for (GameReplay replay : replays){
+                results.add(pool.submit(() -> fingerprint(replay.replay())));
+            }
+            int[] fingerprints = new int[results.size()];
+            for (int i = 0; i < fingerprints.length; i++){
+                fingerprints[i] = results.get(i).get();
+            }
+            return fingerprints;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Computes the fingerprint of a position, the checksum of the position encoded as a save game.
+     *
+     * @param game The game.
+     * @return The fingerprint.
+     */
+    public static int fingerprint(RiskAdministration game){
+        return SaveGameFormat.encode(game).getInt(12);
+    }
+}
@@ -7,6 +7,7 @@ import risk.common.exceptions.PlayerNotFoundException;
 import risk.common.entities.*;
 import risk.common.interfaces.GameEventListener;
 import risk.common.interfaces.RiskInterface;
+import risk.server.persistence.JournalStore;
 
 import java.io.IOException;
 import java.util.List;
@@ -35,13 +36,16 @@ public class Risk implements RiskInterface {
 
     private String data = "";
 
-    private static RiskAdministration riskAdmin;
+    private final RiskAdministration riskAdmin;
 
     /**
      * Constructs a new Risk game instance with specified data.
      * This constructor initializes the game with the provided data string, which is used to construct file names
      * for loading countries and continents. It creates a new {@link RiskAdministration} instance, passing
      * the constructed file names for countries and continents data files.
+     * <p>
+     * Every {@code Risk} instance owns its own {@link RiskAdministration}, so several games can run side by side
+     * in the same server process without sharing any state.
      *
      * @param data The base string used to generate file names for loading game data. The actual file names
      *             are derived by appending "_Cou.txt" for countries and "_Con.txt" for continents.
@@ -51,6 +55,90 @@ public class Risk implements RiskInterface {
         riskAdmin = new RiskAdministration(data + "_Cou.txt", data + "_Con.txt");
     }
 
+    /**
+     * Constructs a new Risk game instance with specified data whose dice are rolled from the given seed.
+     * Games created with the same data and seed roll the same dice when given the same commands.
+     *
+     * @param data The base string used to generate file names for loading game data.
+     * @param diceSeed The seed of the dice of the game.
+     */
+    public Risk (String data, long diceSeed){
+        this.data = data;
+        riskAdmin = new RiskAdministration(data + "_Cou.txt", data + "_Con.txt", diceSeed);
+    }
+
+    /**
+     * Constructs a Risk game instance around a game that has already been set up, e.g. one loaded from a save game.
+     *
+     * @param riskAdmin The game.
+     */
+    private Risk (RiskAdministration riskAdmin){
+        this.data = riskAdmin.getCountriesFile().replace("_Cou.txt", "");
+        this.riskAdmin = riskAdmin;
+    }
+
+    /**
+     * Loads a game saved by {@link #saveGame(String)}, see {@link RiskAdministration#loadGame(String)}.
+     *
+     * @param filePath The path to the save game.
+     * @return The loaded game.
+     * @throws IOException If the file cannot be read, is damaged or does not match its map.
+     */
+    public static Risk loadGame(String filePath) throws IOException {
+        return new Risk(RiskAdministration.loadGame(filePath));
+    }
+
+    /**
+     * Saves the complete state of the game to a file, see {@link RiskAdministration#saveGame(String)}.
+     *
+     * @param filePath The path to the file the game is saved to.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveGame(String filePath) throws IOException {
+        riskAdmin.saveGame(filePath);
+    }
+
+    /**
+     * Captures an immutable copy of the complete state of the game, see {@link RiskAdministration#snapshot()}.
+     *
+     * @return The {@link GameSnapshot}.
+     */
+    public GameSnapshot snapshot(){
+        return riskAdmin.snapshot();
+    }
+
+    /**
+     * Recovers a game from its journal after a crash, see {@link GameJournal#recover(JournalStore, String)}.
+     *
+     * @param store The store the journal of the game is kept in.
+     * @param game The key of the game in the store.
+     * @return The recovered game, or {@code null} if the store holds no journal of the game.
+     * @throws IOException If the journal cannot be read or replayed.
+     */
+    public static Risk recover(JournalStore store, String game) throws IOException {
+        RiskAdministration recovered = GameJournal.recover(store, game);
+        return recovered == null ? null : new Risk(recovered);
+    }
+
+    /**
+     * Journals every following command of the game, see {@link RiskAdministration#setJournal(GameJournal)}.
+     *
+     * @param journal The journal, or {@code null} to stop journaling.
+     * @throws IOException If the first checkpoint cannot be written.
+     */
+    public void setJournal(GameJournal journal) throws IOException {
+        riskAdmin.setJournal(journal);
+    }
+
+    /**
+     * Retrieves the journal the commands of the game are written to.
+     *
+     * @return The {@link GameJournal}, or {@code null} if the game is not journaled.
+     */
+    public GameJournal getJournal(){
+        return riskAdmin.getJournal();
+    }
+
     @Override
     public void addPlayer(String name, String color) {
 
@@ -125,6 +213,35 @@ public class Risk implements RiskInterface {
         return riskAdmin.getContinents();
     }
 
+    /**
+     * Retrieves the bus the state changes of this game are published on.
+     * This method delegates to the {@link RiskAdministration} class, which publishes the events.
+     *
+     * @return The {@link DomainEventBus} of the game.
+     */
+    public DomainEventBus getEventBus(){
+        return riskAdmin.getEventBus();
+    }
+
+    /**
+     * Retrieves the seed the dice of this game are rolled from.
+     * This method delegates to the {@link RiskAdministration} class.
+     *
+     * @return The seed of the dice.
+     */
+    public long getDiceSeed(){
+        return riskAdmin.getDiceSeed();
+    }
+
+    /**
+     * Checks if the game is over, see {@link RiskAdministration#isGameOver()}.
+     *
+     * @return true if the game has a winner, false otherwise.
+     */
+    public boolean isGameOver(){
+        return riskAdmin.isGameOver();
+    }
+
     /**
      * Retrieves a {@link Country} object by its name.
      * This method delegates the search to the {@link RiskAdministration} class, which performs the actual lookup
@@ -328,6 +445,25 @@ public class Risk implements RiskInterface {
         riskAdmin.makeAttack( riskAdmin.getCountryByName(fromCou), riskAdmin.getCountryByName(toCou) , riskAdmin.getPlayerByName(attacker), numberOfUnits, defenderUnits);
     }
 
+    /**
+     * Fights a whole battle between two countries in one call, all identified by their IDs.
+     * This method delegates to {@link RiskAdministration#blitz(Player, Country, Country, int, boolean)}.
+     *
+     * @param playerId The ID of the attacking player.
+     * @param fromCountryId The ID of the country the attack starts from.
+     * @param toCountryId The ID of the attacked country.
+     * @param keepUnits The number of units the attacker wants to keep on the attacking country.
+     * @param sampled true to draw the result from the distribution of all results, false to roll the dice.
+     * @return The outcome of the battle.
+     * @throws IllegalStateException If the battle is not allowed by the rules.
+     * @throws CountryNotFoundException If either country does not exist.
+     * @throws NotANeighbourCountry If the countries are not neighbors.
+     */
+    @Override
+    public BattleOutcome blitz(int playerId, int fromCountryId, int toCountryId, int keepUnits, boolean sampled) throws IllegalStateException, CountryNotFoundException, NotANeighbourCountry {
+        return riskAdmin.blitz(riskAdmin.getPlayerById(playerId), riskAdmin.getCountryById(fromCountryId), riskAdmin.getCountryById(toCountryId), keepUnits, sampled);
+    }
+
     /**
      * Validates if a specified country is owned by a given player.
      * This method checks if the player provided as an argument is the current owner of the country specified by its name.
@@ -476,7 +612,7 @@ public class Risk implements RiskInterface {
 
     /**
      * Distributes starting units among all players at the beginning of the game.
-     * This static method calls the {@code distributeStartingUnits} method of the {@link RiskAdministration} class,
+     * This method calls the {@code distributeStartingUnits} method of the {@link RiskAdministration} class,
      * which is responsible for the logic of distributing units. The distribution process involves calculating the number
      * of units each player starts with and assigning these units to the players' countries. The exact distribution logic
      * can depend on the number of players and the game rules regarding initial unit placement.
@@ -490,12 +626,12 @@ public class Risk implements RiskInterface {
 
     /**
      * Prints the starting units for all players at the beginning of the game.
-     * This static method delegates the call to the {@code printStartingUnits} method of the {@link RiskAdministration} class.
+     * This method delegates the call to the {@code printStartingUnits} method of the {@link RiskAdministration} class.
      * It is intended for debugging or informational purposes, allowing a quick view of the initial unit distribution among players
      * before the game starts. The actual printing logic, including the format and details of the output, is handled within the
      * {@code RiskAdministration} class.
      */
-    public static void printStartingUnits(){
+    public void printStartingUnits(){
         riskAdmin.printStartingUnits();
     }
 
@@ -512,7 +648,9 @@ public class Risk implements RiskInterface {
      * @param filename The name of the file where player information will be saved. This should include the path if the file is not in the default directory.
      * @return {@code true} if the player information was successfully saved, {@code false} otherwise.
      * @throws Exception If there are any issues encountered during the file writing process.
+     * @deprecated Use {@link #saveGame(String)}.
      */
+    @Deprecated
     public boolean savePlayerInformation(List<Player> players, String filename) throws Exception {
         return riskAdmin.savePlayerInformation(players, filename);
     }
@@ -529,7 +667,9 @@ public class Risk implements RiskInterface {
      * @param filename The name of the file from which player information is to be loaded. This should include the path if the file is not in the default directory.
      * @return A list of {@link Player} objects representing the players whose information was stored in the file.
      * @throws Exception If there are any issues encountered during the file reading or deserialization process.
+     * @deprecated Use {@link #loadGame(String)}.
      */
+    @Deprecated
     public List<Player> getPlayerInformation(String filename) throws Exception {
         return riskAdmin.getPlayerInformation(filename);
     }
@@ -582,7 +722,9 @@ public class Risk implements RiskInterface {
      * match the expected serialization used by the {@code RiskAdministration} class to ensure successful deserialization and game state restoration.
      *
      * @param filePath The path to the file from which the game state is to be loaded. This should include the full path and the file name.
+     * @deprecated Use {@link #loadGame(String)}.
      */
+    @Deprecated
     public void loadOldGame(String filePath) {
         riskAdmin.loadOldGame(filePath);
     }
@@ -686,8 +828,139 @@ public class Risk implements RiskInterface {
 
     }
 
+    /**
+     * Checks if two countries, identified by their names, are neighbors.
+     * The names are resolved to IDs and the check is answered by the {@link WorldGraph} of the map.
+     *
+     * @param country1 The name of the country the action starts from.
+     * @param country2 The name of the target country.
+     * @return {@code true} if the countries are neighbors, {@code false} otherwise or if a country does not exist.
+     */
     @Override
     public boolean checkCountryNeighbor(String country1, String country2) {
-        return false;
+        try {
+            return checkCountryNeighbor(riskAdmin.getCountryByName(country1).getId(), riskAdmin.getCountryByName(country2).getId());
+        } catch (CountryNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves a {@link Country} object by its ID.
+     * This method delegates the lookup to the {@link RiskAdministration} class, which indexes the list of countries with the ID.
+     *
+     * @param countryId The ID of the country to retrieve.
+     * @return The {@link Country} object with the specified ID.
+     * @throws CountryNotFoundException If no country with the specified ID exists.
+     */
+    @Override
+    public Country getCountryById(int countryId) throws CountryNotFoundException {
+        return riskAdmin.getCountryById(countryId);
+    }
+
+    /**
+     * Retrieves a {@link Continent} object by its ID.
+     * This method delegates the lookup to the {@link RiskAdministration} class, which indexes the list of continents with the ID.
+     *
+     * @param continentId The ID of the continent to retrieve.
+     * @return The {@link Continent} object with the specified ID, or {@code null} if no such continent exists.
+     */
+    @Override
+    public Continent getContinentById(int continentId) {
+        return riskAdmin.getContinentById(continentId);
+    }
+
+    /**
+     * Moves units between two countries of a player, all identified by their IDs.
+     * Works like {@link #moveUnits(String, String, String, int)} without looking up any names.
+     *
+     * @param playerId The ID of the player moving the units.
+     * @param fromCountryId The ID of the country from which units are being moved.
+     * @param toCountryId The ID of the country to which units are being moved.
+     * @param units The number of units to move.
+     * @return A string message indicating the success or failure of the move.
+     */
+    @Override
+    public String moveUnits(int playerId, int fromCountryId, int toCountryId, int units){
+        try {
+            return riskAdmin.moveUnits(riskAdmin.getPlayerById(playerId), riskAdmin.getCountryById(fromCountryId), riskAdmin.getCountryById(toCountryId), units);
+        } catch (CountryNotFoundException e) {
+            System.out.println("Country not found");
+        }
+        return "";
+    }
+
+    /**
+     * Adds units of a player to a country, both identified by their IDs.
+     * Works like {@link #addPlayerUnitsToCountry(String, String, int)} without looking up any names.
+     *
+     * @param playerId The ID of the player placing the units.
+     * @param countryId The ID of the country to which units will be added.
+     * @param units The number of units to add to the country.
+     * @return A string message indicating the outcome of the operation.
+     * @throws InvalidUnitException If the specified number of units is invalid.
+     */
+    @Override
+    public String addPlayerUnitsToCountry(int playerId, int countryId, int units) throws InvalidUnitException {
+        try {
+            return riskAdmin.addPlayerUnitsToCountry(riskAdmin.getPlayerById(playerId), riskAdmin.getCountryById(countryId), units);
+        } catch (CountryNotFoundException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Checks if the country with the given ID is owned by the player with the given ID.
+     *
+     * @param countryId The ID of the country.
+     * @param playerId The ID of the player.
+     * @return {@code true} if the player owns the country, {@code false} otherwise or if the country does not exist.
+     */
+    @Override
+    public boolean validateOwnership(int countryId, int playerId) {
+        try {
+            Player owner = riskAdmin.getCountryById(countryId).getPlayer();
+            return owner != null && owner.getId() == playerId;
+        } catch (CountryNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the number of units in the country with the given ID.
+     *
+     * @param countryId The ID of the country.
+     * @return The number of units in the country, or 0 if the country does not exist.
+     */
+    @Override
+    public int getUnitsByCountry(int countryId) {
+        try {
+            return riskAdmin.getCountryById(countryId).getUnits();
+        } catch (CountryNotFoundException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Checks if the countries with the given IDs are neighbors.
+     *
+     * @param countryId1 The ID of the first country.
+     * @param countryId2 The ID of the second country.
+     * @return {@code true} if the countries are neighbors, {@code false} otherwise or if a country does not exist.
+     */
+    @Override
+    public boolean checkCountryNeighbor(int countryId1, int countryId2) {
+        return riskAdmin.getWorldGraph().isAdjacent(countryId1, countryId2);
+    }
+
+    /**
+     * Retrieves the adjacency graph of the map.
+     * This method delegates to the {@link RiskAdministration} class, which keeps the graph built when the map was loaded.
+     *
+     * @return The {@link WorldGraph} of the map.
+     */
+    @Override
+    public WorldGraph getWorldGraph() {
+        return riskAdmin.getWorldGraph();
     }
 }
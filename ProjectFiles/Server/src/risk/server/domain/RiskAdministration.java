@@ -12,6 +12,7 @@ import risk.common.entities.missions.*;
 
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.io.Serializable;
 
@@ -39,22 +40,33 @@ public class RiskAdministration implements Serializable {
     private static final long serialVersionUID = 4233421654645L;
 
     private List<String> availableColors = new ArrayList<>(Arrays.asList("Red", "Blue", "Green", "Yellow", "Black", "Pink"));
+    final private String filePathCountries;
+    final private String filePathContinent;
     final private List<Country> countries;
     final private List<Continent> continents;
+    final private transient WorldGraph worldGraph;
+    final private transient DomainEventBus eventBus = new DomainEventBus();
+    final private transient ContinentOwnershipTracker ownershipTracker;
+    final private transient MissionEngine missionEngine = new MissionEngine(eventBus);
     private List<Player> players;
+    final private transient EntityRegistry registry = new EntityRegistry();
     public List<MissionCard> missionCards;
     public List<UnitCard> unitCards;
-    final private Dice dice;
+    final private transient DiceEngine dice;
+    final private int[] attackerRolls = new int[MAX_ATTACK_DICE];
+    final private int[] defenderRolls = new int[MAX_DEFENDER_DICE];
     public CountryInitiator countryInitiator;
     final private List<Country> availableCountries;
     private int playerTurnIndex;
     private static final int MAX_ATTACK_UNITS = 3;
-    private static final int MAX_ATTACK_DICE = 3;
-    private static final int MAX_DEFENDER_DICE = 2;
+    private static final int MAX_ATTACK_DICE = BattleTable.MAX_ATTACKER_DICE;
+    private static final int MAX_DEFENDER_DICE = BattleTable.MAX_DEFENDER_DICE;
     private int turnedInUnitCards = 0;
 
     private PersistenceManager pm = new FilePersistenceManager();
     private HashMap<String, Integer> startingUnits;
+    private transient GameJournal journal;
+    private boolean replaying;
 
     /**
      * Constructs a RiskAdministration object to manage the core functionalities of the Risk game.
@@ -66,8 +78,9 @@ public class RiskAdministration implements Serializable {
      * paths to initialize the {@link CountryInitiator} which in turn initializes the countries and continents.
      * Empty lists for players, mission cards, and unit cards are created, and missions and unit cards are generated
      * using respective methods. The list of available countries is initialized based on the list of countries,
-     * and a new {@link Dice} object is created for use in the game. The starting units map is also initialized
-     * to track the initial units for each country.
+     * and a new {@link DiceEngine} with a fresh seed is created for use in the game. The starting units map is also initialized
+     * to track the initial units for each country. Countries and continents are indexed by name in an
+     * {@link EntityRegistry} right after they are loaded, so the lookups by name do not have to scan the lists.
      *
      * @param filePathCountries The file path to the countries data file. This file contains information necessary
      *                          to initialize all countries in the game.
@@ -75,19 +88,168 @@ public class RiskAdministration implements Serializable {
      *                          to initialize all continents in the game and associate them with their respective countries.
      */
     public RiskAdministration(String filePathCountries, String filePathContinent){
+        this(filePathCountries, filePathContinent, DiceEngine.newSeed());
+    }
+
+    /**
+     * Constructs a RiskAdministration object like {@link #RiskAdministration(String, String)}, but rolls the dice
+     * from the given seed. All chance of the game, the dice as well as the countries handed out at the start, the
+     * mission cards and the unit cards drawn, comes from this {@link DiceEngine}, so two games created with the same
+     * seed and given the same players and commands play out the same, which makes a game reproducible.
+     *
+     * @param filePathCountries The file path to the countries data file.
+     * @param filePathContinent The file path to the continents data file.
+     * @param diceSeed The seed of the {@link DiceEngine} of this game.
+     */
+    public RiskAdministration(String filePathCountries, String filePathContinent, long diceSeed){
+        this.filePathCountries = filePathCountries;
+        this.filePathContinent = filePathContinent;
         this.countryInitiator = new CountryInitiator(filePathCountries);
         this.countries = countryInitiator.initializeCountries();
         this.continents = countryInitiator.initializeContinents(filePathContinent, countries);
+        this.worldGraph = countryInitiator.getWorldGraph();
+        this.ownershipTracker = new ContinentOwnershipTracker(countries, continents);
+        ownershipTracker.addListener(eventBus);
+        eventBus.addListener(ownershipTracker);             //Missions read the continent owners, so the tracker comes first
+        eventBus.addListener(missionEngine);
+        registry.indexCountries(countries);
+        registry.indexContinents(continents);
         this.players = new ArrayList<>();
         this.missionCards = new ArrayList<>();
         this.missionCards = createMissions();
         this.unitCards = createUnitCards();
         this.availableCountries = new ArrayList<>(countries);
-        this.dice = new Dice();
+        this.dice = new DiceEngine(diceSeed);
         startingUnits = new HashMap<>();
         playerTurnIndex = 0;
     }
 
+    /**
+     * Retrieves the seed the dice of this game are rolled from.
+     *
+     * @return The seed of the {@link DiceEngine}.
+     */
+    public long getDiceSeed(){
+        return dice.getSeed();
+    }
+
+    /**
+     * Retrieves how far the dice of this game have been rolled, see {@link DiceEngine#getDraws()}.
+     *
+     * @return The position of the {@link DiceEngine}.
+     */
+    public long getDiceDraws(){
+        return dice.getDraws();
+    }
+
+    /**
+     * Moves the dice of a game rebuilt from its seed to the position they had when it was saved, so the game goes on
+     * with the rolls and cards that follow.
+     *
+     * @param draws The saved position of the dice.
+     * @throws IllegalArgumentException If the dice are already past that position.
+     */
+    void restoreDiceDraws(long draws){
+        dice.skip(draws);
+    }
+
+    /**
+     * Saves the complete state of the game to a file in the binary {@link SaveGameFormat}, replacing the file if it exists.
+     * Unlike {@link #savePlayerInformation(List, String)}, the save game includes the mission and unit cards, the decks, the turn and the
+     * ownership of every country, so the game can be continued exactly where it was saved.
+     *
+     * @param filePath The path to the file the game is saved to.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveGame(String filePath) throws IOException {
+        SaveGameFormat.write(this, Path.of(filePath));
+    }
+
+    /**
+     * Captures an immutable copy of the complete state of the game, which can be saved with
+     * {@link SaveGameFormat#write(GameSnapshot, Path)} on another thread while the game goes on.
+     *
+     * @return The {@link GameSnapshot}.
+     */
+    public GameSnapshot snapshot(){
+        return GameSnapshot.capture(this);
+    }
+
+    /**
+     * Loads a game saved by {@link #saveGame(String)}. The game is created on the map it was saved on, with the same dice seed
+     * and position of the dice, and every player, country and card is restored.
+     *
+     * @param filePath The path to the save game.
+     * @return The loaded game.
+     * @throws IOException If the file cannot be read, is damaged or does not match its map.
+     */
+    public static RiskAdministration loadGame(String filePath) throws IOException {
+        return SaveGameFormat.read(Path.of(filePath));
+    }
+
+    /**
+     * Journals every following command of the game to a {@link GameJournal}, so the game can be recovered after a crash with
+     * {@link GameJournal#recover}. A checkpoint of the current state is taken right away, the journal only holds the
+     * commands after it. A game recovered from the journal goes on with its replay log, see {@link GameJournal#resume}.
+     *
+     * @param journal The journal, or {@code null} to stop journaling.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void setJournal(GameJournal journal) throws IOException {
+        this.journal = journal;
+        if (journal != null){
+            journal.checkpoint(this);
+            journal.resume(this);
+        }
+    }
+
+    /**
+     * Retrieves the journal the commands of this game are written to.
+     *
+     * @return The {@link GameJournal}, or {@code null} if the game is not journaled.
+     */
+    public GameJournal getJournal(){
+        return journal;
+    }
+
+    /**
+     * Marks the game as being rebuilt from a journal. While replaying, the results of chance are not drawn but taken from the
+     * journal, which replays them as commands of their own.
+     *
+     * @param replaying true while the journal is replayed.
+     */
+    void setReplaying(boolean replaying){
+        this.replaying = replaying;
+    }
+
+    /**
+     * Takes a checkpoint of the journal after a command that is not journaled itself. A failing checkpoint does not stop the
+     * game; the journal keeps the commands after the last checkpoint that succeeded.
+     */
+    private void checkpoint(){
+        checkpoint(false);
+    }
+
+    /**
+     * Takes a checkpoint of the journal like {@link #checkpoint()}, at the start of the game also beginning its replay log.
+     *
+     * @param start true right after the game has been started.
+     */
+    private void checkpoint(boolean start){
+        if (journal != null){
+            try {
+                if (start){
+                    journal.begin(this);
+                } else {
+                    journal.checkpoint(this);
+                }
+            } catch (IOException e) {
+                System.out.println("Checkpoint of the journal failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Initiates the game by randomly assigning countries to players, distributing starting units, and drawing mission cards for each player.
      * <p>
@@ -100,6 +262,8 @@ public class RiskAdministration implements Serializable {
      * This setup is crucial for a balanced and engaging game experience, providing each player with a unique starting position and objectives.
      */
     public void startGame(){
+        GameJournal journal = this.journal;
+        this.journal = null;                            //The start is random as a whole, the checkpoint below replaces its commands
         try {
             pickRandomStartCountries();
         }catch (CountryNotFoundException e) {
@@ -108,6 +272,8 @@ public class RiskAdministration implements Serializable {
         }
         distributeStartingUnits();
         drawMissionToPlayer();
+        this.journal = journal;
+        checkpoint(true);
     }
 
     /**
@@ -154,10 +320,13 @@ public class RiskAdministration implements Serializable {
      * to the console, and the game state remains unchanged.
      *
      * @param filePath The path to the file from which the game state is to be loaded. This should include the full path and the file name.
+     * @deprecated The text format loses mission and unit cards, neighbors and the turn; use {@link #loadGame(String)}.
      */
+    @Deprecated
     public void loadOldGame(String filePath){
         try{
             this.players = pm.loadPlayers(filePath);
+            registry.indexPlayers(players);
         } catch (Exception e) {
             System.out.println(e.getMessage());
         }
@@ -171,6 +340,122 @@ public class RiskAdministration implements Serializable {
         return continents;
     }
 
+    /**
+     * Retrieves the adjacency graph of the map, built by the {@link CountryInitiator} when the countries were loaded.
+     *
+     * @return The {@link WorldGraph} of the map.
+     */
+    public WorldGraph getWorldGraph(){
+        return worldGraph;
+    }
+
+    /**
+     * Retrieves the bus all state changes of this game are published on.
+     * Listeners that keep the game consistent, the {@link ContinentOwnershipTracker} and the {@link MissionEngine}, are registered by this class.
+     *
+     * @return The {@link DomainEventBus} of the game.
+     */
+    public DomainEventBus getEventBus(){
+        return eventBus;
+    }
+
+    /**
+     * Retrieves the name of the file the countries of the map were loaded from.
+     *
+     * @return The file path of the countries.
+     */
+    public String getCountriesFile(){
+        return filePathCountries;
+    }
+
+    /**
+     * Retrieves the name of the file the continents of the map were loaded from.
+     *
+     * @return The file path of the continents.
+     */
+    public String getContinentsFile(){
+        return filePathContinent;
+    }
+
+    /**
+     * Retrieves the index of the player on turn in the list of players.
+     *
+     * @return The turn index.
+     */
+    int getPlayerTurnIndex(){
+        return playerTurnIndex;
+    }
+
+    /**
+     * Sets the index of the player on turn when a saved game is loaded, without publishing a change of turn.
+     *
+     * @param playerTurnIndex The turn index.
+     */
+    void setPlayerTurnIndex(int playerTurnIndex){
+        this.playerTurnIndex = playerTurnIndex;
+    }
+
+    /**
+     * Retrieves how many sets of unit cards have been turned in during the game, which determines the units of the next set.
+     *
+     * @return The number of sets turned in.
+     */
+    int getTurnedInUnitCards(){
+        return turnedInUnitCards;
+    }
+
+    /**
+     * Sets how many sets of unit cards have been turned in when a saved game is loaded.
+     *
+     * @param turnedInUnitCards The number of sets turned in.
+     */
+    void setTurnedInUnitCards(int turnedInUnitCards){
+        this.turnedInUnitCards = turnedInUnitCards;
+    }
+
+    /**
+     * Retrieves the colors no player has chosen yet. The list is the one of the game, changes to it change the game.
+     *
+     * @return The available colors.
+     */
+    List<String> getAvailableColorList(){
+        return availableColors;
+    }
+
+    /**
+     * Retrieves the units each country got at the start of the game, by the name of the country. The map is the one of the
+     * game, changes to it change the game.
+     *
+     * @return The starting units.
+     */
+    Map<String, Integer> getStartingUnits(){
+        return startingUnits;
+    }
+
+    /**
+     * Gives a country to a player when a saved game is loaded and publishes the change on the {@link DomainEventBus}, so the
+     * continents and missions of the player are counted. Unlike {@link #addCountryToPlayer(String, Player)} it neither adds a
+     * unit nor counts the country, as both are restored separately.
+     *
+     * @param country The country, without an owner.
+     * @param player The new owner.
+     */
+    void restoreOwner(Country country, Player player){
+        country.setPlayer(player);
+        player.addCountry(country);
+        eventBus.countryCaptured(country, null, player);
+    }
+
+    /**
+     * Sets the units of a country when a saved game is loaded and publishes the change on the {@link DomainEventBus}.
+     *
+     * @param country The country.
+     * @param units The saved number of units.
+     */
+    void restoreUnits(Country country, int units){
+        setUnits(country, units);
+    }
+
     /**
      * Creates and returns a list of unit cards for the game.
      * This method initializes the deck of unit cards used in the game by creating a predefined number of each type of unit card (Infantry, Cavalry, Artillery) and adding Joker cards.
@@ -249,14 +534,20 @@ public class RiskAdministration implements Serializable {
      * in the game, maintaining the turn-based nature of the gameplay.
      * <p>
      * It is crucial for managing the flow of the game, ensuring that each player gets their turn in a sequential and fair manner.
+     * The change of turn is published on the {@link DomainEventBus}.
      */
     public void nextTurn(){
-        getPlayerOnTurn().setHasConquered(false);
+        Player previousPlayer = getPlayerOnTurn();
+        previousPlayer.setHasConquered(false);
         if (playerTurnIndex == players.size() -1) {
             playerTurnIndex = 0;
         } else {
             playerTurnIndex++;
         }
+        if (journal != null){
+            journal.nextTurn();
+        }
+        eventBus.turnChanged(previousPlayer, getPlayerOnTurn());
     }
 
     /**
@@ -279,7 +570,9 @@ public class RiskAdministration implements Serializable {
 
         Player player = new Player(name, playerId, colorName);
         players.add(player);
+        registry.addPlayer(player);
         availableColors.remove(colorName);
+        checkpoint();
         return player;
     }
 
@@ -300,8 +593,13 @@ public class RiskAdministration implements Serializable {
         if (player == null){
             throw new PlayerNotFoundException(name);
         }
+        if (journal != null){
+            journal.removePlayer(player.getId());       //For the replay log, the checkpoint below replaces it in the journal
+        }
         players.remove(player);
+        registry.removePlayer(player, players);
         availableColors.add(player.getColor()); // Add the color back to the available colors list
+        checkpoint();
         return player;
     }
 
@@ -324,27 +622,54 @@ public class RiskAdministration implements Serializable {
 
     /**
      * Retrieves a {@link Country} object by its name.
-     * This method iterates through the list of countries and compares the provided country name with each country's name, ignoring case differences.
-     * If a match is found, the corresponding {@link Country} object is returned.
-     * <p>
-     * Note: If the country name is {@code null} or does not match any country in the list, a special case check for "Test" is performed.
-     * This is likely a placeholder for testing purposes and should be adjusted or removed for production use.
+     * The name is looked up in the {@link EntityRegistry}, which indexes the countries by their lower-cased name when the map is loaded,
+     * so case differences are ignored without comparing the name with every country. If a match is found, the corresponding {@link Country} object is returned.
      *
      * @param countryName The name of the country to search for. Case-insensitive.
      * @return The {@link Country} object matching the provided name.
      * @throws CountryNotFoundException If no country with the specified name exists.
      */
     public Country getCountryByName(String countryName) throws CountryNotFoundException {
-        for (Country country : countries) {
-            if (country.getName() != null ? country.getName().equalsIgnoreCase(countryName) : "Test".equalsIgnoreCase(countryName)) {
-                return country;
-            }
-        } throw new CountryNotFoundException(countryName);
+        Country country = registry.getCountry(countryName);
+        if (country == null) {
+            throw new CountryNotFoundException(countryName);
+        }
+        return country;
+    }
+
+    /**
+     * Retrieves a {@link Country} object by its ID.
+     * Country IDs are assigned densely in the order the countries are loaded, so the ID is the index of the country in the list of countries
+     * and the lookup does not have to compare any names.
+     *
+     * @param countryId The ID of the country to retrieve.
+     * @return The {@link Country} object with the provided ID.
+     * @throws CountryNotFoundException If no country with the specified ID exists.
+     */
+    public Country getCountryById(int countryId) throws CountryNotFoundException {
+        if (countryId < 0 || countryId >= countries.size()) {
+            throw new CountryNotFoundException(String.valueOf(countryId));
+        }
+        return countries.get(countryId);
+    }
+
+    /**
+     * Retrieves a {@link Continent} object by its ID.
+     * Continent IDs are assigned densely in the order the continents are loaded, so the ID is the index of the continent in the list of continents.
+     *
+     * @param continentId The ID of the continent to retrieve.
+     * @return The {@link Continent} object with the provided ID, or {@code null} if no such continent exists.
+     */
+    public Continent getContinentById(int continentId) {
+        if (continentId < 0 || continentId >= continents.size()) {
+            return null;
+        }
+        return continents.get(continentId);
     }
 
     /**
      * Retrieves a {@link Continent} object by its name.
-     * This method iterates through the list of continents and compares the provided continent name with each continent's name, ignoring case differences.
+     * The name is looked up in the {@link EntityRegistry}, which indexes the continents by their lower-cased name when the map is loaded, so case differences are ignored.
      * If a match is found, the corresponding {@link Continent} object is returned. This is useful for operations requiring continent-specific data,
      * such as assigning missions or calculating bonuses.
      * <p>
@@ -355,12 +680,7 @@ public class RiskAdministration implements Serializable {
      * @return The {@link Continent} object matching the provided name, or {@code null} if no match is found.
      */
     public Continent getContinentByName(String continentName) {
-        for (Continent continent : continents) {
-            if (continent.getName().equalsIgnoreCase(continentName)) {
-                return continent;
-            }
-        }
-        return null;
+        return registry.getContinent(continentName);
     }
 
     /**
@@ -382,7 +702,7 @@ public class RiskAdministration implements Serializable {
 
     /**
      * Retrieves a player object from the game based on the player's name.
-     * This method iterates through the list of players and compares the provided player name with each player's name.
+     * The player is looked up by their exact name in the {@link EntityRegistry}, which is kept up to date whenever a player joins or leaves.
      * If a match is found, the corresponding {@link Player} object is returned. This is useful for operations requiring
      * player-specific data, such as validating actions or updating player states.
      * <p>
@@ -393,17 +713,12 @@ public class RiskAdministration implements Serializable {
      * @return The {@link Player} object matching the provided name, or {@code null} if no match is found.
      */
     public Player getPlayerByName(String playerName){
-        for (Player player : players){
-            if (player.getName().equals(playerName)){
-                return player;
-            }
-        }
-        return null;
+        return registry.getPlayerByName(playerName);
     }
 
     /**
      * Retrieves a player object from the game based on the player's color.
-     * This method iterates through the list of players and compares the provided color with each player's color.
+     * The player is looked up by their exact color in the {@link EntityRegistry}, which is kept up to date whenever a player joins or leaves.
      * If a match is found, the corresponding {@link Player} object is returned. This is useful for operations requiring
      * player-specific data, such as validating actions or updating player states based on their color.
      * <p>
@@ -414,17 +729,12 @@ public class RiskAdministration implements Serializable {
      * @return The {@link Player} object matching the provided color, or {@code null} if no match is found.
      */
     public Player getPlayerByColor(String color){
-        for (Player player : players){
-            if (player.getColor().equals(color)){
-                return player;
-            }
-        }
-        return null;
+        return registry.getPlayerByColor(color);
     }
 
     /**
      * Retrieves a player object from the game based on the player's unique ID.
-     * This method iterates through the list of players in the game and compares each player's ID with the provided ID.
+     * The player is looked up by their ID in the {@link EntityRegistry}, which is kept up to date whenever a player joins or leaves.
      * If a match is found, the corresponding {@link Player} object is returned. This is useful for operations requiring
      * player-specific data, such as validating actions or updating player states based on their unique identifier.
      * <p>
@@ -435,12 +745,7 @@ public class RiskAdministration implements Serializable {
      * @return The {@link Player} object matching the provided ID, or {@code null} if no match is found.
      */
     public Player getPlayerById(int id){
-        for (Player player : players){
-            if (player.getId() == id){
-                return player;
-            }
-        }
-        return null;
+        return registry.getPlayerById(id);
     }
 
     /**
@@ -449,7 +754,8 @@ public class RiskAdministration implements Serializable {
      * If the player object is valid, it retrieves the country by its name using {@link #getCountryByName(String)} method.
      * The country is then added to the player's list of countries, and the player's country count is incremented by one.
      * Additionally, the player is set as the owner of the country, and the country's unit count is incremented by one to
-     * signify the player's control over it. If the operation is successful, a confirmation message is returned.
+     * signify the player's control over it. The change of owner is published on the {@link DomainEventBus}.
+     * If the operation is successful, a confirmation message is returned.
      * <p>
      * If the player object is null, the method returns a message indicating that the player object is null,
      * and no operation is performed.
@@ -463,10 +769,12 @@ public class RiskAdministration implements Serializable {
     public String addCountryToPlayer(String countryName, Player playerObject) throws CountryNotFoundException {
         if (playerObject != null) {
             Country country = getCountryByName(countryName);
+            Player oldOwner = country.getPlayer();
             playerObject.addCountry(country);
             playerObject.addNumberOfCountries(1);
             country.setPlayer(playerObject);
-            country.addUnits(1);
+            eventBus.countryCaptured(country, oldOwner, playerObject);
+            addUnits(country, 1);
             return ("Country " + countryName + " has been added to Player " + playerObject.getName());
         } else {
             return ("Player Object is null");
@@ -475,8 +783,8 @@ public class RiskAdministration implements Serializable {
 
     /**
      * Checks if a player owns entire continents and assigns bonus units accordingly.
-     * This method iterates through all continents and checks if all countries within a continent are owned by the specified player.
-     * If a player owns all countries in a continent, the continent is marked as owned by the player, and bonus units are awarded as specified by the continent's bonus units attribute.
+     * The {@link ContinentOwnershipTracker} marks a continent as owned by the player as soon as the player holds all of its countries, so this method only
+     * lists the continents of the player instead of checking every country of every continent. Bonus units are awarded as specified by the continent's bonus units attribute.
      * The method accumulates and returns a message detailing which continents (if any) have been conquered by the player and the bonus units awarded for each.
      * <p>
      * This method is crucial for calculating bonus units during the reinforcement phase of the game, allowing players to strategically plan their next moves based on potential bonus units from continent control.
@@ -485,18 +793,8 @@ public class RiskAdministration implements Serializable {
      * @return A string message detailing continents conquered by the player and the corresponding bonus units awarded. If no continents are fully owned by the player, the returned string may be empty or indicate no continents are owned.
      */
     public String continentPlayerCheck(Player player) {
-        boolean ownsContinent;
         StringBuilder result = new StringBuilder();
-        for (Continent continent : continents) {
-            ownsContinent = true;
-            for (Country country : continent.getCountries()){
-                if (country.getPlayer() != player) {
-                    ownsContinent = false;
-                    break;
-                }
-            }
-            if (!ownsContinent) continue;
-            continent.setPlayer(player);
+        for (Continent continent : player.getContinents()) {
             result.append("Player ").append(player.getName()).append(" has conquered ").append(continent.getName()).append(" and gets ").append(continent.getBonusUnits()).append(" Bonus units.\n");
         }
         return result.toString();
@@ -578,7 +876,7 @@ public class RiskAdministration implements Serializable {
         while (!availableCountries.isEmpty()) {
             for (Player player : players) {
                 if (!availableCountries.isEmpty()) {
-                    int randomIndex = (int) (Math.random() * availableCountries.size());
+                    int randomIndex = dice.nextInt(availableCountries.size());
                     Country randomCountry = availableCountries.get(randomIndex);
                     addCountryToPlayer(randomCountry.getName(), player);
                     randomCountry.setPlayer(player);
@@ -591,7 +889,7 @@ public class RiskAdministration implements Serializable {
 
     /**
      * Calculates and adds units to a player based on the number of countries they control and any continent bonuses.
-     * This method first checks if the player controls entire continents using {@link #continentPlayerCheck(Player)} and awards bonus units accordingly.
+     * The bonus units of the continents the player controls are summed up by the {@link ContinentOwnershipTracker} whenever a continent changes hands, so they do not have to be recalculated.
      * The base number of units awarded is determined by the number of countries the player controls, with a minimum of 3 units if the player controls fewer than 9 countries.
      * For players controlling 9 or more countries, units are awarded based on a third of the number of countries they control, rounded down, plus any additional continent bonus units.
      * The calculated units are then added to the player's total unit count for deployment.
@@ -602,19 +900,17 @@ public class RiskAdministration implements Serializable {
      * @return A string message indicating the total number of units the player has available for placement.
      */
     public String addPlayerUnitsPerRound(Player player) {
-        continentPlayerCheck(player);
         int units;
         if (player.getCountries().size() >= 9) {
             units = player.getCountries().size()/3;
-            for (Continent continent : continents) {
-                if (continent.getPlayer() == player) {
-                    units += continent.getBonusUnits();
-                }
-            }
+            units += ownershipTracker.getBonusUnits(player);
         } else {
             units = 3;
         }
         player.addUnits(units);
+        if (journal != null){
+            journal.reinforce(player.getId());
+        }
         return ("Player " + player.getName() + " has " + player.getNumberOfUnits() + " units to place");
     }
 
@@ -635,21 +931,37 @@ public class RiskAdministration implements Serializable {
      */
     public String addPlayerUnitsToCountry (Player player, String pCountry, int units) throws InvalidUnitException {
         try {
-            Country country = getCountryByName(pCountry);
-            if (country.getPlayer() == player && player.getNumberOfUnits() >= units) {
-                country.addUnits(units);
-                player.setNumberOfUnits(player.getNumberOfUnits() - units);
-                return ("Player " + player.getName() + " has placed " + units + " units in " + country.getName());
-            } else if (country.getPlayer() != player){
-                return ("Country " + pCountry + " does not belong to Player " + player.getName());
-            } else {
-                throw new InvalidUnitException("Player " + player.getName() + " has insufficient Units. Available units: " + player.getNumberOfUnits());
-            }
+            return addPlayerUnitsToCountry(player, getCountryByName(pCountry), units);
         } catch (CountryNotFoundException e) {
             return e.getMessage();
         }
     }
 
+    /**
+     * Adds a specified number of units to a country controlled by a player.
+     * Works like {@link #addPlayerUnitsToCountry(Player, String, int)} for a country that has already been looked up, e.g. by its ID.
+     *
+     * @param player The {@link Player} object representing the player who is placing the units.
+     * @param country The {@link Country} object where the units are to be placed.
+     * @param units The number of units to be placed in the specified country.
+     * @return A string message indicating the outcome of the operation. It either confirms the successful placement of units or informs that the country does not belong to the player.
+     * @throws InvalidUnitException If the player attempts to place more units than they have available.
+     */
+    public String addPlayerUnitsToCountry (Player player, Country country, int units) throws InvalidUnitException {
+        if (country.getPlayer() == player && player.getNumberOfUnits() >= units) {
+            addUnits(country, units);
+            player.setNumberOfUnits(player.getNumberOfUnits() - units);
+            if (journal != null){
+                journal.placeUnits(player.getId(), country.getId(), units);
+            }
+            return ("Player " + player.getName() + " has placed " + units + " units in " + country.getName());
+        } else if (country.getPlayer() != player){
+            return ("Country " + country.getName() + " does not belong to Player " + player.getName());
+        } else {
+            throw new InvalidUnitException("Player " + player.getName() + " has insufficient Units. Available units: " + player.getNumberOfUnits());
+        }
+    }
+
     /**
      * Executes an attack from one country to another with a specified number of attacking and defending units.
      * This method initiates an attack from the attacking country to the defending country, using the specified number of units for both the attacker and defender.
@@ -674,56 +986,133 @@ public class RiskAdministration implements Serializable {
         Country to = getCountryByName(toCou.getName());
         validateAttackConditions(from, to, attacker, numberOfUnits, defenderUnits);
 
-        Integer[] attackerRolls = rollAttackerDice(numberOfUnits);
-        Integer[] defenderRolls = rollDefenderDice(defenderUnits);
+        int attackerDice = rollAttackerDice(numberOfUnits);
+        int defenderDice = rollDefenderDice(defenderUnits);
+
+        resolveDiceRolls(from, to, numberOfUnits, Math.min(attackerDice, defenderDice));
+        if (journal != null){
+            journal.attack(attacker.getId(), from.getId(), to.getId(), numberOfUnits, attackerRolls, attackerDice, defenderRolls, defenderDice, dice.getDraws());
+        }
+    }
+
+    /**
+     * Repeats an attack read from a {@link GameJournal} with the dice rolled when it was made. The attack was validated
+     * when it was made, so it is not validated again.
+     *
+     * @param from The attacking country.
+     * @param to The attacked country.
+     * @param numberOfUnits The number of attacking units.
+     * @param attackerDice The dice of the attacker, highest first.
+     * @param defenderDice The dice of the defender, highest first.
+     */
+    void replayAttack(Country from, Country to, int numberOfUnits, int[] attackerDice, int[] defenderDice) {
+        System.arraycopy(attackerDice, 0, attackerRolls, 0, attackerDice.length);
+        System.arraycopy(defenderDice, 0, defenderRolls, 0, defenderDice.length);
+        resolveDiceRolls(from, to, numberOfUnits, Math.min(attackerDice.length, defenderDice.length));
+    }
+
+    /**
+     * Fights a whole battle from one country against another in a single call, instead of one {@link #makeAttack} per roll.
+     * The attacker rolls as many dice as allowed, the defender always defends with as many dice as possible, and the
+     * battle goes on until the defending country has no units left or the attacking country is down to {@code keepUnits}.
+     * <p>
+     * With {@code sampled} set, the dice are not rolled one by one; the result is drawn with a single random number
+     * from the distribution computed by {@link BattleResolver}, which is faster for large armies and has the same odds.
+     * Either way the board is updated once with the total losses, as if it had been a single attack: the attacker
+     * draws a unit card if the defender lost any units, and if the country is conquered, the attacking units that
+     * survived the last roll move into it.
+     *
+     * @param attacker The {@link Player} who attacks.
+     * @param from The {@link Country} the attack starts from, owned by the attacker.
+     * @param to The {@link Country} attacked, a neighbor owned by another player.
+     * @param keepUnits The number of units the attacker wants to keep on the attacking country, at least 1.
+     * @param sampled true to draw the result from the distribution of all results, false to roll the dice.
+     * @return The {@link BattleOutcome} of the battle.
+     * @throws IllegalStateException If the attacker does not own the attacking country, owns the attacked one or has no more than {@code keepUnits} units.
+     * @throws NotANeighbourCountry If the countries are not neighbors.
+     */
+    public BattleOutcome blitz(Player attacker, Country from, Country to, int keepUnits, boolean sampled) throws IllegalStateException, NotANeighbourCountry {
+        if (from.getPlayer() != attacker) {
+            throw new IllegalStateException("The player does not own the attacking country.");
+        }
+        validateNeighboring(from, to);
+        validateNotOwnCountry(attacker, to);
+        int keep = Math.max(keepUnits, 1);
+        if (from.getUnits() <= keep || to.getUnits() < 1) {
+            throw new IllegalStateException("The attacking country needs more than " + keep + " units and the attacked country at least one.");
+        }
+
+        BattleOutcome outcome = sampled
+                ? BattleResolver.sample(dice, from.getUnits(), to.getUnits(), keep)
+                : BattleResolver.roll(dice, from.getUnits(), to.getUnits(), keep, attackerRolls, defenderRolls);
+
+        replayBattle(from, to, outcome);
+        if (journal != null){
+            journal.blitz(attacker.getId(), from.getId(), to.getId(), outcome, dice.getDraws());
+        }
+        return outcome;
+    }
 
-        resolveDiceRolls(from, to, numberOfUnits, attackerRolls, defenderRolls);
+    /**
+     * Applies the outcome of a whole battle to the board, as {@link #blitz} does after fighting it and as a
+     * {@link GameJournal} does when it repeats a battle it journaled.
+     *
+     * @param from The attacking country.
+     * @param to The attacked country.
+     * @param outcome The outcome of the battle.
+     */
+    void replayBattle(Country from, Country to, BattleOutcome outcome) {
+        if (outcome.getDefenderLosses() > 0) {
+            resolveSuccessfulAttack(from, to, outcome.getAttackerLosses(), outcome.getDefenderLosses());
+        } else {
+            resolveFailedAttack(from, to, outcome.getAttackerLosses(), outcome.getDefenderLosses());
+        }
+        conquerTerritory(from, to, outcome.getUnitsMoved());
     }
 
     /**
      * Rolls dice for the attacker based on the number of units involved in the attack.
-     * This method utilizes the {@link Dice} class to simulate rolling dice for the attacking units. The number of dice rolled is determined by the number of attacking units,
-     * with a maximum limit defined by the game rules. The results of the dice rolls are returned as an array of integers, representing the outcomes of each dice roll.
+     * This method utilizes the {@link DiceEngine} of the game to simulate rolling dice for the attacking units. The number of dice rolled is determined by the number of attacking units,
+     * with a maximum limit defined by the game rules. The results of the dice rolls are written into the reused {@code attackerRolls} buffer in descending order, so no array is allocated per attack.
      * <p>
      * This method is critical for determining the outcome of an attack, as the dice roll results are used to compare against the defender's dice roll results.
      *
      * @param numberOfUnits The number of units involved in the attack, which determines the number of dice to be rolled.
-     * @return An array of integers representing the results of the dice rolls.
+     * @return The number of dice rolled, i.e. the number of valid results in {@code attackerRolls}.
      */
-    private Integer[] rollAttackerDice(int numberOfUnits) {
-        return dice.rollDice(numberOfUnits);
+    private int rollAttackerDice(int numberOfUnits) {
+        return dice.roll(attackerRolls, Math.min(numberOfUnits, MAX_ATTACK_DICE));
     }
 
     /**
      * Rolls dice for the defender based on the number of units involved in the defense.
-     * This method utilizes the {@link Dice} class to simulate rolling dice for the defending units. The number of dice rolled is determined by the lesser of the number of defending units and the maximum number of dice allowed for defenders, as defined by the game rules.
-     * The results of the dice rolls are returned as an array of integers, representing the outcomes of each dice roll. This is crucial for determining the outcome of a defense during an attack, as the dice roll results are used to compare against the attacker's dice roll results.
+     * This method utilizes the {@link DiceEngine} of the game to simulate rolling dice for the defending units. The number of dice rolled is determined by the lesser of the number of defending units and the maximum number of dice allowed for defenders, as defined by the game rules.
+     * The results of the dice rolls are written into the reused {@code defenderRolls} buffer in descending order. This is crucial for determining the outcome of a defense during an attack, as the dice roll results are used to compare against the attacker's dice roll results.
      *
      * @param numberOfUnits The number of units involved in the defense, which determines the number of dice to be rolled, not exceeding the maximum limit for defenders.
-     * @return An array of integers representing the results of the dice rolls for the defender.
+     * @return The number of dice rolled, i.e. the number of valid results in {@code defenderRolls}.
      */
-    private Integer[] rollDefenderDice(int numberOfUnits) {
-        return dice.rollDice(Math.min(numberOfUnits, MAX_DEFENDER_DICE));
+    private int rollDefenderDice(int numberOfUnits) {
+        return dice.roll(defenderRolls, Math.min(numberOfUnits, MAX_DEFENDER_DICE));
     }
 
     /**
      * Resolves the outcome of dice rolls between an attacker and a defender during an attack.
      * This method compares the dice rolls of the attacker and defender to determine the number of units lost by each side.
-     * The attacker and defender rolls are assumed to be sorted in descending order. For each pair of dice, starting from the highest,
+     * The attacker and defender rolls in {@code attackerRolls} and {@code defenderRolls} are sorted in descending order. For each pair of dice, starting from the highest,
      * the method compares the attacker's roll against the defender's. If the attacker's roll is higher, the defender loses a unit;
      * otherwise, the attacker loses a unit. The method then updates the territories involved in the attack with the new unit counts.
      * <p>
-     * Note: This method assumes that both the attacker and defender rolls arrays are not null and have at least one element.
+     * Note: This method assumes that both sides rolled at least {@code comparedDice} dice.
      *
      * @param from The {@link Country} object representing the attacking country.
      * @param to The {@link Country} object representing the defending country.
      * @param numberOfUnits The number of units involved in the attack. This is used to update the territory units after resolving the battle.
-     * @param attackerRolls An array of {@link Integer} representing the dice rolls of the attacker, sorted in descending order.
-     * @param defenderRolls An array of {@link Integer} representing the dice rolls of the defender, sorted in descending order.
+     * @param comparedDice The number of pairs of dice to compare, i.e. the lesser of the number of dice rolled by the attacker and the defender.
      */
-    private void resolveDiceRolls(Country from, Country to, int numberOfUnits, Integer[] attackerRolls, Integer[] defenderRolls) {
+    private void resolveDiceRolls(Country from, Country to, int numberOfUnits, int comparedDice) {
         int attackerLossesUnits = 0, defenderLossesUnits = 0;
-        for (int i = 0; i < Math.min(attackerRolls.length, defenderRolls.length); i++) {
+        for (int i = 0; i < comparedDice; i++) {
             if (attackerRolls[i] > defenderRolls[i]) {
                 defenderLossesUnits++;
             } else {
@@ -782,7 +1171,7 @@ public class RiskAdministration implements Serializable {
             throw new IllegalArgumentException("Country has no units to defend.");
         }
 
-        defendingCountry.removeUnits(numberOfUnits);
+        removeUnits(defendingCountry, numberOfUnits);
     }
 
     /**
@@ -876,6 +1265,7 @@ public class RiskAdministration implements Serializable {
     /**
      * Validates if two countries are neighboring.
      * This method checks if the country specified as {@code from} has the country specified as {@code to} in its list of neighbors.
+     * The check is answered by the {@link WorldGraph} of the map with a single bit test; only countries that were not loaded from the map fall back to searching the list.
      * It is a crucial part of the game logic that ensures actions such as attacks are only possible between neighboring countries.
      * If the countries are not neighbors, a {@link NotANeighbourCountry} exception is thrown, indicating the action cannot proceed.
      *
@@ -885,7 +1275,10 @@ public class RiskAdministration implements Serializable {
      * @throws NotANeighbourCountry If the countries are not neighbors, preventing the action from proceeding.
      */
     public boolean validateNeighboring(Country from, Country to) throws NotANeighbourCountry {
-        if (!from.getNeighbors().contains(to)) {
+        boolean neighboring = worldGraph.contains(from.getId()) && worldGraph.contains(to.getId())
+                ? worldGraph.isAdjacent(from.getId(), to.getId())
+                : from.getNeighbors().contains(to);
+        if (!neighboring) {
             throw new NotANeighbourCountry(to.getName());
         }
         return true;
@@ -937,8 +1330,8 @@ public class RiskAdministration implements Serializable {
      * @param defenderLossesUnits The number of units lost by the defender during the attack.
      */
     public void resolveSuccessfulAttack(Country attackerCountry, Country defenderCountry, int attackerLossesUnits, int defenderLossesUnits){
-        defenderCountry.removeUnits(defenderLossesUnits);
-        attackerCountry.removeUnits(attackerLossesUnits);
+        removeUnits(defenderCountry, defenderLossesUnits);
+        removeUnits(attackerCountry, attackerLossesUnits);
         drawUnitCard(attackerCountry.getPlayer());
     }
 
@@ -956,13 +1349,14 @@ public class RiskAdministration implements Serializable {
      * @param defenderLossesUnits The number of units lost by the defender during the attack, which is typically zero in a failed attack scenario.
      */
     public void resolveFailedAttack(Country attackerCountry, Country defenderCountry, int attackerLossesUnits, int defenderLossesUnits) {
-        attackerCountry.removeUnits(attackerLossesUnits);
+        removeUnits(attackerCountry, attackerLossesUnits);
     }
 
     /**
      * Conquers a territory after a successful attack.
      * This method is invoked when an attacking country successfully defeats the defending country in battle, reducing the defender's units to zero.
      * It transfers ownership of the defender's territory to the attacker and moves a specified number of units from the attacking country to the newly conquered territory.
+     * The change of owner is published on the {@link DomainEventBus}, where the {@link ContinentOwnershipTracker} updates the continents of both players.
      * The method ensures that the game state accurately reflects the change in territory control following a successful attack.
      * <p>
      * Note: This method assumes that the defender's units are already reduced to zero and does not perform any battle logic or unit reduction itself.
@@ -976,14 +1370,52 @@ public class RiskAdministration implements Serializable {
             //The territory of the defender is conquered
             //The attacker moves the units to the conquered territory
             int unitsAttacker = attackerCountry.getUnits() - numberOfUnits;
-            defenderCountry.getPlayer().removeCountry(defenderCountry);
+            Player defender = defenderCountry.getPlayer();
+            defender.removeCountry(defenderCountry);
             defenderCountry.setPlayer(attackerCountry.getPlayer());
             attackerCountry.getPlayer().addCountry(defenderCountry);
-            defenderCountry.setUnits(numberOfUnits);
-            attackerCountry.setUnits(unitsAttacker);
+            eventBus.countryCaptured(defenderCountry, defender, attackerCountry.getPlayer());
+            setUnits(defenderCountry, numberOfUnits);
+            setUnits(attackerCountry, unitsAttacker);
         }
     }
 
+    /**
+     * Adds units to a country and publishes the change on the {@link DomainEventBus}.
+     *
+     * @param country The country receiving the units.
+     * @param units The number of units to add.
+     */
+    private void addUnits(Country country, int units) {
+        int oldUnits = country.getUnits();
+        country.addUnits(units);
+        eventBus.unitsChanged(country, oldUnits);
+    }
+
+    /**
+     * Removes units from a country and publishes the change on the {@link DomainEventBus}.
+     *
+     * @param country The country losing the units.
+     * @param units The number of units to remove.
+     */
+    private void removeUnits(Country country, int units) {
+        int oldUnits = country.getUnits();
+        country.removeUnits(units);
+        eventBus.unitsChanged(country, oldUnits);
+    }
+
+    /**
+     * Sets the units of a country and publishes the change on the {@link DomainEventBus}.
+     *
+     * @param country The country.
+     * @param units The new number of units.
+     */
+    private void setUnits(Country country, int units) {
+        int oldUnits = country.getUnits();
+        country.setUnits(units);
+        eventBus.unitsChanged(country, oldUnits);
+    }
+
     /**
      * Moves units from one country to another within the same player's control.
      * This method facilitates the strategic relocation of units between two countries owned by the same player. It ensures that the move is valid by checking:
@@ -1007,9 +1439,12 @@ public class RiskAdministration implements Serializable {
                 if (units > startingUnitsForCountry) {
                     return "Cannot move more units than the starting units of " + fromCountry.getName();
                 }
-                fromCountry.removeUnits(units);
-                toCountry.addUnits(units);
+                removeUnits(fromCountry, units);
+                addUnits(toCountry, units);
                 startingUnits.put(fromCountry.getName(), startingUnitsForCountry - units); // Update the starting units
+                if (journal != null){
+                    journal.moveUnits(player.getId(), fromCountry.getId(), toCountry.getId(), units);
+                }
                 return "Player " + player.getName() + " has moved " + units + " units from " + fromCountry.getName() + " to " + toCountry.getName();
             } else {
                 return "Not enough units in " + fromCountry.getName() + " or cannot leave country empty";
@@ -1054,7 +1489,7 @@ public class RiskAdministration implements Serializable {
      */
     public void drawMissionToPlayer() {
         for (Player player : players) {
-            int randomIndex = (int) (Math.random() * missionCards.size());
+            int randomIndex = dice.nextInt(missionCards.size());
             player.setMissionCard(missionCards.get(randomIndex));
             missionCards.get(randomIndex).setPlayer(player);
             missionCards.remove(randomIndex);
@@ -1102,6 +1537,9 @@ public class RiskAdministration implements Serializable {
         for (Country country : countries) {
             startingUnits.put(country.getName(), country.getUnits());
         }
+        if (journal != null){
+            journal.distributeStartingUnits();
+        }
     }
 
     /**
@@ -1120,6 +1558,7 @@ public class RiskAdministration implements Serializable {
      * Checks if a player has completed their mission and won the game.
      * This method evaluates the mission completion status of the specified player by checking if the player's assigned mission card's completion criteria have been met.
      * If the player has completed their mission, a congratulatory message is returned, indicating the player has won the game.
+     * The check reads the counters of the {@link MissionEngine}, which are updated on every capture and change of units, so it takes constant time and can be done after every battle.
      * Otherwise, an empty string is returned, indicating the player has not yet completed their mission.
      * <p>
      * This method is crucial for determining the end of the game and identifying the winner based on mission completion.
@@ -1128,12 +1567,28 @@ public class RiskAdministration implements Serializable {
      * @return A string message indicating the player has won the game if their mission is completed; otherwise, an empty string.
      */
     public String checkWinningCondition(Player player) {
-        if (player.getMissionCard().isDone()) {
+        if (missionEngine.isMissionDone(player)) {
             return ("Player " + player.getName() + " has completed their mission and won the game");
         }
         return "";
     }
 
+    /**
+     * Checks if the game is over, i.e. a single player owns every country. Missions are not checked: the server does not
+     * end a game on {@link #checkWinningCondition(Player)}, and a mission to eliminate a color nobody plays counts as done
+     * from the start of the game.
+     *
+     * @return true if the game has a winner, false otherwise.
+     */
+    public boolean isGameOver() {
+        for (Player player : players) {
+            if (player.getCountries().size() == countries.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Validates the combination of unit cards a player wishes to turn in.
      * This method checks if the three unit cards provided by the player meet the game's criteria for turning in unit cards. The criteria are as follows:
@@ -1157,23 +1612,35 @@ public class RiskAdministration implements Serializable {
         }
 
         if (card1.getType().equals(card2.getType()) && card1.getType().equals(card3.getType())) {
-            player.removeUnitCards(card1, card2, card3);
-            returnUnitCard(card1, card2, card3);
-            return turnInUnits(player);
+            return tradeUnitCards(player, card1, card2, card3);
         } else if (!card1.getType().equals(card2.getType()) && !card2.getType().equals(card3.getType()) && !card1.getType().equals(card3.getType())) {
-            player.removeUnitCards(card1, card2, card3);
-            returnUnitCard(card1, card2, card3);
-            return turnInUnits(player);
+            return tradeUnitCards(player, card1, card2, card3);
         } else if (card1.getType().equals("Joker") || card2.getType().equals("Joker") || card3.getType().equals("Joker")) {
             // If any of the cards is a "Joker", it's considered a match
-            player.removeUnitCards(card1, card2, card3);
-            returnUnitCard(card1, card2, card3);
-            return turnInUnits(player);
+            return tradeUnitCards(player, card1, card2, card3);
         }
 
         return "The unit cards do not match";
     }
 
+    /**
+     * Turns in three unit cards that match, see {@link #validateUnitCards(Player, UnitCard, UnitCard, UnitCard)}.
+     *
+     * @param player The player turning in the cards.
+     * @param card1 The first card.
+     * @param card2 The second card.
+     * @param card3 The third card.
+     * @return The result of {@link #turnInUnits(Player)}.
+     */
+    private String tradeUnitCards(Player player, UnitCard card1, UnitCard card2, UnitCard card3) {
+        if (journal != null){
+            journal.tradeUnitCards(player.getId(), card1, card2, card3);
+        }
+        player.removeUnitCards(card1, card2, card3);
+        returnUnitCard(card1, card2, card3);
+        return turnInUnits(player);
+    }
+
     /**
      * Processes the turning in of unit cards by a player and assigns additional units accordingly.
      * This method calculates the number of units a player receives when they turn in unit cards based on the number of times unit cards have been turned in previously in the game.
@@ -1216,16 +1683,31 @@ public class RiskAdministration implements Serializable {
      * It ensures that each player receives a card that is randomly selected from the current pool of unit cards, simulating the drawing of a card in a board game.
      * <p>
      * This method is crucial for the game mechanics, allowing players to acquire new unit cards that can be used for various strategic advantages during the game.
+     * The card drawn is published on the {@link DomainEventBus}. If all cards are in the hands of the players, no card is drawn.
+     * While a journal is replayed, no card is drawn here; the journal replays the card that was drawn.
      *
      * @param player The {@link Player} object representing the player who is drawing a unit card.
      */
     public void drawUnitCard(Player player) {
-        if (!player.getHasConquered()) {
-            int randomIndex = (int) (Math.random() * unitCards.size() - 1);
-            player.addUnitCard(unitCards.get(randomIndex));
-            unitCards.remove(randomIndex);
-            player.setHasConquered(true);              //Allows only one unit card to be drawn per round
+        if (!replaying && !player.getHasConquered() && !unitCards.isEmpty()) {
+            drawUnitCard(player, dice.nextInt(unitCards.size()));
+        }
+    }
+
+    /**
+     * Draws the unit card at the given index of the deck for a player, see {@link #drawUnitCard(Player)}.
+     *
+     * @param player The player drawing the card.
+     * @param cardIndex The index of the card in the deck.
+     */
+    void drawUnitCard(Player player, int cardIndex) {
+        UnitCard card = unitCards.remove(cardIndex);
+        player.addUnitCard(card);
+        player.setHasConquered(true);              //Allows only one unit card to be drawn per round
+        if (journal != null){
+            journal.drawUnitCard(player.getId(), cardIndex, dice.getDraws());
         }
+        eventBus.unitCardDrawn(player, card);
     }
 
     /**
@@ -1239,7 +1721,9 @@ public class RiskAdministration implements Serializable {
      * @param filename The name of the file where the player information will be stored. This should include the path if the file is not in the default directory.
      * @return {@code true} if the player information was successfully saved; {@code false} otherwise.
      * @throws Exception If there are any issues encountered during the file writing process.
+     * @deprecated Use {@link #saveGame(String)}, which saves the whole game instead of the players only.
      */
+    @Deprecated
     public boolean savePlayerInformation(List<Player> players, String filename) throws Exception {
         return pm.speicherPlayer(players, filename);
     }
@@ -1255,7 +1739,9 @@ public class RiskAdministration implements Serializable {
      * @param filename The path and name of the file from which player information is to be loaded.
      * @return A list of {@link Player} objects representing the players whose information was stored in the file. This list may be empty if the file does not exist or is empty.
      * @throws Exception If there are any issues encountered during the file reading or deserialization process, excluding {@link IOException} which is caught internally.
+     * @deprecated Use {@link #loadGame(String)}; the players of the text format come without their cards.
      */
+    @Deprecated
     public List<Player> getPlayerInformation(String filename) throws Exception {
         List<Player> players = new ArrayList<>();
         try {
@@ -0,0 +1,408 @@
+package risk.server.domain;
+
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.entities.UnitCard;
+import risk.common.entities.missions.MissionCard;
+import risk.common.protocol.Varint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Saves the complete state of a {@link RiskAdministration} in a compact binary format and loads it again.
+ * <p>
+ * A save game holds everything needed to continue the game:
+ * <pre>
+ *     header:  magic "RSKG" | version | payload length | CRC32C of the payload     (4 bytes each)
+ *     payload: map files | number of countries and continents | dice seed | dice position | turn index | turned in unit cards
+ *              | players | units of every country | mission and unit card decks | available countries and colors
+ *              | starting units
+ * </pre>
+ * Numbers in the payload are varint encoded, see {@link Varint}, and strings are UTF-8 with their length in front.
+ * Each player is saved with its name, ID, color, units, flags, mission card, unit cards and the IDs of its countries
+ * in the order the player gained them. A mission card is identified by its description, which is unique among the
+ * cards of a game. Continent ownership is not saved: loading restores the owner of every country through the
+ * {@link DomainEventBus}, so the {@link ContinentOwnershipTracker} and the {@link MissionEngine} of the loaded game
+ * count the board up again.
+ * <p>
+ * Loading checks the magic, the version and the checksum before anything is decoded, and the map of the game against
+ * the map files, so a damaged or foreign file is rejected with an {@link IOException} instead of producing a broken
+ * game. The dice of a loaded game are created from the saved seed and moved forward to the saved position, see
+ * {@link risk.common.entities.DiceEngine#getDraws()}, so the game goes on with the rolls and cards it would have drawn
+ * next.
+ * <p>
+ * Files are written through a {@link FileChannel} into a temporary file next to the target, which is then moved over
+ * the target, so a crash while saving leaves the previous save game intact.
+ * <p>
+ * A game is always encoded from a {@link GameSnapshot}. Saving a live game captures one first; a caller that must not
+ * hold up its game captures the snapshot on the game's thread and passes it to {@link #write(GameSnapshot, Path)} on
+ * another one.
+ */
+public final class SaveGameFormat {
+    /** The first four bytes of every save game, "RSKG". */
+    public static final int MAGIC = 0x52534B47;
+    /** The version of the format written by this class. */
+    public static final int VERSION = 1;
+    /** The number of bytes of the header in front of the payload. */
+    public static final int HEADER_LENGTH = 16;
+    /** The largest payload accepted when loading. */
+    public static final int MAX_PAYLOAD_LENGTH = 64 * 1024 * 1024;
+
+    private static final int ALIVE = 1;
+    private static final int HAS_CONQUERED = 2;
+
+    private SaveGameFormat(){
+    }
+
+    /**
+     * Saves a game to a file, replacing the file if it exists.
+     *
+     * @param game The game to save.
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(RiskAdministration game, Path path) throws IOException {
+        write(GameSnapshot.capture(game), path);
+    }
+
+    /**
+     * Saves a snapshot of a game to a file, replacing the file if it exists. Only reads the snapshot, so it may run on any
+     * thread while the game goes on.
+     *
+     * @param snapshot The snapshot to save.
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(GameSnapshot snapshot, Path path) throws IOException {
+        ByteBuffer image = encode(snapshot);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (image.hasRemaining()){
+                channel.write(image);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a game from a file.
+     *
+     * @param path The file to read.
+     * @return A new game in the saved state.
+     * @throws IOException If the file cannot be read or is not a valid save game.
+     */
+    public static RiskAdministration read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH || size > HEADER_LENGTH + (long) MAX_PAYLOAD_LENGTH){
+                throw new IOException("Not a save game, wrong size: " + size + " bytes.");
+            }
+            ByteBuffer image = ByteBuffer.allocate((int) size);
+            while (image.hasRemaining()){
+                if (channel.read(image) < 0){
+                    throw new IOException("Save game ended after " + image.position() + " of " + size + " bytes.");
+                }
+            }
+            return decode(image.flip());
+        }
+    }
+
+    /**
+     * Encodes a game into a save game held in memory, header included.
+     *
+     * @param game The game to encode.
+     * @return The save game, positioned at its start.
+     */
+    public static ByteBuffer encode(RiskAdministration game){
+        return encode(GameSnapshot.capture(game));
+    }
+
+    /**
+     * Encodes a snapshot of a game into a save game held in memory, header included.
+     *
+     * @param snapshot The snapshot to encode.
+     * @return The save game, positioned at its start.
+     */
+    public static ByteBuffer encode(GameSnapshot snapshot){
+        Encoder out = new Encoder(256 + snapshot.units.length * 8);
+        out.putString(snapshot.countriesFile);
+        out.putString(snapshot.continentsFile);
+        out.putInt(snapshot.units.length);
+        out.putInt(snapshot.continentCount);
+        out.putLong(snapshot.diceSeed);
+        out.putLong(snapshot.diceDraws);
+        out.putInt(snapshot.playerTurnIndex);
+        out.putInt(snapshot.turnedInUnitCards);
+
+        out.putInt(snapshot.players.length);
+        for (GameSnapshot.PlayerState player : snapshot.players){
+            out.putString(player.name);
+            out.putInt(player.id);
+            out.putString(player.color);
+            out.putInt(player.units);
+            out.putInt(player.numberOfCountries);
+            out.putInt((player.alive ? ALIVE : 0) | (player.hasConquered ? HAS_CONQUERED : 0));
+            out.putString(player.mission);
+            out.putStrings(player.unitCards);
+            out.putInts(player.countries);
+        }
+        for (int units : snapshot.units){
+            out.putInt(units);
+        }
+
+        out.putStrings(snapshot.missionCards);
+        out.putStrings(snapshot.unitCards);
+        out.putInts(snapshot.availableCountries);
+        out.putStrings(snapshot.availableColors);
+        out.putInt(snapshot.startingUnitsCount);
+        for (int id = 0; id < snapshot.startingUnits.length; id++){
+            if (snapshot.startingUnits[id] >= 0){
+                out.putInt(id);
+                out.putInt(snapshot.startingUnits[id]);
+            }
+        }
+        return out.finish();
+    }
+
+    /**
+     * Decodes a save game held in memory into a new game.
+     *
+     * @param image The save game, header included, from its position to its limit.
+     * @return A new game in the saved state.
+     * @throws IOException If the data is not a valid save game.
+     */
+    public static RiskAdministration decode(ByteBuffer image) throws IOException {
+        if (image.remaining() < HEADER_LENGTH || image.getInt() != MAGIC){
+            throw new IOException("Not a save game.");
+        }
+        int version = image.getInt();
+        if (version != VERSION){
+            throw new IOException("Unsupported save game version " + version + ", expected " + VERSION + ".");
+        }
+        int length = image.getInt();
+        int checksum = image.getInt();
+        if (length < 0 || length != image.remaining()){
+            throw new IOException("Save game is truncated: " + image.remaining() + " of " + length + " bytes.");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(image.duplicate());
+        if ((int) crc.getValue() != checksum){
+            throw new IOException("Save game is damaged, wrong checksum.");
+        }
+        try {
+            return decodePayload(image);
+        } catch (RuntimeException e) {          //Buffer underflows and bad indexes of a file with a valid checksum
+            throw new IOException("Save game could not be decoded: " + e, e);
+        }
+    }
+
+    /**
+     * Decodes the payload of a save game whose header has been checked.
+     *
+     * @param in The payload.
+     * @return A new game in the saved state.
+     * @throws IOException If the save game does not match its map files.
+     */
+    private static RiskAdministration decodePayload(ByteBuffer in) throws IOException {
+        String countriesFile = getString(in);
+        String continentsFile = getString(in);
+        int countryCount = Varint.getVarint(in);
+        int continentCount = Varint.getVarint(in);
+        long diceSeed = Varint.getVarlong(in);
+        long diceDraws = Varint.getVarlong(in);
+        RiskAdministration game = new RiskAdministration(countriesFile, continentsFile, diceSeed);
+        if (game.getCountries().size() != countryCount || game.getContinents().size() != continentCount){
+            throw new IOException("Save game does not match the map " + countriesFile + ": " + countryCount + " countries and "
+                    + continentCount + " continents saved, " + game.getCountries().size() + " and " + game.getContinents().size() + " loaded.");
+        }
+        int playerTurnIndex = Varint.getVarint(in);
+        game.setTurnedInUnitCards(Varint.getVarint(in));
+
+        Map<String, MissionCard> missionsByDescription = new HashMap<>();
+        for (MissionCard missionCard : game.missionCards){
+            missionsByDescription.put(missionCard.getDescription(), missionCard);
+        }
+        List<Country> countries = game.getCountries();
+        int playerCount = Varint.getVarint(in);
+        for (int i = 0; i < playerCount; i++){
+            String name = getString(in);
+            int id = Varint.getVarint(in);
+            String color = getString(in);
+            Player player = game.addPlayer(name, id, color);
+            player.setNumberOfUnits(Varint.getVarint(in));
+            int numberOfCountries = Varint.getVarint(in);
+            int flags = Varint.getVarint(in);
+            player.setAlive((flags & ALIVE) != 0);
+            player.setHasConquered((flags & HAS_CONQUERED) != 0);
+            String mission = getString(in);
+            if (!mission.isEmpty()){
+                MissionCard missionCard = missionsByDescription.get(mission);
+                if (missionCard == null){
+                    throw new IOException("Unknown mission card: " + mission);
+                }
+                player.setMissionCard(missionCard);
+                missionCard.setPlayer(player);
+            }
+            for (UnitCard unitCard : getUnitCards(in)){
+                player.addUnitCard(unitCard);
+            }
+            int ownedCountries = Varint.getVarint(in);
+            for (int j = 0; j < ownedCountries; j++){
+                game.restoreOwner(countries.get(Varint.getVarint(in)), player);
+            }
+            player.setNumberOfCountries(numberOfCountries);
+        }
+        for (Country country : countries){
+            game.restoreUnits(country, Varint.getVarint(in));
+        }
+        game.setPlayerTurnIndex(playerTurnIndex);
+
+        int missionCount = Varint.getVarint(in);
+        List<MissionCard> missionCards = new ArrayList<>(missionCount);
+        for (int i = 0; i < missionCount; i++){
+            String description = getString(in);
+            MissionCard missionCard = missionsByDescription.get(description);
+            if (missionCard == null){
+                throw new IOException("Unknown mission card: " + description);
+            }
+            missionCards.add(missionCard);
+        }
+        game.missionCards = missionCards;
+        game.unitCards = getUnitCards(in);
+        List<Country> availableCountries = game.getAvailableCountries();
+        availableCountries.clear();
+        int availableCount = Varint.getVarint(in);
+        for (int i = 0; i < availableCount; i++){
+            availableCountries.add(countries.get(Varint.getVarint(in)));
+        }
+        List<String> availableColors = game.getAvailableColorList();
+        availableColors.clear();
+        int colorCount = Varint.getVarint(in);
+        for (int i = 0; i < colorCount; i++){
+            availableColors.add(getString(in));
+        }
+        Map<String, Integer> startingUnits = game.getStartingUnits();
+        int startingCount = Varint.getVarint(in);
+        for (int i = 0; i < startingCount; i++){
+            String countryName = countries.get(Varint.getVarint(in)).getName();
+            startingUnits.put(countryName, Varint.getVarint(in));
+        }
+        if (in.hasRemaining()){
+            throw new IOException("Save game has " + in.remaining() + " unexpected bytes at its end.");
+        }
+        game.restoreDiceDraws(diceDraws);
+        return game;
+    }
+
+    /**
+     * Reads a string written by {@link Encoder#putString(String)}.
+     *
+     * @param in The buffer to read from.
+     * @return The string.
+     */
+    private static String getString(ByteBuffer in){
+        byte[] bytes = new byte[Varint.getVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a list of unit cards written by {@link Encoder#putStrings(String[])}.
+     *
+     * @param in The buffer to read from.
+     * @return The unit cards, as new objects.
+     */
+    private static List<UnitCard> getUnitCards(ByteBuffer in){
+        int count = Varint.getVarint(in);
+        List<UnitCard> unitCards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            unitCards.add(new UnitCard(getString(in)));
+        }
+        return unitCards;
+    }
+
+    /**
+     * Writes the payload of a save game into a buffer that grows as needed.
+     */
+    private static final class Encoder {
+        private ByteBuffer buffer;
+
+        Encoder(int capacity){
+            buffer = ByteBuffer.allocate(HEADER_LENGTH + capacity);
+            buffer.position(HEADER_LENGTH);
+        }
+
+        /**
+         * Makes sure the buffer has room for a number of bytes, doubling its size if necessary.
+         *
+         * @param bytes The number of bytes to be written next.
+         */
+        private void ensure(int bytes){
+            if (buffer.remaining() < bytes){
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        void putInt(int value){
+            ensure(Varint.MAX_INT_BYTES);
+            Varint.putVarint(buffer, value);
+        }
+
+        void putLong(long value){
+            ensure(Varint.MAX_LONG_BYTES);
+            Varint.putVarlong(buffer, value);
+        }
+
+        void putString(String value){
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void putStrings(String[] values){
+            putInt(values.length);
+            for (String value : values){
+                putString(value);
+            }
+        }
+
+        void putInts(int[] values){
+            putInt(values.length);
+            for (int value : values){
+                putInt(value);
+            }
+        }
+
+        /**
+         * Writes the header in front of the payload.
+         *
+         * @return The complete save game, positioned at its start.
+         */
+        ByteBuffer finish(){
+            buffer.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(HEADER_LENGTH, buffer.limit() - HEADER_LENGTH));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, buffer.limit() - HEADER_LENGTH);
+            buffer.putInt(12, (int) crc.getValue());
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package risk.server.network;
+
+/**
+ * Lists what the server does when the outbound queue of a client is full, i.e. when the client reads its messages
+ * more slowly than the game produces them. Only board updates are ever dropped. Replies and control frames are kept;
+ * if they alone fill the queue, the client is disconnected, as dropping them would leave the client waiting for a
+ * reply forever.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Keeps only the newest board update of the client and drops the older ones. The client notices the versions it
+     * missed when the newest update is a delta and requests the complete board itself.
+     */
+    COALESCE,
+    /**
+     * Drops all queued board updates of the client and queues a single resync marker instead, for which the complete
+     * board is sent once the client catches up.
+     */
+    DROP_AND_RESYNC,
+    /** Disconnects the client. */
+    DISCONNECT;
+
+    /**
+     * Resolves a policy from its name as given in the configuration, ignoring case.
+     *
+     * @param name The name of the policy, e.g. "coalesce".
+     * @return The matching BackpressurePolicy.
+     * @throws IllegalArgumentException If no policy with the given name exists.
+     */
+    public static BackpressurePolicy fromName(String name){
+        return valueOf(name.trim().toUpperCase());
+    }
+}
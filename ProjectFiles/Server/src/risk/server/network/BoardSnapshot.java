@@ -0,0 +1,121 @@
+package risk.server.network;
+
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.server.domain.DomainEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Remembers the owner and unit count of every country as they were last sent to the clients of a room.
+ * <p>
+ * The map topology never changes during a game, so after the initial graph only owners and unit counts have to be
+ * sent. Comparing the current board against this snapshot yields the countries that changed since the last push,
+ * which is all a client needs to bring its copy of the board up to date. The snapshot is indexed by country ID and
+ * stores owners by player ID, so the comparison does not touch any names.
+ * <p>
+ * The snapshot listens to the domain events of the game and marks the countries whose owner or units changed, so
+ * only those have to be compared instead of the whole board. The events are published on the room's command loop,
+ * the same thread the deltas are sent from.
+ */
+public class BoardSnapshot implements DomainEventListener {
+    private static final int NO_OWNER = -1;
+
+    private int[] owners = new int[0];
+    private int[] units = new int[0];
+    private boolean[] known = new boolean[0];
+    private final BitSet dirty = new BitSet();
+    private boolean complete = false;
+    private long version = 0;
+
+    @Override
+    public void countryCaptured(Country country, Player oldOwner, Player newOwner){
+        markDirty(country);
+    }
+
+    @Override
+    public void unitsChanged(Country country, int oldUnits){
+        markDirty(country);
+    }
+
+    /**
+     * Marks a country as possibly changed since the last push.
+     *
+     * @param country The country.
+     */
+    private void markDirty(Country country){
+        if (country.getId() >= 0){
+            dirty.set(country.getId());
+        } else {
+            complete = false;                               //Not from the map, compare everything next time
+        }
+    }
+
+    /**
+     * Determines the countries whose owner or unit count differs from the snapshot and records their current values.
+     * On the first call every country is compared and reported as changed; afterwards only the countries marked by
+     * the domain events since the last call are compared.
+     *
+     * @param countries All countries of the board.
+     * @return The IDs of the countries that changed since the last call.
+     */
+    public List<Integer> collectChanges(List<Country> countries){
+        if (known.length < countries.size()){
+            owners = Arrays.copyOf(owners, countries.size());
+            units = Arrays.copyOf(units, countries.size());
+            known = Arrays.copyOf(known, countries.size());
+            complete = false;
+        }
+        List<Integer> changed = new ArrayList<>();
+        if (!complete){
+            for (Country country : countries){
+                compare(country, changed);
+            }
+            complete = true;
+        } else {
+            for (int id = dirty.nextSetBit(0); id >= 0 && id < countries.size(); id = dirty.nextSetBit(id + 1)){
+                compare(countries.get(id), changed);
+            }
+        }
+        dirty.clear();
+        return changed;
+    }
+
+    /**
+     * Compares a country with the snapshot and records its current values if they differ.
+     *
+     * @param country The country.
+     * @param changed The IDs of the changed countries, the ID of the country is added if it changed.
+     */
+    private void compare(Country country, List<Integer> changed){
+        int id = country.getId();
+        int owner = country.getPlayer() != null ? country.getPlayer().getId() : NO_OWNER;
+        if (!known[id] || units[id] != country.getUnits() || owners[id] != owner){
+            changed.add(id);
+            known[id] = true;
+            owners[id] = owner;
+            units[id] = country.getUnits();
+        }
+    }
+
+    /**
+     * Retrieves the state version of the board last sent to the clients.
+     *
+     * @return The version of the snapshot.
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * Sets the state version of the board last sent to the clients.
+     *
+     * @param version The version of the snapshot.
+     */
+    public void setVersion(long version){
+        this.version = version;
+    }
+}
@@ -1,57 +1,201 @@
 package risk.server.network;
 
+import risk.common.entities.BattleOutcome;
 import risk.common.entities.Continent;
 import risk.common.entities.Country;
 import risk.common.entities.Player;
 import risk.common.entities.UnitCard;
+import risk.common.entities.WorldGraph;
 import risk.common.interfaces.RiskInterface;
+import risk.server.domain.BattleResolver;
 import risk.common.exceptions.*;
+import risk.common.protocol.BinaryFrameReader;
+import risk.common.protocol.FrameCodec;
+import risk.common.protocol.Opcode;
+import risk.common.protocol.Varint;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Handles incoming client requests and manages communication between clients and the game server.
  * Implements the Runnable interface to run in a separate thread for concurrent handling of client requests.
+ * When the server uses the NIO transport, the handler is not run on its own thread; instead the event loop
+ * of its {@link NioConnection} hands every received line to {@link #handleLine(String)}.
+ * <p>
+ * Messages for the client are not written by the thread sending them. They are put into the client's bounded
+ * {@link OutboundQueue} and written by a writer thread of their own, so a slow client cannot stall the players
+ * whose actions are broadcast to it.
+ * <p>
+ * The handler only reads and parses the input of its client. Commands that touch the game are submitted to the
+ * command loop of the client's {@link GameRoom} and run there, one after another with the commands of the other
+ * clients of the room.
+ * <p>
+ * A client may switch its connection to the binary protocol of {@link FrameCodec} by sending
+ * {@link FrameCodec#HANDSHAKE}. Lines of the text protocol then arrive in text frames and are handled as before;
+ * the compact frames for placing and moving units are handled by {@link #handleFrame(byte, ByteBuffer)}.
  */
 public class ClientRequestHandler implements Runnable{
-    private RiskInterface risk;
+    /** Commands that do not touch the game of a room and are therefore handled right away, not by the room. */
+    private static final Set<String> LOBBY_COMMANDS = Set.of("createRoom", "joinRoom", "listRooms", "queueStats");
+
+    private volatile RiskInterface risk;
     private GameServer server;
+    private volatile GameRoom room;
     private boolean stop = false;
     private boolean isRunning;
-    private Player player = null;
+    private volatile Player player = null;
     private UUID clientID;
+    private boolean awaitingReadyPlayerId = false;
 
     private Socket socket;
+    private NioConnection connection;
     private BufferedReader in;
     private PrintWriter out;
+    private OutputStream rawOut;
+    private OutboundQueue outbound;
+    private volatile MessageFrame protocolSwitch;
+    private final AtomicBoolean oddsPending = new AtomicBoolean();    //At most one battleOdds computed per client at a time
+    private GameRoom switchTarget = null;                              //Room being switched to, guarded by this
+    private final List<Runnable> heldCommands = new ArrayList<>();    //Sent during a switch, guarded by this
+    private boolean gone = false;                                      //Disconnected, guarded by this
 
     /**
      * Constructs a ClientRequestHandler2 object.
-     * Initializes the handler with the provided socket, RiskInterface, and GameServer2 instances.
+     * Initializes the handler with the provided socket, the room the client starts in, and the GameServer instance.
      *
      * @param socket The socket connected to the client.
-     * @param risk The RiskInterface instance managing game logic.
-     * @param server The GameServer2 instance handling server operations.
+     * @param room The GameRoom the client is placed in, providing the RiskInterface instance managing game logic.
+     * @param server The GameServer instance handling server operations.
      */
-    public ClientRequestHandler(Socket socket, RiskInterface risk, GameServer server){
-        this.risk =risk;
+    public ClientRequestHandler(Socket socket, GameRoom room, GameServer server){
+        this.room = room;
+        this.risk = room.getRisk();
         this.socket = socket;
         this.server = server;
         this.isRunning = false;
         this.clientID = UUID.randomUUID();
         try{
             in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream(), true);
+            rawOut = socket.getOutputStream();
+            out = new PrintWriter(rawOut, false);        //Flushed once per message by the writer
         }catch (IOException e){
             e.printStackTrace();
         }finally {
             //stopListening();
         }
+        startWriter();
+    }
+
+    /**
+     * Constructs a ClientRequestHandler for a client connected through the NIO transport.
+     * Outgoing messages are written into the connection's write buffer and sent by its event loop.
+     *
+     * @param connection The non-blocking connection to the client.
+     * @param room The GameRoom the client is placed in, providing the RiskInterface instance managing game logic.
+     * @param server The GameServer instance handling server operations.
+     */
+    public ClientRequestHandler(NioConnection connection, GameRoom room, GameServer server){
+        this.room = room;
+        this.risk = room.getRisk();
+        this.connection = connection;
+        this.server = server;
+        this.isRunning = false;
+        this.clientID = UUID.randomUUID();
+        this.out = new PrintWriter(connection.getWriter(), false);
+        startWriter();
+    }
+
+    /**
+     * Creates the outbound queue of this client and starts the virtual thread writing its messages.
+     */
+    private void startWriter(){
+        this.outbound = new OutboundQueue(server.getOutboundCapacity(), server.getBackpressurePolicy());
+        Thread.ofVirtual().name("writer-" + clientID).start(this::writeMessages);
+    }
+
+    /**
+     * Writes the queued messages to the client until the queue is closed.
+     * Each message is written with a single flush. For the marker of dropped board updates the room is asked to
+     * send the complete current board. After the answer to a successful protocol handshake, messages are written as
+     * binary frames.
+     */
+    private void writeMessages(){
+        boolean binary = false;
+        try {
+            MessageFrame frame;
+            while ((frame = outbound.take()) != null){
+                if (frame == OutboundQueue.RESYNC){
+                    requestResync();
+                    continue;
+                }
+                if (connection != null){
+                    connection.awaitWritable();
+                }
+                if (binary){
+                    writeBinary(frame.getBinary());
+                } else {
+                    out.print(frame.getText());
+                    out.flush();
+                }
+                if (frame == protocolSwitch){
+                    binary = true;              //The handshake answer is the last message sent as text
+                }
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Writer of client " + clientID + " interrupted");
+        } catch (IOException e) {
+            System.out.println("Could not write to client " + clientID + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes an encoded binary frame to the client.
+     *
+     * @param frame The encoded frame.
+     * @throws IOException If writing to the socket fails.
+     */
+    private void writeBinary(ByteBuffer frame) throws IOException {
+        if (connection != null){
+            connection.send(frame);
+        } else {
+            rawOut.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            rawOut.flush();
+        }
+    }
+
+    /**
+     * Asks the room to send the complete current board to a client whose board updates were dropped. The board belongs
+     * to the room's command loop, so it is created there and queued like any other board update; the writer does not
+     * wait for it. Nothing is sent if the game has not started yet.
+     */
+    private void requestResync(){
+        submit(() -> {
+            if (room.isStarted()){
+                sendCountryData(room.getStateVersion());
+            }
+        });
+    }
+
+    /**
+     * Retrieves the queue of the messages waiting to be written to this client, e.g. to read its metrics.
+     *
+     * @return The OutboundQueue of this client.
+     */
+    public OutboundQueue getOutboundQueue(){
+        return outbound;
     }
 
     /**
@@ -63,6 +207,15 @@ public class ClientRequestHandler implements Runnable{
         return clientID;
     }
 
+    /**
+     * Retrieves the room this client is currently connected to.
+     *
+     * @return The GameRoom of the client.
+     */
+    public GameRoom getRoom(){
+        return room;
+    }
+
     /**
      * Retrieves the Player associated with this client handler.
      *
@@ -74,13 +227,17 @@ public class ClientRequestHandler implements Runnable{
 
     /**
      * Stops listening to client requests and closes associated resources.
+     * The socket is closed first, so that a thread blocked in {@code readLine()} is released
+     * before the reader itself is closed.
      */
     public void stopListening(){
         isRunning = false;
+        outbound.close();
         try{
+            if(socket != null) socket.close();
+            if(connection != null) connection.close();
             if (in != null) in.close();
             if(out != null) out.close();
-            if(socket != null) socket.close();
         }catch (IOException e){
             e.printStackTrace();
         }
@@ -99,21 +256,149 @@ public class ClientRequestHandler implements Runnable{
         try{
             String message ;
             while ((message = in.readLine()) != null) {
-                if(message.equals("disconnect")){
-                    System.out.println("Client disconnected");
-                    server.removeClient(this);
+                if (!handleLine(message)) {
                     break;
                 }
-                System.out.println("From Client :" + message);
-                handleClientMessage(message);
             }
         }catch (IOException e){
             e.printStackTrace();
         }finally {
-            stopListening();
+            disconnected();
+        }
+    }
+
+    /**
+     * Processes a single line received from the client, independent of the transport it arrived on.
+     *
+     * @param message The line received from the client, without its line terminator.
+     * @return false if the client asked to disconnect, true otherwise.
+     */
+    boolean handleLine(String message){
+        if(message.equals("disconnect")){
+            System.out.println("Client disconnected");
+            return false;
+        }
+        String[] tokens = message.split(" ");
+        if (awaitingReadyPlayerId){
+            awaitingReadyPlayerId = false;
+            submit(() -> playerReady(message));
+        } else if (tokens[0].equals("startGame") && tokens.length == 1){
+            awaitingReadyPlayerId = true;          //The player ID follows on the next line
+        } else if (tokens[0].equals("HELLO")){
+            negotiateProtocol(tokens.length > 1 ? tokens[1] : "");
+        } else if (LOBBY_COMMANDS.contains(tokens[0]) && !isSwitching()){
+            handleClientMessage(message);
+        } else {
+            submit(() -> handleClientMessage(message));        //Lobby commands sent during a switch wait for it as well
+        }
+        return true;
+    }
+
+    /**
+     * Answers the protocol handshake of the client, see {@link FrameCodec}.
+     * If the client asks for the binary protocol, its input is read as binary frames from now on and its output
+     * switches right after the answer. The client does not send anything else before it received the answer, so
+     * no text can be left in the input buffers at this point.
+     *
+     * @param protocol The protocol requested by the client.
+     */
+    private void negotiateProtocol(String protocol){
+        if (!protocol.equals("binary") || protocolSwitch != null){
+            sendMessage(FrameCodec.HANDSHAKE_REJECTED);
+            return;
+        }
+        if (connection != null){
+            connection.switchToBinary();
+        } else {
+            try {
+                in = new BufferedReader(new BinaryFrameReader(socket.getInputStream(), this::handleFrame));
+            } catch (IOException e) {
+                e.printStackTrace();
+                sendMessage(FrameCodec.HANDSHAKE_REJECTED);
+                return;
+            }
+        }
+        protocolSwitch = new MessageFrame(FrameCodec.HANDSHAKE_ACCEPTED);
+        sendFrame(protocolSwitch);
+        System.out.println("Client " + clientID + " switched to the binary protocol");
+    }
+
+    /**
+     * Processes a binary frame other than a text frame received from the client.
+     * The IDs are decoded right away, because the payload is only valid during the call; the command itself runs on
+     * the command loop of the room.
+     *
+     * @param opcode The opcode of the frame, see {@link Opcode}.
+     * @param payload The payload of the frame.
+     */
+    void handleFrame(byte opcode, ByteBuffer payload){
+        try {
+            switch (opcode){
+                case Opcode.PLACE_UNITS:
+                    int countryId = Varint.getVarint(payload);
+                    int units = Varint.getVarint(payload);
+                    submit(() -> addPlayerUnitsToCountry(countryId, units));
+                    break;
+
+                case Opcode.MOVE_UNITS:
+                    int fromCountryId = Varint.getVarint(payload);
+                    int toCountryId = Varint.getVarint(payload);
+                    int moved = Varint.getVarint(payload);
+                    submit(() -> moveUnits(fromCountryId, toCountryId, moved));
+                    break;
+
+                case Opcode.BLITZ:
+                    int attackingCountryId = Varint.getVarint(payload);
+                    int attackedCountryId = Varint.getVarint(payload);
+                    int keepUnits = Varint.getVarint(payload);
+                    boolean sampled = payload.get() != 0;
+                    submit(() -> blitz(attackingCountryId, attackedCountryId, keepUnits, sampled));
+                    break;
+
+                default:
+                    sendMessage("command not found");
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            System.out.println("Malformed frame " + opcode + " from client " + clientID);
+        }
+    }
+
+    /**
+     * Submits a command of this client to the command loop of its room. While the client is switching rooms, the
+     * command is held back and submitted to the new room once the switch is done, so the commands of the client run
+     * in the order it sent them and each in the room it was in when the command ran.
+     *
+     * @param command The command to run on the command loop.
+     */
+    private synchronized void submit(Runnable command){
+        if (switchTarget != null){
+            heldCommands.add(command);
+        } else {
+            room.submit(command);
         }
     }
 
+    /**
+     * Checks if this client is switching rooms, see {@link #switchRoom(GameRoom, String)}.
+     *
+     * @return true while the old room has not yet run the commands sent before the switch.
+     */
+    private synchronized boolean isSwitching(){
+        return switchTarget != null;
+    }
+
+    /**
+     * Removes the client from its room and releases the connection once the client is gone.
+     * A client that disconnects while switching rooms leaves the new room when the switch is done.
+     */
+    void disconnected(){
+        synchronized (this){
+            gone = true;
+        }
+        server.removeClient(this);
+        stopListening();
+    }
+
     /**
      * Stops the listener.
      *
@@ -136,13 +421,13 @@ public class ClientRequestHandler implements Runnable{
 
     /**
      * Handles messages received from the client and processes corresponding commands.
+     * Runs on the command loop of the client's room, except for the lobby commands.
      *
      * @param message The message received from the client.
      */
     private  void handleClientMessage(String message) {
         String[] tokens = message.split(" ");
         String command = tokens[0];
-        System.out.println("Command " + command);
 
         switch (command){
             case "addPlayer":
@@ -150,9 +435,9 @@ public class ClientRequestHandler implements Runnable{
                     String name = tokens[1];
                     String color = tokens[2];
                     addPlayer(name, color);
-                    server.broadcastMessage("UPDATE_PLAYERS:");
+                    room.broadcastMessage("UPDATE_PLAYERS:");
                 }else{
-                    out.println("Player not found");
+                    sendMessage("Player not found");
                 }
                 break;
 
@@ -160,9 +445,9 @@ public class ClientRequestHandler implements Runnable{
                 if (tokens.length > 1) {
                     String name = tokens[1];
                     removePlayer(name);
-                    //server.broadcastMessage("playerRemoved");
+                    //room.broadcastMessage("playerRemoved");
                 } else {
-                    out.println("Player not found");
+                    sendMessage("Player not found");
                     System.out.println("Player not found");
                 }
                 break;
@@ -171,38 +456,28 @@ public class ClientRequestHandler implements Runnable{
                 playerList();
                 break;
 
-            case "startGame":
-                try{
-                    int playerId = Integer.parseInt(in.readLine());
-                    server.addIsReady(playerId);
-                    System.out.println(server.isReady(playerId));
-                }catch (Exception e){
-                    System.out.println("Error starting game");
-                }
-                boolean allReady = false;
-                for (int i=0; i<risk.getPlayers().size(); i++){
-                    if (server.getIsReady()[i]){
-                        allReady = true;
-                        System.out.println("Player " + i + " is ready");
-                    }else{
-                        allReady = false;
-                        System.out.println("Player " + i + " is not ready");
-                        break;
-                    }
-                }
-                System.out.println("All ready: " + allReady);
-
-                if (allReady){
-                    risk.startGame();
-                    //out.println("GAME_STARTED:Game started");
-                    server.broadcastMessage("GAME_STARTED:");
-                    sendCountryData();
-                    removeAllPlayersReady();
-                    sendPlayerOnTurn();
-                    allReady = false;
+            case "createRoom":
+                createRoom();
+                break;
+
+            case "joinRoom":
+                if (tokens.length > 1){
+                    joinRoom(tokens[1]);
+                }else{
+                    sendMessage("ROOM_NOT_FOUND:");
                 }
+                break;
 
+            case "listRooms":
+                listRooms();
+                break;
 
+            case "queueStats":
+                sendQueueStats();
+                break;
+
+            case "startGame":
+                playerReady(tokens[1]);                 //Without the ID, handleLine waits for it on the next line
                 break;
 
             case "makeAttack":
@@ -213,7 +488,7 @@ public class ClientRequestHandler implements Runnable{
                     int numberOfUnits  = Integer.parseInt(tokens[4]);
                     try {
                         int defender = risk.getCountryByName(toCountry).getPlayer().getId();
-                        server.broadcastMessage("GETTING_ATTACKED: " + fromCountry + " " + toCountry + " " + attacker + " " + numberOfUnits + " " + defender);
+                        room.broadcastMessage("GETTING_ATTACKED: " + fromCountry + " " + toCountry + " " + attacker + " " + numberOfUnits + " " + defender);
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
@@ -226,8 +501,7 @@ public class ClientRequestHandler implements Runnable{
                 break;
 
             case "sendCountryData":
-                System.out.println("Sending country data");
-                sendCountryData();
+                sendBoard();
                 break;
 
             case "sendMissionCard":
@@ -241,47 +515,249 @@ public class ClientRequestHandler implements Runnable{
             case "addPlayerUnitsPerRound":
                 if (this.player.getName().equals(risk.getPlayerOnTurn().getName())) {
                     risk.addPlayerUnitsPerRound(risk.getPlayerOnTurn());
-                    out.println("ADD_PLAYER_UNITS:");
-                    out.println(risk.getPlayerOnTurn().getNumberOfUnits());
+                    sendFrame(new MessageFrame("ADD_PLAYER_UNITS:").add(risk.getPlayerOnTurn().getNumberOfUnits()));
                 }
-                System.out.println(risk.getPlayerOnTurn().getNumberOfUnits());
                 break;
 
             case "addPlayerUnitsToCountry":
                 try {
-                    risk.addPlayerUnitsToCountry(tokens[1], tokens[2], Integer.parseInt(tokens[3]));
-                    risk.distributeStartingUnits();
-                    out.println("ADD_PLAYER_UNITS_TO_COUNTRY: Success" + " " + risk.getPlayerOnTurn().getNumberOfUnits());
-                    Thread.sleep(1000);
-                    sendCountryData();
+                    addPlayerUnitsToCountry(tokens[1], tokens[2], Integer.parseInt(tokens[3]));
                 } catch (Exception e) {
-                    out.println("ADD_PLAYER_UNITS_TO_COUNTRY: An error occurred");
+                    e.printStackTrace();
+                    sendMessage("ADD_PLAYER_UNITS_TO_COUNTRY: An error occurred");
                 }
                 break;
 
             case "moveUnits" :
                 try{
-                    System.out.println(risk.moveUnits(tokens[1], tokens[2], tokens[3], Integer.parseInt(tokens[4])));
-                    out.println("MOVE_UNITS: " + tokens[1]  + tokens[2]  + tokens[3]  + tokens[4]);
-                    Thread.sleep(1000);
-                    sendCountryData();
+                    moveUnits(tokens[1], tokens[2], tokens[3], Integer.parseInt(tokens[4]));
                 } catch (Exception e) {
-                    out.println("MOVE_UNITS: An error occurred");
+                    sendMessage("MOVE_UNITS: An error occurred");
+                }
+                break;
+
+            case "addUnitsById":
+                if (tokens.length == 3){
+                    addPlayerUnitsToCountry(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]));
+                } else {
+                    sendMessage("ADD_PLAYER_UNITS_TO_COUNTRY: An error occurred");
+                }
+                break;
+
+            case "moveUnitsById":
+                if (tokens.length == 4){
+                    moveUnits(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]));
+                } else {
+                    sendMessage("MOVE_UNITS: An error occurred");
+                }
+                break;
+
+            case "battleOdds":
+                if (tokens.length == 4){
+                    sendBattleOdds(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]));
+                } else {
+                    sendMessage("BATTLE_ODDS: An error occurred");
+                }
+                break;
+
+            case "blitz":
+                if (tokens.length >= 4){
+                    blitz(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]), tokens.length > 4 && tokens[4].equals("sampled"));
+                } else {
+                    sendMessage("BLITZ: An error occurred");
                 }
                 break;
 
             default:
-                out.println("command not found");
+                sendMessage("command not found");
         }
     }
 
+    /**
+     * Sends the odds of a battle between the countries with the given IDs, as they are now, to the client.
+     * The units are read on the room's command loop, but the odds are computed on the common fork-join pool, so the
+     * room goes on with its next commands meanwhile; the reply follows once they are computed.
+     * <p>
+     * The odds are exact, computed by {@link BattleResolver#distribution(int, int, int)} in time bounded by the
+     * product of the units on both countries. Each client has at most one request in flight; a request sent while the
+     * last one is still being computed is answered with an error. The reply holds the IDs of both countries, the
+     * probability of a conquest and the expected units left on the attacking and the defending country.
+     *
+     * @param fromCountryId The ID of the attacking country.
+     * @param toCountryId The ID of the attacked country.
+     * @param keepUnits The units to keep on the attacking country.
+     */
+    private void sendBattleOdds(int fromCountryId, int toCountryId, int keepUnits){
+        int attackerUnits;
+        int defenderUnits;
+        try {
+            attackerUnits = risk.getCountryById(fromCountryId).getUnits();
+            defenderUnits = risk.getCountryById(toCountryId).getUnits();
+        } catch (CountryNotFoundException e) {
+            sendMessage("BATTLE_ODDS: An error occurred");
+            return;
+        }
+        if (!oddsPending.compareAndSet(false, true)){
+            sendMessage("BATTLE_ODDS: An error occurred");
+            return;
+        }
+        CompletableFuture.supplyAsync(() -> BattleResolver.distribution(attackerUnits, defenderUnits, keepUnits))
+                .whenComplete((odds, error) -> {
+                    oddsPending.set(false);
+                    if (error != null){
+                        sendMessage("BATTLE_ODDS: An error occurred");
+                    } else {
+                        sendMessage("BATTLE_ODDS: " + fromCountryId + " " + toCountryId + " " + odds.getConquestProbability()
+                                + " " + (attackerUnits - odds.getExpectedAttackerLosses()) + " " + (defenderUnits - odds.getExpectedDefenderLosses()));
+                    }
+                });
+    }
+
+    /**
+     * Fights a whole battle of this client's player between the countries with the given IDs, as sent by
+     * {@code blitz} or in a binary frame, and sends the result with the changed board to all clients of the room.
+     * A battle of any length costs one request and one reply instead of one round trip per roll.
+     *
+     * @param fromCountryId The ID of the attacking country.
+     * @param toCountryId The ID of the attacked country.
+     * @param keepUnits The units to keep on the attacking country.
+     * @param sampled true to draw the result from its distribution, false to roll the dice.
+     */
+    private void blitz(int fromCountryId, int toCountryId, int keepUnits, boolean sampled){
+        try {
+            BattleOutcome outcome = risk.blitz(player.getId(), fromCountryId, toCountryId, keepUnits, sampled);
+            long version = room.nextStateVersion();
+            room.broadcastMessage("BLITZ: " + fromCountryId + " " + toCountryId + " " + outcome + " " + version);
+            sendCountryDelta(version);
+        } catch (Exception e) {
+            e.printStackTrace();
+            sendMessage("BLITZ: An error occurred");
+        }
+    }
+
+    /**
+     * Places units of a player on a country and sends the change to all clients of the room.
+     *
+     * @param playerName The name of the player placing the units.
+     * @param countryName The name of the country.
+     * @param units The number of units to place.
+     * @throws Exception If the player or country does not exist or the units cannot be placed.
+     */
+    private void addPlayerUnitsToCountry(String playerName, String countryName, int units) throws Exception {
+        risk.addPlayerUnitsToCountry(playerName, countryName, units);
+        unitsPlaced();
+    }
+
+    /**
+     * Places units of this client's player on the country with the given ID, as sent by {@code addUnitsById} or in
+     * a binary frame.
+     *
+     * @param countryId The ID of the country.
+     * @param units The number of units to place.
+     */
+    private void addPlayerUnitsToCountry(int countryId, int units){
+        try {
+            risk.addPlayerUnitsToCountry(player.getId(), countryId, units);
+            unitsPlaced();
+        } catch (Exception e) {
+            e.printStackTrace();
+            sendMessage("ADD_PLAYER_UNITS_TO_COUNTRY: An error occurred");
+        }
+    }
+
+    /**
+     * Acknowledges a placement of units to the client and sends the change to all clients of the room.
+     */
+    private void unitsPlaced(){
+        risk.distributeStartingUnits();
+        long version = room.nextStateVersion();
+        //The reply acknowledges the change with its version, the new board follows right behind it
+        sendMessage("ADD_PLAYER_UNITS_TO_COUNTRY: Success" + " " + risk.getPlayerOnTurn().getNumberOfUnits() + " " + version);
+        sendCountryDelta(version);
+    }
+
+    /**
+     * Moves units of a player between two countries and sends the change to all clients of the room.
+     *
+     * @param playerName The name of the player moving the units.
+     * @param fromCountry The name of the country the units leave.
+     * @param toCountry The name of the country the units move to.
+     * @param units The number of units to move.
+     * @throws Exception If a country does not exist or the units cannot be moved.
+     */
+    private void moveUnits(String playerName, String fromCountry, String toCountry, int units) throws Exception {
+        System.out.println(risk.moveUnits(playerName, fromCountry, toCountry, units));
+        unitsMoved(playerName, fromCountry, toCountry, units);
+    }
+
+    /**
+     * Moves units of this client's player between the countries with the given IDs, as sent by
+     * {@code moveUnitsById} or in a binary frame.
+     *
+     * @param fromCountryId The ID of the country the units leave.
+     * @param toCountryId The ID of the country the units move to.
+     * @param units The number of units to move.
+     */
+    private void moveUnits(int fromCountryId, int toCountryId, int units){
+        try {
+            System.out.println(risk.moveUnits(player.getId(), fromCountryId, toCountryId, units));
+            unitsMoved(player.getName(), risk.getCountryById(fromCountryId).getName(), risk.getCountryById(toCountryId).getName(), units);
+        } catch (Exception e) {
+            sendMessage("MOVE_UNITS: An error occurred");
+        }
+    }
+
+    /**
+     * Acknowledges a movement of units to the client and sends the change to all clients of the room.
+     *
+     * @param playerName The name of the player that moved the units.
+     * @param fromCountry The name of the country the units left.
+     * @param toCountry The name of the country the units moved to.
+     * @param units The number of units moved.
+     */
+    private void unitsMoved(String playerName, String fromCountry, String toCountry, int units){
+        long version = room.nextStateVersion();
+        sendMessage("MOVE_UNITS: " + playerName + fromCountry + toCountry + units + " " + version);
+        sendCountryDelta(version);
+    }
+
     /**
      * Sends a message to the client.
      *
      * @param message The message to send.
      */
     public void sendMessage(String message){
-        out.println(message);
+        sendFrame(new MessageFrame(message));
+    }
+
+    /**
+     * Sends a message consisting of several lines to the client.
+     * The frame is queued and written by the client's writer with a single write and a single flush, so other
+     * messages sent to this client at the same time end up before or after the frame, never inside it.
+     * If the client cannot keep up and the backpressure policy says so, the client is disconnected.
+     *
+     * @param frame The frame to send.
+     */
+    public void sendFrame(MessageFrame frame){
+        if (!outbound.offer(frame)){
+            System.out.println("Client " + clientID + " cannot keep up with its messages, disconnecting");
+            disconnected();
+        }
+    }
+
+    /**
+     * Sends the outbound queue metrics of every client in this client's room.
+     * Sends each client's ID, current queue depth, maximum queue depth and number of dropped messages.
+     */
+    public void sendQueueStats(){
+        MessageFrame frame = new MessageFrame("QUEUE_STATS:");
+        List<ClientRequestHandler> clients = room.getClients();
+        frame.add(clients.size());
+        for (ClientRequestHandler client : clients){
+            OutboundQueue queue = client.getOutboundQueue();
+            frame.add(client.getClientID() + " " + queue.getDepth() + " " + queue.getMaxDepth() + " " + queue.getDroppedCount());
+        }
+        sendFrame(frame);
     }
 
     /**
@@ -293,23 +769,23 @@ public class ClientRequestHandler implements Runnable{
     public void addPlayer(String name, String color){
         Player player = null;
         try {
-            player = risk.addPlayer(name, server.playerID, color);
+            player = risk.addPlayer(name, room.playerID, color);
             this.player = player;
             System.out.println("Server: Player created");
         } catch (Exception e) {
             e.printStackTrace();
         }
-        server.playerID++;
+        room.playerID++;
         if (player != null){
-            server.addPlayer(player);
-            out.println("PLAYER_ADDED:" + " " + name + " " + player.getId() + " " + color);    //send "successfull" message to client
+            room.addPlayer(player);
+            sendMessage("PLAYER_ADDED:" + " " + name + " " + player.getId() + " " + color);    //send "successfull" message to client
             System.out.println("PLAYER_ADDED:" + " " + name + " " + player.getId() + " " + color);
 //            out.println(name);
 //            out.println(player.getId()); //send player id to client to keep track of their player id
 //            out.println(color);
             System.out.println("Player ID sent to client");
         }else{
-            out.println("PLAYER_NOT_ADDED:Player not added");
+            sendMessage("PLAYER_NOT_ADDED:Player not added");
         }
     }
 
@@ -322,10 +798,10 @@ public class ClientRequestHandler implements Runnable{
         Player player = risk.getPlayerByName(name);
         if (player != null) {
             risk.removePlayer(name);
-            out.println("playerRemoved");
+            sendMessage("playerRemoved");
             System.out.println("playerRemoved");
         } else {
-            out.println("Player not found");
+            sendMessage("Player not found");
             System.out.println("Player not found");
         }
     }
@@ -338,14 +814,15 @@ public class ClientRequestHandler implements Runnable{
     public void sendPlayerCountries(String name){
         for (Player player : risk.getPlayers()){
             if (player.getName().equals(name)){
-                out.println("COUNTRY_OBJECTS:");
-                out.println(player.getCountries().size());
+                MessageFrame frame = new MessageFrame("COUNTRY_OBJECTS:");
+                frame.add(player.getCountries().size());
                 for (Country country : player.getCountries()){
-                    out.println(country.getName());
-                    out.println(country.getShortName());
-                    out.println(country.getUnits());
+                    frame.add(country.getName());
+                    frame.add(country.getShortName());
+                    frame.add(country.getUnits());
 
                 }
+                sendFrame(frame);
             }
         }
     }
@@ -362,7 +839,7 @@ public class ClientRequestHandler implements Runnable{
         System.out.println("now in makeAttack method CRH");
 
         if (fromCountry == null || toCountry == null || attacker == null || numberOfUnits <= 0){
-            out.println("Invalid input parameters for makeAttack");
+            sendMessage("Invalid input parameters for makeAttack");
             return;
         }
         try {
@@ -384,20 +861,58 @@ public class ClientRequestHandler implements Runnable{
                 String defenderName = _defender.getName();
                 //Notify client about the attack
                 String attackMessage = "attackNotification " + fromCountry + " " + toCountry + " " + attacker + " " + defenderName + " " + numberOfUnits;
-                server.broadcastMessage(attackMessage);
-                out.println("Attack successful");
+                room.broadcastMessage(attackMessage);
+                sendMessage("Attack successful");
             }else{
-                out.println("No Defender found in country !" + toCountry);
+                sendMessage("No Defender found in country !" + toCountry);
             }
         }catch (IllegalStateException e){
             e.printStackTrace();
-            out.println("IllegalStateException occured: " + e.getMessage());
+            sendMessage("IllegalStateException occured: " + e.getMessage());
         } catch (CountryNotFoundException e) {
             e.printStackTrace();
-            out.println("CountryNotFoundException  occured: " + e.getMessage());
+            sendMessage("CountryNotFoundException  occured: " + e.getMessage());
         } catch (Exception  e) {
             e.printStackTrace();
-            out.println("An unexpected error occured: " + e.getMessage());
+            sendMessage("An unexpected error occured: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the player with the given ID as ready and starts the game once every player of the room is ready.
+     *
+     * @param playerIdText The ID of the player that is ready, as sent by the client.
+     */
+    private void playerReady(String playerIdText){
+        try{
+            int playerId = Integer.parseInt(playerIdText.trim());
+            room.addIsReady(playerId);
+            System.out.println(room.isReady(playerId));
+        }catch (Exception e){
+            System.out.println("Error starting game");
+        }
+        boolean allReady = false;
+        for (int i=0; i<risk.getPlayers().size(); i++){
+            if (room.getIsReady()[i]){
+                allReady = true;
+                System.out.println("Player " + i + " is ready");
+            }else{
+                allReady = false;
+                System.out.println("Player " + i + " is not ready");
+                break;
+            }
+        }
+        System.out.println("All ready: " + allReady);
+
+        if (allReady){
+            risk.startGame();
+            room.setStarted();
+            //out.println("GAME_STARTED:Game started");
+            room.broadcastMessage("GAME_STARTED:");
+            sendCountryGraph();
+            sendCountryDelta(room.nextStateVersion());      //The first delta contains every country
+            removeAllPlayersReady();
+            sendPlayerOnTurn();
         }
     }
 
@@ -409,7 +924,7 @@ public class ClientRequestHandler implements Runnable{
     private void setPlayerReady(String name){
         for (Player player : risk.getPlayers()){
             if (player.getName().equals(name)){
-                server.getIsReady()[player.getId()] = true;
+                room.getIsReady()[player.getId()] = true;
             }
         }
     }
@@ -419,8 +934,8 @@ public class ClientRequestHandler implements Runnable{
      * Sets all players as not ready.
      */
     private void removeAllPlayersReady(){
-        for (int i = 0; i < server.getIsReady().length; i++){
-            server.getIsReady()[i] = false;
+        for (int i = 0; i < room.getIsReady().length; i++){
+            room.getIsReady()[i] = false;
         }
     }
 
@@ -431,7 +946,7 @@ public class ClientRequestHandler implements Runnable{
     private void checkAllPlayersReady(){
         boolean allReady = false;
         for (int i=0; i<risk.getPlayers().size(); i++){
-            if (server.getIsReady()[i]){
+            if (room.getIsReady()[i]){
                 allReady = true;
                 System.out.println("Player " + i + " is ready");
             }else{
@@ -444,34 +959,143 @@ public class ClientRequestHandler implements Runnable{
     }
 
     /**
-     * Sends country data to all connected clients.
+     * Sends the complete board to this client.
      * Sends information about each country, including its name, owner, units, continents, and neighbors.
+     * The header carries the state version of the board, so clients can ignore boards older than the one they have.
+     * The whole board is sent as one frame. Clients request it to resynchronise when they missed a delta; during the
+     * game the board is otherwise kept up to date through {@link #sendCountryDelta(long)}. Must be called on
+     * the room's command loop, so that the board is consistent with the deltas sent before and after it.
+     *
+     * @param version The state version of the board being sent.
+     */
+    public void sendCountryData(long version){
+        sendFrame(createCountryDataFrame(version));
+    }
+
+    /**
+     * Creates the complete board as a COUNTRY_DATA frame, see {@link #sendCountryData(long)}.
+     * Must be called on the room's command loop.
+     *
+     * @param version The state version of the board.
+     * @return The COUNTRY_DATA frame.
      */
-    public void sendCountryData(){
-        server.broadcastMessage("COUNTRY_DATA:");
-        server.broadcastMessage(String.valueOf(risk.getCountries().size()));            //Send the number of countries
+    private MessageFrame createCountryDataFrame(long version){
+        MessageFrame frame = new MessageFrame("COUNTRY_DATA: " + version).markBoardUpdate();
+        frame.add(risk.getCountries().size());            //Send the number of countries
         //System.out.println(risk.getCountries().size());
         for (Country country : risk.getCountries()){        //Send the country data
-            server.broadcastMessage(country.getName());
+            frame.add(country.getName());
             // System.out.println(country.getName());
-            server.broadcastMessage(country.getPlayer().getName());
+            frame.add(country.getPlayer().getName());
             // System.out.println(country.getPlayer().getName());
-            server.broadcastMessage(String.valueOf(country.getUnits()));
+            frame.add(country.getUnits());
             //System.out.println(country.getUnits());
             for (Continent continent : risk.getContinents()){           //Send the continent data
                 if (continent.getCountries().contains(country)){
-                    server.broadcastMessage(continent.getName());
+                    frame.add(continent.getName());
                     // System.out.println("Listing Continents" + continent.getName());
                 }
             }
-            server.broadcastMessage(String.valueOf(country.getNeighbors().size()));             //Send the number of neighbors
+            frame.add(country.getNeighbors().size());             //Send the number of neighbors
             //System.out.println(country.getNeighbors().size());
             for (Country neighbor : country.getNeighbors()){
-                server.broadcastMessage(neighbor.getName());
+                frame.add(neighbor.getName());
                 // System.out.println(neighbor.getName());
             }
         }
+        return frame;
+    }
 
+    /**
+     * Sends the static part of the board and then the complete board to this client only. Clients ask for it when they
+     * missed a delta, and a client joining a started game receives it, so it learns the IDs of the players of the
+     * following deltas even if it missed the graph sent when the game started. Must be called on the room's command loop.
+     */
+    private void sendBoard(){
+        sendFrame(createCountryGraphFrame());
+        sendCountryData(room.getStateVersion());
+    }
+
+    /**
+     * Sends the static part of the board to all clients of the room. The topology does not change during a game, so it
+     * is sent to all clients when the game starts, and to single clients with {@link #sendBoard()}. Clients keep it and
+     * apply the owners and unit counts of the following {@link #sendCountryDelta(long) deltas} to it.
+     * <p>
+     * The graph assigns the IDs used in all later messages: it lists the names of the continents and then the
+     * countries, both in the order of their IDs. Each country is sent with its name, the ID of its continent and the
+     * IDs of its neighbors. At the end follow the ID and name of every player.
+     */
+    public void sendCountryGraph(){
+        room.broadcastFrame(createCountryGraphFrame());
+    }
+
+    /**
+     * Creates the static part of the board as a COUNTRY_GRAPH frame, see {@link #sendCountryGraph()}.
+     * Must be called on the room's command loop.
+     *
+     * @return The COUNTRY_GRAPH frame.
+     */
+    private MessageFrame createCountryGraphFrame(){
+        List<Country> countries = risk.getCountries();
+        List<Continent> continents = risk.getContinents();
+        WorldGraph graph = risk.getWorldGraph();
+        int[] continentIds = new int[countries.size()];
+        MessageFrame frame = new MessageFrame("COUNTRY_GRAPH:");
+        frame.add(continents.size());
+        for (Continent continent : continents){
+            frame.add(continent.getName());
+            for (Country country : continent.getCountries()){
+                continentIds[country.getId()] = continent.getId();
+            }
+        }
+        frame.add(countries.size());
+        for (Country country : countries){
+            frame.add(country.getName());
+            frame.add(continentIds[country.getId()]);
+            frame.add(graph.getNeighborCount(country.getId()));
+            for (int i = 0; i < graph.getNeighborCount(country.getId()); i++){
+                frame.add(graph.getNeighbor(country.getId(), i));
+            }
+        }
+        frame.add(risk.getPlayers().size());
+        for (Player player : risk.getPlayers()){
+            frame.add(player.getId() + " " + player.getName());
+        }
+        return frame;
+    }
+
+    /**
+     * Sends the countries whose owner or unit count changed since the last push to all clients of the room.
+     * The header carries the new state version and the version the delta is based on, so a client that missed a
+     * delta notices the gap and requests the complete board with {@code sendCountryData}. A delta is sent even if no
+     * country changed, so that the versions of the clients keep up with the server. Each change consists of the
+     * country ID, the owner's player ID and the unit count. Clients using the binary protocol receive the same
+     * delta as a {@link Opcode#COUNTRY_DELTA} frame.
+     * Must be called on the room's command loop.
+     *
+     * @param version The state version of the board after the change.
+     */
+    public void sendCountryDelta(long version){
+        BoardSnapshot snapshot = room.getBoardSnapshot();
+        List<Country> countries = risk.getCountries();
+        List<Integer> changed = snapshot.collectChanges(countries);
+        MessageFrame frame = new MessageFrame("COUNTRY_DELTA: " + version + " " + snapshot.getVersion()).markBoardUpdate();
+        int[] countryIds = new int[changed.size()];
+        int[] ownerIds = new int[changed.size()];
+        int[] units = new int[changed.size()];
+        frame.add(changed.size());
+        for (int i = 0; i < changed.size(); i++){
+            Country country = countries.get(changed.get(i));
+            countryIds[i] = country.getId();
+            ownerIds[i] = country.getPlayer().getId();
+            units[i] = country.getUnits();
+            frame.add(countryIds[i]);
+            frame.add(ownerIds[i]);
+            frame.add(units[i]);
+        }
+        frame.setBinary(FrameCodec.encodeCountryDelta(version, snapshot.getVersion(), changed.size(), countryIds, ownerIds, units));
+        snapshot.setVersion(version);
+        room.broadcastFrame(frame);
     }
 
     /**
@@ -481,7 +1105,7 @@ public class ClientRequestHandler implements Runnable{
      */
     public void sendMissionCard(String player){
         if (risk.getPlayerByName(player) != null) {
-            out.println(risk.getPlayerByName(player).getMissionCard().getDescription());
+            sendMessage(risk.getPlayerByName(player).getMissionCard().getDescription());
         }
     }
 
@@ -492,10 +1116,11 @@ public class ClientRequestHandler implements Runnable{
      */
     public void sendUnitCards(String player) {
         if (risk.getPlayerByName(player) != null) {
-            out.println(risk.getPlayerByName(player).getUnitCards().size());
+            MessageFrame frame = new MessageFrame(String.valueOf(risk.getPlayerByName(player).getUnitCards().size()));
             for (UnitCard card : risk.getPlayerByName(player).getUnitCards()) {
-                out.println(card);
+                frame.add(card.toString());
             }
+            sendFrame(frame);
         }
     }
 
@@ -505,10 +1130,125 @@ public class ClientRequestHandler implements Runnable{
      * Sends each player's name, ID, and color.
      */
     public void playerList(){
-        out.println("PLAYER_LIST:");
-        out.println(risk.getPlayers().size());
+        MessageFrame frame = new MessageFrame("PLAYER_LIST:");
+        frame.add(risk.getPlayers().size());
         for (Player player : risk.getPlayers()){
-            out.println(player.getName() + " " + player.getId() + " "+ player.getColor());
+            frame.add(player.getName() + " " + player.getId() + " "+ player.getColor());
+        }
+        sendFrame(frame);
+    }
+
+    /**
+     * Creates a new game room and moves this client into it.
+     * Sends the ID of the new room to the client. A client that already joined a game as a player cannot switch rooms.
+     */
+    public void createRoom(){
+        if (player != null){
+            sendMessage("ROOM_ERROR: Player already joined room " + room.getId());
+            return;
+        }
+        GameRoom newRoom = server.getRegistry().createRoom();
+        switchRoom(newRoom, "ROOM_CREATED: " + newRoom.getId());          //A new room is only removed after a client has left it
+    }
+
+    /**
+     * Moves this client into the room with the given ID.
+     * Fails if the room does not exist, its game has already started, or the client already joined a game as a player.
+     * A room whose game has started can only be joined while all of its clients are gone, so its players can return.
+     *
+     * @param roomId The ID of the room to join.
+     */
+    public void joinRoom(String roomId){
+        GameRoom newRoom = server.getRegistry().getRoom(roomId);
+        if (newRoom == null){
+            sendMessage("ROOM_NOT_FOUND: " + roomId);
+        } else if (player != null){
+            sendMessage("ROOM_ERROR: Player already joined room " + room.getId());
+        } else if (newRoom.isStarted() && newRoom.getClientCount() > 0){
+            sendMessage("ROOM_ERROR: Game in room " + roomId + " has already started");
+        } else if (!switchRoom(newRoom, "ROOM_JOINED: " + newRoom.getId())){
+            sendMessage("ROOM_NOT_FOUND: " + roomId);          //Removed since it was looked up
+        }
+    }
+
+    /**
+     * Sends the list of all rooms to the client.
+     * Sends each room's ID, number of players and whether its game has started.
+     */
+    public void listRooms(){
+        MessageFrame frame = new MessageFrame("ROOM_LIST:");
+        List<GameRoom> rooms = server.getRegistry().getRooms();
+        frame.add(rooms.size());
+        for (GameRoom gameRoom : rooms){
+            frame.add(gameRoom.getId() + " " + gameRoom.getPlayerCount() + " " + gameRoom.isStarted());
+        }
+        sendFrame(frame);
+    }
+
+    /**
+     * Leaves the current room and connects this client to another one. Lobby commands run on the thread reading the
+     * client, which is an event loop serving many clients in NIO mode, so the switch must not wait for the old room.
+     * The client is added to the new room right away, but the switch itself runs on the command loop of the old room,
+     * after the commands the client sent before. Commands sent in the meantime are held back and submitted to the new
+     * room afterwards, see {@link #submit(Runnable)}. If one of the earlier commands made the client a player of the
+     * old room, the client stays there. A client joining a started game receives the complete board.
+     *
+     * @param newRoom The GameRoom to switch to.
+     * @param reply The message sent to the client once it has switched rooms.
+     * @return true if the client is switching rooms, false if the new room is no longer registered.
+     */
+    private boolean switchRoom(GameRoom newRoom, String reply){
+        GameRoom oldRoom = room;
+        if (!server.getRegistry().join(newRoom, this)){
+            return false;
+        }
+        synchronized (this){
+            switchTarget = newRoom;
+        }
+        oldRoom.submit(() -> completeSwitch(oldRoom, newRoom, reply));
+        return true;
+    }
+
+    /**
+     * Completes a switch of rooms on the command loop of the old room, once the commands the client sent before it
+     * have run there, and submits the commands held back meanwhile to the room the client ends up in.
+     *
+     * @param oldRoom The GameRoom the client leaves.
+     * @param newRoom The GameRoom the client switches to.
+     * @param reply The message sent to the client if it switched rooms.
+     */
+    private void completeSwitch(GameRoom oldRoom, GameRoom newRoom, String reply){
+        boolean disconnected;
+        GameRoom leftRoom;
+        synchronized (this){
+            disconnected = gone;
+            if (player != null && !disconnected){
+                leftRoom = newRoom;             //Joined the game of the old room with a command sent before the switch
+                sendMessage("ROOM_ERROR: Player already joined room " + oldRoom.getId());
+            } else {
+                leftRoom = oldRoom;
+                room = newRoom;
+                risk = newRoom.getRisk();
+                if (!disconnected){
+                    sendMessage(reply);
+                    if (newRoom.isStarted()){
+                        newRoom.submit(this::sendBoard);        //The graph of the game was sent before the client joined
+                    }
+                }
+            }
+            switchTarget = null;
+            if (!disconnected){
+                for (Runnable command : heldCommands){
+                    room.submit(command);
+                }
+            }
+            heldCommands.clear();
+        }
+        leftRoom.removeClient(this);
+        server.getRegistry().removeIfEmpty(leftRoom);
+        if (disconnected){
+            newRoom.removeClient(this);             //Disconnecting during the switch only left the old room
+            server.getRegistry().removeIfEmpty(newRoom);
         }
     }
 
@@ -517,7 +1257,6 @@ public class ClientRequestHandler implements Runnable{
      * Sends the ID of the player who is currently on turn.
      */
     public void sendPlayerOnTurn(){
-        server.broadcastMessage("PLAYER_ON_TURN:" + " " + risk.getPlayerOnTurn().getId());
-        System.out.println("PLAYER_ON_TURN:" + " " + risk.getPlayerOnTurn().getId());
+        room.broadcastMessage("PLAYER_ON_TURN:" + " " + risk.getPlayerOnTurn().getId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,345 @@
+package risk.server.network;
+
+import risk.server.persistence.FileJournalStore;
+import risk.server.persistence.JournalStore;
+import risk.server.persistence.MappedJournalStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of all game rooms hosted by a {@link GameServer}.
+ * <p>
+ * The registry maps room IDs to {@link GameRoom} instances. Every room has its own isolated game, so one server
+ * process can host many matches at the same time. Rooms are created on demand by clients and removed again once
+ * the last client has left. The default room is never removed, it is used for clients that do not pick a room.
+ * <p>
+ * A room whose game is running is not removed right away when its last client leaves, e.g. because the connections of
+ * all players dropped. It waits {@value #EMPTY_ROOM_TIMEOUT_PROPERTY} seconds, 300 by default, for its players to join
+ * it again, and is only removed and its game abandoned if nobody has come back by then. A room whose game has not
+ * started or is over is removed at once. Joining a room and removing it hold the lock of the registry, so a client
+ * never joins a room that is being removed.
+ * <p>
+ * If the system property {@value #JOURNAL_DIRECTORY_PROPERTY} names a directory, the games of all rooms are journaled
+ * to a {@link JournalStore} in that directory. {@value #JOURNAL_STORE_PROPERTY} selects the store: {@code mapped}, the
+ * default, keeps the journals of all games in shared memory-mapped segments of {@value #SEGMENT_SIZE_PROPERTY}
+ * megabytes that are flushed every {@value #FLUSH_INTERVAL_PROPERTY} milliseconds; {@code file} keeps each journal in
+ * files of its own. The journal of a room is removed when the room is removed, i.e. once its game is over or it has
+ * been abandoned, and kept as long as the room waits for its players.
+ * <p>
+ * If the system property {@value #SNAPSHOT_DIRECTORY_PROPERTY} names a directory, a {@link SnapshotScheduler} saves the
+ * games of all rooms there every {@value #SNAPSHOT_INTERVAL_PROPERTY} seconds, 60 by default, and keeps the newest
+ * {@value #SNAPSHOT_KEEP_PROPERTY} save games of each room, 5 by default. The save games of a room are deleted once its
+ * game is over, not when the room is merely left.
+ * <p>
+ * When the registry is created, it restores every room that has a journal or save games left from before the server
+ * was restarted, recovering its game from the journal or else from the newest save game. A restored room whose game
+ * is running waits for its players like a room they have left; one whose game has not started is removed at once.
+ * New rooms get IDs after those of the restored rooms, so a new room never picks up the game of another.
+ * <p>
+ * If games are journaled and the system property {@value #REPLAY_DIRECTORY_PROPERTY} names a directory, the game of a
+ * room is exported there as a replay once a player has won it, or when the room is removed before, see
+ * {@link risk.server.domain.ReplayRunner}.
+ */
+public class GameRegistry {
+    /** The system property naming the directory the games are journaled to. Games are not journaled if it is not set. */
+    public static final String JOURNAL_DIRECTORY_PROPERTY = "risk.journal.dir";
+    /** The system property selecting the journal store, {@code mapped} or {@code file}. */
+    public static final String JOURNAL_STORE_PROPERTY = "risk.journal.store";
+    /** The system property setting the size of the segments of the mapped journal store in megabytes. */
+    public static final String SEGMENT_SIZE_PROPERTY = "risk.journal.segment.mb";
+    /** The system property setting the flush interval of the mapped journal store in milliseconds. */
+    public static final String FLUSH_INTERVAL_PROPERTY = "risk.journal.flush.ms";
+    /** The system property naming the directory the games are periodically saved to. Games are not saved if it is not set. */
+    public static final String SNAPSHOT_DIRECTORY_PROPERTY = "risk.snapshot.dir";
+    /** The system property setting the number of seconds between two periodic saves of a game. */
+    public static final String SNAPSHOT_INTERVAL_PROPERTY = "risk.snapshot.interval.s";
+    /** The system property setting the number of periodic saves kept per room. */
+    public static final String SNAPSHOT_KEEP_PROPERTY = "risk.snapshot.keep";
+    /** The system property naming the directory finished and abandoned games are exported to as replays. */
+    public static final String REPLAY_DIRECTORY_PROPERTY = "risk.replay.dir";
+    /** The system property setting the number of seconds a room with a running game waits for its players once empty. */
+    public static final String EMPTY_ROOM_TIMEOUT_PROPERTY = "risk.room.empty.timeout.s";
+
+    private final Map<String, GameRoom> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRoomId = new AtomicInteger(0);
+    private final String data;
+    private final GameRoom defaultRoom;
+    private final JournalStore journalStore;
+    private final SnapshotScheduler snapshots;
+    private final Path replayDirectory;
+    private final long emptyRoomTimeout = Long.getLong(EMPTY_ROOM_TIMEOUT_PROPERTY, 300);
+    private final Map<String, ScheduledFuture<?>> expiries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reaper =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("room-reaper").factory());
+
+    /**
+     * Constructs a new GameRegistry, opens the journal store if games are journaled, starts saving the games
+     * periodically if configured, creates the default room and restores the rooms of the journaled and saved games.
+     *
+     * @param data The base name of the map files used for new games, e.g. "Risk".
+     */
+    public GameRegistry(String data){
+        this.data = data;
+        this.journalStore = openJournalStore();
+        this.replayDirectory = openReplayDirectory(journalStore);
+        this.snapshots = startSnapshots();          //Before the first room, which may restore its game from a snapshot
+        this.defaultRoom = createRoom();
+        restoreRooms();
+    }
+
+    /**
+     * Restores the rooms that have a journal or save games, other than the default room, which has already recovered
+     * its own game, and makes sure new rooms get IDs after theirs.
+     */
+    private void restoreRooms(){
+        List<String> keys = new ArrayList<>();
+        try {
+            if (journalStore != null){
+                keys.addAll(journalStore.games());
+            }
+            if (snapshots != null){
+                for (String roomId : snapshots.savedRooms()){
+                    keys.add("room-" + roomId);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Rooms are not restored, the games cannot be listed: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        Set<Integer> roomIds = new TreeSet<>();
+        for (String key : keys){
+            if (key.matches("room-\\d{1,9}")){             //Not the replay logs
+                roomIds.add(Integer.parseInt(key.substring("room-".length())));
+            }
+        }
+        for (int roomId : roomIds){
+            nextRoomId.accumulateAndGet(roomId, Math::max);
+            String id = String.valueOf(roomId);
+            if (rooms.containsKey(id)){
+                continue;
+            }
+            GameRoom room = new GameRoom(id, data, journalStore, snapshots, replayDirectory);
+            rooms.put(id, room);
+            System.out.println("Room " + id + " restored");
+            removeIfEmpty(room);
+        }
+    }
+
+    /**
+     * Opens the journal store configured by the system properties.
+     *
+     * @return The journal store, or {@code null} if games are not journaled or the store cannot be opened.
+     */
+    private static JournalStore openJournalStore(){
+        String directory = System.getProperty(JOURNAL_DIRECTORY_PROPERTY);
+        if (directory == null){
+            return null;
+        }
+        try {
+            if (System.getProperty(JOURNAL_STORE_PROPERTY, "mapped").equals("file")){
+                return new FileJournalStore(Path.of(directory));
+            }
+            return new MappedJournalStore(Path.of(directory), Integer.getInteger(SEGMENT_SIZE_PROPERTY, 64) * 1024 * 1024,
+                    Long.getLong(FLUSH_INTERVAL_PROPERTY, MappedJournalStore.DEFAULT_FLUSH_INTERVAL_MILLIS));
+        } catch (IOException e) {
+            System.out.println("Games are not journaled, the journal store in " + directory + " cannot be opened: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Creates the directory the replays are exported to, as configured by the system properties.
+     *
+     * @param journalStore The journal store, the replays are exported from the journals of the games.
+     * @return The directory, or {@code null} if no replays are exported or the directory cannot be created.
+     */
+    private static Path openReplayDirectory(JournalStore journalStore){
+        String directory = System.getProperty(REPLAY_DIRECTORY_PROPERTY);
+        if (directory == null){
+            return null;
+        }
+        if (journalStore == null){
+            System.out.println("Replays are not exported, games are not journaled");
+            return null;
+        }
+        try {
+            return Files.createDirectories(Path.of(directory));
+        } catch (IOException e) {
+            System.out.println("Replays are not exported, " + directory + " cannot be created: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Starts the periodic saves configured by the system properties.
+     *
+     * @return The snapshot scheduler, or {@code null} if games are not saved periodically or the directory cannot be created.
+     */
+    private SnapshotScheduler startSnapshots(){
+        String directory = System.getProperty(SNAPSHOT_DIRECTORY_PROPERTY);
+        if (directory == null){
+            return null;
+        }
+        try {
+            return new SnapshotScheduler(this, Path.of(directory), Long.getLong(SNAPSHOT_INTERVAL_PROPERTY, 60),
+                    Integer.getInteger(SNAPSHOT_KEEP_PROPERTY, 5));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Games are not saved periodically: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new room with a fresh game and registers it under a new unique ID.
+     *
+     * @return The newly created GameRoom.
+     */
+    public GameRoom createRoom(){
+        String id = String.valueOf(nextRoomId.incrementAndGet());
+        GameRoom room = new GameRoom(id, data, journalStore, snapshots, replayDirectory);
+        rooms.put(id, room);
+        System.out.println("Room " + id + " created");
+        return room;
+    }
+
+    /**
+     * Retrieves a room by its ID.
+     *
+     * @param id The ID of the room.
+     * @return The GameRoom with the given ID, or null if no such room exists.
+     */
+    public GameRoom getRoom(String id){
+        return rooms.get(id);
+    }
+
+    /**
+     * Retrieves the default room that clients join when they connect.
+     *
+     * @return The default GameRoom.
+     */
+    public GameRoom getDefaultRoom(){
+        return defaultRoom;
+    }
+
+    /**
+     * Retrieves all rooms currently registered, ordered by their ID.
+     *
+     * @return A list of all GameRoom instances.
+     */
+    public List<GameRoom> getRooms(){
+        List<GameRoom> list = new ArrayList<>(rooms.values());
+        list.sort((a, b) -> Integer.compare(Integer.parseInt(a.getId()), Integer.parseInt(b.getId())));
+        return list;
+    }
+
+    /**
+     * Connects a client to a room, unless the room has been removed in the meantime. A room waiting for its players
+     * to return stops waiting.
+     *
+     * @param room The GameRoom to join.
+     * @param client The ClientRequestHandler of the client joining it.
+     * @return true if the client joined the room, false if the room is no longer registered.
+     */
+    public synchronized boolean join(GameRoom room, ClientRequestHandler client){
+        if (rooms.get(room.getId()) != room){
+            return false;
+        }
+        room.addClient(client);
+        ScheduledFuture<?> expiry = expiries.remove(room.getId());
+        if (expiry != null){
+            expiry.cancel(false);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a room from the registry once no client is connected to it anymore. A room whose game is running is
+     * only removed if it is still empty after {@value #EMPTY_ROOM_TIMEOUT_PROPERTY} seconds.
+     * The default room is never removed.
+     *
+     * @param room The GameRoom to remove if it is empty.
+     */
+    public void removeIfEmpty(GameRoom room){
+        if (room == defaultRoom || room.getClientCount() > 0){
+            return;
+        }
+        if (!room.isStarted() || room.isOver()){
+            remove(room);
+            return;
+        }
+        try {
+            ScheduledFuture<?> expiry = reaper.schedule(() -> remove(room), emptyRoomTimeout, TimeUnit.SECONDS);
+            ScheduledFuture<?> previous = expiries.put(room.getId(), expiry);
+            if (previous != null){
+                previous.cancel(false);
+            }
+            System.out.println("Room " + room.getId() + " is empty, its game is kept for " + emptyRoomTimeout + " seconds");
+        } catch (RejectedExecutionException e) {
+            //Closed, the room is shut down with the server and its journal kept
+        }
+    }
+
+    /**
+     * Removes a room and discards its game if no client has joined it since it was found empty.
+     *
+     * @param room The GameRoom to remove.
+     */
+    private void remove(GameRoom room){
+        synchronized (this){
+            if (room.getClientCount() > 0 || !rooms.remove(room.getId(), room)){
+                return;
+            }
+            ScheduledFuture<?> expiry = expiries.remove(room.getId());
+            if (expiry != null){
+                expiry.cancel(false);
+            }
+        }
+        room.discard();
+        if (snapshots != null && room.isOver()){
+            snapshots.discard(room.getId());
+        }
+        System.out.println("Room " + room.getId() + " removed");
+    }
+
+    /**
+     * Stops the periodic saves and closes the journal store once the rooms have run their last commands. Must be called
+     * after all rooms have been shut down.
+     */
+    public void close(){
+        reaper.shutdownNow();
+        try {
+            if (snapshots != null){
+                snapshots.close();
+            }
+            if (journalStore == null){
+                return;
+            }
+            for (GameRoom room : rooms.values()){
+                room.awaitShutdown();
+            }
+            journalStore.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package risk.server.network;
+
+import risk.common.entities.Country;
+import risk.common.entities.Player;
+import risk.common.interfaces.RiskInterface;
+import risk.server.domain.DomainEventBus;
+import risk.server.domain.GameJournal;
+import risk.server.domain.GameReplay;
+import risk.server.domain.GameSnapshot;
+import risk.server.domain.Risk;
+import risk.server.persistence.JournalStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Represents a single game room on the server.
+ * <p>
+ * A room owns an isolated {@link Risk} instance together with everything the network layer keeps per match:
+ * the connected clients, the players that joined, the readiness flags used before the game starts and the
+ * counter used to hand out player IDs. Broadcasts only reach the clients of this room, so several matches can
+ * run in one {@link GameServer} without seeing each other's messages.
+ * <p>
+ * Each room runs as an actor: all commands touching its game are put into the room's command queue and applied
+ * one after another by a single thread, the command loop. The client handlers only read and parse the input of
+ * their clients. The game itself therefore never sees two threads at once and needs no locking.
+ * <p>
+ * Every change of the board is tagged with a state version. The version only grows, and changes are applied and
+ * pushed to the clients by the command loop, so clients receive the board states in the same order as they were
+ * produced and can tell an outdated board from the current one.
+ * <p>
+ * If the server journals its games, the game of each room is journaled under the key {@code room-<id>} with a
+ * {@link GameJournal}. A room created with the ID of a room whose server crashed recovers the game from that journal;
+ * the players have to join it again. Without a journal, the room restores the game from the newest save game the
+ * {@link SnapshotScheduler} kept for its ID. The journal is only removed when the room is discarded, once its game is over or
+ * the room has stayed empty for longer than its {@link GameRegistry} waits for the players to return. If a replay
+ * directory is given, the game of a room is exported there as a {@link GameReplay} as soon as a player has won it, or
+ * when the room is discarded before, and before its journal is removed.
+ */
+public class GameRoom {
+    private final String id;
+    private final RiskInterface risk;
+    private final Risk game;
+    private final DomainEventBus eventBus;
+    private final GameJournal journal;
+    private final Path replayDirectory;
+    private final List<ClientRequestHandler> clientRequestHandlers = new CopyOnWriteArrayList<>();
+    private final List<Player> players = new CopyOnWriteArrayList<>();
+    private final boolean[] isReady = new boolean[6];
+    private volatile boolean started = false;
+    private volatile boolean over = false;
+    private boolean exported = false;             //Confined to the command loop
+    private final ExecutorService commandLoop;
+    private final BoardSnapshot boardSnapshot = new BoardSnapshot();
+    private long stateVersion = 0;
+    private long snapshotSequence = -1;           //Event sequence of the last snapshot, confined to the command loop
+    public int playerID = 0;
+
+    /**
+     * Constructs a new GameRoom with the given ID and creates a fresh game for it.
+     * The board snapshot of the room listens to the events of the game, so deltas only compare the countries that changed.
+     * If games are journaled and the store holds a journal of the room, the game is recovered from it instead;
+     * otherwise, if games are saved periodically, it is restored from the newest save game of the room that can be read.
+     *
+     * @param id The unique ID of the room.
+     * @param data The base name of the map files used to initialize the game, e.g. "Risk".
+     * @param journalStore The store the game is journaled to, or {@code null} if games are not journaled.
+     * @param snapshots The scheduler saving the games periodically, or {@code null} if games are not saved.
+     * @param replayDirectory The directory the games of discarded rooms are exported to as replays, or {@code null}.
+     */
+    public GameRoom(String id, String data, JournalStore journalStore, SnapshotScheduler snapshots, Path replayDirectory){
+        this.id = id;
+        this.replayDirectory = replayDirectory;
+        Risk game = null;
+        if (journalStore != null){
+            try {
+                game = Risk.recover(journalStore, "room-" + id);
+                if (game != null){
+                    restorePlayers(game, "its journal");
+                }
+            } catch (IOException e) {
+                System.out.println("Room " + id + " could not recover its journal: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        if (game == null && snapshots != null){
+            game = restoreSnapshot(snapshots);
+        }
+        if (game == null){
+            game = new Risk(data);
+        }
+        if (journalStore != null){
+            try {
+                game.setJournal(new GameJournal(journalStore, "room-" + id));
+            } catch (IOException e) {
+                System.out.println("Room " + id + " is not journaled: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        this.journal = game.getJournal();
+        this.eventBus = game.getEventBus();
+        eventBus.addListener(boardSnapshot);
+        this.risk = game;
+        this.game = game;
+        this.commandLoop = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("room-" + id).factory());
+    }
+
+    /**
+     * Loads the game of this room from the newest of its save games that can be read.
+     *
+     * @param snapshots The scheduler keeping the save games.
+     * @return The restored game, or {@code null} if the room has no save game that can be read.
+     */
+    private Risk restoreSnapshot(SnapshotScheduler snapshots){
+        try {
+            for (Path file : snapshots.savedGames(id)){
+                try {
+                    Risk game = Risk.loadGame(file.toString());
+                    restorePlayers(game, file.getFileName().toString());
+                    return game;
+                } catch (IOException e) {
+                    System.out.println("Room " + id + " could not restore " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Room " + id + " could not list its save games: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Takes over the players of a game recovered from the journal or a save game of this room. The room counts as
+     * started if the countries have already been handed out, and new players get IDs after the ones recovered.
+     *
+     * @param game The recovered game.
+     * @param source What the game was recovered from, for the log.
+     */
+    private void restorePlayers(Risk game, String source){
+        for (Player player : game.getPlayers()){
+            players.add(player);
+            playerID = Math.max(playerID, player.getId() + 1);
+        }
+        for (Country country : game.getCountries()){
+            if (country.getPlayer() != null){
+                started = true;
+                break;
+            }
+        }
+        System.out.println("Room " + id + " recovered a game with " + players.size() + " players from " + source);
+    }
+
+    /**
+     * Puts a command into the command queue of this room. The command is run later on the room's command loop,
+     * after all commands submitted before it, and the game is checked for a winner after it. Commands of a room that
+     * has been shut down are discarded.
+     *
+     * @param command The command to run.
+     */
+    public void submit(Runnable command){
+        try {
+            commandLoop.execute(() -> {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();          //A failing command must not stop the game of the other players
+                }
+                checkGameOver();
+            });
+        } catch (RejectedExecutionException e) {
+            System.out.println("Room " + id + " is closed, command discarded");
+        }
+    }
+
+    /**
+     * Marks the game of this room as over once a player has won it. Must be called on the command loop.
+     */
+    private void checkGameOver(){
+        if (started && !over && game.isGameOver()){
+            over = true;
+            System.out.println("Game in room " + id + " is over");
+            exportReplay();
+        }
+    }
+
+    /**
+     * Runs a query on the command loop of this room, e.g. to read the board from another thread.
+     *
+     * @param query The query to run.
+     * @param <T> The type of the result.
+     * @return A future completed with the result of the query once the command loop has run it.
+     */
+    public <T> CompletableFuture<T> query(Supplier<T> query){
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            commandLoop.execute(() -> {
+                try {
+                    result.complete(query.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Captures a {@link GameSnapshot} of the game of this room on its command loop, between two commands. Capturing only
+     * copies the state of the game, so the command loop is held up for O(countries) and the snapshot can be saved on
+     * another thread.
+     *
+     * @return A future completed with the snapshot, or with {@code null} if the game has not started yet or no event
+     *         has been published since the last snapshot.
+     */
+    public CompletableFuture<GameSnapshot> captureSnapshot(){
+        return query(() -> {
+            long sequence = eventBus.getSequence();
+            if (!started || sequence == snapshotSequence){
+                return null;
+            }
+            snapshotSequence = sequence;
+            return game.snapshot();
+        });
+    }
+
+    /**
+     * Stops the command loop of this room once the commands already queued have been run, together with the
+     * asynchronous subscribers of the game's events. The journal of the room is closed after the last command and
+     * kept, so the game can still be recovered.
+     */
+    public void shutdown(){
+        shutdown(false);
+    }
+
+    /**
+     * Stops the command loop of this room like {@link #shutdown()}, but removes the journal of its game, as the game
+     * is over or has been abandoned and will not be recovered.
+     */
+    public void discard(){
+        shutdown(true);
+    }
+
+    /**
+     * Stops the command loop of this room once the commands already queued have been run.
+     *
+     * @param finished true to remove the journal of the game, false to keep it.
+     */
+    private void shutdown(boolean finished){
+        if (journal != null){
+            submit(() -> {
+                try {
+                    if (finished){
+                        exportReplay();
+                        journal.finish();
+                    } else {
+                        journal.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        commandLoop.shutdown();
+        eventBus.close();
+    }
+
+    /**
+     * Exports the game of this room as a replay named after the room and the current time, if a replay directory is set,
+     * the game has started and it has not been exported yet. Must be called on the command loop.
+     */
+    private void exportReplay(){
+        if (replayDirectory == null || journal == null || !started || exported){
+            return;
+        }
+        exported = true;
+        try {
+            GameReplay replay = journal.toReplay();
+            replay.write(replayDirectory.resolve("room-" + id + "-" + System.currentTimeMillis() + GameReplay.SUFFIX));
+            System.out.println("Room " + id + " exported a replay with " + replay.getCommandCount() + " commands");
+        } catch (IOException e) {
+            System.out.println("Room " + id + " could not export a replay: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits until the command loop of this room has run its last command after {@link #shutdown()}.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void awaitShutdown() throws InterruptedException {
+        commandLoop.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Retrieves the bus the state changes of this room's game are published on, e.g. to subscribe a journal or
+     * metrics to it.
+     *
+     * @return The DomainEventBus of the game.
+     */
+    public DomainEventBus getEventBus(){
+        return eventBus;
+    }
+
+    /**
+     * Retrieves the unique ID of this room.
+     *
+     * @return The room ID.
+     */
+    public String getId(){
+        return id;
+    }
+
+    /**
+     * Retrieves the game instance played in this room.
+     *
+     * @return The RiskInterface instance of this room.
+     */
+    public RiskInterface getRisk(){
+        return risk;
+    }
+
+    /**
+     * Adds a client to this room so that it receives the room's broadcasts.
+     *
+     * @param client The ClientRequestHandler representing the connected client.
+     */
+    public void addClient(ClientRequestHandler client){
+        clientRequestHandlers.add(client);
+    }
+
+    /**
+     * Removes a client from this room.
+     *
+     * @param client The ClientRequestHandler representing the client to remove.
+     */
+    public void removeClient(ClientRequestHandler client){
+        clientRequestHandlers.remove(client);
+    }
+
+    /**
+     * Retrieves all clients currently connected to this room.
+     *
+     * @return A list of the connected ClientRequestHandler instances.
+     */
+    public List<ClientRequestHandler> getClients(){
+        return clientRequestHandlers;
+    }
+
+    /**
+     * Retrieves the number of clients currently connected to this room.
+     *
+     * @return The number of connected clients.
+     */
+    public int getClientCount(){
+        return clientRequestHandlers.size();
+    }
+
+    /**
+     * Adds a player to this room's list of active players.
+     *
+     * @param player The Player object representing the player to be added.
+     */
+    public void addPlayer(Player player){
+        players.add(player);
+    }
+
+    /**
+     * Removes a player from this room's list of active players.
+     *
+     * @param player The Player object representing the player to be removed.
+     */
+    public void removePlayer(Player player){
+        players.remove(player);
+    }
+
+    /**
+     * Retrieves the number of players that joined this room.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount(){
+        return players.size();
+    }
+
+    /**
+     * Marks a player as ready to start the game.
+     *
+     * @param playerID The ID of the player to mark as ready.
+     */
+    public void addIsReady(int playerID){
+        isReady[playerID] = true;
+    }
+
+    /**
+     * Marks a player as not ready to start the game.
+     *
+     * @param playerID The ID of the player to mark as not ready.
+     */
+    public void removeIsReady(int playerID){
+        isReady[playerID] = false;
+    }
+
+    /**
+     * Checks if a specific player is ready to start the game.
+     *
+     * @param playerID The ID of the player to check.
+     * @return True if the player is ready, false otherwise.
+     */
+    public boolean isReady(int playerID){
+        return isReady[playerID];
+    }
+
+    /**
+     * Retrieves the array indicating the readiness status of all players.
+     *
+     * @return An array of booleans representing the readiness status of each player.
+     */
+    public boolean[] getIsReady(){
+        return isReady;
+    }
+
+    /**
+     * Marks the game of this room as started. Started rooms no longer accept new players.
+     */
+    public void setStarted(){
+        started = true;
+    }
+
+    /**
+     * Checks if the game of this room is over, i.e. a player has won it.
+     *
+     * @return True if the game is over, false otherwise.
+     */
+    public boolean isOver(){
+        return over;
+    }
+
+    /**
+     * Checks if the game of this room has already been started.
+     *
+     * @return True if the game has started, false otherwise.
+     */
+    public boolean isStarted(){
+        return started;
+    }
+
+    /**
+     * Retrieves the version of the board state that was last pushed to the clients.
+     * Must be called on the command loop.
+     *
+     * @return The current state version, 0 before the game has started.
+     */
+    public long getStateVersion(){
+        return stateVersion;
+    }
+
+    /**
+     * Advances the state version after the board has changed. Must be called on the command loop.
+     *
+     * @return The new state version.
+     */
+    public long nextStateVersion(){
+        return ++stateVersion;
+    }
+
+    /**
+     * Retrieves the snapshot of the board as it was last sent to the clients of this room.
+     * Must only be used on the command loop.
+     *
+     * @return The BoardSnapshot of this room.
+     */
+    public BoardSnapshot getBoardSnapshot(){
+        return boardSnapshot;
+    }
+
+    /**
+     * Broadcasts a message consisting of several lines to all clients of this room.
+     * The frame is rendered once and written to each client with a single flush, so the cost of a broadcast grows
+     * with the number of clients, not with lines times clients. Each client receives the lines in one piece, so the
+     * frame cannot be interleaved with other messages. Broadcasts are not logged, since {@code System.out} is a lock
+     * shared by the command loops of all rooms.
+     *
+     * @param frame The frame to broadcast.
+     */
+    public void broadcastFrame(MessageFrame frame){
+        for(ClientRequestHandler client : clientRequestHandlers){
+            client.sendFrame(frame);
+        }
+    }
+
+    /**
+     * Broadcasts a message to all clients of this room.
+     *
+     * @param message The message to broadcast.
+     */
+    public void broadcastMessage(String message){
+        for(ClientRequestHandler client : clientRequestHandlers){
+            client.sendMessage(message);
+        }
+    }
+}
@@ -1,42 +1,71 @@
 package risk.server.network;
 
-import risk.common.entities.Player;
-import risk.common.interfaces.RiskInterface;
-import risk.server.domain.Risk;
-
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Manages incoming client connections, game state, and communication among clients in a Risk game server.
- * Handles client connections through ClientRequestHandler2 instances, manages player states,
- * and facilitates game preparation and broadcasting messages to connected clients.
+ * Manages incoming client connections and the game rooms hosted by a Risk game server.
+ * Handles client connections through ClientRequestHandler instances and keeps all running games
+ * in a {@link GameRegistry}, so that one server process can host many matches at the same time.
+ * New clients are placed in the default room and may create or join other rooms afterwards.
+ * <p>
+ * The way connections are served is chosen at startup through a {@link TransportMode}: either one thread per
+ * client on blocking sockets, or a few selector event loops on non-blocking channels. With blocking sockets the
+ * handlers run on an executor that creates either a platform or a virtual thread per client. Virtual threads make
+ * the blocking {@code readLine()} calls of the handlers cheap, as the carrier thread is released while a handler
+ * waits for its client. For this to work the handlers must not block inside {@code synchronized} blocks,
+ * which would pin the carrier thread.
  */
 public class GameServer {
+    /** Number of pending connections the operating system queues before refusing new clients. */
+    static final int ACCEPT_BACKLOG = 1024;
+    private static final int NIO_EVENT_LOOPS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     private ServerSocket serverSocket;
-    private RiskInterface risk;
-    private List<ClientRequestHandler> clientRequestHandlers;
-    private List<Player> players = new ArrayList<>();
-    private boolean[] isReady = new boolean[6];
-    public int playerID = 0;
+    private ExecutorService clientExecutor;
+    private NioTransport nioTransport;
+    private GameRegistry registry;
+    private TransportMode transportMode;
+    private int outboundCapacity;
+    private BackpressurePolicy backpressurePolicy;
 
     /**
-     * Constructs a GameServer2 object.
-     * Initializes the server on the specified port and initializes the game with the provided data.
+     * Constructs a GameServer object using one thread per client.
+     * Initializes the server on the specified port and creates the game registry with its default room.
      *
      * @param port The port number on which the server will listen for client connections.
-     * @param data The initial data for setting up the game.
+     * @param data The initial data for setting up the games.
      */
     public GameServer(int port, String data){
+        this(port, data, TransportMode.THREAD);
+    }
+
+    /**
+     * Constructs a GameServer object using the given transport.
+     * Initializes the server on the specified port and creates the game registry with its default room.
+     *
+     * @param port The port number on which the server will listen for client connections.
+     * @param data The initial data for setting up the games.
+     * @param transportMode The way client connections are served.
+     */
+    public GameServer(int port, String data, TransportMode transportMode){
+        this.transportMode = transportMode;
+        this.outboundCapacity = Integer.getInteger("risk.outbound.capacity", 256);
+        this.backpressurePolicy = BackpressurePolicy.fromName(System.getProperty("risk.outbound.policy", "coalesce"));
         try {
-            serverSocket = new ServerSocket(port);
-            risk = new Risk(data);
-            clientRequestHandlers = new ArrayList<>();
-            System.out.println("Server started on port " + port);
+            registry = new GameRegistry(data);
+            if (transportMode == TransportMode.NIO){
+                nioTransport = new NioTransport(port, this, NIO_EVENT_LOOPS);
+            } else {
+                serverSocket = new ServerSocket(port, ACCEPT_BACKLOG);
+                clientExecutor = transportMode == TransportMode.VIRTUAL
+                        ? Executors.newVirtualThreadPerTaskExecutor()
+                        : Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("client-", 0).factory());
+            }
+            System.out.println("Server started on port " + port + " using transport " + transportMode);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -44,108 +73,116 @@ public class GameServer {
 
     /**
      * Starts the server and listens for incoming client connections.
-     * Creates a new ClientRequestHandler2 for each connected client, starts a new thread for each handler,
-     * and sends a welcome message to the client.
+     * Creates a new ClientRequestHandler for each connected client, places it in the default room,
+     * runs each handler on its own thread of the client executor and sends a welcome message to the client.
+     * With the NIO transport, the handlers are served by the transport's event loops instead.
+     * Returns once the server has been shut down.
      */
     public void start(){
-        while (true){
+        if (transportMode == TransportMode.NIO){
+            nioTransport.start();
+            return;
+        }
+        while (!serverSocket.isClosed()){
             try{
                 Socket clientSocket = serverSocket.accept();
-                ClientRequestHandler clientRequestHandler = new ClientRequestHandler(clientSocket, risk, this);
-                clientRequestHandlers.add(clientRequestHandler);
-                new Thread(clientRequestHandler).start();
+                GameRoom room = registry.getDefaultRoom();
+                ClientRequestHandler clientRequestHandler = new ClientRequestHandler(clientSocket, room, this);
+                room.addClient(clientRequestHandler);
+                clientExecutor.execute(clientRequestHandler);
                 //clientRequestHandler.
                 clientRequestHandler.sendMessage("Wilkommen");
                 System.out.println("New client connected" + clientRequestHandler.getClientID());
             }catch (IOException e){
-                e.printStackTrace();
+                if (!serverSocket.isClosed()){
+                    e.printStackTrace();
+                }
             }
         }
     }
+
     /**
-     * Adds a ClientRequestHandler2 instance to the list of active client handlers.
-     *
-     * @param client The ClientRequestHandler2 instance representing the connected client.
-     */
-    public void addClient(ClientRequestHandler client){
-        clientRequestHandlers.add(client);
-    }
-    /**
-     * Adds a player to the game server's list of active players.
-     *
-     * @param player The Player object representing the player to be added.
-     */
-    public void addPlayer(Player player){
-        players.add(player);
-    }
-    /**
-     * Removes a player from the game server's list of active players.
-     *
-     * @param player The Player object representing the player to be removed.
-     */
-    public void removePlayer(Player player){
-        players.remove(player);
-    }
-    /**
-     * Marks a player as ready to start the game.
-     *
-     * @param playerID The ID of the player to mark as ready.
+     * Shuts the server down.
+     * Stops accepting new clients, disconnects all connected clients and waits until their handlers have finished.
      */
-    public void addIsReady(int playerID){
-        isReady[playerID] = true;
-    }
-    /**
-     * Marks a player as not ready to start the game.
-     *
-     * @param playerID The ID of the player to mark as not ready.
-     */
-    public void removeIsReady(int playerID){
-        isReady[playerID] = false;
+    public void shutdown(){
+        System.out.println("Shutting down server");
+        if (nioTransport != null){
+            nioTransport.shutdown();
+        }
+        try {
+            if (serverSocket != null){
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (GameRoom room : registry.getRooms()){
+            for (ClientRequestHandler client : room.getClients()){
+                client.stopListening();
+            }
+            room.shutdown();
+        }
+        registry.close();
+        if (clientExecutor != null){
+            clientExecutor.close();              //Waits for the handlers released by closing their sockets
+        }
     }
+
     /**
-     * Checks if a specific player is ready to start the game.
+     * Retrieves the number of messages that may wait for a single client before the backpressure policy applies.
+     * Configured with the system property {@code risk.outbound.capacity}, 256 by default.
      *
-     * @param playerID The ID of the player to check.
-     * @return True if the player is ready, false otherwise.
+     * @return The capacity of each client's outbound queue.
      */
-    public boolean isReady(int playerID){
-        return isReady[playerID];
+    public int getOutboundCapacity(){
+        return outboundCapacity;
     }
+
     /**
-     * Retrieves the array indicating the readiness status of all players.
+     * Retrieves what the server does when a client cannot keep up with its messages.
+     * Configured with the system property {@code risk.outbound.policy}, {@code coalesce} by default.
      *
-     * @return An array of booleans representing the readiness status of each player.
+     * @return The backpressure policy for the clients of this server.
      */
-    public boolean[] getIsReady(){
-        return isReady;
+    public BackpressurePolicy getBackpressurePolicy(){
+        return backpressurePolicy;
     }
 
     /**
-     * Broadcasts a message to all connected clients.
+     * Retrieves the registry holding all game rooms of this server.
      *
-     * @param message The message to broadcast to all clients.
+     * @return The GameRegistry of this server.
      */
-    public void broadcastMessage(String message){
-        for(ClientRequestHandler client : clientRequestHandlers){
-            client.sendMessage(message);
-        }
-        System.out.println("Broadcasting: " + message);
+    public GameRegistry getRegistry(){
+        return registry;
     }
+
     /**
-     * Removes a client from the list of active client handlers.
+     * Removes a client from the room it is connected to.
+     * Rooms other than the default room are removed once their last client has left, see {@link GameRegistry#removeIfEmpty(GameRoom)}.
      *
-     * @param client The ClientRequestHandler2 instance representing the client to remove.
+     * @param client The ClientRequestHandler instance representing the client to remove.
      */
     public void removeClient(ClientRequestHandler client) {
-        clientRequestHandlers.remove(client);
+        GameRoom room = client.getRoom();
+        room.removeClient(client);
+        registry.removeIfEmpty(room);
     }
+
     /**
-     * Main method to start the GameServer2 instance on a specified port.
+     * Main method to start the GameServer instance on a specified port.
+     * The transport can be chosen with the first argument, e.g. {@code java -jar Server.jar virtual},
+     * and the port with the second one. Without arguments, one platform thread per client is used on port 12344.
+     * The server is shut down cleanly when the JVM exits.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments: optionally the name of the {@link TransportMode} and the port to use.
      */
     public static void main(String[] args){
-        GameServer server = new GameServer(12344, "Risk");
+        TransportMode transportMode = args.length > 0 ? TransportMode.fromName(args[0]) : TransportMode.THREAD;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 12344;
+        GameServer server = new GameServer(port, "Risk", transportMode);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown, "server-shutdown"));
         server.start();
     }
 
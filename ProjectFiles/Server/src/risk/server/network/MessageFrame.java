@@ -0,0 +1,135 @@
+package risk.server.network;
+
+import risk.common.protocol.FrameCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Collects the lines of one logical message to a client, e.g. a board update or a player list.
+ * <p>
+ * The protocol sends one value per line, so a single message can span hundreds of lines. Writing such a message
+ * line by line costs one flush per line and client and lets other messages slip in between its lines. A frame is
+ * built completely first and rendered to text only once, no matter to how many clients it is sent. Each client
+ * then receives it with a single write and a single flush, see {@link ClientRequestHandler#sendFrame(MessageFrame)}
+ * and {@link GameRoom#broadcastFrame(MessageFrame)}.
+ * <p>
+ * Clients that switched to the binary protocol receive the frame as encoded by {@link #getBinary()}: a compact
+ * encoding set with {@link #setBinary(ByteBuffer)}, or else the text wrapped in a single text frame.
+ */
+public class MessageFrame {
+    private final StringBuilder lines = new StringBuilder();
+    private final String header;
+    private int lineCount = 0;
+    private boolean boardUpdate = false;
+    private String text;
+    private ByteBuffer binary;
+
+    /**
+     * Constructs a new frame starting with the given header line, e.g. {@code "COUNTRY_DATA: 3"}.
+     *
+     * @param header The first line of the frame, naming the message.
+     */
+    public MessageFrame(String header){
+        this.header = header;
+        add(header);
+    }
+
+    /**
+     * Appends a line to the frame.
+     *
+     * @param line The line to append, without line terminator.
+     * @return This frame, so that calls can be chained.
+     */
+    public MessageFrame add(String line){
+        lines.append(line).append(System.lineSeparator());
+        lineCount++;
+        text = null;
+        return this;
+    }
+
+    /**
+     * Appends a number as a line to the frame.
+     *
+     * @param value The number to append.
+     * @return This frame, so that calls can be chained.
+     */
+    public MessageFrame add(long value){
+        return add(String.valueOf(value));
+    }
+
+    /**
+     * Marks the frame as an update of the board. A client that falls behind may skip board updates, as long as it
+     * receives the complete board afterwards.
+     *
+     * @return This frame, so that calls can be chained.
+     */
+    public MessageFrame markBoardUpdate(){
+        boardUpdate = true;
+        return this;
+    }
+
+    /**
+     * Checks if the frame is an update of the board that may be replaced by the complete board.
+     *
+     * @return True if the frame is a board update, false otherwise.
+     */
+    public boolean isBoardUpdate(){
+        return boardUpdate;
+    }
+
+    /**
+     * Retrieves the header line of the frame.
+     *
+     * @return The first line of the frame.
+     */
+    public String getHeader(){
+        return header;
+    }
+
+    /**
+     * Retrieves the number of lines in the frame, including the header.
+     *
+     * @return The number of lines.
+     */
+    public int getLineCount(){
+        return lineCount;
+    }
+
+    /**
+     * Retrieves the text of the whole frame, each line followed by a line terminator.
+     * The text is rendered once and reused until another line is appended.
+     *
+     * @return The rendered frame.
+     */
+    public String getText(){
+        if (text == null){
+            text = lines.toString();
+        }
+        return text;
+    }
+
+    /**
+     * Sets a compact binary encoding of this frame, e.g. a {@link risk.common.protocol.Opcode#COUNTRY_DELTA} frame,
+     * which clients using the binary protocol receive instead of the text.
+     *
+     * @param binary The encoded frame, as created by {@link FrameCodec}.
+     * @return This frame, so that calls can be chained.
+     */
+    public MessageFrame setBinary(ByteBuffer binary){
+        this.binary = binary;
+        return this;
+    }
+
+    /**
+     * Retrieves the frame as sent to clients using the binary protocol. Without a compact encoding, the text is
+     * wrapped in a text frame, once for all clients.
+     *
+     * @return A new view of the encoded frame, positioned at its start.
+     */
+    public synchronized ByteBuffer getBinary(){
+        if (binary == null){
+            binary = FrameCodec.encodeText(getText());
+        }
+        return binary.duplicate();
+    }
+}
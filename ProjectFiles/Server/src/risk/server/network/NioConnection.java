@@ -0,0 +1,351 @@
+package risk.server.network;
+
+import risk.common.protocol.FrameCodec;
+import risk.common.protocol.FrameListener;
+import risk.common.protocol.Opcode;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Represents a single client connection served by the NIO transport.
+ * <p>
+ * Each connection owns a fixed size read buffer and a queue of pending outgoing buffers. Incoming bytes are split
+ * into lines and handed to the connection's {@link ClientRequestHandler}, so the text protocol is the same as for
+ * the blocking transport. Outgoing text written through {@link #getWriter()} is encoded once per flush and sent by
+ * the {@link NioEventLoop} the connection is registered with, without blocking the writing thread.
+ * <p>
+ * After the client switched to the binary protocol, see {@link #switchToBinary()}, the received bytes are decoded
+ * as frames directly in the read buffer. A frame therefore must not be larger than the read buffer.
+ */
+public class NioConnection {
+    static final int READ_BUFFER_SIZE = 8 * 1024;
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+    /** Number of buffers that may wait in the write queue before the client's writer has to wait. */
+    static final int MAX_PENDING_BUFFERS = 16;
+
+    private final SocketChannel channel;
+    private final NioEventLoop eventLoop;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingBuffers = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Condition drained = drainLock.newCondition();
+    private final Writer writer = new ConnectionWriter();
+    private final FrameListener frameListener = this::onFrame;
+    private byte[] lineBuffer = new byte[256];
+    private int lineLength = 0;
+    private SelectionKey key;
+    private ClientRequestHandler handler;
+    private volatile boolean closed = false;
+    private boolean binary = false;
+    private boolean disconnectRequested = false;
+
+    /**
+     * Constructs a NioConnection for an accepted, non-blocking socket channel.
+     *
+     * @param channel The accepted socket channel, already configured as non-blocking.
+     * @param eventLoop The event loop that serves this connection.
+     */
+    public NioConnection(SocketChannel channel, NioEventLoop eventLoop){
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Sets the handler that processes the lines received on this connection.
+     *
+     * @param handler The ClientRequestHandler of this connection.
+     */
+    void setHandler(ClientRequestHandler handler){
+        this.handler = handler;
+    }
+
+    /**
+     * Retrieves a writer whose flushed content is sent to the client.
+     *
+     * @return The writer of this connection.
+     */
+    public Writer getWriter(){
+        return writer;
+    }
+
+    /**
+     * Registers the channel with the selector of its event loop. Must be called on the event loop thread.
+     *
+     * @param selector The selector of the event loop.
+     * @throws ClosedChannelException If the channel has been closed in the meantime.
+     */
+    void register(Selector selector) throws ClosedChannelException {
+        int ops = writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        key = channel.register(selector, ops, this);
+    }
+
+    /**
+     * Switches the input of this connection to binary frames, starting with the byte after the current line.
+     * Must be called on the event loop thread, i.e. while the handler processes a line.
+     */
+    void switchToBinary(){
+        binary = true;
+    }
+
+    /**
+     * Reads the available bytes from the channel and hands every complete line or frame to the handler.
+     * Must be called on the event loop thread.
+     */
+    void onReadable(){
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0){
+            handler.disconnected();
+            return;
+        }
+        readBuffer.flip();
+        if (!binary && !readLines()){
+            return;
+        }
+        if (binary && !readFrames()){
+            return;
+        }
+        readBuffer.compact();
+    }
+
+    /**
+     * Hands every complete line in the read buffer to the handler. Stops early if the handler switched the
+     * connection to binary frames, leaving the remaining bytes in the buffer.
+     *
+     * @return false if the connection has been closed, true otherwise.
+     */
+    private boolean readLines(){
+        while (readBuffer.hasRemaining() && !binary){
+            byte b = readBuffer.get();
+            if (b == '\n'){
+                int length = lineLength > 0 && lineBuffer[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                String line = new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+                lineLength = 0;
+                if (!handler.handleLine(line)){
+                    handler.disconnected();
+                    return false;
+                }
+            } else {
+                if (lineLength == MAX_LINE_LENGTH){
+                    System.out.println("Line too long, closing connection");
+                    handler.disconnected();
+                    return false;
+                }
+                if (lineLength == lineBuffer.length){
+                    lineBuffer = Arrays.copyOf(lineBuffer, Math.min(lineBuffer.length * 2, MAX_LINE_LENGTH));
+                }
+                lineBuffer[lineLength++] = b;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands every complete frame in the read buffer to the handler. An incomplete frame stays in the buffer until
+     * the rest of it has been received.
+     *
+     * @return false if the connection has been closed, true otherwise.
+     */
+    private boolean readFrames(){
+        try {
+            FrameCodec.decode(readBuffer, frameListener);
+        } catch (ProtocolException e) {
+            System.out.println(e.getMessage() + ", closing connection");
+            handler.disconnected();
+            return false;
+        }
+        if (disconnectRequested){
+            handler.disconnected();
+            return false;
+        }
+        if (readBuffer.position() == 0 && readBuffer.limit() == readBuffer.capacity()){
+            System.out.println("Frame too long, closing connection");
+            handler.disconnected();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hands the lines of a text frame to {@link ClientRequestHandler#handleLine(String)} and any other frame to
+     * {@link ClientRequestHandler#handleFrame(byte, ByteBuffer)}.
+     *
+     * @param opcode The opcode of the frame.
+     * @param payload The payload of the frame.
+     */
+    private void onFrame(byte opcode, ByteBuffer payload){
+        if (disconnectRequested){
+            return;
+        }
+        if (opcode != Opcode.TEXT){
+            handler.handleFrame(opcode, payload);
+            return;
+        }
+        String text = StandardCharsets.UTF_8.decode(payload).toString();
+        for (String line : text.split("\\r?\\n")){
+            if (!handler.handleLine(line)){
+                disconnectRequested = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes as many pending buffers as the socket accepts. Stops listening for writability once
+     * everything has been sent. Must be called on the event loop thread.
+     */
+    void onWritable(){
+        try {
+            ByteBuffer buffer;
+            while ((buffer = writeQueue.peek()) != null){
+                channel.write(buffer);
+                if (buffer.hasRemaining()){
+                    return;                         //Socket buffer is full, continue on the next OP_WRITE
+                }
+                writeQueue.poll();
+                if (pendingBuffers.decrementAndGet() < MAX_PENDING_BUFFERS){
+                    signalDrained();
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            handler.disconnected();
+        }
+    }
+
+    /**
+     * Makes the event loop listen for writability of this connection. Must be called on the event loop thread.
+     */
+    void enableWriteInterest(){
+        if (key != null && key.isValid() && !writeQueue.isEmpty()){
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Queues a buffer to be sent to the client. May be called from any thread.
+     *
+     * @param buffer The bytes to send.
+     */
+    void send(ByteBuffer buffer){
+        if (closed){
+            return;
+        }
+        writeQueue.add(buffer);
+        pendingBuffers.incrementAndGet();
+        eventLoop.requestWrite(this);
+    }
+
+    /**
+     * Waits until the socket has accepted enough of the queued data to queue more.
+     * Called by the writer of the client before writing the next message, so that messages for a slow client pile
+     * up in its bounded {@link OutboundQueue}, where the backpressure policy applies, and not in this connection.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void awaitWritable() throws InterruptedException {
+        drainLock.lock();
+        try {
+            while (pendingBuffers.get() >= MAX_PENDING_BUFFERS && !closed){
+                drained.await();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up a writer waiting in {@link #awaitWritable()}.
+     */
+    private void signalDrained(){
+        drainLock.lock();
+        try {
+            drained.signalAll();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the client from its room and closes the connection, e.g. after its handler failed.
+     */
+    void disconnect(){
+        if (handler != null){
+            handler.disconnected();
+        } else {
+            close();
+        }
+    }
+
+    /**
+     * Closes the channel and removes it from its event loop.
+     */
+    public void close(){
+        closed = true;
+        signalDrained();
+        if (key != null){
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Collects written characters and queues them as one UTF-8 encoded buffer on every flush.
+     */
+    private class ConnectionWriter extends Writer {
+        private final StringBuilder pending = new StringBuilder();
+
+        @Override
+        public void write(char[] cbuf, int off, int len){
+            synchronized (lock) {
+                pending.append(cbuf, off, len);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len){
+            synchronized (lock) {
+                pending.append(str, off, off + len);
+            }
+        }
+
+        @Override
+        public void flush(){
+            synchronized (lock) {
+                if (pending.length() == 0){
+                    return;
+                }
+                send(ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8)));
+                pending.setLength(0);
+            }
+        }
+
+        @Override
+        public void close(){
+            flush();
+        }
+    }
+}
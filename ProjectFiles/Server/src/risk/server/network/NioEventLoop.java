@@ -0,0 +1,138 @@
+package risk.server.network;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single selector thread of the NIO transport.
+ * <p>
+ * The event loop serves all {@link NioConnection}s registered with it: it reads incoming data, lets the
+ * connection's handler process complete lines and writes queued outgoing data once the socket accepts it.
+ * Other threads never touch the selector directly, they hand new connections and write requests over through
+ * queues and wake the selector up.
+ */
+public class NioEventLoop implements Runnable {
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new event loop with its own selector.
+     *
+     * @param name The name of the event loop thread.
+     * @throws IOException If the selector cannot be opened.
+     */
+    public NioEventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+    }
+
+    /**
+     * Starts the event loop thread.
+     */
+    public void start(){
+        thread.start();
+    }
+
+    /**
+     * Stops the event loop thread after the current iteration.
+     */
+    public void shutdown(){
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Hands a new connection over to this event loop. May be called from any thread.
+     *
+     * @param connection The connection to serve.
+     */
+    void register(NioConnection connection){
+        pendingRegistrations.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the event loop to send the queued data of a connection. May be called from any thread.
+     *
+     * @param connection The connection with pending outgoing data.
+     */
+    void requestWrite(NioConnection connection){
+        pendingWrites.add(connection);
+        if (Thread.currentThread() != thread){
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Runs the event loop until {@link #shutdown()} is called.
+     */
+    @Override
+    public void run(){
+        System.out.println("Event loop " + thread.getName() + " is running");
+        while (running){
+            try {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()){
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    processKey(key);
+                }
+                processPending();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Dispatches the ready operations of a single selection key to its connection.
+     *
+     * @param key The selected key.
+     */
+    private void processKey(SelectionKey key){
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isValid() && key.isReadable()){
+                connection.onReadable();
+            }
+            if (key.isValid() && key.isWritable()){
+                connection.onWritable();
+            }
+        } catch (RuntimeException e) {
+            //A failing command must not take the other connections of this loop down with it
+            e.printStackTrace();
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Registers new connections and enables write interest for connections with queued data.
+     */
+    private void processPending(){
+        NioConnection connection;
+        while ((connection = pendingRegistrations.poll()) != null){
+            try {
+                connection.register(selector);
+            } catch (ClosedChannelException e) {
+                System.out.println("Connection closed before registration");
+            }
+        }
+        while ((connection = pendingWrites.poll()) != null){
+            connection.enableWriteInterest();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package risk.server.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Non-blocking transport for the {@link GameServer} built on {@link java.nio.channels.Selector}s.
+ * <p>
+ * Instead of one thread per client, a small fixed pool of {@link NioEventLoop}s serves all connections. Accepted
+ * channels are spread over the event loops round-robin. Idle lobby connections therefore cost a selection key and
+ * a small read buffer each, not a platform thread. The text protocol is unchanged, so existing clients can connect
+ * to a server running this transport without any change.
+ */
+public class NioTransport {
+    private final ServerSocketChannel serverChannel;
+    private final NioEventLoop[] eventLoops;
+    private final GameServer server;
+    private int nextEventLoop = 0;
+
+    /**
+     * Constructs a NioTransport bound to the given port.
+     *
+     * @param port The port number on which the server will listen for client connections.
+     * @param server The GameServer whose rooms the clients are placed in.
+     * @param eventLoopCount The number of event loop threads serving the connections.
+     * @throws IOException If the port cannot be bound or a selector cannot be opened.
+     */
+    public NioTransport(int port, GameServer server, int eventLoopCount) throws IOException {
+        this.server = server;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port), GameServer.ACCEPT_BACKLOG);
+        this.eventLoops = new NioEventLoop[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++){
+            eventLoops[i] = new NioEventLoop("nio-event-loop-" + i);
+        }
+    }
+
+    /**
+     * Starts the event loops and accepts client connections on the calling thread.
+     * Each accepted client gets a ClientRequestHandler, is placed in the default room and receives the welcome message.
+     */
+    public void start(){
+        for (NioEventLoop eventLoop : eventLoops){
+            eventLoop.start();
+        }
+        while (serverChannel.isOpen()){
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                NioEventLoop eventLoop = eventLoops[nextEventLoop];
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+
+                NioConnection connection = new NioConnection(channel, eventLoop);
+                GameRoom room = server.getRegistry().getDefaultRoom();
+                ClientRequestHandler clientRequestHandler = new ClientRequestHandler(connection, room, server);
+                connection.setHandler(clientRequestHandler);
+                room.addClient(clientRequestHandler);
+                clientRequestHandler.sendMessage("Wilkommen");
+                eventLoop.register(connection);
+                System.out.println("New client connected" + clientRequestHandler.getClientID());
+            } catch (IOException e) {
+                if (serverChannel.isOpen()){
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and shuts the event loops down.
+     */
+    public void shutdown(){
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (NioEventLoop eventLoop : eventLoops){
+            eventLoop.shutdown();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package risk.server.network;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of the messages waiting to be written to one client.
+ * <p>
+ * Threads that send a message to the client, e.g. the handler of another player broadcasting a board update, only
+ * put the message into this queue and return immediately. A writer thread of the client takes the messages out and
+ * writes them to the socket, so a slow client only delays its own messages. When the queue is full, the configured
+ * {@link BackpressurePolicy} decides what happens. Only board updates are ever dropped: all but the newest one, or
+ * all of them in favour of the {@link #RESYNC} marker, for which the writer sends the complete current board. Replies
+ * the client waits for and control frames like the switch of the protocol are never dropped: if they alone fill the
+ * queue, the client is disconnected instead. The queue keeps simple metrics: its current and maximum
+ * depth and the number of messages dropped.
+ */
+public class OutboundQueue {
+    /** Marker taking the place of dropped board updates; the writer replaces it with the complete current board. */
+    static final MessageFrame RESYNC = new MessageFrame("RESYNC:");
+
+    private final Deque<MessageFrame> frames = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private int maxDepth = 0;
+    private long droppedCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructs a new, empty OutboundQueue.
+     *
+     * @param capacity The maximum number of messages waiting for the client.
+     * @param policy What to do when the queue is full.
+     */
+    public OutboundQueue(int capacity, BackpressurePolicy policy){
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Adds a message to the queue without blocking.
+     *
+     * @param frame The message for the client.
+     * @return false if the queue is full and the policy asks to disconnect the client, or if the queue is full of
+     *         messages that cannot be dropped; true otherwise.
+     */
+    public boolean offer(MessageFrame frame){
+        lock.lock();
+        try {
+            if (closed){
+                return true;
+            }
+            if (frames.size() >= capacity){
+                if (policy == BackpressurePolicy.DISCONNECT){
+                    droppedCount += frames.size() + 1;
+                    frames.clear();
+                    return false;
+                }
+                if (policy == BackpressurePolicy.DROP_AND_RESYNC){
+                    resyncBoardUpdates();
+                    if (frame.isBoardUpdate() && frames.contains(RESYNC)){
+                        droppedCount++;         //Already covered by the complete board the client will receive
+                        return true;
+                    }
+                } else {
+                    coalesceBoardUpdates(!frame.isBoardUpdate());       //A new board update is the newest one itself
+                    if (frames.size() >= capacity){
+                        coalesceBoardUpdates(false);
+                    }
+                }
+                if (frames.size() >= capacity){
+                    droppedCount += frames.size() + 1;      //Replies and control frames alone fill the queue, they must not be dropped
+                    frames.clear();
+                    return false;
+                }
+            }
+            frames.add(frame);
+            maxDepth = Math.max(maxDepth, frames.size());
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the queued board updates except the newest one, for {@link BackpressurePolicy#COALESCE}.
+     * Must be called while holding the lock.
+     *
+     * @param keepNewest false to remove the newest board update as well, because a newer one is about to be queued.
+     */
+    private void coalesceBoardUpdates(boolean keepNewest){
+        MessageFrame newest = null;
+        if (keepNewest){
+            Iterator<MessageFrame> descending = frames.descendingIterator();
+            while (descending.hasNext() && newest == null){
+                MessageFrame queued = descending.next();
+                if (queued.isBoardUpdate()){
+                    newest = queued;
+                }
+            }
+        }
+        Iterator<MessageFrame> iterator = frames.iterator();
+        while (iterator.hasNext()){
+            MessageFrame queued = iterator.next();
+            if (queued.isBoardUpdate() && queued != newest){
+                iterator.remove();
+                droppedCount++;
+            }
+        }
+    }
+
+    /**
+     * Removes all queued board updates and puts a single {@link #RESYNC} marker at the end of the queue instead, for
+     * {@link BackpressurePolicy#DROP_AND_RESYNC}. Must be called while holding the lock.
+     */
+    private void resyncBoardUpdates(){
+        boolean removed = false;
+        Iterator<MessageFrame> iterator = frames.iterator();
+        while (iterator.hasNext()){
+            MessageFrame queued = iterator.next();
+            if (queued.isBoardUpdate() || queued == RESYNC){
+                iterator.remove();
+                if (queued != RESYNC){
+                    droppedCount++;
+                }
+                removed = true;
+            }
+        }
+        if (removed){
+            frames.add(RESYNC);
+        }
+    }
+
+    /**
+     * Takes the next message out of the queue, waiting until one is available.
+     *
+     * @return The next message, or null once the queue has been closed.
+     * @throws InterruptedException If the writer thread is interrupted while waiting.
+     */
+    public MessageFrame take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (frames.isEmpty() && !closed){
+                notEmpty.await();
+            }
+            return closed ? null : frames.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the queue. Queued messages are discarded and a waiting writer is released.
+     */
+    public void close(){
+        lock.lock();
+        try {
+            closed = true;
+            frames.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of messages currently waiting for the client.
+     *
+     * @return The current depth of the queue.
+     */
+    public int getDepth(){
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the highest number of messages that were waiting for the client at the same time.
+     *
+     * @return The maximum depth of the queue.
+     */
+    public int getMaxDepth(){
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of messages dropped because the queue was full.
+     *
+     * @return The number of dropped messages.
+     */
+    public long getDroppedCount(){
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
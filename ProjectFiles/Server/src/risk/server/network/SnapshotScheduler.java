@@ -0,0 +1,201 @@
+package risk.server.network;
+
+import risk.server.domain.GameSnapshot;
+import risk.server.domain.SaveGameFormat;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the games of all rooms of a {@link GameRegistry} at a fixed interval, without holding up their games.
+ * <p>
+ * Each interval, every room captures a {@link GameSnapshot} of its game on its own command loop, which only copies the
+ * state of the game. Encoding the snapshot and writing the file is then done by the single thread of this scheduler,
+ * so the rooms go on with their commands while their games are saved. A room whose game has not started, or has not
+ * changed since its last snapshot, is skipped.
+ * <p>
+ * The snapshots of a room are kept in the directory {@code room-<id>} as save games named {@code <number>.rsk}, numbered
+ * so that the names sort like the snapshots. Only the newest snapshots are kept, older ones are deleted after each new
+ * one has been written. The snapshots of a room are only deleted once its game is over; a room that is removed
+ * because it was left keeps them. When the server is restarted, its {@link GameRegistry} restores the rooms listed by
+ * {@link #savedRooms()}, each from the newest of its snapshots if it has no journal to recover from, see
+ * {@link #savedGames(String)}.
+ */
+public class SnapshotScheduler {
+    /** The file name extension of the snapshots. */
+    public static final String SUFFIX = ".rsk";
+
+    private final GameRegistry registry;
+    private final Path directory;
+    private final int keep;
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Constructs a SnapshotScheduler and starts saving the games of the rooms of a registry.
+     *
+     * @param registry The registry whose rooms are saved.
+     * @param directory The directory the snapshots are kept in; it is created if necessary.
+     * @param intervalSeconds The number of seconds between two snapshots of a room.
+     * @param keep The number of snapshots kept per room, at least 1.
+     * @throws IOException If the directory cannot be created.
+     */
+    public SnapshotScheduler(GameRegistry registry, Path directory, long intervalSeconds, int keep) throws IOException {
+        if (intervalSeconds <= 0 || keep < 1){
+            throw new IllegalArgumentException("Invalid snapshot interval " + intervalSeconds + " or number of snapshots " + keep);
+        }
+        this.registry = registry;
+        this.directory = directory;
+        this.keep = keep;
+        Files.createDirectories(directory);
+        this.writer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("snapshot-writer").factory());
+        writer.scheduleWithFixedDelay(this::captureAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Asks every room for a snapshot of its game and writes each snapshot on the writer thread once the room has
+     * captured it.
+     */
+    private void captureAll(){
+        for (GameRoom room : registry.getRooms()){
+            room.captureSnapshot().thenAcceptAsync(snapshot -> {
+                if (snapshot != null && registry.getRoom(room.getId()) == room){     //Not removed while capturing
+                    write(room.getId(), snapshot);
+                }
+            }, writer);
+        }
+    }
+
+    /**
+     * Writes a snapshot of a room as its newest save game and deletes the ones that are no longer kept.
+     *
+     * @param roomId The ID of the room.
+     * @param snapshot The snapshot of its game.
+     */
+    private void write(String roomId, GameSnapshot snapshot){
+        Path roomDirectory = directory.resolve("room-" + roomId);
+        try {
+            Files.createDirectories(roomDirectory);
+            List<Long> numbers = numbers(roomDirectory);
+            long next = numbers.isEmpty() ? 1 : numbers.get(numbers.size() - 1) + 1;
+            SaveGameFormat.write(snapshot, roomDirectory.resolve(name(next)));
+            numbers.add(next);
+            for (int i = 0; i < numbers.size() - keep; i++){
+                Files.deleteIfExists(roomDirectory.resolve(name(numbers.get(i))));
+            }
+        } catch (IOException e) {
+            System.out.println("Snapshot of room " + roomId + " could not be written: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Lists the rooms snapshots are kept for, e.g. to restore them after the server was restarted.
+     *
+     * @return The IDs of the rooms with at least one save game, in no particular order.
+     * @throws IOException If the directory cannot be read.
+     */
+    public List<String> savedRooms() throws IOException {
+        List<String> roomIds = new ArrayList<>();
+        try (DirectoryStream<Path> roomDirectories = Files.newDirectoryStream(directory, "room-*")) {
+            for (Path roomDirectory : roomDirectories){
+                if (Files.isDirectory(roomDirectory) && !numbers(roomDirectory).isEmpty()){
+                    roomIds.add(roomDirectory.getFileName().toString().substring("room-".length()));
+                }
+            }
+        }
+        return roomIds;
+    }
+
+    /**
+     * Lists the snapshots kept for a room, e.g. to restore its game after the server was restarted.
+     *
+     * @param roomId The ID of the room.
+     * @return The save games of the room, newest first; empty if the room has none.
+     * @throws IOException If the directory of the room cannot be read.
+     */
+    public List<Path> savedGames(String roomId) throws IOException {
+        Path roomDirectory = directory.resolve("room-" + roomId);
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(roomDirectory)){
+            return files;
+        }
+        List<Long> numbers = numbers(roomDirectory);
+        for (int i = numbers.size() - 1; i >= 0; i--){
+            files.add(roomDirectory.resolve(name(numbers.get(i))));
+        }
+        return files;
+    }
+
+    /**
+     * Deletes the snapshots of a room whose game is over. The files are deleted on the writer thread, after any
+     * snapshot of the room that is still being written.
+     *
+     * @param roomId The ID of the room.
+     */
+    public void discard(String roomId){
+        try {
+            writer.execute(() -> {
+                Path roomDirectory = directory.resolve("room-" + roomId);
+                if (!Files.isDirectory(roomDirectory)){
+                    return;
+                }
+                try {
+                    for (long number : numbers(roomDirectory)){
+                        Files.deleteIfExists(roomDirectory.resolve(name(number)));
+                    }
+                    Files.deleteIfExists(roomDirectory);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //Closed, the snapshots are kept
+        }
+    }
+
+    /**
+     * Stops taking snapshots and waits until the snapshots already captured have been written.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Lists the numbers of the snapshots in the directory of a room.
+     *
+     * @param roomDirectory The directory of the room.
+     * @return The numbers, oldest first.
+     * @throws IOException If the directory cannot be read.
+     */
+    private static List<Long> numbers(Path roomDirectory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(roomDirectory, "*" + SUFFIX)) {
+            for (Path file : files){
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    //Not a snapshot
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private static String name(long number){
+        return String.format("%019d%s", number, SUFFIX);
+    }
+}
@@ -0,0 +1,26 @@
+package risk.server.network;
+
+/**
+ * Lists the ways the {@link GameServer} can serve its client connections.
+ * <p>
+ * All modes speak the same line based text protocol, they only differ in how connections are mapped to threads.
+ */
+public enum TransportMode {
+    /** Blocking sockets, one platform thread per connected client. */
+    THREAD,
+    /** Blocking sockets, one virtual thread per connected client. */
+    VIRTUAL,
+    /** Non-blocking socket channels served by a small, fixed pool of selector event loops. */
+    NIO;
+
+    /**
+     * Resolves a transport mode from its name as given on the command line, ignoring case.
+     *
+     * @param name The name of the transport mode, e.g. "nio".
+     * @return The matching TransportMode.
+     * @throws IllegalArgumentException If no transport mode with the given name exists.
+     */
+    public static TransportMode fromName(String name){
+        return valueOf(name.trim().toUpperCase());
+    }
+}
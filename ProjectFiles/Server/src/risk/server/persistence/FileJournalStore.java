@@ -0,0 +1,385 @@
+package risk.server.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the journal of each game in a directory of its own, named after the key of the game.
+ * <p>
+ * The directory of a game holds generations. Each generation is a snapshot and a file with the records appended after
+ * it, both named after the number of the generation. A checkpoint writes the snapshot of the next generation, starts
+ * its record file and deletes the older generations.
+ * <p>
+ * Appending a record only copies it into a buffer in memory. Each game has a writer thread that appends the buffered
+ * records to the record file and forces them to the disk; all records that arrive while it waits for the disk are
+ * written together and forced once (group commit). This costs a thread and an fsync per game and suits a server with
+ * a few games; {@link MappedJournalStore} serves many games with one thread.
+ */
+public class FileJournalStore implements JournalStore {
+    /** The file name extension of the snapshots. */
+    public static final String SNAPSHOT_SUFFIX = ".snapshot";
+    /** The file name extension of the record files. */
+    public static final String RECORDS_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final Map<String, GameFiles> games = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a FileJournalStore keeping the journals in the given directory.
+     *
+     * @param directory The directory; it is created if necessary.
+     * @throws IOException If the directory cannot be created.
+     */
+    public FileJournalStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void append(String game, ByteBuffer record){
+        GameFiles files = games.get(game);
+        if (files == null){
+            System.out.println("Journal of game " + game + " has no checkpoint, record discarded");
+            return;
+        }
+        files.append(record);
+    }
+
+    @Override
+    public void checkpoint(String game, ByteBuffer snapshot) throws IOException {
+        GameFiles files = games.get(game);
+        if (files == null){
+            files = new GameFiles(directory.resolve(game));
+            games.put(game, files);
+        }
+        files.checkpoint(snapshot);
+    }
+
+    @Override
+    public void sync(String game) throws IOException {
+        GameFiles files = games.get(game);
+        if (files != null){
+            files.sync();
+        }
+    }
+
+    @Override
+    public void release(String game) throws IOException {
+        GameFiles files = games.remove(game);
+        if (files != null){
+            files.close();
+        }
+    }
+
+    @Override
+    public void finish(String game) throws IOException {
+        release(game);
+        Path gameDirectory = directory.resolve(game);
+        if (Files.isDirectory(gameDirectory)){
+            for (long generation : generations(gameDirectory)){
+                Files.deleteIfExists(gameDirectory.resolve(name(generation, RECORDS_SUFFIX)));
+                Files.deleteIfExists(gameDirectory.resolve(name(generation, SNAPSHOT_SUFFIX)));
+            }
+            Files.deleteIfExists(gameDirectory);
+        }
+    }
+
+    @Override
+    public ByteBuffer readSnapshot(String game) throws IOException {
+        Path gameDirectory = directory.resolve(game);
+        if (!Files.isDirectory(gameDirectory)){
+            return null;
+        }
+        List<Long> generations = generations(gameDirectory);
+        if (generations.isEmpty()){
+            return null;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(gameDirectory.resolve(name(generations.get(generations.size() - 1), SNAPSHOT_SUFFIX))));
+    }
+
+    @Override
+    public ByteBuffer readRecords(String game) throws IOException {
+        Path gameDirectory = directory.resolve(game);
+        if (!Files.isDirectory(gameDirectory)){
+            return ByteBuffer.allocate(0);
+        }
+        List<Long> generations = generations(gameDirectory);
+        if (generations.isEmpty()){
+            return ByteBuffer.allocate(0);
+        }
+        Path records = gameDirectory.resolve(name(generations.get(generations.size() - 1), RECORDS_SUFFIX));
+        return Files.exists(records) ? ByteBuffer.wrap(Files.readAllBytes(records)) : ByteBuffer.allocate(0);
+    }
+
+    @Override
+    public List<String> games() throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (DirectoryStream<Path> gameDirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path gameDirectory : gameDirectories){
+                if (!generations(gameDirectory).isEmpty()){
+                    keys.add(gameDirectory.getFileName().toString());
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Writes the outstanding records of all games and stops their writer threads.
+     *
+     * @throws IOException If the records of a game could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (String game : new ArrayList<>(games.keySet())){
+            try {
+                release(game);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null){
+            throw failure;
+        }
+    }
+
+    /**
+     * Lists the generations that have a snapshot in the directory of a game.
+     *
+     * @param gameDirectory The directory of the game.
+     * @return The generations, oldest first.
+     * @throws IOException If the directory cannot be read.
+     */
+    private static List<Long> generations(Path gameDirectory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(gameDirectory, "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files){
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(0, name.length() - SNAPSHOT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    //Not a snapshot of the journal
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Builds the name of a file of a generation, numbered so the names sort like the generations.
+     *
+     * @param generation The generation.
+     * @param suffix {@link #SNAPSHOT_SUFFIX} or {@link #RECORDS_SUFFIX}.
+     * @return The file name.
+     */
+    private static String name(long generation, String suffix){
+        return String.format("%019d%s", generation, suffix);
+    }
+
+    /**
+     * The files of one game together with its buffered records and writer thread.
+     */
+    private static class GameFiles {
+        private final Path directory;
+        private final Object lock = new Object();
+        private final Thread writer;
+        //Guarded by lock
+        private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+        private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+        private FileChannel channel;
+        private long generation;
+        private long appended;
+        private long durable;
+        private boolean writerWaiting;
+        private boolean closed;
+        private IOException failure;
+
+        /**
+         * Constructs the files of a game, continuing after the newest generation in its directory.
+         *
+         * @param directory The directory of the game; it is created if necessary.
+         * @throws IOException If the directory cannot be created or read.
+         */
+        GameFiles(Path directory) throws IOException {
+            this.directory = directory;
+            Files.createDirectories(directory);
+            List<Long> generations = generations(directory);
+            this.generation = generations.isEmpty() ? 0 : generations.get(generations.size() - 1);
+            this.writer = Thread.ofPlatform().daemon().name("journal-" + directory.getFileName()).start(this::writeLoop);
+        }
+
+        /**
+         * Writes a snapshot as the next generation, starts its record file and deletes the older generations.
+         *
+         * @param snapshot The snapshot.
+         * @throws IOException If the snapshot or the record file cannot be written.
+         */
+        void checkpoint(ByteBuffer snapshot) throws IOException {
+            sync();
+            long next = generation + 1;
+            Path snapshotFile = directory.resolve(name(next, SNAPSHOT_SUFFIX));
+            Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (snapshot.hasRemaining()){
+                    out.write(snapshot);
+                }
+                out.force(true);
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileChannel nextChannel = FileChannel.open(directory.resolve(name(next, RECORDS_SUFFIX)), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            FileChannel previous;
+            synchronized (lock) {
+                previous = channel;
+                channel = nextChannel;
+                generation = next;
+            }
+            if (previous != null){
+                previous.close();
+            }
+            for (long old : generations(directory)){
+                if (old < next){
+                    Files.deleteIfExists(directory.resolve(name(old, RECORDS_SUFFIX)));
+                    Files.deleteIfExists(directory.resolve(name(old, SNAPSHOT_SUFFIX)));
+                }
+            }
+        }
+
+        /**
+         * Copies a record into the pending buffer and wakes the writer thread if it waits.
+         *
+         * @param record The record.
+         */
+        void append(ByteBuffer record){
+            synchronized (lock) {
+                if (failure != null || closed){
+                    return;                                 //Reported once by the writer thread
+                }
+                if (!record.hasRemaining()){
+                    return;                                 //Would never become durable, the writer only wakes for bytes
+                }
+                if (pending.remaining() < record.remaining()){
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + record.remaining()));
+                    pending.flip();
+                    larger.put(pending);
+                    pending = larger;
+                }
+                pending.put(record);
+                appended++;
+                if (writerWaiting){
+                    writerWaiting = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Waits until all records appended so far are on the disk.
+         *
+         * @throws IOException If the records could not be written.
+         */
+        void sync() throws IOException {
+            synchronized (lock) {
+                while (durable < appended && failure == null){
+                    lock.notifyAll();
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the journal", e);
+                    }
+                }
+                if (failure != null){
+                    throw failure;
+                }
+            }
+        }
+
+        /**
+         * Writes the outstanding records, stops the writer thread and closes the record file.
+         *
+         * @throws IOException If the outstanding records could not be written.
+         */
+        void close() throws IOException {
+            try {
+                sync();
+            } finally {
+                synchronized (lock) {
+                    closed = true;
+                    lock.notifyAll();
+                }
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (lock) {
+                    if (channel != null){
+                        channel.close();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Appends the buffered records to the record file and forces them to the disk, one group at a time, until
+         * the files are closed.
+         */
+        private void writeLoop(){
+            while (true) {
+                FileChannel target;
+                long group;
+                synchronized (lock) {
+                    while (pending.position() == 0 && !closed){
+                        writerWaiting = true;
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (pending.position() == 0){
+                        return;
+                    }
+                    ByteBuffer full = pending;
+                    pending = writing;
+                    writing = full;
+                    target = channel;
+                    group = appended;
+                }
+                try {
+                    writing.flip();
+                    while (writing.hasRemaining()){
+                        target.write(writing);
+                    }
+                    target.force(false);
+                    writing.clear();
+                    synchronized (lock) {
+                        durable = group;
+                        lock.notifyAll();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                    synchronized (lock) {
+                        failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                        System.out.println("Journal " + directory + " failed, records are no longer written");
+                        lock.notifyAll();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
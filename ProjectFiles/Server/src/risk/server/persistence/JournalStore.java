@@ -0,0 +1,91 @@
+package risk.server.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Defines where the journals of the games of a server are stored.
+ * <p>
+ * A journal of a game consists of its latest snapshot and the records written after it. The store does not look into
+ * either; snapshots and records are encoded and decoded by the game's journal. Each game is identified by a key of its
+ * own, and each game writes from one thread only, while different games write at the same time.
+ * <p>
+ * {@link FileJournalStore} keeps the journal of each game in files of its own, {@link MappedJournalStore} keeps the
+ * journals of all games in shared segment files mapped into memory, and {@link MemoryJournalStore} keeps them in memory
+ * only, for games played without a server.
+ */
+public interface JournalStore extends Closeable {
+
+    /**
+     * Appends a record to the journal of a game. The record does not have to be on the disk when this method returns;
+     * {@link #sync(String)} waits until it is.
+     *
+     * @param game The key of the game.
+     * @param record The record, from its position to its limit.
+     */
+    public void append(String game, ByteBuffer record);
+
+    /**
+     * Replaces the journal of a game with a new snapshot, so the records appended so far are no longer needed.
+     * Blocks until the snapshot is on the disk.
+     *
+     * @param game The key of the game.
+     * @param snapshot The snapshot, from its position to its limit.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void checkpoint(String game, ByteBuffer snapshot) throws IOException;
+
+    /**
+     * Waits until all records appended to the journal of a game are on the disk.
+     *
+     * @param game The key of the game.
+     * @throws IOException If the journal could not be written.
+     */
+    public void sync(String game) throws IOException;
+
+    /**
+     * Writes the outstanding records of a game and stops writing its journal. The journal is kept, so the game can be
+     * recovered from it.
+     *
+     * @param game The key of the game.
+     * @throws IOException If the outstanding records could not be written.
+     */
+    public void release(String game) throws IOException;
+
+    /**
+     * Removes the journal of a game that is over, so its space can be reused.
+     *
+     * @param game The key of the game.
+     * @throws IOException If the journal cannot be removed.
+     */
+    public void finish(String game) throws IOException;
+
+    /**
+     * Reads the latest snapshot of a game.
+     *
+     * @param game The key of the game.
+     * @return The snapshot, or {@code null} if the store holds no journal of the game.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    public ByteBuffer readSnapshot(String game) throws IOException;
+
+    /**
+     * Reads the records appended to the journal of a game after its latest snapshot, in the order they were appended.
+     * After a crash the last record may be incomplete.
+     *
+     * @param game The key of the game.
+     * @return The records, empty if there are none.
+     * @throws IOException If the records cannot be read.
+     */
+    public ByteBuffer readRecords(String game) throws IOException;
+
+    /**
+     * Lists the games the store holds a journal of, e.g. to recover them after the server was restarted.
+     *
+     * @return The keys of the games, in no particular order.
+     * @throws IOException If the store cannot be read.
+     */
+    public List<String> games() throws IOException;
+}
@@ -0,0 +1,681 @@
+package risk.server.persistence;
+
+import risk.common.protocol.Varint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps the journals of all games in shared segment files that are mapped into memory.
+ * <p>
+ * Snapshots and records of all games are appended to the same segment, one entry each:
+ * <pre>
+ *     entry: length of the body (4 bytes) | body | CRC32C of the body (4 bytes)
+ *     body:  kind (1 byte) | varint length of the key of the game | key (UTF-8) | snapshot or record
+ * </pre>
+ * Appending an entry copies it into the mapped segment and costs no system call. A flusher thread forces the segments
+ * to the disk every few milliseconds, and right away when a game waits in {@link #sync(String)} or
+ * {@link #checkpoint(String, ByteBuffer)}; so however many games are played, there is one fsync per interval. A
+ * crash of the server process loses nothing that was appended, as the mapped pages belong to the operating system;
+ * a crash of the operating system loses at most the entries of the last interval.
+ * <p>
+ * Once a segment is full, it is forced to the disk and the next segment is started. The entries of a game are live
+ * until the game takes its next checkpoint or is finished. The flusher compacts the oldest segment once less than
+ * half of it is live: the games with live entries in it are copied to the current segment, each as its snapshot and
+ * one entry holding all its records, and the segment is deleted. Segments are only deleted oldest first, so an entry
+ * that finished a game is never deleted before the older entries of that game.
+ * <p>
+ * On start the store reads all segments, oldest first, and continues in a new segment. A segment is read up to its
+ * first incomplete or damaged entry.
+ */
+public class MappedJournalStore implements JournalStore {
+    /** The file name extension of the segments. */
+    public static final String SEGMENT_SUFFIX = ".segment";
+    /** The default size of a segment, large enough for the snapshot of any game. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    /** The default time between two flushes of the segments in milliseconds. */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5;
+
+    private static final byte SNAPSHOT = 1;
+    private static final byte RECORD = 2;
+    private static final byte FINISH = 3;
+    private static final int LENGTH_BYTES = 4;
+    private static final int CHECKSUM_BYTES = 4;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushIntervalMillis;
+    private final Object lock = new Object();
+    private final Thread flusher;
+    //Guarded by lock
+    private final CRC32C checksum = new CRC32C();
+    private final Map<String, Chain> games = new HashMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long appended;
+    private long durable;
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Constructs a MappedJournalStore with segments of {@link #DEFAULT_SEGMENT_SIZE} that are flushed every
+     * {@link #DEFAULT_FLUSH_INTERVAL_MILLIS} milliseconds.
+     *
+     * @param directory The directory of the segments; it is created if necessary.
+     * @throws IOException If the directory or the segments in it cannot be read.
+     */
+    public MappedJournalStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructs a MappedJournalStore, reads the journals from the segments in the directory and starts a new segment.
+     *
+     * @param directory The directory of the segments; it is created if necessary.
+     * @param segmentSize The size of a segment in bytes. A snapshot has to fit into one segment.
+     * @param flushIntervalMillis The time between two flushes of the segments in milliseconds.
+     * @throws IOException If the directory or the segments in it cannot be read, or the new segment cannot be created.
+     */
+    public MappedJournalStore(Path directory, int segmentSize, long flushIntervalMillis) throws IOException {
+        if (segmentSize < 1024 || flushIntervalMillis < 1){
+            throw new IllegalArgumentException("Segments need at least 1024 bytes and a flush interval of at least 1 ms.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        Files.createDirectories(directory);
+        long lastSequence = 0;
+        synchronized (lock) {
+            for (long sequence : sequences()){
+                readSegment(sequence);
+                lastSequence = sequence;
+            }
+            active = createSegment(lastSequence + 1);
+        }
+        System.out.println("Journal store " + directory + " holds " + games.size() + " games in " + (segments.size() - 1) + " segments");
+        this.flusher = Thread.ofPlatform().daemon().name("journal-flusher").start(this::flushLoop);
+    }
+
+    @Override
+    public void append(String game, ByteBuffer record){
+        synchronized (lock) {
+            if (failure != null || closed){
+                return;                                 //Reported once by the flusher
+            }
+            Chain chain = games.get(game);
+            if (chain == null){
+                System.out.println("Journal of game " + game + " has no checkpoint, record discarded");
+                return;
+            }
+            try {
+                track(chain, put(RECORD, chain.key, record));
+            } catch (IOException e) {
+                System.out.println("Record of game " + game + " discarded: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void checkpoint(String game, ByteBuffer snapshot) throws IOException {
+        long target;
+        synchronized (lock) {
+            checkOpen();
+            Chain chain = games.get(game);
+            if (chain == null){
+                chain = new Chain(game.getBytes(StandardCharsets.UTF_8));
+                games.put(game, chain);
+            }
+            long location = put(SNAPSHOT, chain.key, snapshot);
+            discard(chain);
+            track(chain, location);
+            target = appended;
+        }
+        awaitDurable(target);
+    }
+
+    @Override
+    public void sync(String game) throws IOException {
+        long target;
+        synchronized (lock) {
+            target = appended;
+        }
+        awaitDurable(target);
+    }
+
+    /**
+     * Writes the outstanding records of a game. The journal of the game stays in the segments, there is nothing else
+     * to release.
+     *
+     * @param game The key of the game.
+     * @throws IOException If the outstanding records could not be written.
+     */
+    @Override
+    public void release(String game) throws IOException {
+        sync(game);
+    }
+
+    @Override
+    public void finish(String game) throws IOException {
+        long target;
+        synchronized (lock) {
+            checkOpen();
+            Chain chain = games.remove(game);
+            if (chain == null){
+                return;
+            }
+            discard(chain);
+            put(FINISH, chain.key, ByteBuffer.allocate(0));   //Never live, see the compaction
+            target = appended;
+        }
+        awaitDurable(target);
+    }
+
+    @Override
+    public ByteBuffer readSnapshot(String game) throws IOException {
+        synchronized (lock) {
+            Chain chain = games.get(game);
+            if (chain == null || chain.size == 0){
+                return null;
+            }
+            return copy(payload(chain.locations[0]));
+        }
+    }
+
+    @Override
+    public ByteBuffer readRecords(String game) throws IOException {
+        synchronized (lock) {
+            Chain chain = games.get(game);
+            if (chain == null){
+                return ByteBuffer.allocate(0);
+            }
+            return records(chain);
+        }
+    }
+
+    @Override
+    public List<String> games(){
+        List<String> keys = new ArrayList<>();
+        synchronized (lock) {
+            for (Map.Entry<String, Chain> entry : games.entrySet()){
+                if (entry.getValue().size > 0){
+                    keys.add(entry.getKey());
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Flushes the segments a last time and stops the flusher. Records appended afterwards are discarded.
+     *
+     * @throws IOException If the segments could not be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (failure != null){
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Appends an entry to the current segment, starting the next segment if it does not fit. Must be called with the
+     * lock held.
+     *
+     * @param kind The kind of the entry.
+     * @param key The key of the game, encoded.
+     * @param payload The snapshot or record, from its position to its limit; the position is not changed.
+     * @return The location of the entry.
+     * @throws IOException If the entry is larger than a segment or the next segment cannot be created.
+     */
+    private long put(byte kind, byte[] key, ByteBuffer payload) throws IOException {
+        int bodyLength = 1 + Varint.sizeOf(key.length) + key.length + payload.remaining();
+        int entryLength = LENGTH_BYTES + bodyLength + CHECKSUM_BYTES;
+        if (entryLength > segmentSize){
+            throw new IOException("Entry of " + entryLength + " bytes does not fit into a segment of " + segmentSize + " bytes.");
+        }
+        if (active.written + entryLength > segmentSize){
+            roll();
+        }
+        MappedByteBuffer map = active.map;
+        int offset = active.written;
+        map.position(offset);
+        map.putInt(bodyLength);
+        map.put(kind);
+        Varint.putVarint(map, key.length);
+        map.put(key);
+        map.put(payload.duplicate());
+        checksum.reset();
+        checksum.update(map.slice(offset + LENGTH_BYTES, bodyLength));
+        map.putInt((int) checksum.getValue());
+        active.written = offset + entryLength;
+        appended += entryLength;
+        return location(active.sequence, offset);
+    }
+
+    /**
+     * Adds an entry to the live entries of a game. Must be called with the lock held.
+     *
+     * @param chain The live entries of the game.
+     * @param location The location of the entry.
+     */
+    private void track(Chain chain, long location){
+        Segment segment = segments.get(location >>> 32);
+        segment.live += entryLength(location);
+        if (chain.size == 0 || chain.locations[chain.size - 1] >>> 32 != segment.sequence){
+            segment.chains.add(chain);
+        }
+        chain.add(location);
+    }
+
+    /**
+     * Marks the live entries of a game as no longer needed. Must be called with the lock held.
+     *
+     * @param chain The live entries of the game, empty afterwards.
+     */
+    private void discard(Chain chain){
+        for (int i = 0; i < chain.size; i++){
+            segments.get(chain.locations[i] >>> 32).live -= entryLength(chain.locations[i]);
+        }
+        chain.size = 0;
+    }
+
+    /**
+     * Forces the full segment to the disk and starts the next one, so a later segment never holds entries while an
+     * earlier one lost some in a crash. Must be called with the lock held.
+     *
+     * @throws IOException If the next segment cannot be created.
+     */
+    private void roll() throws IOException {
+        Segment full = active;
+        full.map.force(full.flushed, full.written - full.flushed);
+        full.flushed = full.written;
+        active = createSegment(full.sequence + 1);
+    }
+
+    /**
+     * Creates a segment file of the segment size and maps it. Must be called with the lock held.
+     *
+     * @param sequence The number of the segment.
+     * @return The segment.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    private Segment createSegment(long sequence) throws IOException {
+        Path path = directory.resolve(name(sequence));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segment segment = new Segment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            segments.put(sequence, segment);
+            return segment;
+        }
+    }
+
+    /**
+     * Maps an existing segment and replays its entries into the live entries of the games. Must be called with the
+     * lock held, oldest segment first.
+     *
+     * @param sequence The number of the segment.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    private void readSegment(long sequence) throws IOException {
+        Path path = directory.resolve(name(sequence));
+        Segment segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = new Segment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+        segments.put(sequence, segment);
+        MappedByteBuffer map = segment.map;
+        int offset = 0;
+        while (offset + LENGTH_BYTES + CHECKSUM_BYTES <= map.capacity()){
+            int bodyLength = map.getInt(offset);
+            if (bodyLength == 0){
+                break;                                  //End of the entries
+            }
+            if (bodyLength < 0 || offset + LENGTH_BYTES + bodyLength + CHECKSUM_BYTES > map.capacity()){
+                System.out.println("Segment " + path + " ends with an incomplete entry at byte " + offset);
+                break;
+            }
+            ByteBuffer body = map.slice(offset + LENGTH_BYTES, bodyLength);
+            checksum.reset();
+            checksum.update(body.duplicate());
+            if ((int) checksum.getValue() != map.getInt(offset + LENGTH_BYTES + bodyLength)){
+                System.out.println("Segment " + path + " has a damaged entry at byte " + offset);
+                break;
+            }
+            byte kind = body.get();
+            byte[] key = new byte[Varint.getVarint(body)];
+            body.get(key);
+            String game = new String(key, StandardCharsets.UTF_8);
+            long location = location(sequence, offset);
+            Chain chain = games.get(game);
+            if (kind == SNAPSHOT){
+                if (chain == null){
+                    chain = new Chain(key);
+                    games.put(game, chain);
+                }
+                discard(chain);
+                track(chain, location);
+            } else if (kind == RECORD && chain != null){
+                track(chain, location);
+            } else if (kind == FINISH && chain != null){
+                discard(chain);
+                games.remove(game);
+            }
+            offset += LENGTH_BYTES + bodyLength + CHECKSUM_BYTES;
+        }
+        segment.written = offset;
+        segment.flushed = offset;
+    }
+
+    /**
+     * Forces the segments to the disk every flush interval or when asked to, and compacts the oldest segments, until
+     * the store is closed.
+     */
+    private void flushLoop(){
+        while (true) {
+            boolean stop;
+            synchronized (lock) {
+                if (!flushRequested && !closed){
+                    try {
+                        lock.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+                stop = closed;
+            }
+            try {
+                flush();
+                if (stop){
+                    return;
+                }
+                compact();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                synchronized (lock) {
+                    failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                    System.out.println("Journal store " + directory + " failed, records are no longer written");
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forces everything appended so far to the disk and wakes the threads waiting for it. Called by the flusher only.
+     */
+    private void flush(){
+        List<Segment> dirty = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        long target;
+        synchronized (lock) {
+            target = appended;
+            if (target == durable){
+                return;
+            }
+            for (Segment segment : segments.values()){
+                if (segment.written > segment.flushed){
+                    dirty.add(segment);
+                    starts.add(segment.flushed);
+                    ends.add(segment.written);
+                }
+            }
+        }
+        for (int i = 0; i < dirty.size(); i++){
+            dirty.get(i).map.force(starts.get(i), ends.get(i) - starts.get(i));
+        }
+        synchronized (lock) {
+            for (int i = 0; i < dirty.size(); i++){
+                dirty.get(i).flushed = Math.max(dirty.get(i).flushed, ends.get(i));
+            }
+            durable = target;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Deletes the oldest segments while less than half of each is live, after copying the games that still have live
+     * entries in them to the current segment. Called by the flusher only.
+     *
+     * @throws IOException If a game cannot be copied.
+     */
+    private void compact() throws IOException {
+        List<Segment> compacted = new ArrayList<>();
+        synchronized (lock) {
+            for (Segment segment : new ArrayList<>(segments.values())){
+                if (segment == active || segment.live * 2 > segment.written){
+                    break;
+                }
+                for (Chain chain : segment.chains){
+                    if (chain.size > 0 && (chain.locations[0] >>> 32) <= segment.sequence){
+                        ByteBuffer snapshot = copy(payload(chain.locations[0]));
+                        ByteBuffer records = records(chain);
+                        long snapshotLocation = put(SNAPSHOT, chain.key, snapshot);
+                        long recordsLocation = records.hasRemaining() ? put(RECORD, chain.key, records) : -1;
+                        discard(chain);
+                        track(chain, snapshotLocation);
+                        if (recordsLocation >= 0){
+                            track(chain, recordsLocation);
+                        }
+                    }
+                }
+                segments.remove(segment.sequence);
+                compacted.add(segment);
+            }
+        }
+        if (compacted.isEmpty()){
+            return;
+        }
+        flush();                                        //The copies have to be on the disk before the originals go
+        for (Segment segment : compacted){
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                System.out.println("Segment " + segment.path + " could not be deleted: " + e.getMessage());
+            }
+        }
+        System.out.println("Journal store " + directory + " compacted " + compacted.size() + " segments");
+    }
+
+    /**
+     * Asks the flusher to flush now and waits until everything up to the given position is on the disk.
+     *
+     * @param target The number of bytes appended that have to be on the disk.
+     * @throws IOException If the store failed or was interrupted.
+     */
+    private void awaitDurable(long target) throws IOException {
+        synchronized (lock) {
+            while (durable < target && failure == null){
+                flushRequested = true;
+                lock.notifyAll();
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+            if (failure != null){
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Checks that the store can still be written. Must be called with the lock held.
+     *
+     * @throws IOException If the store failed or has been closed.
+     */
+    private void checkOpen() throws IOException {
+        if (failure != null){
+            throw failure;
+        }
+        if (closed){
+            throw new IOException("Journal store " + directory + " is closed");
+        }
+    }
+
+    /**
+     * Collects the records of a game into one buffer. Must be called with the lock held.
+     *
+     * @param chain The live entries of the game.
+     * @return The records, in the order they were appended.
+     */
+    private ByteBuffer records(Chain chain){
+        int length = 0;
+        for (int i = 1; i < chain.size; i++){
+            length += payload(chain.locations[i]).remaining();
+        }
+        ByteBuffer records = ByteBuffer.allocate(length);
+        for (int i = 1; i < chain.size; i++){
+            records.put(payload(chain.locations[i]));
+        }
+        return records.flip();
+    }
+
+    /**
+     * Retrieves the snapshot or record of an entry. Must be called with the lock held.
+     *
+     * @param location The location of the entry.
+     * @return A view of the snapshot or record in the mapped segment.
+     */
+    private ByteBuffer payload(long location){
+        MappedByteBuffer map = segments.get(location >>> 32).map;
+        int offset = (int) location;
+        ByteBuffer body = map.slice(offset + LENGTH_BYTES, map.getInt(offset));
+        body.get();
+        int keyLength = Varint.getVarint(body);
+        return body.position(body.position() + keyLength).slice();
+    }
+
+    /**
+     * Retrieves the length of an entry. Must be called with the lock held.
+     *
+     * @param location The location of the entry.
+     * @return The length in bytes, including the length and the checksum.
+     */
+    private int entryLength(long location){
+        return LENGTH_BYTES + segments.get(location >>> 32).map.getInt((int) location) + CHECKSUM_BYTES;
+    }
+
+    /**
+     * Lists the numbers of the segments in the directory.
+     *
+     * @return The numbers, oldest first.
+     * @throws IOException If the directory cannot be read.
+     */
+    private List<Long> sequences() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files){
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    //Not a segment of the store
+                }
+            }
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    /**
+     * Copies a buffer to the heap, so it stays valid after its segment has been deleted.
+     *
+     * @param buffer The buffer.
+     * @return The copy.
+     */
+    private static ByteBuffer copy(ByteBuffer buffer){
+        return ByteBuffer.allocate(buffer.remaining()).put(buffer.duplicate()).flip();
+    }
+
+    /**
+     * Combines the number of a segment and the offset of an entry in it into the location of the entry.
+     *
+     * @param sequence The number of the segment.
+     * @param offset The offset of the entry.
+     * @return The location.
+     */
+    private static long location(long sequence, int offset){
+        return sequence << 32 | offset;
+    }
+
+    /**
+     * Builds the name of a segment file, numbered so the names sort like the segments.
+     *
+     * @param sequence The number of the segment.
+     * @return The file name.
+     */
+    private static String name(long sequence){
+        return String.format("%019d%s", sequence, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * A segment file mapped into memory, with the bytes written to it, flushed from it and still live in it.
+     */
+    private static class Segment {
+        final long sequence;
+        final Path path;
+        final MappedByteBuffer map;
+        final Set<Chain> chains = new HashSet<>();     //Games with entries in the segment, live or not
+        int written;
+        int flushed;
+        long live;
+
+        Segment(long sequence, Path path, MappedByteBuffer map){
+            this.sequence = sequence;
+            this.path = path;
+            this.map = map;
+        }
+    }
+
+    /**
+     * The live entries of a game: its latest snapshot followed by the records appended after it.
+     */
+    private static class Chain {
+        final byte[] key;
+        long[] locations = new long[16];
+        int size;
+
+        Chain(byte[] key){
+            this.key = key;
+        }
+
+        void add(long location){
+            if (size == locations.length){
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            locations[size++] = location;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package risk.server.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the journals of games in memory only, e.g. to record games played without a server so they can be exported
+ * as replays. Nothing survives the process, so the journals are of no use for recovering from a crash.
+ */
+public class MemoryJournalStore implements JournalStore {
+    private final Map<String, GameMemory> games = new ConcurrentHashMap<>();
+
+    @Override
+    public void append(String game, ByteBuffer record){
+        GameMemory memory = games.get(game);
+        if (memory == null){
+            System.out.println("Journal of game " + game + " has no checkpoint, record discarded");
+            return;
+        }
+        memory.append(record);
+    }
+
+    @Override
+    public void checkpoint(String game, ByteBuffer snapshot){
+        ByteBuffer copy = ByteBuffer.allocate(snapshot.remaining());
+        copy.put(snapshot).flip();
+        games.put(game, new GameMemory(copy));
+    }
+
+    @Override
+    public void sync(String game){
+        //Records are complete as soon as they are appended
+    }
+
+    @Override
+    public void release(String game){
+        //The journal is kept until it is finished
+    }
+
+    @Override
+    public void finish(String game){
+        games.remove(game);
+    }
+
+    @Override
+    public ByteBuffer readSnapshot(String game){
+        GameMemory memory = games.get(game);
+        return memory == null ? null : memory.snapshot.duplicate();
+    }
+
+    @Override
+    public ByteBuffer readRecords(String game){
+        GameMemory memory = games.get(game);
+        return memory == null ? ByteBuffer.allocate(0) : memory.records();
+    }
+
+    @Override
+    public List<String> games(){
+        return new ArrayList<>(games.keySet());
+    }
+
+    @Override
+    public void close(){
+        games.clear();
+    }
+
+    /**
+     * The snapshot of one game and the records appended after it.
+     */
+    private static class GameMemory {
+        private final ByteBuffer snapshot;
+        private ByteBuffer records = ByteBuffer.allocate(4096);
+
+        GameMemory(ByteBuffer snapshot){
+            this.snapshot = snapshot;
+        }
+
+        synchronized void append(ByteBuffer record){
+            if (records.remaining() < record.remaining()){
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(records.capacity() * 2, records.position() + record.remaining()));
+                records.flip();
+                larger.put(records);
+                records = larger;
+            }
+            records.put(record);
+        }
+
+        /**
+         * Copies the records appended so far.
+         *
+         * @return The records, positioned at the first one.
+         */
+        synchronized ByteBuffer records(){
+            ByteBuffer copy = ByteBuffer.allocate(records.position());
+            copy.put(records.array(), 0, records.position()).flip();
+            return copy;
+        }
+    }
+}